@@ -0,0 +1,81 @@
+package mpi.eudico.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mpi.eudico.client.annotator.search.model.EAFType;
+import mpi.eudico.client.annotator.search.model.ElanSearchEngine;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.search.content.query.model.AnchorConstraint;
+import mpi.search.content.query.model.Constraint;
+import mpi.search.content.query.model.ContentQuery;
+import mpi.search.content.query.model.QueryFormulationException;
+
+/**
+ * Single file queries by the {@code ElanSearchEngine}: a substring search on
+ * one tier and a regular expression search on all tiers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+	/** the number of annotations of the transcription */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private TranscriptionImpl transcription;
+
+	/**
+	 * Generates the transcription.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		transcription = TranscriptionGenerator.generate(size);
+	}
+
+	/**
+	 * Searches a word on the first tier.
+	 *
+	 * @return the number of matches
+	 * @throws QueryFormulationException if the query is invalid
+	 */
+	@Benchmark
+	public int substringOneTier() throws QueryFormulationException {
+		return search(new AnchorConstraint(TranscriptionGenerator.TIER_PREFIX + 0,
+				"water", false, false));
+	}
+
+	/**
+	 * Searches values starting with a word followed by another word, on all
+	 * tiers.
+	 *
+	 * @return the number of matches
+	 * @throws QueryFormulationException if the query is invalid
+	 */
+	@Benchmark
+	public int regexAllTiers() throws QueryFormulationException {
+		return search(new AnchorConstraint(Constraint.ALL_TIERS,
+				"^(the|a) \\w+", true, false));
+	}
+
+	private int search(AnchorConstraint constraint) throws QueryFormulationException {
+		ContentQuery query = new ContentQuery(constraint, new EAFType());
+		new ElanSearchEngine(null, transcription).executeThread(query);
+		return query.getResult().getMatches().size();
+	}
+}
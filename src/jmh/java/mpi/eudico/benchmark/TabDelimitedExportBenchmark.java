@@ -0,0 +1,81 @@
+package mpi.eudico.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mpi.eudico.client.util.Transcription2TabDelimitedText;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.delimitedtext.DelimitedTextEncoderInfoTrans;
+
+/**
+ * Export of all tiers of a transcription to tab-delimited text by
+ * {@code Transcription2TabDelimitedText}, with the default columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class TabDelimitedExportBenchmark {
+	/** the number of annotations of the transcription */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private DelimitedTextEncoderInfoTrans encoderInfo;
+	private File exportFile;
+
+	/**
+	 * Generates the transcription and configures the export.
+	 *
+	 * @throws IOException if the temporary file cannot be created
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		TranscriptionImpl transcription = TranscriptionGenerator.generate(size);
+		exportFile = File.createTempFile("benchmark-export", ".txt");
+		List<String> tierNames = new ArrayList<String>();
+		for (TierImpl tier : transcription.getTiers()) {
+			tierNames.add(tier.getName());
+		}
+		encoderInfo = new DelimitedTextEncoderInfoTrans(transcription);
+		encoderInfo.setTierNames(tierNames);
+		encoderInfo.setExportFile(exportFile);
+	}
+
+	/**
+	 * Deletes the export file.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		exportFile.delete();
+	}
+
+	/**
+	 * Exports the tiers to the file.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Benchmark
+	public void exportTiers() throws IOException {
+		new Transcription2TabDelimitedText().exportTiers(encoderInfo);
+	}
+}
@@ -0,0 +1,89 @@
+package mpi.eudico.benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * Time based queries on a tier, as performed by the viewers when the media
+ * time changes or an interval is painted. The query times are random but
+ * the same for each run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class TierQueryBenchmark {
+	/** the number of random query times, a power of two */
+	private static final int NUM_TIMES = 1 << 12;
+	/** the length of the interval of an overlap query, a visible part of a viewer */
+	private static final long INTERVAL = 10000L;
+
+	/** the number of annotations of the transcription */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private TierImpl tier;
+	private long[] times;
+	private int next;
+
+	/**
+	 * Generates the transcription and the query times.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		TranscriptionImpl transcription = TranscriptionGenerator.generate(size);
+		tier = transcription.getTierWithId(TranscriptionGenerator.TIER_PREFIX + 0);
+		long lastTime = transcription.getLatestTime();
+		Random random = new Random(TranscriptionGenerator.SEED);
+		times = new long[NUM_TIMES];
+		for (int i = 0; i < NUM_TIMES; i++) {
+			times[i] = (long) (random.nextDouble() * lastTime);
+		}
+	}
+
+	private long nextTime() {
+		next = (next + 1) & (NUM_TIMES - 1);
+		return times[next];
+	}
+
+	/**
+	 * Finds the annotation at a time.
+	 *
+	 * @return the annotation at the time or {@code null}
+	 */
+	@Benchmark
+	public Annotation annotationAtTime() {
+		return tier.getAnnotationAtTime(nextTime());
+	}
+
+	/**
+	 * Finds the annotations overlapping an interval.
+	 *
+	 * @return the overlapping annotations
+	 */
+	@Benchmark
+	public List<Annotation> overlappingAnnotations() {
+		long begin = nextTime();
+		return tier.getOverlappingAnnotations(begin, begin + INTERVAL);
+	}
+}
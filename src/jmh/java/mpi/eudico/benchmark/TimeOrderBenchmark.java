@@ -0,0 +1,77 @@
+package mpi.eudico.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mpi.eudico.server.corpora.clom.TimeSlot;
+import mpi.eudico.server.corpora.clomimpl.abstr.TimeOrderImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TimeSlotImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * Insertion of time slots in the {@code TimeOrderImpl} of a transcription,
+ * as happens when an annotation is created. The inserted slot is removed
+ * again in the same invocation, so that the size of the time order stays the
+ * same; the time order contains two slots per annotation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class TimeOrderBenchmark {
+	/** the number of random slot times, a power of two */
+	private static final int NUM_TIMES = 1 << 12;
+
+	/** the number of annotations of the transcription */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private TimeOrderImpl timeOrder;
+	private long[] times;
+	private int next;
+
+	/**
+	 * Generates the transcription and the times of the slots to insert.
+	 */
+	@Setup(Level.Trial)
+	public void setUp() {
+		TranscriptionImpl transcription = TranscriptionGenerator.generate(size);
+		timeOrder = (TimeOrderImpl) transcription.getTimeOrder();
+		long lastTime = transcription.getLatestTime();
+		Random random = new Random(TranscriptionGenerator.SEED);
+		times = new long[NUM_TIMES];
+		for (int i = 0; i < NUM_TIMES; i++) {
+			times[i] = (long) (random.nextDouble() * lastTime);
+		}
+	}
+
+	/**
+	 * Inserts a time slot at a random time and removes it again.
+	 *
+	 * @return the index the slot was inserted at
+	 */
+	@Benchmark
+	public int insertTimeSlot() {
+		next = (next + 1) & (NUM_TIMES - 1);
+		TimeSlot slot = new TimeSlotImpl(times[next], timeOrder);
+		timeOrder.insertTimeSlot(slot);
+		int index = slot.getIndex();
+		timeOrder.removeTimeSlot(slot);
+		return index;
+	}
+}
@@ -0,0 +1,114 @@
+package mpi.eudico.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mpi.eudico.server.corpora.clom.TimeSlot;
+import mpi.eudico.server.corpora.clomimpl.abstr.AlignableAnnotation;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TimeOrderImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TimeSlotComparator;
+import mpi.eudico.server.corpora.clomimpl.abstr.TimeSlotImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+
+/**
+ * Creates synthetic transcriptions for the benchmarks. The annotations are
+ * distributed over a number of independent, time alignable tiers; on each
+ * tier the annotations follow each other with a random duration and a random
+ * gap. The values consist of a few words from a small vocabulary, so that a
+ * search for a single word produces a predictable share of matches.
+ * <p>
+ * The generator is seeded, so that the same size always produces the same
+ * transcription and results of different versions remain comparable.
+ */
+public final class TranscriptionGenerator {
+	/** the number of tiers of a generated transcription */
+	public static final int NUM_TIERS = 4;
+	/** the prefix of the tier names, followed by the index of the tier */
+	public static final String TIER_PREFIX = "tier-";
+	/** the seed of the random generator */
+	public static final long SEED = 20231017L;
+	/** the vocabulary of the annotation values */
+	static final String[] WORDS = {"the", "a", "house", "tree", "walk", "see", "give", "red",
+			"small", "quickly", "yes", "no", "mother", "child", "water", "fire", "eat", "sleep",
+			"go", "come", "here", "there", "big", "old", "new", "say", "hand", "eye", "stone",
+			"river", "bird", "dog"};
+	/** the minimum duration of an annotation in milliseconds */
+	private static final int MIN_DURATION = 200;
+	/** the maximum duration added to the minimum duration */
+	private static final int DURATION_RANGE = 1800;
+	/** the maximum gap between two annotations on a tier */
+	private static final int GAP_RANGE = 500;
+
+	private TranscriptionGenerator() {
+		super();
+	}
+
+	/**
+	 * Creates a transcription with the specified total number of
+	 * annotations.
+	 *
+	 * @param numAnnotations the number of annotations, distributed evenly
+	 * over the tiers
+	 *
+	 * @return a new transcription, not associated with a file
+	 */
+	public static TranscriptionImpl generate(int numAnnotations) {
+		Random random = new Random(SEED);
+		TranscriptionImpl transcription = new TranscriptionImpl();
+		transcription.setNotifying(false);
+
+		LinguisticType type = new LinguisticType("default-lt");
+		type.setTimeAlignable(true);
+		transcription.addLinguisticType(type);
+
+		TimeOrderImpl timeOrder = (TimeOrderImpl) transcription.getTimeOrder();
+		List<TimeSlot> slots = new ArrayList<TimeSlot>(2 * numAnnotations);
+		List<TierImpl> tiers = new ArrayList<TierImpl>(NUM_TIERS);
+		for (int t = 0; t < NUM_TIERS; t++) {
+			TierImpl tier = new TierImpl(TIER_PREFIX + t, "speaker-" + t, transcription, type);
+			transcription.addTier(tier);
+			tiers.add(tier);
+		}
+
+		for (int t = 0; t < NUM_TIERS; t++) {
+			TierImpl tier = tiers.get(t);
+			int numOnTier = numAnnotations / NUM_TIERS + (t < numAnnotations % NUM_TIERS ? 1 : 0);
+			long time = random.nextInt(GAP_RANGE);
+			for (int i = 0; i < numOnTier; i++) {
+				long end = time + MIN_DURATION + random.nextInt(DURATION_RANGE);
+				TimeSlot bts = new TimeSlotImpl(time, timeOrder);
+				TimeSlot ets = new TimeSlotImpl(end, timeOrder);
+				slots.add(bts);
+				slots.add(ets);
+				AlignableAnnotation annotation = new AlignableAnnotation(bts, ets, tier);
+				annotation.setValue(createValue(random));
+				tier.insertAnnotation(annotation);
+				time = end + random.nextInt(GAP_RANGE);
+			}
+		}
+		// the sort is stable, the begin and end slot of an annotation keep their order
+		slots.sort(new TimeSlotComparator());
+		timeOrder.insertOrderedSlots(slots);
+
+		transcription.setNotifying(true);
+		return transcription;
+	}
+
+	/**
+	 * Creates a value of one to five words.
+	 */
+	private static String createValue(Random random) {
+		int numWords = 1 + random.nextInt(5);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < numWords; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+}
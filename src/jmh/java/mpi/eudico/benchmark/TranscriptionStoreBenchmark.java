@@ -0,0 +1,90 @@
+package mpi.eudico.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACM30TranscriptionStore;
+
+/**
+ * Loading and saving of an EAF file by the {@code ACM30TranscriptionStore}.
+ * The file to load is created once per trial from a generated transcription.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class TranscriptionStoreBenchmark {
+	/** the number of annotations of the transcription */
+	@Param({"1000", "100000", "1000000"})
+	public int size;
+
+	private TranscriptionImpl transcription;
+	private File loadFile;
+	private File saveFile;
+
+	/**
+	 * Generates the transcription and saves it to the file to load.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		transcription = TranscriptionGenerator.generate(size);
+		loadFile = File.createTempFile("benchmark-load", ".eaf");
+		saveFile = File.createTempFile("benchmark-save", ".eaf");
+		store(transcription, loadFile);
+	}
+
+	/**
+	 * Deletes the temporary files.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		loadFile.delete();
+		saveFile.delete();
+	}
+
+	/**
+	 * Parses the EAF file into a new transcription.
+	 *
+	 * @return the loaded transcription
+	 */
+	@Benchmark
+	public TranscriptionImpl load() {
+		return new TranscriptionImpl(loadFile.getAbsolutePath());
+	}
+
+	/**
+	 * Encodes the transcription and writes it to a file.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	@Benchmark
+	public void save() throws IOException {
+		store(transcription, saveFile);
+	}
+
+	private static void store(TranscriptionImpl transcription, File file) throws IOException {
+		new ACM30TranscriptionStore().storeTranscriptionIn(transcription, null,
+				transcription.getTiers(), file.getAbsolutePath(), TranscriptionStore.EAF);
+	}
+}
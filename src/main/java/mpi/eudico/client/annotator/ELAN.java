@@ -27,6 +27,7 @@ import javax.swing.plaf.FontUIResource;
 import mpi.eudico.client.annotator.update.ExternalUpdaterThread;
 import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
 import mpi.eudico.client.annotator.util.SystemReporting;
+import mpi.eudico.util.ExtClassLoader;
 
 
 /**
@@ -70,6 +71,9 @@ public class ELAN {
     	LOG.info("");
     	System.out.println("\n@ELAN Launched\n");
     	System.setProperty("ELANApplicationMain", ELAN.class.getName());
+    	// cache the indexes of the extension jars in the ELAN data folder
+    	System.setProperty(ExtClassLoader.INDEX_DIR_PROPERTY,
+    			Constants.ELAN_DATA_DIR + File.separator + "extension_index");
 
     	LOG.info(String.format("%s %s\n", appName, getVersionString()) + 
     			getSystemAndUserInfo());
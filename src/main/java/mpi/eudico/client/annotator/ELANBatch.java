@@ -0,0 +1,88 @@
+package mpi.eudico.client.annotator;
+
+import java.io.File;
+
+import mpi.eudico.client.annotator.batch.BatchJob;
+import mpi.eudico.client.annotator.batch.BatchOperation;
+import mpi.eudico.client.annotator.batch.BatchProcessor;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * The main class for running multiple file operations without a user
+ * interface, e.g. on a server. The operation and its options are read from
+ * a job description, a properties file as described in {@link BatchJob};
+ * properties can be overridden on the command line. Supported operations are
+ * {@code statistics}, {@code scrub}, {@code ecv-update}, {@code export-tab},
+ * {@code export-praat} and {@code import-praat}.
+ * <p>
+ * Usage information and errors are printed to the standard error stream.
+ * The exit value is 0 if all files have been processed, 2 if some files
+ * failed and 1 if the job could not be run or could not be finished.
+ */
+public class ELANBatch {
+	private static final String USAGE = "Usage: java (...) ELANBatch <job file> [key=value ...]";
+
+	/**
+	 * Private constructor.
+	 */
+	private ELANBatch() {
+	}
+
+	/**
+	 * Reads the job description and processes the files.
+	 *
+	 * @param args the job file, optionally followed by property overrides
+	 */
+	public static void main(String[] args) {
+		// make sure no user interface resources are initialized by any of the classes used
+		System.setProperty("java.awt.headless", "true");
+
+		System.exit(run(args));
+	}
+
+	/**
+	 * Runs a job without terminating the virtual machine.
+	 *
+	 * @param args the job file, optionally followed by property overrides
+	 * @return the exit value, 0 if all files have been processed, 2 if some
+	 * files failed and 1 if the job could not be run or could not be finished
+	 */
+	public static int run(String[] args) {
+		if (args.length == 0) {
+			System.err.println(USAGE);
+			return 1;
+		}
+		LOG.info("ELAN batch " + ELAN.getVersionString());
+
+		try {
+			BatchJob job = BatchJob.read(new File(args[0]));
+			for (int i = 1; i < args.length; i++) {
+				int eq = args[i].indexOf('=');
+				if (eq <= 0) {
+					System.err.println("Not a key=value pair: " + args[i]);
+					System.err.println(USAGE);
+					return 1;
+				}
+				job.setProperty(args[i].substring(0, eq), args[i].substring(eq + 1));
+			}
+
+			BatchOperation operation = BatchProcessor.createOperation(job.getOperation());
+			operation.configure(job);
+			BatchProcessor processor = new BatchProcessor(job, operation);
+			File report = processor.run();
+
+			System.out.println(String.format("Files processed: %d, failed: %d, report: %s",
+					processor.getNumSucceeded(), processor.getNumFailed(), report.getAbsolutePath()));
+			if (processor.getFinishError() != null) {
+				System.err.println("Error: " + processor.getFinishError());
+				return 1;
+			}
+			return processor.getNumFailed() > 0 ? 2 : 0;
+		} catch (Exception ex) {
+			System.err.println("Error: " + (ex.getMessage() != null ? ex.getMessage() : ex.toString()));
+			System.err.println(USAGE);
+			return 1;
+		}
+	}
+}
@@ -766,6 +766,11 @@ public class FrameManager implements PreferencesListener{
 	        
 	        if (exitAllowed) {
 	        	fireWindowClosing(this, ShutdownListener.Event.ELAN_EXITS_LATE);
+	        	try {
+	        		Preferences.flush();
+	        	} catch (IOException ioe) {
+	        		LOG.warning("Could not save the preferences: " + ioe.getMessage());
+	        	}
 	        	MonitoringLogger.exitElan();
 	        	LOG.info("ELAN stopped.");
 	        	// to suppress static analysis warnings
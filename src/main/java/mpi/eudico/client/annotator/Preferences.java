@@ -7,17 +7,26 @@ import java.awt.Point;
 import java.awt.Rectangle;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
+import javax.swing.SwingUtilities;
+
 import mpi.eudico.client.annotator.prefs.PrefKeyMapper;
 import mpi.eudico.client.annotator.prefs.PreferencesReader;
 import mpi.eudico.client.annotator.prefs.PreferencesWriter;
@@ -26,6 +35,8 @@ import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
 import nl.mpi.util.FileUtility;
 
+import org.w3c.dom.Element;
+
 /**
  * Administers the global preferences for ELAN and the preferences for each
  * document. A document is in this implementation the same as a Transcription,
@@ -70,6 +81,17 @@ public class Preferences {
     private static PreferencesWriter xmlPrefsWriter = new PreferencesWriter();
     private static Map<Transcription, String> prefLocations = new HashMap<Transcription, String>();
 
+    /** the delay between a change in the preferences and writing them to file, in ms */
+    private final static long WRITE_DELAY = 1000L;
+    /** documents with changed preferences, per file path, {@code null} for the global preferences */
+    private final static Map<String, Transcription> pendingWrites = new LinkedHashMap<String, Transcription>();
+    /** encoded preferences waiting to be written, per file path, guarded by the lock on pendingWrites */
+    private final static Map<String, Element> encodedWrites = new LinkedHashMap<String, Element>();
+    /** held while encoded documents are being written, so that a flush waits for a write in progress */
+    private final static Object writeLock = new Object();
+    private static ScheduledExecutorService writeExecutor;
+    private static ScheduledFuture<?> scheduledWrite;
+
     /**
      * Get the preference value for a certain preference key.
      * If the document is not {@code null} a document specific value is returned,
@@ -469,7 +491,8 @@ public class Preferences {
      * @param value preference value
      * @param document identifier for document specific preferences
      * @param notify if {@code true}, listeners are notified 
-     * @param savePrefs if {@code true}, the preferences are saved to file immediately
+     * @param savePrefs if {@code true}, the preferences are saved to file; the file is
+     * written shortly after the change, multiple changes within that time are written at once
      */
     public static void set(String key, Object value, Transcription document, 
     		boolean notify, boolean savePrefs) {
@@ -579,6 +602,13 @@ public class Preferences {
      * @param document the transcription, used as a key in the map
      */
     public static void removeDocument(Transcription document) {
+    	// make sure the last changes are in the file before the document is forgotten
+    	try {
+    		flush();
+    	} catch (IOException ioe) {
+    		LOG.warning("Could not save the preferences of " + document.getName() +
+    				" Cause: " + ioe.getMessage());
+    	}
     	if (preferences != null) {
     		preferences.remove(document);
     	}
@@ -864,55 +894,193 @@ public class Preferences {
     }
 
     /**
-     * Make the preferences for a certain document persistent.
+     * Make the preferences for a certain document persistent. The document is
+     * only marked as changed here; after a short delay the preferences of all
+     * changed documents are encoded, once, on the event dispatch thread and
+     * the files are written on a background thread. Changes within that delay
+     * are coalesced.
      *
      * @param document the document for which the preferences are to be saved
      */
     private static void writePreferencesFor(Transcription document) {
-		//ObjectOutputStream objectOut = null;
-		//FileOutputStream fileOut = null;
-        try {
-            // do not save prefs for a new file that has no new name yet
-            if ((document != null) &&
-                    document.getName().equals(TranscriptionImpl.UNDEFINED_FILE_NAME)) {
-                return;
-            }
-            /*
-            fileOut = new FileOutputStream(preferenceFilePathFor(document));
+        // do not save prefs for a new file that has no new name yet
+        if ((document != null) &&
+                document.getName().equals(TranscriptionImpl.UNDEFINED_FILE_NAME)) {
+            return;
+        }
 
-            objectOut = new ObjectOutputStream(fileOut);
-            objectOut.writeObject(preferences.get(documentKeyFor(document)));
-            objectOut.close();
-            fileOut.close();
-            */
-            // test this should become the default
+        try {
             String prefPath = preferenceXmlFilePathFor(document);
             if (prefPath != null) {
-            	               
-            	// convert the preferences to the other format if needed...
-            	int format = SaveAs27Preferences.saveAsType(document);
-            	Object orig = SaveAs27Preferences.adjustPreferencesForSavingFormat(document, format);
-            	
-            	xmlPrefsWriter.encodeAndSave(preferences.get(documentKeyFor(document)),
-            			prefPath);
-
-            	// Restore our original preferences
-                SaveAs27Preferences.restoreAdjustedPreferences(document, orig);
+                synchronized (pendingWrites) {
+                	pendingWrites.put(prefPath, document);
+                	if (scheduledWrite == null) {
+                		scheduledWrite = getWriteExecutor().schedule(() -> flushInBackground(true),
+                				WRITE_DELAY, TimeUnit.MILLISECONDS);
+                	}
+                }
             }
         } catch (Exception e) {
             e.printStackTrace();
-            /*
-            try {
-            	if (objectOut != null) {
-					objectOut.close();
-            	}
-				if (fileOut != null) {
-					fileOut.close();
-				}				
-            } catch (Exception e2){}
-            */
         }
+    }
+
+    /**
+     * Encodes the current preferences of a document as an XML document, 
+     * converting them to the 2.7 format first if the document is saved in
+     * that format. Accesses the live preferences and the transcription, so
+     * should be called on the event dispatch thread.
+     *
+     * @param document the document or {@code null} for the global preferences
+     * @return the root element or {@code null} if there is nothing to encode
+     */
+    private static Element encodePreferencesFor(Transcription document) {
+        if (preferences == null || preferences.get(documentKeyFor(document)) == null) {
+        	return null;
+        }
+        try {
+        	// convert the preferences to the other format if needed...
+        	int format = SaveAs27Preferences.saveAsType(document);
+        	Object orig = SaveAs27Preferences.adjustPreferencesForSavingFormat(document, format);
+        	try {
+        		return xmlPrefsWriter.encode(preferences.get(documentKeyFor(document)));
+        	} finally {
+        		// Restore our original preferences
+        		SaveAs27Preferences.restoreAdjustedPreferences(document, orig);
+        	}
+        } catch (Exception e) {
+        	LOG.log(Level.WARNING, "Could not encode the preferences: " + e.getMessage(), e);
+        	return null;
+        }
+    }
+
+    /**
+     * Encodes the preferences of all documents marked as changed and adds 
+     * them to the documents ready to be written. When called on the event
+     * dispatch thread the encoded documents are added in the order of the
+     * changes, the most recent document per file wins.
+     */
+    private static void encodeChanged() {
+    	List<Map.Entry<String, Transcription>> changed;
+    	synchronized (pendingWrites) {
+    		if (scheduledWrite != null) {
+    			scheduledWrite.cancel(false);
+    			scheduledWrite = null;
+    		}
+    		changed = new ArrayList<Map.Entry<String, Transcription>>(pendingWrites.entrySet());
+    		pendingWrites.clear();
+    	}
+
+    	for (Map.Entry<String, Transcription> change : changed) {
+    		Element root = encodePreferencesFor(change.getValue());
+    		if (root != null) {
+    			synchronized (pendingWrites) {
+    				encodedWrites.put(change.getKey(), root);
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * Writes all preferences that have been changed but not yet written to
+     * file. Blocks until a write in progress on the background thread has
+     * finished. Called when a document is removed and when ELAN exits; a
+     * shutdown hook calls it as well in case ELAN is terminated otherwise.
+     * Preferences that could not be written by the background thread are
+     * written (again) by this method as well.
+     *
+     * @throws IOException if one or more preferences files could not be
+     * written, the exception for the first file is thrown after attempting
+     * all files, the others are added as suppressed exceptions
+     */
+    public static void flush() throws IOException {
+    	writePending(false, true);
+    }
+
+    /**
+     * Called by the background thread and by the shutdown hook. Documents
+     * that could not be written are put back in the map of encoded documents,
+     * unless a newer document for the same file has been added, so that the 
+     * next {@link #flush()} reports the failure to its caller.
+     * 
+     * @param encodeOnEDT if {@code false} the preferences are encoded on the
+     * current thread, the event dispatch thread might be blocked during
+     * shutdown
+     */
+    private static void flushInBackground(boolean encodeOnEDT) {
+    	try {
+    		writePending(true, encodeOnEDT);
+    	} catch (IOException ioe) {
+    		LOG.warning("Could not save the preferences, will try again on the next save. Cause: " +
+    				ioe.getMessage());
+    	}
+    }
+
+    private static void writePending(boolean keepFailed, boolean encodeOnEDT) throws IOException {
+    	// encode before acquiring the write lock, so that the event dispatch
+    	// thread never waits for a thread that is waiting for it
+    	if (!encodeOnEDT || SwingUtilities.isEventDispatchThread()) {
+    		encodeChanged();
+    	} else {
+    		try {
+    			SwingUtilities.invokeAndWait(Preferences::encodeChanged);
+    		} catch (InterruptedException ie) {
+    			Thread.currentThread().interrupt();
+    		} catch (InvocationTargetException ite) {
+    			LOG.log(Level.WARNING, "Could not encode the preferences", ite.getCause());
+    		}
+    	}
 
+    	synchronized (writeLock) {
+    		List<Map.Entry<String, Element>> writes;
+    		synchronized (pendingWrites) {
+    			writes = new ArrayList<Map.Entry<String, Element>>(encodedWrites.entrySet());
+    			encodedWrites.clear();
+    		}
+
+    		IOException failure = null;
+    		for (Map.Entry<String, Element> write : writes) {
+    			try {
+    				xmlPrefsWriter.save(write.getValue(), write.getKey());
+    			} catch (IOException ioe) {
+    				LOG.warning("Could not save the preferences to: " + write.getKey() +
+    						" Cause: " + ioe.getMessage());
+    				if (keepFailed) {
+    					synchronized (pendingWrites) {
+    						encodedWrites.putIfAbsent(write.getKey(), write.getValue());
+    					}
+    				}
+    				if (failure == null) {
+    					failure = ioe;
+    				} else {
+    					failure.addSuppressed(ioe);
+    				}
+    			}
+    		}
+    		if (failure != null) {
+    			throw failure;
+    		}
+    	}
+    }
+
+    /**
+     * Returns the executor for writing preferences in the background, creates
+     * it and registers a shutdown hook the first time. Should be called while
+     * holding the lock on the map of pending writes.
+     *
+     * @return the single threaded executor
+     */
+    private static ScheduledExecutorService getWriteExecutor() {
+    	if (writeExecutor == null) {
+    		writeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+    			Thread t = new Thread(r, "ELAN-PreferencesWriter");
+    			t.setDaemon(true);
+    			return t;
+    		});
+    		Runtime.getRuntime().addShutdownHook(new Thread(() -> flushInBackground(false),
+    				"ELAN-PreferencesFlush"));
+    	}
+    	return writeExecutor;
     }
 
     /**
@@ -0,0 +1,101 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACMTranscriptionStore;
+import nl.mpi.util.FileUtility;
+
+/**
+ * Base class for batch operations on {@code .eaf} files, with a few helper
+ * methods for tier selection and for storing results.
+ */
+public abstract class AbstractBatchOperation implements BatchOperation {
+	/** the names of the tiers to process, empty for all tiers */
+	protected List<String> tierNames = new ArrayList<String>(0);
+
+	/**
+	 * Returns {@code eaf}.
+	 */
+	@Override
+	public String getInputExtension() {
+		return "eaf";
+	}
+
+	/**
+	 * Returns {@code false}.
+	 */
+	@Override
+	public boolean supportsInPlace() {
+		return false;
+	}
+
+	/**
+	 * Reads the {@code tiers} property, a comma separated list of tier names.
+	 */
+	@Override
+	public void configure(BatchJob job) {
+		tierNames = job.getList("tiers");
+	}
+
+	/**
+	 * Does nothing.
+	 */
+	@Override
+	public void finish(File outputFolder) throws IOException {
+	}
+
+	/**
+	 * Returns the tiers to process.
+	 *
+	 * @param trans the transcription
+	 * @return the tiers with the configured names or all tiers if no names
+	 * have been specified
+	 */
+	protected List<TierImpl> getTiers(TranscriptionImpl trans) {
+		if (tierNames.isEmpty()) {
+			return trans.getTiers();
+		}
+		return trans.getTiersWithIds(tierNames);
+	}
+
+	/**
+	 * Returns an output file in the output folder, with the base name of the
+	 * input file and a new extension.
+	 *
+	 * @param input the input file
+	 * @param outputFolder the output folder
+	 * @param extension the extension of the output file, including the dot
+	 * @return the output file
+	 */
+	protected File getOutputFile(File input, File outputFolder, String extension) {
+		return new File(outputFolder, FileUtility.dropExtension(input.getName()) + extension);
+	}
+
+	/**
+	 * Stores a transcription as {@code .eaf} file, overwriting the input
+	 * file if there is no output folder.
+	 *
+	 * @param trans the transcription
+	 * @param input the input file
+	 * @param outputFolder the output folder or {@code null}
+	 * @return the file that has been written
+	 * @throws IOException if the file cannot be written
+	 */
+	protected File storeTranscription(TranscriptionImpl trans, File input, File outputFolder)
+			throws IOException {
+		TranscriptionStore store = ACMTranscriptionStore.getCurrentTranscriptionStore();
+		if (outputFolder == null) {
+			store.storeTranscription(trans, null, null, TranscriptionStore.EAF);
+			return input;
+		}
+		File output = getOutputFile(input, outputFolder, ".eaf");
+		store.storeTranscription(trans, null, null, output.getAbsolutePath(), TranscriptionStore.EAF);
+		return output;
+	}
+}
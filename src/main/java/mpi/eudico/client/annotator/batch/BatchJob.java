@@ -0,0 +1,308 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The description of a batch job, read from a properties file. The
+ * following keys are common to all operations:
+ * <ul>
+ * <li>{@code operation} the name of the operation, required
+ * <li>{@code input.folder} a folder containing the files to process, or
+ * <li>{@code input.list} a text file listing the files to process, one path
+ * per line; lines starting with {@code #} are ignored
+ * <li>{@code input.recursive} whether sub-folders of the input folder are
+ * included, default {@code true}
+ * <li>{@code output.folder} the folder for the output files, the folder
+ * structure of the input folder is reproduced; if not specified, operations
+ * that support it overwrite the input files
+ * <li>{@code threads} the number of files processed concurrently, default
+ * the number of processors
+ * <li>{@code memory.max} the heap use in MB above which no new files are
+ * started, default no limit
+ * <li>{@code report} the path of the JSON report, default
+ * {@code batch-report.json} in the output or input folder
+ * </ul>
+ * Other keys are interpreted by the operation.
+ */
+public class BatchJob {
+	/** the name of the default report file */
+	public static final String DEFAULT_REPORT = "batch-report.json";
+
+	private final Properties properties;
+	private final File baseDir;
+
+	/**
+	 * Creates a job from properties.
+	 *
+	 * @param properties the job properties
+	 * @param baseDir the folder relative paths are resolved against, can be
+	 * {@code null}
+	 */
+	public BatchJob(Properties properties, File baseDir) {
+		this.properties = properties;
+		this.baseDir = baseDir;
+	}
+
+	/**
+	 * Reads a job description file.
+	 *
+	 * @param jobFile the properties file, UTF-8 encoded
+	 * @return the job, relative paths are resolved against the folder of the
+	 * job file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static BatchJob read(File jobFile) throws IOException {
+		Properties props = new Properties();
+		try (InputStreamReader reader = new InputStreamReader(new FileInputStream(jobFile),
+				StandardCharsets.UTF_8)) {
+			props.load(reader);
+		}
+		return new BatchJob(props, jobFile.getAbsoluteFile().getParentFile());
+	}
+
+	/**
+	 * Sets or replaces a property, e.g. from the command line.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public void setProperty(String key, String value) {
+		properties.setProperty(key, value);
+	}
+
+	/**
+	 * Returns a property value.
+	 *
+	 * @param key the key
+	 * @return the trimmed value or {@code null} if it is not specified or empty
+	 */
+	public String getProperty(String key) {
+		String value = properties.getProperty(key);
+		if (value != null) {
+			value = value.trim();
+			if (value.isEmpty()) {
+				return null;
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns a property value or a default value.
+	 *
+	 * @param key the key
+	 * @param defValue the default value
+	 * @return the value or the default value
+	 */
+	public String getProperty(String key, String defValue) {
+		String value = getProperty(key);
+		return value != null ? value : defValue;
+	}
+
+	/**
+	 * Returns a boolean property.
+	 *
+	 * @param key the key
+	 * @param defValue the default value
+	 * @return the value or the default value
+	 */
+	public boolean getBoolean(String key, boolean defValue) {
+		String value = getProperty(key);
+		return value != null ? Boolean.parseBoolean(value) : defValue;
+	}
+
+	/**
+	 * Returns an integer property.
+	 *
+	 * @param key the key
+	 * @param defValue the default value
+	 * @return the value or the default value
+	 * @throws IllegalArgumentException if the value is not a number
+	 */
+	public int getInt(String key, int defValue) {
+		String value = getProperty(key);
+		if (value == null) {
+			return defValue;
+		}
+		try {
+			return Integer.parseInt(value);
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("Not a number: " + key + "=" + value);
+		}
+	}
+
+	/**
+	 * Returns a comma separated list property.
+	 *
+	 * @param key the key
+	 * @return the trimmed, non-empty items, an empty list if the property is
+	 * not specified
+	 */
+	public List<String> getList(String key) {
+		String value = getProperty(key);
+		if (value == null) {
+			return Collections.emptyList();
+		}
+		List<String> items = new ArrayList<String>();
+		for (String item : value.split(",")) {
+			item = item.trim();
+			if (!item.isEmpty()) {
+				items.add(item);
+			}
+		}
+		return items;
+	}
+
+	/**
+	 * Returns a file property, relative paths are resolved against the
+	 * folder of the job file.
+	 *
+	 * @param key the key
+	 * @return the file or {@code null}
+	 */
+	public File getFile(String key) {
+		String value = getProperty(key);
+		if (value == null) {
+			return null;
+		}
+		File f = new File(value);
+		if (!f.isAbsolute() && baseDir != null) {
+			f = new File(baseDir, value);
+		}
+		return f;
+	}
+
+	/**
+	 * Returns the name of the operation.
+	 *
+	 * @return the operation name or {@code null}
+	 */
+	public String getOperation() {
+		return getProperty("operation");
+	}
+
+	/**
+	 * Returns the input folder.
+	 *
+	 * @return the input folder or {@code null} if a list file is used
+	 */
+	public File getInputFolder() {
+		return getFile("input.folder");
+	}
+
+	/**
+	 * Returns the output folder.
+	 *
+	 * @return the output folder or {@code null}
+	 */
+	public File getOutputFolder() {
+		return getFile("output.folder");
+	}
+
+	/**
+	 * Returns the number of worker threads.
+	 *
+	 * @return the number of threads, at least 1
+	 */
+	public int getNumThreads() {
+		return Math.max(1, getInt("threads", Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Returns the heap use above which no new files are started.
+	 *
+	 * @return the budget in bytes, {@code 0} for no limit
+	 */
+	public long getMemoryBudget() {
+		return Math.max(0, getInt("memory.max", 0)) * 1024L * 1024L;
+	}
+
+	/**
+	 * Returns the location of the report.
+	 *
+	 * @return the report file
+	 */
+	public File getReportFile() {
+		File report = getFile("report");
+		if (report != null) {
+			return report;
+		}
+		File folder = getOutputFolder();
+		if (folder == null) {
+			folder = getInputFolder();
+		}
+		if (folder == null) {
+			folder = baseDir;
+		}
+		return new File(folder, DEFAULT_REPORT);
+	}
+
+	/**
+	 * Collects the files to process, from the list file or from the input
+	 * folder.
+	 *
+	 * @param extension the extension of the files to collect from a folder,
+	 * without the dot
+	 * @return the files, in the order of the list or sorted by path
+	 * @throws IOException if the list file cannot be read or if no input has
+	 * been specified
+	 */
+	public List<File> collectInputFiles(String extension) throws IOException {
+		List<File> files = new ArrayList<File>();
+		File listFile = getFile("input.list");
+		if (listFile != null) {
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(listFile), StandardCharsets.UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					line = line.trim();
+					if (!line.isEmpty() && !line.startsWith("#")) {
+						File f = new File(line);
+						if (!f.isAbsolute()) {
+							f = new File(listFile.getAbsoluteFile().getParentFile(), line);
+						}
+						files.add(f);
+					}
+				}
+			}
+			return files;
+		}
+
+		File folder = getInputFolder();
+		if (folder == null) {
+			throw new IOException("No input specified, use input.folder or input.list");
+		}
+		if (!folder.isDirectory()) {
+			throw new IOException("The input folder does not exist: " + folder);
+		}
+		addFiles(folder, "." + extension.toLowerCase(), getBoolean("input.recursive", true), files);
+		return files;
+	}
+
+	private void addFiles(File folder, String suffix, boolean recursive, List<File> files) {
+		File[] children = folder.listFiles();
+		if (children == null) {
+			return;
+		}
+		Arrays.sort(children);
+		for (File f : children) {
+			if (f.isDirectory()) {
+				if (recursive) {
+					addFiles(f, suffix, recursive, files);
+				}
+			} else if (f.getName().toLowerCase().endsWith(suffix)) {
+				files.add(f);
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * An operation that can be applied to each file of a corpus by the
+ * {@link BatchProcessor}, without a user interface.
+ * <p>
+ * An operation is configured once, before processing starts. After that
+ * {@link #process(File, File)} is called concurrently from several worker
+ * threads, one call per input file, so implementations must be thread safe.
+ * When all files have been processed, {@link #finish(File)} is called once,
+ * e.g. for writing results that combine all files.
+ */
+public interface BatchOperation {
+
+	/**
+	 * Returns the name of the operation as used in a job description.
+	 *
+	 * @return the name of the operation
+	 */
+	String getName();
+
+	/**
+	 * Returns the extension of the files this operation accepts when the
+	 * files to process are collected from a folder.
+	 *
+	 * @return the lower case file extension, without the dot
+	 */
+	String getInputExtension();
+
+	/**
+	 * Returns whether the operation can store its result by overwriting the
+	 * input file, in which case no output folder is required.
+	 *
+	 * @return {@code true} if the operation modifies input files in place
+	 */
+	boolean supportsInPlace();
+
+	/**
+	 * Configures the operation based on the properties of the job.
+	 *
+	 * @param job the job description
+	 * @throws IllegalArgumentException if a property has an invalid value
+	 */
+	void configure(BatchJob job);
+
+	/**
+	 * Applies the operation to a single file.
+	 *
+	 * @param input the file to process
+	 * @param outputFolder the folder to write output files to, or
+	 * {@code null} if the input file should be overwritten
+	 *
+	 * @return a map of details to include in the report, can be empty
+	 * @throws Exception any exception preventing the file to be processed
+	 */
+	Map<String, Object> process(File input, File outputFolder) throws Exception;
+
+	/**
+	 * Called after all files have been processed.
+	 *
+	 * @param outputFolder the output folder of the job, or {@code null}
+	 * @throws IOException if writing combined results fails
+	 */
+	void finish(File outputFolder) throws IOException;
+}
@@ -0,0 +1,319 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * Applies a {@link BatchOperation} to the files of a {@link BatchJob}. A
+ * number of files is processed concurrently by a fixed pool of worker
+ * threads; if a memory budget is set, a worker waits before starting a new
+ * file while the used heap exceeds the budget and other files are still
+ * being processed.
+ * <p>
+ * The outcome of each file is collected in a JSON report, which is written
+ * when all files have been processed. This class does not use any user
+ * interface classes.
+ */
+public class BatchProcessor {
+	/** the status of a file that has been processed successfully */
+	public static final String OK = "ok";
+	/** the status of a file that could not be processed */
+	public static final String FAILED = "failed";
+
+	private final BatchJob job;
+	private final BatchOperation operation;
+	private final AtomicInteger numRunning = new AtomicInteger();
+	/** serializes the decision to start a file, so that the memory check and
+	 * the increment of the number of running files are one step */
+	private final Semaphore startGate = new Semaphore(1);
+	private final AtomicInteger numSucceeded = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+	private volatile boolean cancelled;
+	private volatile String finishError;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param job the job description
+	 * @param operation the operation, configured for the job
+	 */
+	public BatchProcessor(BatchJob job, BatchOperation operation) {
+		this.job = job;
+		this.operation = operation;
+	}
+
+	/**
+	 * Creates an operation by name.
+	 *
+	 * @param name the name of the operation as used in a job description
+	 * @return a new, not yet configured operation
+	 * @throws IllegalArgumentException if there is no operation with that name
+	 */
+	public static BatchOperation createOperation(String name) {
+		if (name == null) {
+			throw new IllegalArgumentException("No operation specified");
+		}
+		switch (name) {
+		case "statistics":
+			return new StatisticsOperation();
+		case "scrub":
+			return new ScrubOperation();
+		case "ecv-update":
+			return new EcvUpdateOperation();
+		case "export-tab":
+			return new TabExportOperation();
+		case "export-praat":
+			return new PraatExportOperation();
+		case "import-praat":
+			return new PraatImportOperation();
+		default:
+			throw new IllegalArgumentException("Unknown operation: " + name);
+		}
+	}
+
+	/**
+	 * Stops the batch process: no new files are started, files that are
+	 * being processed are finished.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns the number of files that have been processed successfully.
+	 *
+	 * @return the number of successful files
+	 */
+	public int getNumSucceeded() {
+		return numSucceeded.get();
+	}
+
+	/**
+	 * Returns the number of files that failed.
+	 *
+	 * @return the number of failed files
+	 */
+	public int getNumFailed() {
+		return numFailed.get();
+	}
+
+	/**
+	 * Returns the error that occurred when the results of the operation were
+	 * finished, e.g. the message of the exception thrown while writing an
+	 * output file that combines the results of all files.
+	 *
+	 * @return the error message or {@code null}
+	 */
+	public String getFinishError() {
+		return finishError;
+	}
+
+	/**
+	 * Processes all files of the job and writes the report. This method
+	 * blocks until all files have been processed.
+	 *
+	 * @return the report file
+	 * @throws IOException if the input files cannot be collected, if the
+	 * output folder cannot be created or if the report cannot be written
+	 */
+	public File run() throws IOException {
+		final File inputFolder = job.getInputFolder();
+		final File outputFolder = job.getOutputFolder();
+		if (outputFolder == null && !operation.supportsInPlace()) {
+			throw new IOException("No output folder specified, required by operation: " + operation.getName());
+		}
+		if (outputFolder != null && !outputFolder.isDirectory() && !outputFolder.mkdirs()) {
+			throw new IOException("Cannot create the output folder: " + outputFolder);
+		}
+		List<File> files = job.collectInputFiles(operation.getInputExtension());
+		LOG.info(String.format("Batch %s: %d files, %d threads", operation.getName(),
+				files.size(), job.getNumThreads()));
+
+		numSucceeded.set(0);
+		numFailed.set(0);
+		long startTime = System.currentTimeMillis();
+		final JSONObject[] results = new JSONObject[files.size()];
+		final long memoryBudget = job.getMemoryBudget();
+
+		ExecutorService executor = Executors.newFixedThreadPool(job.getNumThreads());
+		try {
+			for (int i = 0; i < files.size(); i++) {
+				final int index = i;
+				final File file = files.get(i);
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (!cancelled) {
+							results[index] = processFile(file, getOutputFolder(file, inputFolder, outputFolder),
+									memoryBudget);
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info(String.format("Batch progress: %d done, %d failed, %d running",
+						numSucceeded.get(), numFailed.get(), numRunning.get()));
+			}
+		} catch (InterruptedException ie) {
+			cancelled = true;
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		finishError = null;
+		if (!cancelled) {
+			try {
+				operation.finish(outputFolder);
+			} catch (IOException ioe) {
+				finishError = ioe.getMessage() != null ? ioe.getMessage() : ioe.toString();
+				LOG.warning("Batch " + operation.getName() + " could not finish: " + ioe.getMessage());
+			}
+		}
+		long endTime = System.currentTimeMillis();
+
+		JSONObject report = new JSONObject();
+		report.put("operation", operation.getName());
+		report.put("started", Instant.ofEpochMilli(startTime).toString());
+		report.put("finished", Instant.ofEpochMilli(endTime).toString());
+		report.put("durationMs", endTime - startTime);
+		report.put("threads", job.getNumThreads());
+		report.put("cancelled", cancelled);
+		if (finishError != null) {
+			report.put("finishError", finishError);
+		}
+		report.put("numFiles", files.size());
+		report.put("numSucceeded", numSucceeded.get());
+		report.put("numFailed", numFailed.get());
+		JSONArray fileArray = new JSONArray();
+		for (int i = 0; i < results.length; i++) {
+			if (results[i] != null) {
+				fileArray.put(results[i]);
+			} else {
+				JSONObject skipped = new JSONObject();
+				skipped.put("file", files.get(i).getAbsolutePath());
+				skipped.put("status", "skipped");
+				fileArray.put(skipped);
+			}
+		}
+		report.put("files", fileArray);
+
+		File reportFile = job.getReportFile();
+		File reportFolder = reportFile.getAbsoluteFile().getParentFile();
+		if (reportFolder != null && !reportFolder.isDirectory() && !reportFolder.mkdirs()) {
+			throw new IOException("Cannot create the folder of the report: " + reportFolder);
+		}
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(reportFile), StandardCharsets.UTF_8)) {
+			writer.write(report.toString(2));
+		}
+		LOG.info(String.format("Batch %s finished: %d done, %d failed, report: %s", operation.getName(),
+				numSucceeded.get(), numFailed.get(), reportFile.getAbsolutePath()));
+
+		return reportFile;
+	}
+
+	/**
+	 * Returns the output folder for a file, reproducing the location of the
+	 * file relative to the input folder.
+	 *
+	 * @param file the input file
+	 * @param inputFolder the input folder of the job or {@code null}
+	 * @param outputFolder the output folder of the job or {@code null}
+	 * @return the output folder for the file, {@code null} if there is no
+	 * output folder
+	 */
+	static File getOutputFolder(File file, File inputFolder, File outputFolder) {
+		if (outputFolder == null) {
+			return null;
+		}
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (inputFolder == null || parent == null) {
+			return outputFolder;
+		}
+		Path inputPath = inputFolder.getAbsoluteFile().toPath().normalize();
+		Path parentPath = parent.toPath().normalize();
+		if (!parentPath.startsWith(inputPath)) {
+			return outputFolder;
+		}
+		return new File(outputFolder, inputPath.relativize(parentPath).toString());
+	}
+
+	/**
+	 * Waits until the used heap memory is below the budget or until no other
+	 * file is being processed and then registers the file as being processed.
+	 * Only one worker at a time can pass the check, therefore no more files
+	 * than allowed by the budget can be started at the same time.
+	 */
+	private void acquireStart(long memoryBudget) throws InterruptedException {
+		startGate.acquire();
+		try {
+			if (memoryBudget > 0) {
+				Runtime rt = Runtime.getRuntime();
+				while (!cancelled && numRunning.get() > 0 &&
+						rt.totalMemory() - rt.freeMemory() > memoryBudget) {
+					Thread.sleep(500);
+				}
+			}
+			numRunning.incrementAndGet();
+		} finally {
+			startGate.release();
+		}
+	}
+
+	/**
+	 * Processes a single file and returns its entry of the report.
+	 */
+	private JSONObject processFile(File file, File outputFolder, long memoryBudget) {
+		JSONObject result = new JSONObject();
+		result.put("file", file.getAbsolutePath());
+		try {
+			acquireStart(memoryBudget);
+		} catch (InterruptedException ie) {
+			return null;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			if (!file.isFile()) {
+				throw new IOException("The file does not exist");
+			}
+			if (outputFolder != null && !outputFolder.isDirectory() && !outputFolder.mkdirs()
+					&& !outputFolder.isDirectory()) {
+				throw new IOException("Cannot create the output folder: " + outputFolder);
+			}
+			Map<String, Object> details = operation.process(file, outputFolder);
+			result.put("status", OK);
+			if (details != null && !details.isEmpty()) {
+				result.put("details", new JSONObject(details));
+			}
+			numSucceeded.incrementAndGet();
+		} catch (Exception ex) {// any exception, continue with the next file
+			result.put("status", FAILED);
+			result.put("message", ex.getMessage() != null ? ex.getMessage() : ex.getClass().getName());
+			numFailed.incrementAndGet();
+			LOG.warning("Batch " + operation.getName() + " failed for " + file + ": " + ex.getMessage());
+		} finally {
+			numRunning.decrementAndGet();
+		}
+		result.put("durationMs", System.currentTimeMillis() - start);
+
+		return result;
+	}
+}
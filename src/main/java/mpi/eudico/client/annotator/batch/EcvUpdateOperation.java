@@ -0,0 +1,90 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import mpi.eudico.client.annotator.util.CorpusECVUpdater;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.util.ProcessReport;
+import mpi.eudico.server.corpora.util.ProcessReporter;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * Updates annotations that are linked to entries of external controlled
+ * vocabularies, like the {@link CorpusECVUpdater}. The optional property
+ * {@code ecv.language} selects the language of the CV's to apply and
+ * {@code ecv.valuePrecedence} determines whether the annotation value or
+ * the CV entry reference takes precedence.
+ * <p>
+ * The updater caches loaded vocabularies and is not thread safe, therefore
+ * each worker thread has its own updater. Only transcriptions that have
+ * been changed are written, to the output folder or, if there is none, to
+ * the input file.
+ */
+public class EcvUpdateOperation extends AbstractBatchOperation {
+	private String language;
+	private boolean valuePrecedence;
+	private final ThreadLocal<CorpusECVUpdater> updaters = new ThreadLocal<CorpusECVUpdater>() {
+		@Override
+		protected CorpusECVUpdater initialValue() {
+			CorpusECVUpdater updater = new CorpusECVUpdater(new LogReporter());
+			updater.setForcedLanguage(language);
+			updater.setAnnotationValuePrecedence(valuePrecedence);
+			return updater;
+		}
+	};
+
+	@Override
+	public String getName() {
+		return "ecv-update";
+	}
+
+	@Override
+	public boolean supportsInPlace() {
+		return true;
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		language = job.getProperty("ecv.language");
+		valuePrecedence = job.getBoolean("ecv.valuePrecedence", false);
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl(input.getAbsolutePath());
+		trans.setNotifying(false);
+		trans.setUnchanged();
+
+		boolean changed = updaters.get().updateTranscription(trans);
+		Map<String, Object> details = new HashMap<String, Object>(4);
+		details.put("changed", changed);
+		if (changed) {
+			details.put("output", storeTranscription(trans, input, outputFolder).getAbsolutePath());
+		}
+		return details;
+	}
+
+	/**
+	 * Sends the messages of an updater to the log instead of the standard
+	 * output.
+	 */
+	private static class LogReporter implements ProcessReporter {
+		@Override
+		public void setProcessReport(ProcessReport report) {
+		}
+
+		@Override
+		public ProcessReport getProcessReport() {
+			return null;
+		}
+
+		@Override
+		public void report(String message) {
+			LOG.fine(message);
+		}
+	}
+}
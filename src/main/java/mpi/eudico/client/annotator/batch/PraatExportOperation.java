@@ -0,0 +1,63 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mpi.eudico.server.corpora.clomimpl.abstr.MediaDescriptor;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.praat.PraatTGEncoderInfo;
+import mpi.eudico.server.corpora.clomimpl.praat.PraatTextGridEncoder;
+
+/**
+ * Exports the tiers of each transcription to a Praat TextGrid file, like
+ * the multiple file Praat export. The properties {@code tiers},
+ * {@code encoding} (default UTF-8) and {@code praat.correctTimes} (add the
+ * time origin of the master media) are supported.
+ */
+public class PraatExportOperation extends AbstractBatchOperation {
+	private String encoding;
+	private boolean correctTimes;
+
+	@Override
+	public String getName() {
+		return "export-praat";
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		encoding = job.getProperty("encoding", "UTF-8");
+		correctTimes = job.getBoolean("praat.correctTimes", false);
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl(input.getAbsolutePath());
+		trans.setNotifying(false);
+
+		long mediaOffset = 0L;
+		if (correctTimes) {
+			List<MediaDescriptor> mds = trans.getMediaDescriptors();
+			if ((mds != null) && (mds.size() > 0)) {
+				mediaOffset = mds.get(0).timeOrigin;
+			}
+		}
+
+		PraatTGEncoderInfo encInfo = new PraatTGEncoderInfo(0L, trans.getLatestTime());
+		encInfo.setEncoding(encoding);
+		encInfo.setOffset(mediaOffset);
+		encInfo.setExportSelection(false);
+
+		List<TierImpl> tiers = getTiers(trans);
+		File output = getOutputFile(input, outputFolder, ".TextGrid");
+		new PraatTextGridEncoder().encodeAndSave(trans, encInfo, tiers, output.getAbsolutePath());
+
+		Map<String, Object> details = new HashMap<String, Object>(4);
+		details.put("tiers", tiers.size());
+		details.put("output", output.getAbsolutePath());
+		return details;
+	}
+}
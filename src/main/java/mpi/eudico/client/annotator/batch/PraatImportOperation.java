@@ -0,0 +1,119 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mpi.eudico.client.annotator.imports.praat.PraatTextGrid;
+import mpi.eudico.client.annotator.util.AnnotationDataRecord;
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.MediaDescriptor;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACMTranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+import mpi.eudico.server.corpora.clomimpl.util.MediaDescriptorUtility;
+
+/**
+ * Converts Praat TextGrid files to {@code .eaf} files, like the multiple
+ * file Praat import. Supported properties:
+ * <ul>
+ * <li>{@code encoding} the encoding of the TextGrid files, default
+ * detected from the file
+ * <li>{@code praat.includePointTiers} whether point (text) tiers are
+ * imported, default {@code false}
+ * <li>{@code praat.pointDuration} the duration of annotations created for
+ * points, default 40 ms
+ * <li>{@code praat.skipEmpty} whether empty intervals are skipped, default
+ * {@code true}
+ * <li>{@code praat.linkWav} whether a {@code .wav} file with the same name is
+ * linked as media file, default {@code false}
+ * </ul>
+ */
+public class PraatImportOperation extends AbstractBatchOperation {
+	private String encoding;
+	private boolean includePointTiers;
+	private int pointDuration;
+	private boolean skipEmpty;
+	private boolean linkWav;
+
+	@Override
+	public String getName() {
+		return "import-praat";
+	}
+
+	@Override
+	public String getInputExtension() {
+		return "textgrid";
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		encoding = job.getProperty("encoding");
+		includePointTiers = job.getBoolean("praat.includePointTiers", false);
+		pointDuration = job.getInt("praat.pointDuration", 40);
+		skipEmpty = job.getBoolean("praat.skipEmpty", true);
+		linkWav = job.getBoolean("praat.linkWav", false);
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		PraatTextGrid ptg = new PraatTextGrid(input, includePointTiers, pointDuration, encoding);
+		if (ptg.getTierNames().isEmpty()) {
+			throw new IOException("No tiers found in the TextGrid file");
+		}
+
+		TranscriptionImpl trans = new TranscriptionImpl();
+		trans.setNotifying(false);
+		LinguisticType type = new LinguisticType("Praat");
+		type.setTimeAlignable(true);
+		trans.addLinguisticType(type);
+
+		if (linkWav) {
+			File wavFile = getOutputFile(input, input.getAbsoluteFile().getParentFile(), ".wav");
+			if (wavFile.exists()) {
+				List<MediaDescriptor> mds = new ArrayList<MediaDescriptor>(1);
+				mds.add(MediaDescriptorUtility.createMediaDescriptor(wavFile.getAbsolutePath()));
+				trans.setMediaDescriptors(mds);
+			}
+		}
+
+		int numAnnotations = 0;
+		for (String name : ptg.getTierNames()) {
+			if (!tierNames.isEmpty() && !tierNames.contains(name)) {
+				continue;
+			}
+			if (trans.getTierWithId(name) != null) {
+				continue;
+			}
+			TierImpl tier = new TierImpl(name, "", trans, type);
+			trans.addTier(tier);
+
+			for (AnnotationDataRecord record : ptg.getAnnotationRecords(name)) {
+				if (skipEmpty && (record.getValue() == null || record.getValue().length() == 0)) {
+					continue;
+				}
+				Annotation ann = tier.createAnnotation(record.getBeginTime(), record.getEndTime());
+				if (ann != null) {
+					ann.setValue(record.getValue());
+					numAnnotations++;
+				}
+			}
+		}
+
+		File output = getOutputFile(input, outputFolder, ".eaf");
+		ACMTranscriptionStore.getCurrentTranscriptionStore().storeTranscription(trans, null, null,
+				output.getAbsolutePath(), TranscriptionStore.EAF);
+
+		Map<String, Object> details = new HashMap<String, Object>(4);
+		details.put("tiers", trans.getTiers().size());
+		details.put("annotations", numAnnotations);
+		details.put("output", output.getAbsolutePath());
+		return details;
+	}
+}
@@ -0,0 +1,82 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import mpi.eudico.client.annotator.multiplefilesedit.scrub.TranscriptionScrubber;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * Removes leading, trailing or all spaces, tabs and new line characters
+ * from the annotations, like the multiple file scrubber. The characters to
+ * remove are specified by the properties {@code scrub.space},
+ * {@code scrub.tab} and {@code scrub.newline}, each a comma separated
+ * combination of {@code leading}, {@code trailing} and {@code all}.
+ * <p>
+ * Only transcriptions that have been changed are written, to the output
+ * folder or, if there is none, to the input file.
+ */
+public class ScrubOperation extends AbstractBatchOperation {
+	private final TranscriptionScrubber scrubber = new TranscriptionScrubber();
+	private Map<Character, boolean[]> filters;
+
+	@Override
+	public String getName() {
+		return "scrub";
+	}
+
+	@Override
+	public boolean supportsInPlace() {
+		return true;
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		filters = new LinkedHashMap<Character, boolean[]>(4);
+		addFilter(job, "scrub.newline", scrubber.NL);
+		addFilter(job, "scrub.tab", scrubber.TAB);
+		addFilter(job, "scrub.space", scrubber.SP);
+		if (filters.isEmpty()) {
+			throw new IllegalArgumentException(
+					"No characters to remove, specify scrub.space, scrub.tab or scrub.newline");
+		}
+	}
+
+	private void addFilter(BatchJob job, String key, char c) {
+		List<String> positions = job.getList(key);
+		if (positions.isEmpty()) {
+			return;
+		}
+		boolean[] flags = new boolean[3];
+		for (String pos : positions) {
+			if ("leading".equalsIgnoreCase(pos)) {
+				flags[0] = true;
+			} else if ("trailing".equalsIgnoreCase(pos)) {
+				flags[1] = true;
+			} else if ("all".equalsIgnoreCase(pos)) {
+				flags[2] = true;
+			} else {
+				throw new IllegalArgumentException("Unknown position for " + key + ": " + pos);
+			}
+		}
+		filters.put(Character.valueOf(c), flags);
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl(input.getAbsolutePath());
+		trans.setNotifying(false);
+
+		boolean changed = scrubber.scrub(trans, filters);
+		Map<String, Object> details = new HashMap<String, Object>(4);
+		details.put("changed", changed);
+		if (changed) {
+			details.put("output", storeTranscription(trans, input, outputFolder).getAbsolutePath());
+		}
+		return details;
+	}
+}
@@ -0,0 +1,121 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mpi.eudico.client.annotator.multiplefilesedit.statistics.FileStatistics;
+import mpi.eudico.client.annotator.multiplefilesedit.statistics.FileStatisticsCache;
+import mpi.eudico.client.annotator.multiplefilesedit.statistics.StatisticsCollectionMF;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * Calculates the statistics of multiple files, like the multiple file
+ * statistics command. The statistics input of each file is extracted
+ * concurrently (or read from the statistics cache, unless the property
+ * {@code statistics.cache} is {@code false}) and added to the overall
+ * statistics as soon as it is available. When all files have been processed
+ * the statistics per tier, per type and per participant are written as tab
+ * delimited text files to the output folder. The rows are sorted by name,
+ * since the order in which the files are completed is not fixed.
+ */
+public class StatisticsOperation extends AbstractBatchOperation {
+	/** the name of the tier statistics file */
+	public static final String TIER_FILE = "statistics-tiers.txt";
+	/** the name of the type statistics file */
+	public static final String TYPE_FILE = "statistics-types.txt";
+	/** the name of the participant statistics file */
+	public static final String PART_FILE = "statistics-participants.txt";
+	private static final String[] STATS_HEADER = {"Number of Annotations", "Minimal Duration",
+			"Maximal Duration", "Average Duration", "Median Duration", "Total Annotation Duration",
+			"Latency"};
+
+	private FileStatisticsCache cache;
+	/** the overall statistics, access is synchronized on the collection */
+	private StatisticsCollectionMF statsColl;
+
+	@Override
+	public String getName() {
+		return "statistics";
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		cache = job.getBoolean("statistics.cache", true) ? new FileStatisticsCache() : null;
+		statsColl = new StatisticsCollectionMF();
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		FileStatistics fileStats;
+		if (cache != null) {
+			fileStats = cache.getStatistics(input);
+		} else {
+			fileStats = FileStatistics.fromTranscription(new TranscriptionImpl(input.getAbsolutePath()));
+		}
+		// the statistics of the file are no longer needed after this
+		synchronized (statsColl) {
+			statsColl.addFileStatistics(input.getAbsolutePath(), fileStats, tierNames.isEmpty(), tierNames);
+		}
+
+		Map<String, Object> details = new HashMap<String, Object>(2);
+		details.put("tiers", fileStats.getTiers().size());
+		return details;
+	}
+
+	@Override
+	public void finish(File outputFolder) throws IOException {
+		synchronized (statsColl) {
+			writeTables(outputFolder);
+		}
+	}
+
+	private void writeTables(File outputFolder) throws IOException {
+		write(new File(outputFolder, TIER_FILE), new String[] {"Tier", "Number of Files"},
+				statsColl.getTierStatistics());
+		write(new File(outputFolder, TYPE_FILE), new String[] {"Type", "Number of Files", "Number of Tiers"},
+				statsColl.getTypeStatistics());
+		write(new File(outputFolder, PART_FILE), new String[] {"Participant", "Number of Files", "Number of Tiers"},
+				statsColl.getPartStatistics());
+	}
+
+	/**
+	 * Writes a table of statistics, the header consists of the specific
+	 * leading columns followed by the common statistics columns. The rows
+	 * are sorted by their first column.
+	 */
+	private void write(File file, String[] leadingHeader, List<String[]> rows) throws IOException {
+		rows = new ArrayList<String[]>(rows);
+		rows.sort(Comparator.comparing(row -> row[0] != null ? row[0] : ""));
+		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			writeRow(writer, leadingHeader, STATS_HEADER);
+			for (String[] row : rows) {
+				writeRow(writer, row);
+			}
+		}
+	}
+
+	private void writeRow(BufferedWriter writer, String[]... parts) throws IOException {
+		boolean first = true;
+		for (String[] part : parts) {
+			for (String value : part) {
+				if (!first) {
+					writer.write('\t');
+				}
+				writer.write(value != null ? value : "");
+				first = false;
+			}
+		}
+		writer.newLine();
+	}
+}
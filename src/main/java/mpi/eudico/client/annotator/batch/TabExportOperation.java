@@ -0,0 +1,60 @@
+package mpi.eudico.client.annotator.batch;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import mpi.eudico.client.util.Transcription2TabDelimitedText;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.delimitedtext.DelimitedTextEncoderInfoTrans;
+
+/**
+ * Exports the tiers of each transcription to a tab delimited text file. The
+ * properties {@code tiers}, {@code encoding} (default UTF-8) and
+ * {@code tab.csv} (comma separated instead of tab delimited) are
+ * supported, the other export options have their default values.
+ */
+public class TabExportOperation extends AbstractBatchOperation {
+	private String encoding;
+	private boolean csvFormat;
+
+	@Override
+	public String getName() {
+		return "export-tab";
+	}
+
+	@Override
+	public void configure(BatchJob job) {
+		super.configure(job);
+		encoding = job.getProperty("encoding", "UTF-8");
+		csvFormat = job.getBoolean("tab.csv", false);
+	}
+
+	@Override
+	public Map<String, Object> process(File input, File outputFolder) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl(input.getAbsolutePath());
+		trans.setNotifying(false);
+
+		List<String> names = new ArrayList<String>();
+		for (TierImpl tier : getTiers(trans)) {
+			names.add(tier.getName());
+		}
+		File output = getOutputFile(input, outputFolder, csvFormat ? ".csv" : ".txt");
+
+		DelimitedTextEncoderInfoTrans encInfo = new DelimitedTextEncoderInfoTrans(trans);
+		encInfo.setTierNames(names);
+		encInfo.setExportFile(output);
+		encInfo.setCharEncoding(encoding);
+		encInfo.setExportCSVFormat(csvFormat);
+		// the exporter has configurable state, use a new one per file
+		new Transcription2TabDelimitedText().exportTiers(encInfo);
+
+		Map<String, Object> details = new HashMap<String, Object>(4);
+		details.put("tiers", names.size());
+		details.put("output", output.getAbsolutePath());
+		return details;
+	}
+}
@@ -15,6 +15,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import static mpi.eudico.client.annotator.interannotator.CompareConstants.MATCHING.PREFIX;
 import static mpi.eudico.client.annotator.interannotator.CompareConstants.MATCHING.SUFFIX;
@@ -57,6 +62,10 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
      * A boolean identifier.
      */
     protected boolean groupWiseCompare;
+    /**
+     * Loads the transcriptions of selected files in advance, on worker threads.
+     */
+    private TranscriptionPrefetcher prefetcher;
 
     /**
      * Constructor.
@@ -153,6 +162,35 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
         curProgress = 1f;
         progressUpdate((int) curProgress, "Starting to extract segments from the selected tiers.");
 
+        try {
+            extractSegments(sourceMatch, tierMatching, fileMatching, tierNameSeparators, fileNameSeparators, tierName1,
+                            tierName2, selTierNames, allTierNames, selFiles);
+        } finally {
+            stopPrefetching();
+        }
+        if (errorOccurred) {
+            return;
+        }
+        if (cancelled) {
+            progressInterrupt("The process was cancelled while extracting segments from the tiers.");
+        }
+        curProgress = 30f;
+        if (!compareSegments.isEmpty()) {
+            progressUpdate((int) curProgress,
+                           String.format("Extracted the annotations of %d pairs of tiers...", compareSegments.size()));
+        } else {
+            progressInterrupt("There are no segments for the agreement calculation, process stopped.");
+        }
+    }
+
+    /**
+     * Checks the user selection and calls the extraction variant that applies to the selected source, tier matching
+     * and file matching style.
+     */
+    private void extractSegments(CompareConstants.FILE_MATCHING sourceMatch, CompareConstants.MATCHING tierMatching,
+                                 CompareConstants.MATCHING fileMatching, String tierNameSeparators,
+                                 String fileNameSeparators, String tierName1, String tierName2,
+                                 List<String> selTierNames, List<String> allTierNames, List<File> selFiles) {
         if (sourceMatch == CompareConstants.FILE_MATCHING.CURRENT_DOC) {
             if (transcription == null) {
                 // report error, this shouldn't happen here
@@ -303,19 +341,6 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
                 extractSegments(selFiles, fileMatching, fileNameSeparators, selTierNames, null, null, null);
             }
         }
-        if (errorOccurred) {
-            return;
-        }
-        if (cancelled) {
-            progressInterrupt("The process was cancelled while extracting segments from the tiers.");
-        }
-        curProgress = 30f;
-        if (!compareSegments.isEmpty()) {
-            progressUpdate((int) curProgress,
-                           String.format("Extracted the annotations of %d pairs of tiers...", compareSegments.size()));
-        } else {
-            progressInterrupt("There are no segments for the agreement calculation, process stopped.");
-        }
     }
 
     /**
@@ -529,6 +554,7 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
         if (fileMatching == null) {
             // each file in the list should contain both tier1 and tier2
             progressUpdate((int) curProgress, "Extracting segments from each file...");
+            startPrefetching(selFiles);
             float perFile = 28f / selFiles.size();
             for (File f : selFiles) {
                 if (f.isDirectory()) {
@@ -560,29 +586,17 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
             }
             curProgress = 4;
             progressUpdate((int) curProgress, String.format("Found %d pairs of matching files...", matchingFiles.size()));
+            startPrefetching(flatten(matchingFiles));
             // loop over matches, find right tiers in all combinations of files
-            TranscriptionImpl t1 = null;
-            TranscriptionImpl t2 = null;
             float perMatch = 25f / matchingFiles.size();
             for (List<File> matchList : matchingFiles) {
-                // convert to list of transcriptions first (to avoid loading the same file more than once)?
+                // convert to list of transcriptions first, to avoid loading the same file more than once.
                 // In most cases there will only be two files
-                for (int i = 0; i < matchList.size(); i++) {
-                    t1 = createTranscription(matchList.get(i));
-                    if (t1 == null) {
-                        LOG.info(String.format("A transcription could not be loaded from file (t1) \"%s\"",
-                                               matchList.get(i).getAbsolutePath()));
-                        continue;
-                    }
-                    for (int j = i + 1; j < matchList.size(); j++) {
-                        t2 = createTranscription(matchList.get(j));
-                        if (t2 == null) {
-                            LOG.info(String.format("A transcription could not be loaded from file (t2) \"%s\"",
-                                                   matchList.get(j).getAbsolutePath()));
-                            continue;
-                        }
-
-                        compareSegments.addAll(getCompareCombinations(t1, t2, tierName1, tierName2));
+                List<TranscriptionImpl> transMatch = createTranscriptions(matchList);
+                for (int i = 0; i < transMatch.size(); i++) {
+                    for (int j = i + 1; j < transMatch.size(); j++) {
+                        compareSegments.addAll(getCompareCombinations(transMatch.get(i), transMatch.get(j), tierName1,
+                                                                      tierName2));
                     }
                 }
                 curProgress += perMatch;
@@ -613,6 +627,7 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
         if (fileMatching == null) {
             // each file in the list should contain all tier names
             progressUpdate((int) curProgress, "Extracting segments from each file...");
+            startPrefetching(selFiles);
             float perFile = 28f / selFiles.size();
             for (File f : selFiles) {
                 if (f.isDirectory()) {
@@ -656,6 +671,7 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
             }
             curProgress = 4;
             progressUpdate((int) curProgress, String.format("Found %d pairs of matching files...", matchingFiles.size()));
+            startPrefetching(flatten(matchingFiles));
             // loop over matches, find right tiers in all combinations of files
             // hier... adapt
             List<TranscriptionImpl> transList = new ArrayList<TranscriptionImpl>();
@@ -756,6 +772,7 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
 
         if (matchingFiles == null) { // tiers in the same file, matchingTiers cannot be null
             progressUpdate((int) curProgress, "Extracting segments from each file...");
+            startPrefetching(selFiles);
             float perFile = 26f / selFiles.size();
 
             for (File f : selFiles) {
@@ -797,6 +814,7 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
 
         } else { // tiers in different files
             progressUpdate((int) curProgress, "Extracting segments from file pairs...");
+            startPrefetching(flatten(matchingFiles));
             float perMatch = 28f / matchingFiles.size();
 
             for (List<File> fileMatch : matchingFiles) {
@@ -993,13 +1011,28 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
     }
 
     /**
-     * Returns a transcription object for a  file or null.
+     * Returns a transcription object for a  file or null. If the file has been loaded in advance by the prefetcher, that
+     * transcription is returned.
      *
      * @param f the file
      *
      * @return a transcription object or null
      */
     private TranscriptionImpl createTranscription(File f) {
+        if (prefetcher != null) {
+            return prefetcher.get(f);
+        }
+        return loadTranscription(f);
+    }
+
+    /**
+     * Loads a transcription from file, can be called from any thread.
+     *
+     * @param f the file
+     *
+     * @return a transcription object or null
+     */
+    private TranscriptionImpl loadTranscription(File f) {
         if (f == null || f.isDirectory()) {
             return null;
         }
@@ -1012,6 +1045,38 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
         return null;
     }
 
+    /**
+     * Starts loading the transcriptions of the files, in the specified order, on worker threads.
+     *
+     * @param files the files in the order in which they will be processed
+     */
+    private void startPrefetching(List<File> files) {
+        stopPrefetching();
+        prefetcher = new TranscriptionPrefetcher(files, this::loadTranscription);
+    }
+
+    private void stopPrefetching() {
+        if (prefetcher != null) {
+            prefetcher.close();
+            prefetcher = null;
+        }
+    }
+
+    /**
+     * Returns the files of all matches in one list, in the order of processing.
+     *
+     * @param matchingFiles the groups of matching files
+     *
+     * @return a flat list of files
+     */
+    private List<File> flatten(List<List<File>> matchingFiles) {
+        List<File> files = new ArrayList<File>();
+        for (List<File> matchList : matchingFiles) {
+            files.addAll(matchList);
+        }
+        return files;
+    }
+
     /**
      * Creates a list of transcriptions based on the list of files.
      *
@@ -1287,6 +1352,51 @@ public abstract class AbstractCompareCommand extends AbstractProgressCommand {
 
     }
 
+    /**
+     * Applies an evaluation function to each of the compare combinations. The combinations are independent of each other
+     * and are evaluated concurrently on a pool of worker threads. The results are collected in the order of the
+     * combinations in {@link #compareSegments}, so the outcome does not depend on the order in which the evaluations
+     * finish. The evaluation function should not modify state that is shared between combinations.
+     *
+     * @param evaluator the function to apply to each combination, the result can be {@code null}
+     * @param perCombi the progress increment per evaluated combination
+     * @param <R> the type of the result of an evaluation
+     *
+     * @return a list with the result for each combination, or {@code null} if the process was cancelled or if an
+     *     evaluation failed, in which case the progress has been interrupted
+     */
+    protected <R> List<R> evaluateCombinations(Function<CompareCombi, R> evaluator, float perCombi) {
+        int numThreads = Math.max(1, Math.min(compareSegments.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            List<Future<R>> futures = new ArrayList<Future<R>>(compareSegments.size());
+            for (final CompareCombi cc : compareSegments) {
+                futures.add(executor.submit(() -> evaluator.apply(cc)));
+            }
+
+            List<R> results = new ArrayList<R>(futures.size());
+            for (Future<R> future : futures) {
+                if (cancelled) {
+                    progressInterrupt("The process was cancelled while calculating the agreement.");
+                    return null;
+                }
+                results.add(future.get());
+                curProgress += perCombi;
+                progressUpdate((int) curProgress, null);
+            }
+            return results;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            progressInterrupt("The process was interrupted while calculating the agreement.");
+        } catch (ExecutionException ee) {
+            logErrorAndInterrupt("The agreement calculation failed: " + ee.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return null;
+    }
+
     /**
      * Saves the results to a file. The default is to write comparison combinations with an agreement value to a text file.
      * Note: maybe there is no need for a default implementation.
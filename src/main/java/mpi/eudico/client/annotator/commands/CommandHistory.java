@@ -1,13 +1,17 @@
 package mpi.eudico.client.annotator.commands;
 
 import mpi.eudico.client.annotator.ElanLocale;
+import mpi.eudico.client.annotator.Preferences;
 import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
 
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
 import java.util.ArrayList;
 import java.util.List;
 
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
 
 /**
  * Stores the command history, for undo and redo actions. Executed commands are added at the end of the history. When
@@ -16,12 +20,36 @@ import java.util.List;
  *
  * <p>Once some commands are undone, and a new command is executed, all remaining
  * to-redo commands are discarded.
+ *
+ * <p>Next to the maximum number of commands, the history has a memory budget. Commands that implement
+ * {@link SizedUndoableCommand} report the memory they hold; when a new command is added the oldest commands are
+ * removed until the executed commands fit in the budget (the most recent command is always kept). Optionally, large
+ * entries are written to a temporary file instead of being kept in memory.
+ *
+ * <p>A command that cannot restore its undo data throws an {@link UndoDataUnavailableException}. The failure is
+ * reported; on undo the command and all older commands are removed, on redo the command and all newer commands.
  */
 public class CommandHistory {
     /**
      * The maximum history size to remember
      */
     public static final int historySize = 25;
+    /**
+     * The preference key for the memory budget of the history, in megabytes
+     */
+    public static final String MEMORY_BUDGET_PREF = "UndoHistory.MemoryBudgetMB";
+    /**
+     * The preference key for the flag whether large entries can be written to a temporary file
+     */
+    public static final String SPILL_TO_DISK_PREF = "UndoHistory.SpillToDisk";
+    /**
+     * The default memory budget of the history, in megabytes
+     */
+    public static final int DEFAULT_MEMORY_BUDGET_MB = 64;
+    /**
+     * Entries using more than this fraction of the budget are written to file, if that is enabled
+     */
+    private static final int SPILL_FRACTION = 4;
     private final List<UndoableCommand> history;
     private int nextCommand;        // lowest numbered free or redoable entry
     private UndoCA undoCA;
@@ -57,12 +85,14 @@ public class CommandHistory {
         if (nextCommand >= historySize) {
             int surplus = nextCommand - historySize + 1; // usually only 1
             while (surplus > 0) {
-                history.remove(0);
+                discard(history.remove(0));
                 nextCommand--;
                 surplus--;
             }
             trans.forgetOldUndoTransactions(historySize - 1);
         }
+        // The size of the executed commands is known now, apply the memory budget
+        applyMemoryBudget();
 
         // Extend the history if needed
         if (nextCommand == history.size()) {
@@ -74,6 +104,7 @@ public class CommandHistory {
 
         // Discard all commands that are newer
         for (int i = nextCommand; i < history.size(); i++) {
+            discard(history.get(i));
             history.set(i, null);
         }
 
@@ -83,6 +114,74 @@ public class CommandHistory {
         trans.pushNewUndoTransaction();
     }
 
+    /**
+     * Removes the oldest commands from the history while the memory held by the executed commands exceeds the budget.
+     * The most recent command is always kept. If enabled, entries that are large relative to the budget are first
+     * requested to write their data to a temporary file.
+     */
+    private void applyMemoryBudget() {
+        long budget = getMemoryBudget();
+        long spillThreshold = budget / SPILL_FRACTION;
+        boolean spillAllowed = Boolean.TRUE.equals(Preferences.getBool(SPILL_TO_DISK_PREF, null));
+        long total = 0;
+        int keep = 0;
+
+        for (int i = nextCommand - 1; i >= 0; i--) {
+            UndoableCommand command = history.get(i);
+            long usage = getMemoryUsage(command);
+            if (spillAllowed && usage > spillThreshold && ((SizedUndoableCommand) command).spillUndoData()) {
+                usage = getMemoryUsage(command);
+            }
+            if (keep > 0 && total + usage > budget) {
+                break;
+            }
+            total += usage;
+            keep++;
+        }
+
+        int surplus = nextCommand - keep;
+        if (surplus > 0) {
+            for (int i = 0; i < surplus; i++) {
+                discard(history.remove(0));
+            }
+            nextCommand -= surplus;
+            trans.forgetOldUndoTransactions(nextCommand);
+        }
+    }
+
+    private static long getMemoryBudget() {
+        Integer budgetMB = Preferences.getInt(MEMORY_BUDGET_PREF, null);
+        int mb = budgetMB != null && budgetMB > 0 ? budgetMB : DEFAULT_MEMORY_BUDGET_MB;
+
+        return mb * 1024L * 1024L;
+    }
+
+    private static long getMemoryUsage(UndoableCommand command) {
+        if (command instanceof SizedUndoableCommand) {
+            return ((SizedUndoableCommand) command).getUndoMemoryUsage();
+        }
+        // unknown, usually small
+        return 0;
+    }
+
+    private static void discard(UndoableCommand command) {
+        if (command instanceof SizedUndoableCommand) {
+            ((SizedUndoableCommand) command).discardUndoData();
+        }
+    }
+
+    /**
+     * @return the estimated memory held by the commands in the history, in bytes
+     */
+    public long getMemoryUsage() {
+        long total = 0;
+        for (UndoableCommand command : history) {
+            total += getMemoryUsage(command);
+        }
+
+        return total;
+    }
+
     private void adjustCurrentCommand() {
         if (nextCommand > 0) {
             String undoString = ElanLocale.getString("Menu.Edit.Undo");
@@ -125,7 +224,21 @@ public class CommandHistory {
              */
             trans.pushNewUndoTransaction();
 
-            history.get(nextCommand).undo();
+            try {
+                history.get(nextCommand).undo();
+            } catch (UndoDataUnavailableException udue) {
+                // the command did not change anything and cannot be undone, neither can the older commands
+                trans.popAndForgetTransaction();
+                UndoableCommand failed = history.get(nextCommand);
+                for (int i = 0; i <= nextCommand; i++) {
+                    discard(history.remove(0));
+                }
+                nextCommand = 0;
+                trans.forgetOldUndoTransactions(0);
+                adjustCurrentCommand();
+                reportUnavailable(failed, udue);
+                return;
+            }
 
             // Don't undo the undo
             trans.popAndForgetTransaction();
@@ -144,7 +257,20 @@ public class CommandHistory {
 
             trans.pushNewUndoTransaction();
             // redo command
-            history.get(nextCommand).redo();
+            try {
+                history.get(nextCommand).redo();
+            } catch (UndoDataUnavailableException udue) {
+                // the command did not change anything and cannot be redone, neither can the newer commands
+                trans.popAndForgetTransaction();
+                UndoableCommand failed = history.get(nextCommand);
+                for (int i = nextCommand; i < history.size(); i++) {
+                    discard(history.get(i));
+                    history.set(i, null);
+                }
+                adjustCurrentCommand();
+                reportUnavailable(failed, udue);
+                return;
+            }
 
             // point to next
             nextCommand++;
@@ -154,6 +280,16 @@ public class CommandHistory {
         }
     }
 
+    private void reportUnavailable(UndoableCommand command, UndoDataUnavailableException udue) {
+        LOG.warning("The undo data of \"" + command.getName() + "\" are not available: " + udue.getMessage());
+        if (!GraphicsEnvironment.isHeadless()) {
+            JOptionPane.showMessageDialog(ELANCommandFactory.getRootFrame(trans),
+                                          ElanLocale.getString("Message.UndoDataUnavailable"),
+                                          ElanLocale.getString("Message.Error"),
+                                          JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     /**
      * Sets the current undo action
      *
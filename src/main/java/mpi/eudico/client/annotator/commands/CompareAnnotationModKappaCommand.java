@@ -86,26 +86,26 @@ public class CompareAnnotationModKappaCommand extends AbstractCompareCommand {
         modCompareCombis = new ArrayList<>();
         // starting at an arbitrary 30%
         float perCombi = 50f / compareSegments.size();
-        AnnotatorCompareUtil2 compareUtil = new AnnotatorCompareUtil2();
+        final AnnotatorCompareUtil2 compareUtil = new AnnotatorCompareUtil2();
         progressUpdate((int) curProgress, "Building agreement tables, per file...");
 
-        Map<AnnotationCore, AnnotationCore> curMatchedAnnotations;
-        KappaCompareCombi curKappaCC;
-
-        for (CompareCombi cc : compareSegments) {
-            curMatchedAnnotations = compareUtil.matchAnnotations(cc, minimalOverlapPercentage);
-            curKappaCC = calculateOverallMatrix(cc, curMatchedAnnotations);
+        // the per file tables are calculated concurrently, the results are in the order of the combinations
+        List<KappaCompareCombi> kappaCombis = evaluateCombinations(cc -> {
+            Map<AnnotationCore, AnnotationCore> curMatchedAnnotations =
+                compareUtil.matchAnnotations(cc, minimalOverlapPercentage);
+            KappaCompareCombi curKappaCC = calculateOverallMatrix(cc, curMatchedAnnotations);
             // if all matched values should be counted twice than multiply by two here.
             // follows example of Holle&Rein and GSEQ-DP
             curKappaCC.doubleMatchedValues();
             // create the per value agreement tables
             calculatePerValueAgreementTables(curKappaCC);
 
-            modCompareCombis.add(curKappaCC);
-
-            curProgress += perCombi;
-            progressUpdate((int) curProgress, null);
+            return curKappaCC;
+        }, perCombi);
+        if (kappaCombis == null) {
+            return;
         }
+        modCompareCombis.addAll(kappaCombis);
 
         progressUpdate((int) curProgress, "Starting global agreement calculations...");
 
@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
 import static mpi.eudico.client.annotator.util.IOUtil.getOutputStreamWriter;
@@ -46,21 +47,21 @@ public class CompareAnnotationRatioMultiCommand extends AbstractCompareCommand {
             return;
         }
 
-        int combiCount = 0;
         // starting at an arbitrary 30%
         float perCombi = 60f / compareSegments.size();
-        AnnotatorCompareUtil2 compareUtil = new AnnotatorCompareUtil2();
+        final AnnotatorCompareUtil2 compareUtil = new AnnotatorCompareUtil2();
         progressUpdate((int) curProgress, "Starting calculations...");
-        for (CompareCombi cc : compareSegments) {
+        // the combinations are processed concurrently, each stores its own result
+        List<Double> averages = evaluateCombinations(cc -> {
             double average = compareUtil.getAverageRatio(cc);
             cc.setOverallAgreement(average);
-            combiCount++;
-
-            curProgress += perCombi;
-            progressUpdate((int) curProgress, null);
+            return average;
+        }, perCombi);
+        if (averages == null) {
+            return;
         }
 
-        progressComplete(String.format("Completed calculations of %d pairs of tiers.", combiCount));
+        progressComplete(String.format("Completed calculations of %d pairs of tiers.", averages.size()));
     }
 
     /**
@@ -101,29 +101,30 @@ public class CompareAnnotationStaccatoCommand extends AbstractCompareCommand {
             }
         }
 
-        int combiCount = 0;
         // starting at an arbitrary 30%
         float perCombi = 50f / compareSegments.size();
         progressUpdate((int) curProgress, "Calculating the degree of organization per tier pair...");
 
-        for (CompareCombi cc : compareSegments) {
-            // create a Vector of StaccatoNominations and add all annotations of the two tiers
-            // see StaccatoController how to initialize a StaccatoAnalyzer and a StaccatoData object
-            StaccatoData sd = createStaccatoData(cc);
+        // create a Vector of StaccatoNominations and add all annotations of the two tiers
+        // see StaccatoController how to initialize a StaccatoAnalyzer and a StaccatoData object.
+        // Each pair has its own analyzer, the pairs are processed concurrently
+        List<StaccatoData> results = evaluateCombinations(this::createStaccatoData, perCombi);
+        if (results == null) {
+            return;
+        }
 
+        for (int i = 0; i < compareSegments.size(); i++) {
+            CompareCombi cc = compareSegments.get(i);
+            StaccatoData sd = results.get(i);
             // add to the result map even if the processing failed
             resultMap.put(cc, sd);
 
             if (sd != null) {
                 cc.setOverallAgreement(sd.getOg());
             }
-            combiCount++;
-
-            curProgress += perCombi;
-            progressUpdate((int) curProgress, null);
         }
 
-        progressComplete(String.format("Completed calculations of %d pairs of tiers.", combiCount));
+        progressComplete(String.format("Completed calculations of %d pairs of tiers.", results.size()));
     }
 
     /**
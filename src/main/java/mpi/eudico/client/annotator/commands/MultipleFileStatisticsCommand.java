@@ -1,22 +1,28 @@
 package mpi.eudico.client.annotator.commands;
 
-import mpi.eudico.client.annotator.multiplefilesedit.statistics.StatisticsAnnotationsMF;
+import mpi.eudico.client.annotator.multiplefilesedit.statistics.FileStatistics;
+import mpi.eudico.client.annotator.multiplefilesedit.statistics.FileStatisticsCache;
 import mpi.eudico.client.annotator.multiplefilesedit.statistics.StatisticsCollectionMF;
 import mpi.eudico.client.annotator.util.ProgressListener;
-import mpi.eudico.server.corpora.clomimpl.abstr.AbstractAnnotation;
-import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
-import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
-import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
 import mpi.eudico.server.corpora.util.ProcessReport;
 import mpi.eudico.server.corpora.util.ProcessReporter;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A class for creating simple statistics for multiple files; number of tiers, numbers of annotations, minimal/maximal/total
  * duration etc.
+ * <p>
+ * The files are processed on a number of worker threads; the statistics input of each file is cached by a
+ * {@link FileStatisticsCache}, so that recalculating the statistics only requires parsing the files that have changed.
  */
 public class MultipleFileStatisticsCommand implements Command,
                                                       ProcessReporter {
@@ -213,139 +219,71 @@ public class MultipleFileStatisticsCommand implements Command,
             int numInspected = 0;
             int numFailed = 0;
 
+            // the statistics input of the files is extracted (or read from the cache) on worker threads,
+            // a limited number of files ahead; the results are added to the collection in file order
+            FileStatisticsCache cache = new FileStatisticsCache();
+            int numThreads = Math.max(1, Math.min(selectedFiles.length, Runtime.getRuntime().availableProcessors()));
+            int lookAhead = 2 * numThreads;
+            ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+            Deque<Future<FileStatistics>> pending = new ArrayDeque<Future<FileStatistics>>(lookAhead);
+            int numScheduled = 0;
+
             String path;
             File f;
-            TranscriptionImpl trans = null;
-            TierImpl tier = null;
-            AbstractAnnotation aa = null;
-
-            for (int i = 0; i < selectedFiles.length; i++) {
-                path = selectedFiles[i];
-                f = new File(path);
-                numInspected++;
-
-                if (!f.exists() || f.isDirectory()) {
-                    numFailed++;
-                    report("Skipping file: " + f.getAbsolutePath());
-                    progressUpdate((int) (i * perFileProg), ("Skipping file: " + f.getAbsolutePath()));
 
-                    continue;
-                }
-
-                // change path \ to / ?
-                try {
-                    trans = new TranscriptionImpl(path);
-
-                    // check tiers...
-                    List<TierImpl> tiers = trans.getTiers();
-                    List<Long> durations = null;
-                    // following three only used if everything has to be loaded
-                    List<String> typeNames = null;
-                    //                    List<String> partNames = null;
-                    //                    List<String> annotNames = null;
-                    int numProcessedTiers = 0;
-
-                    if (loadAll) {
-                        typeNames = new ArrayList<String>();
-                        //                        partNames = new ArrayList<String>();
-                        //                        annotNames = new ArrayList<String>();
+            try {
+                for (int i = 0; i < selectedFiles.length; i++) {
+                    while (numScheduled < selectedFiles.length && pending.size() < lookAhead) {
+                        final File nextFile = new File(selectedFiles[numScheduled++]);
+                        pending.add(executor.submit(() -> {
+                            if (!nextFile.exists() || nextFile.isDirectory()) {
+                                return null;
+                            }
+                            return cache.getStatistics(nextFile);
+                        }));
                     }
+                    Future<FileStatistics> future = pending.poll();
 
-                    for (int j = 0; j < tiers.size(); j++) {
-                        tier = tiers.get(j);
-                        if (loadAll || selectedTierList.contains(tier.getName())) {
-                            long bt, et, curDur;
-                            long minDur = Long.MAX_VALUE;
-                            long maxDur = 0, totalDur = 0;
-                            long latency = Long.MAX_VALUE;
-                            durations = new ArrayList<Long>();
-
-                            List<AbstractAnnotation> annotations = tier.getAnnotations();
-
-                            for (int k = 0; k < annotations.size(); k++) {
-                                aa = annotations.get(k);
-                                bt = aa.getBeginTimeBoundary();
-                                et = aa.getEndTimeBoundary();
-                                curDur = et - bt;
-                                if (curDur < minDur) {
-                                    minDur = curDur;
-                                }
-                                if (curDur > maxDur) {
-                                    maxDur = curDur;
-                                }
-                                if (bt < latency) {
-                                    latency = bt; // normally the first annotations should have the lowest begin time
-                                }
-                                totalDur += curDur;
-                                durations.add(curDur);
-                            }
+                    path = selectedFiles[i];
+                    f = new File(path);
+                    numInspected++;
 
-                            statsColl.addTier(path, tier, annotations.size(), minDur, maxDur, totalDur, latency, durations);
-                            StatisticsAnnotationsMF annMF = statsColl.getAnnotationStats(tier.getName());
-                            if (annMF == null) {
-                                annMF = new StatisticsAnnotationsMF(tier);
-                                statsColl.addAnnotations(path, tier.getName(), annMF);
-                            } else {
-                                annMF.addTier(tier);
-                            }
+                    if (!f.exists() || f.isDirectory()) {
+                        numFailed++;
+                        report("Skipping file: " + f.getAbsolutePath());
+                        progressUpdate((int) (i * perFileProg), ("Skipping file: " + f.getAbsolutePath()));
 
-                            if (loadAll) {
-                                String key = tier.getLinguisticType().getLinguisticTypeName();
-                                if (!typeNames.contains(key)) {
-                                    typeNames.add(key);
-                                }
-                                //                                key = tier.getParticipant();
-                                //                                if (key != null && key.length() > 0) {
-                                //                                    if (!partNames.contains(key)) {
-                                //                                        partNames.add(key);
-                                //                                    }
-                                //                                } else {
-                                //                                    if (!partNames.contains(StatisticsCollectionMF
-                                //                                    .UNSPECIFIED)) {
-                                //                                        partNames.add(StatisticsCollectionMF.UNSPECIFIED);
-                                //                                    }
-                                //                                }
-                                //                                key = tier.getAnnotator();
-                                //                                if (key != null && key.length() > 0) {
-                                //                                    if (!annotNames.contains(key)) {
-                                //                                        annotNames.add(key);
-                                //                                    }
-                                //                                } else {
-                                //                                    if (!annotNames.contains(StatisticsCollectionMF
-                                //                                    .UNSPECIFIED)) {
-                                //                                        annotations.contains(StatisticsCollectionMF
-                                //                                        .UNSPECIFIED);
-                                //                                    }
-                                //                                }
-                            }
-                            numProcessedTiers++;
-                        }
+                        continue;
                     }
 
-                    // after processing tiers check if remaining unused types need to be added
-                    if (loadAll) {
-                        List<LinguisticType> types = trans.getLinguisticTypes();
-                        LinguisticType lt;
-                        for (int t = 0; t < types.size(); t++) {
-                            lt = types.get(t);
-                            if (!typeNames.contains(lt.getLinguisticTypeName())) {
-                                statsColl.addEmptyLinguisticType(path, lt.getLinguisticTypeName());
-                            }
+                    try {
+                        FileStatistics fileStats = future.get();
+                        if (fileStats == null) {
+                            throw new Exception("The file does not exist");
                         }
+                        int numProcessedTiers = statsColl.addFileStatistics(path, fileStats, loadAll, selectedTierList);
+
+                        report("Processed " + numProcessedTiers + " tiers from file: " + path);
+                        progressUpdate((int) ((i + 1) * perFileProg - 1), ("Processed file: " + path));
+                    } catch (InterruptedException ie) {
+                        report("Statistics calculation interrupted");
+                        progressInterrupt("Statistics calculation interrupted");
+                        return;
+                    } catch (Exception ex) { // any exception
+                        Throwable cause = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+                        numFailed++;
+                        // any exception
+                        report("Can not load file: " + f.getAbsolutePath());
+                        report("Cause: " + ((cause.getMessage() != null)
+                                            ? cause.getMessage()
+                                            : "Unknown file loading or parsing error..."));
+                        progressUpdate((int) ((i + 1) * perFileProg - 1), ("Can not load file: " + f.getAbsolutePath()));
+
+                        continue;
                     }
-                    report("Processed " + numProcessedTiers + " tiers from file: " + path);
-                    progressUpdate((int) ((i + 1) * perFileProg - 1), ("Processed file: " + path));
-                } catch (Exception ex) { // any exception
-                    numFailed++;
-                    // any exception
-                    report("Can not load file: " + f.getAbsolutePath());
-                    report("Cause: " + ((ex.getMessage() != null)
-                                        ? ex.getMessage()
-                                        : "Unknown file loading or parsing error..."));
-                    progressUpdate((int) ((i + 1) * perFileProg - 1), ("Can not load file: " + f.getAbsolutePath()));
-
-                    continue;
                 }
+            } finally {
+                executor.shutdownNow();
             }
 
             report("Processing files completed: ");
@@ -1,6 +1,7 @@
 package mpi.eudico.client.annotator.commands;
 
 import mpi.eudico.client.annotator.ElanLocale;
+import mpi.eudico.client.annotator.interannotator.TranscriptionPrefetcher;
 import mpi.eudico.client.annotator.ngramstats.NgramStatsResult;
 import mpi.eudico.client.annotator.util.ProgressListener;
 import mpi.eudico.client.annotator.util.SquelchOutput;
@@ -10,10 +11,14 @@ import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
 import mpi.eudico.server.corpora.util.ProcessReport;
 import mpi.eudico.server.corpora.util.SimpleReport;
 
+import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Executes the N-gram analysis
@@ -115,6 +120,23 @@ public class NgramStatsCommand implements Command {
             super(name);
         }
 
+        /**
+         * Loads a transcription, called on the worker threads of the prefetcher.
+         *
+         * @param f the file
+         * @param loadErrors the map to store the message of a failure in
+         *
+         * @return the transcription or {@code null} if it could not be loaded
+         */
+        private TranscriptionImpl loadTranscription(File f, Map<File, String> loadErrors) {
+            try {
+                return new TranscriptionImpl(f.getPath());
+            } catch (Throwable t) {
+                loadErrors.put(f, String.valueOf(t.getMessage()));
+            }
+            return null;
+        }
+
         @Override
         public void run() {
             // how much to increment the progress counter per file
@@ -140,37 +162,53 @@ public class NgramStatsCommand implements Command {
                 return;
             }
 
-            for (int i = 0; i < selectedFiles.size(); i++) {
-                try {
-                    TranscriptionImpl trans = new TranscriptionImpl(selectedFiles.get(i));
-                    TierImpl tier = trans.getTierWithId(ngramsResult.getTier());
-
-                    if (tier != null) {
-                        // Loop through the annotations and add them to the result
-                        List<AbstractAnnotation> annotations = tier.getAnnotations();
-                        if (annotations.size() > 0) {
-                            ngramsResult.startFile(selectedFiles.get(i));
-                            for (int ann = 0; ann < annotations.size(); ann++) {
-                                ngramsResult.addAnnotation(annotations.get(ann));
+            // the files are parsed on worker threads ahead of time, the n-grams are collected here in file order
+            List<File> files = new ArrayList<File>(selectedFiles.size());
+            for (String path : selectedFiles) {
+                files.add(new File(path));
+            }
+            Map<File, String> loadErrors = new ConcurrentHashMap<File, String>();
+            TranscriptionPrefetcher prefetcher = new TranscriptionPrefetcher(files, f -> loadTranscription(f, loadErrors));
+
+            try {
+                for (int i = 0; i < selectedFiles.size(); i++) {
+                    try {
+                        TranscriptionImpl trans = prefetcher.get(files.get(i));
+                        if (trans == null) {
+                            String message = loadErrors.remove(files.get(i));
+                            throw new Exception(message != null ? message : "the file could not be loaded");
+                        }
+                        TierImpl tier = trans.getTierWithId(ngramsResult.getTier());
+
+                        if (tier != null) {
+                            // Loop through the annotations and add them to the result
+                            List<AbstractAnnotation> annotations = tier.getAnnotations();
+                            if (annotations.size() > 0) {
+                                ngramsResult.startFile(selectedFiles.get(i));
+                                for (int ann = 0; ann < annotations.size(); ann++) {
+                                    ngramsResult.addAnnotation(annotations.get(ann));
+                                }
+                                ngramsResult.endFile();
                             }
-                            ngramsResult.endFile();
+                        } else {
+                            report.append("Selected tier("
+                                          + ngramsResult.getTier()
+                                          + ") not present in file: "
+                                          + selectedFiles.get(i));
                         }
-                    } else {
-                        report.append("Selected tier("
-                                      + ngramsResult.getTier()
-                                      + ") not present in file: "
-                                      + selectedFiles.get(i));
-                    }
 
-                    progressUpdate((int) ((i + 1) * perFileProg - 1), "Processed file: " + selectedFiles.get(i));
-                } catch (Exception ex) {
-                    report.append("Error parsing file(" + selectedFiles.get(i) + "): " + ex.getMessage());
+                        progressUpdate((int) ((i + 1) * perFileProg - 1), "Processed file: " + selectedFiles.get(i));
+                    } catch (Exception ex) {
+                        report.append("Error parsing file(" + selectedFiles.get(i) + "): " + ex.getMessage());
 
-                    numFailed++;
-                    progressUpdate((int) ((i + 1) * perFileProg - 1),
-                                   "Unable to load file(" + selectedFiles.get(i) + "): " + ex.getMessage());
-                    continue;
+                        numFailed++;
+                        progressUpdate((int) ((i + 1) * perFileProg - 1),
+                                       "Unable to load file(" + selectedFiles.get(i) + "): " + ex.getMessage());
+                        continue;
+                    }
                 }
+            } finally {
+                prefetcher.close();
             }
 
             // restore the output handlers
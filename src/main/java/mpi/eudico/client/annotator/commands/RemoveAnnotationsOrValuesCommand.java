@@ -3,6 +3,7 @@ package mpi.eudico.client.annotator.commands;
 import mpi.eudico.client.annotator.util.AnnotationDataRecord;
 import mpi.eudico.client.annotator.util.AnnotationRecreator;
 import mpi.eudico.client.annotator.util.AnnotationValuesRecord;
+import mpi.eudico.client.annotator.util.CompactAnnotationRecords;
 import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.AbstractAnnotation;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
@@ -10,9 +11,12 @@ import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.awt.*;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
 
@@ -23,7 +27,7 @@ import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
  * @author Aarthy Somasundaram
  * @version Oct 20,2010
  */
-public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
+public class RemoveAnnotationsOrValuesCommand implements SizedUndoableCommand {
     private final String commandName;
     private TranscriptionImpl transcription;
     List<String> tierNames;
@@ -33,7 +37,12 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
     boolean annotationWithVal;
     String value;
     private ArrayList<AnnotationValuesRecord> records;
-    private HashMap<String, List<DefaultMutableTreeNode>> delAnnRecordsMap;
+    /** rough estimate of the memory used by an annotation values record */
+    private static final int VALUES_RECORD_SIZE = 128;
+    /** the deleted annotations (with their dependents) of all tiers */
+    private CompactAnnotationRecords delAnnRecords;
+    /** the names of the tiers for which deleted annotations have been stored */
+    private Set<String> delAnnTierNames;
 
     /**
      * Constructor.
@@ -46,6 +55,8 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
 
     /**
      * @see mpi.eudico.client.annotator.commands.UndoableCommand#undo()
+     *
+     * @throws UndoDataUnavailableException if the stored records of deleted annotations cannot be read back
      */
     @Override
     public void undo() {
@@ -91,17 +102,26 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
             }
         } else if (annotations) {
 
-            if (delAnnRecordsMap != null) {
+            if (delAnnRecords != null) {
 
-                List<DefaultMutableTreeNode> delAnnRecords;
+                List<DefaultMutableTreeNode> delAnnTrees = null;
                 String name = null;
 
                 for (int i = 0; i < tierNames.size(); i++) {
                     name = tierNames.get(i);
-                    delAnnRecords = delAnnRecordsMap.get(name);
-                    if (delAnnRecords == null) {
+                    if (!delAnnTierNames.contains(name)) {
                         continue;
                     }
+                    if (delAnnTrees == null) {
+                        // nothing has been changed yet
+                        try {
+                            delAnnTrees = delAnnRecords.toTrees();
+                        } catch (IOException ioe) {
+                            transcription.setNotifying(true);
+                            setWaitCursor(false);
+                            throw new UndoDataUnavailableException(ioe);
+                        }
+                    }
 
                     if (name != null) {
                         TierImpl tier = transcription.getTierWithId(name);
@@ -124,16 +144,16 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
 
                         if (allAnnotations) {
                             if (!tier.hasParentTier()) {
-                                for (DefaultMutableTreeNode n : delAnnRecords) {
+                                for (DefaultMutableTreeNode n : delAnnTrees) {
                                     AnnotationRecreator.createAnnotationFromTree(transcription, n, true);
                                 }
                             }
                             // if the parent tier is already selected, then that will take care the depend
                             else if (!tierNames.contains(tier.getParentTier().getName())) {
-                                AnnotationRecreator.createAnnotationsSequentially(transcription, delAnnRecords, true);
+                                AnnotationRecreator.createAnnotationsSequentially(transcription, delAnnTrees, true);
                             }
                         } else if (annotationWithVal) {
-                            for (DefaultMutableTreeNode n : delAnnRecords) {
+                            for (DefaultMutableTreeNode n : delAnnTrees) {
                                 AnnotationRecreator.createAnnotationFromTree(transcription, n, true);
                             }
                         }
@@ -312,12 +332,14 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
         transcription.setNotifying(false);
 
 
-        delAnnRecordsMap = new HashMap<>();
+        if (delAnnRecords != null) {
+            delAnnRecords.discard();
+        }
+        delAnnRecords = new CompactAnnotationRecords();
+        delAnnTierNames = new HashSet<String>();
 
         List<AbstractAnnotation> anns = new ArrayList<AbstractAnnotation>();
 
-        List<DefaultMutableTreeNode> delAnnRecords = new ArrayList<DefaultMutableTreeNode>();
-
         HashMap<String, List<AbstractAnnotation>> annsMap = getAnnotationsToBeDeleted();
         String name = null;
         AnnotationValuesRecord annotationValuesRecord = null;
@@ -333,7 +355,7 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
                     tier = transcription.getTierWithId(name);
                     List<AbstractAnnotation> annotations = tier.getParentTier().getAnnotations();
                     for (AbstractAnnotation aa : annotations) {
-                        delAnnRecords.add(AnnotationRecreator.createTreeForAnnotation(aa));
+                        delAnnRecords.addTree(AnnotationRecreator.createTreeForAnnotation(aa));
                     }
                 }
                 if (anns != null && anns.size() > 0) {
@@ -348,12 +370,12 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
                             // if dependent tiers are selected, the respective parent tier is already stored.
                             // so only if a parent tier is selected, this executes and stores the annotation
                             if (!tier.hasParentTier()) {
-                                delAnnRecords.add(AnnotationRecreator.createTreeForAnnotation(ann));
+                                delAnnRecords.addTree(AnnotationRecreator.createTreeForAnnotation(ann));
                             }
                             tier.removeAnnotation(ann);
                         }
                     }
-                    delAnnRecordsMap.put(name, delAnnRecords);
+                    delAnnTierNames.add(name);
                 }
             }
         } else if (annotationWithVal) {
@@ -371,15 +393,16 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
                                                                              + annotationValuesRecord.getEndTime()) / 2);
 
                         if (ann != null) {
-                            delAnnRecords.add(AnnotationRecreator.createTreeForAnnotation(ann));
+                            delAnnRecords.addTree(AnnotationRecreator.createTreeForAnnotation(ann));
                             tier.removeAnnotation(ann);
                         }
                     }
-                    delAnnRecordsMap.put(name, delAnnRecords);
+                    delAnnTierNames.add(name);
                 }
             }
 
         }
+        delAnnRecords.trimToSize();
 
         transcription.setNotifying(true);
         setWaitCursor(false);
@@ -488,4 +511,28 @@ public class RemoveAnnotationsOrValuesCommand implements UndoableCommand {
     public String getName() {
         return commandName;
     }
+
+    @Override
+    public long getUndoMemoryUsage() {
+        long usage = 0;
+        if (delAnnRecords != null) {
+            usage += delAnnRecords.getMemoryUsage();
+        }
+        if (records != null) {
+            usage += (long) records.size() * VALUES_RECORD_SIZE;
+        }
+        return usage;
+    }
+
+    @Override
+    public boolean spillUndoData() {
+        return delAnnRecords != null && delAnnRecords.spill();
+    }
+
+    @Override
+    public void discardUndoData() {
+        if (delAnnRecords != null) {
+            delAnnRecords.discard();
+        }
+    }
 }
@@ -0,0 +1,28 @@
+package mpi.eudico.client.annotator.commands;
+
+/**
+ * An undoable command that can report the amount of memory it holds for undo and redo, so that the
+ * {@link CommandHistory} can limit the memory used by the history.
+ */
+public interface SizedUndoableCommand extends UndoableCommand {
+    /**
+     * Returns an estimate of the memory held by this command for undo and redo.
+     *
+     * @return the estimated number of bytes
+     */
+    long getUndoMemoryUsage();
+
+    /**
+     * Requests the command to write its undo and redo data to a temporary file, to free memory. The data are read
+     * back when needed.
+     *
+     * @return {@code true} if the data have been written to file
+     */
+    boolean spillUndoData();
+
+    /**
+     * Notifies the command that it has been removed from the history, it will not be undone or redone anymore.
+     * Temporary files and other resources can be released.
+     */
+    void discardUndoData();
+}
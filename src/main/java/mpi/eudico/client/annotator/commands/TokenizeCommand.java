@@ -5,6 +5,7 @@ import mpi.eudico.client.annotator.gui.IndeterminateProgressMonitor;
 import mpi.eudico.client.annotator.util.AnnotationDataRecord;
 import mpi.eudico.client.annotator.util.AnnotationRecreator;
 import mpi.eudico.client.annotator.util.ClientLogger;
+import mpi.eudico.client.annotator.util.CompactAnnotationRecords;
 import mpi.eudico.server.corpora.clom.Annotation;
 import mpi.eudico.server.corpora.clom.Tier;
 import mpi.eudico.server.corpora.clom.Transcription;
@@ -16,6 +17,7 @@ import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.awt.*;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -26,7 +28,7 @@ import java.util.StringTokenizer;
  *
  * @author Han Sloetjes
  */
-public class TokenizeCommand implements UndoableCommand,
+public class TokenizeCommand implements SizedUndoableCommand,
                                         ClientLogger {
     private final String commandName;
 
@@ -45,16 +47,16 @@ public class TokenizeCommand implements UndoableCommand,
     /**
      * backup data of existing annotations on the destination tier
      */
-    private List<DefaultMutableTreeNode> existAnnotations;
+    private CompactAnnotationRecords existAnnotations;
     /**
-     * store the data of the newly created annotations
+     * store the data of the newly created annotations, a group per source annotation
      */
-    private List<List<AnnotationDataRecord>> newAnnotationsNodes;
+    private CompactAnnotationRecords newAnnotationsNodes;
     // store for redo
     /**
-     * a list of source annotations that have been tokenized
+     * the source annotations that have been tokenized
      */
-    private List<AnnotationDataRecord> completedTokenizations;
+    private CompactAnnotationRecords completedTokenizations;
 
     /**
      * Creates a new TokenizeCommand instance.
@@ -67,12 +69,25 @@ public class TokenizeCommand implements UndoableCommand,
 
     /**
      * Undo the changes made by this command.
+     *
+     * @throws UndoDataUnavailableException if the stored records cannot be read back, nothing has been changed then
      */
     @Override
     public void undo() {
         if (transcription == null || sourceTier == null || destTier == null || completedTokenizations == null) {
             return;
         }
+        // read the stored records before anything is changed
+        List<AnnotationDataRecord> completed;
+        List<DefaultMutableTreeNode> existTrees = null;
+        try {
+            completed = completedTokenizations.toRecords();
+            if (!preserve && !existAnnotations.isEmpty()) {
+                existTrees = existAnnotations.toTrees();
+            }
+        } catch (IOException ioe) {
+            throw new UndoDataUnavailableException(ioe);
+        }
         int curPropMode = 0;
 
         curPropMode = transcription.getTimeChangePropagationMode();
@@ -86,12 +101,12 @@ public class TokenizeCommand implements UndoableCommand,
         setWaitCursor(true);
 
         // delete created annotations
-        if (completedTokenizations.size() > 0) {
-            wipeTargetAnnotations();
+        if (!completed.isEmpty()) {
+            wipeTargetAnnotations(completed);
         }
         // recreate annotations that have been overwritten
-        if (!preserve && existAnnotations.size() > 0) {
-            AnnotationRecreator.createAnnotationsSequentially(transcription, existAnnotations, true);
+        if (existTrees != null) {
+            AnnotationRecreator.createAnnotationsSequentially(transcription, existTrees, true);
         }
         transcription.setNotifying(true);
 
@@ -105,16 +120,18 @@ public class TokenizeCommand implements UndoableCommand,
      * Wipe annotations from the destination tier in some time periods, because we're going to put different annotations
      * there. Used for both undo (to remove the token-annotations and  make room for the originals if any) and redo (to make
      * room for the token-annotations).
+     *
+     * @param completed the records of the source annotations that have been tokenized
      */
-    private void wipeTargetAnnotations() {
+    private void wipeTargetAnnotations(List<AnnotationDataRecord> completed) {
         AnnotationDataRecord srcRecord;
         AbstractAnnotation srcAnn;
         AbstractAnnotation destAnn;
         List<Annotation> childrenOnDest;
         boolean destTierIsRootTier = !destTier.hasParentTier();
 
-        for (int i = 0; i < completedTokenizations.size(); i++) {
-            srcRecord = completedTokenizations.get(i);
+        for (int i = 0; i < completed.size(); i++) {
+            srcRecord = completed.get(i);
             if (destTierIsRootTier) {
                 childrenOnDest = destTier.getOverlappingAnnotations(srcRecord.getBeginTime(), srcRecord.getEndTime());
             } else {
@@ -131,12 +148,23 @@ public class TokenizeCommand implements UndoableCommand,
 
     /**
      * Redo the changes made by this command.
+     *
+     * @throws UndoDataUnavailableException if the stored records cannot be read back, nothing has been changed then
      */
     @Override
     public void redo() {
         if (transcription == null || sourceTier == null || destTier == null || completedTokenizations == null) {
             return;
         }
+        // read the stored records before anything is changed
+        List<AnnotationDataRecord> completed;
+        List<List<AnnotationDataRecord>> newGroups;
+        try {
+            completed = completedTokenizations.toRecords();
+            newGroups = newAnnotationsNodes.toGroups();
+        } catch (IOException ioe) {
+            throw new UndoDataUnavailableException(ioe);
+        }
         int curPropMode = 0;
 
         curPropMode = transcription.getTimeChangePropagationMode();
@@ -149,13 +177,15 @@ public class TokenizeCommand implements UndoableCommand,
 
         setWaitCursor(true);
 
-        if (completedTokenizations.size() > 0) {
+        if (!completed.isEmpty()) {
             if (!preserve) {
-                wipeTargetAnnotations();
+                wipeTargetAnnotations(completed);
             }
 
-            if (newAnnotationsNodes.size() > 0) {
-                AnnotationRecreator.createAnnotationsSequentiallyDepthless(transcription, newAnnotationsNodes, true);
+            if (!newGroups.isEmpty()) {
+                AnnotationRecreator.createAnnotationsSequentiallyDepthless(transcription,
+                                                                           newGroups,
+                                                                           true);
                 //AnnotationRecreator.createAnnotationsSequentially(transcription, newAnnotationsNodes);
             }
         }
@@ -229,9 +259,9 @@ public class TokenizeCommand implements UndoableCommand,
             return;
         }
         // create a blocking progress monitor and start tokenizing
-        existAnnotations = new ArrayList<>();
-        newAnnotationsNodes = new ArrayList<>();
-        completedTokenizations = new ArrayList<>();
+        existAnnotations = new CompactAnnotationRecords();
+        newAnnotationsNodes = new CompactAnnotationRecords();
+        completedTokenizations = new CompactAnnotationRecords();
 
         new TokenizeThread().start();
 
@@ -254,6 +284,35 @@ public class TokenizeCommand implements UndoableCommand,
         return commandName;
     }
 
+    @Override
+    public long getUndoMemoryUsage() {
+        if (completedTokenizations == null) {
+            return 0;
+        }
+        return existAnnotations.getMemoryUsage() + newAnnotationsNodes.getMemoryUsage()
+               + completedTokenizations.getMemoryUsage();
+    }
+
+    @Override
+    public boolean spillUndoData() {
+        if (completedTokenizations == null) {
+            return false;
+        }
+        // the source records are small and needed for both undo and redo
+        boolean spilled = existAnnotations.spill();
+        spilled &= newAnnotationsNodes.spill();
+        return spilled;
+    }
+
+    @Override
+    public void discardUndoData() {
+        if (completedTokenizations != null) {
+            existAnnotations.discard();
+            newAnnotationsNodes.discard();
+            completedTokenizations.discard();
+        }
+    }
+
     /**
      * Changes the cursor to either a 'busy' cursor or the default cursor.
      *
@@ -358,7 +417,7 @@ public class TokenizeCommand implements UndoableCommand,
                     Iterator<Annotation> childIt = childrenOnDest.iterator();
                     while (childIt.hasNext()) {
                         AbstractAnnotation destAnn = (AbstractAnnotation) childIt.next();
-                        existAnnotations.add(AnnotationRecreator.createTreeForAnnotation(destAnn));
+                        existAnnotations.addTree(AnnotationRecreator.createTreeForAnnotation(destAnn));
                     }
                     // next remove them
                     childIt = childrenOnDest.iterator();
@@ -430,9 +489,9 @@ public class TokenizeCommand implements UndoableCommand,
                             //    new AnnotationDataRecord((Annotation)newAnnos.get(i))));
                             siblings.add(new AnnotationDataRecord(newAnnos.get(i)));
                         }
-                        newAnnotationsNodes.add(siblings);
+                        newAnnotationsNodes.addGroup(siblings);
                     }
-                    completedTokenizations.add(new AnnotationDataRecord(srcAnn));
+                    completedTokenizations.addRecord(new AnnotationDataRecord(srcAnn));
                 }
                 // after completion of a whole source annotation, check the cancelled value of the monitor
                 if (monitor.isCancelled()) {
@@ -443,6 +502,10 @@ public class TokenizeCommand implements UndoableCommand,
             }
             TokenizeCommand.this.transcription.setNotifying(true);
 
+            existAnnotations.trimToSize();
+            newAnnotationsNodes.trimToSize();
+            completedTokenizations.trimToSize();
+
             // restore the time propagation mode
             transcription.setTimeChangePropagationMode(curPropMode);
 
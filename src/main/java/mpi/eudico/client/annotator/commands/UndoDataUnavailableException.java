@@ -0,0 +1,19 @@
+package mpi.eudico.client.annotator.commands;
+
+/**
+ * Thrown by the undo or redo method of a command when the data it stored for undo and redo cannot be restored, e.g.
+ * because the temporary file they were written to cannot be read. The command has not changed the transcription in
+ * that case; the {@link CommandHistory} reports the failure and removes the command from the history.
+ */
+public class UndoDataUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new exception.
+     *
+     * @param cause the exception that prevented restoring the data
+     */
+    public UndoDataUnavailableException(Throwable cause) {
+        super(cause.getMessage(), cause);
+    }
+}
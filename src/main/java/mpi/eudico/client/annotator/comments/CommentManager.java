@@ -10,10 +10,8 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.StringSelection;
 import java.awt.datatransfer.Transferable;
 import java.awt.datatransfer.UnsupportedFlavorException;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
@@ -34,8 +32,6 @@ import java.util.TreeSet;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Predicate;
 import java.util.logging.Level;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.swing.JOptionPane;
 import javax.swing.event.ListDataEvent;
@@ -1049,9 +1045,18 @@ public class CommentManager implements ClientLogger  {
             }
         }
 
-        // If not found in this way, try to look at some files.
+        // If not found in this way, try the files that are known to have the URN.
         // The first one that actually has the URN is opened in a frame and returned.
+        List<File> known = URNCatalog.getInstance().lookup(urn);
+        TranscriptionImpl t = findTranscriptionFromURN(urn, predicate, known);
+
+        if (t != null) {
+            return t;
+        }
+
+        // Otherwise look at some files, those that were already tried can be skipped.
         List<File> candidates = findCandidateEafFiles(urn);
+        candidates.removeAll(known);
 
         return findTranscriptionFromURN(urn, predicate, candidates);
     }
@@ -1135,6 +1140,7 @@ public class CommentManager implements ClientLogger  {
         for (File dir : dirs) {
             findCandidateEafFiles(res, urn, dir);
         }
+        URNCatalog.getInstance().save();
 
         return res;
     }
@@ -1151,30 +1157,36 @@ public class CommentManager implements ClientLogger  {
         List<File> res = new ArrayList<>();
 
         findCandidateEafFiles(res, urn, startDir);
+        URNCatalog.getInstance().save();
 
         return res;
     }
 
     /**
      * Search all files named *.eaf in the given directory (recursively) to check if they are the one with the given URN.
-     * Return a list of the file names that match.
+     * Return a list of the file names that match. The URN of a file is taken from the {@link URNCatalog}, only files that
+     * are new or have been modified since they were catalogued are scanned.
      *
      * @param res the {@code List<File>} in which the results are accumulated
      * @param urn the URI to search for
      * @param dir the directory to search in (recursively).
      */
     private static void findCandidateEafFiles(List<File> res, URI urn, File dir) {
+        findCandidateEafFiles(res, urn.toString(), dir, URNCatalog.getInstance());
+    }
+
+    private static void findCandidateEafFiles(List<File> res, String urn, File dir, URNCatalog catalog) {
         File[] files = dir.listFiles();
 
         if (files != null) {
             for (File f : files) {
                 if (f.isDirectory()) {
-                    findCandidateEafFiles(res, urn, f);
+                    findCandidateEafFiles(res, urn, f, catalog);
                 } else if (f.canRead()) {
                     String name = f.getName();
                     if (name.endsWith(".eaf")) {
-                        // Ok, look into this file.
-                        if (scanForURN(urn, f)) {
+                        // Ok, look up or into this file.
+                        if (urn.equals(catalog.getURN(f))) {
                             res.add(f);
                         }
                     }
@@ -1252,54 +1264,6 @@ public class CommentManager implements ClientLogger  {
     }
 
 
-
-
-    // \\s is string literal denotation for \s which stands for any whitespace character
-    // The (.*) in the middle is group(1) which matches the URN.
-    // <PROPERTY NAME="URN">urn:nl-mpi-tools-elan-eaf:59d08e6a-5cd9-4aed-8aa4-7074c270e635</PROPERTY>
-    private static final Pattern matchPattern = Pattern.compile("<PROPERTY\\s+NAME\\s*=\\s*\"URN\">\\s*(.*)\\s*</PROPERTY>");
-
-    /**
-     * Have a quick look through the file to see if it contains
-     * {@code <PROPERTY NAME="URN">urn:nl-mpi-tools-elan-eaf:59d08e6a-5cd9-4aed-8aa4-7074c270e635</PROPERTY>} in the first
-     * few lines. Where "few" doesn't need to be more than 25 (typically found in line 5 or 6). It uses the knowledge that
-     * when we write XML files, each PROPERTY is on a single line. (If that ever changes, an alternative strategy could be to
-     * just read in the first kilobyte or so, and try to match the URN itself. It is supposed to be unique, after all.)
-     *
-     * @param urn the urn to find
-     * @param file the file to test
-     *
-     * @return {@code true} if the urn is found, {@code false} otherwise
-     */
-
-    private static boolean scanForURN(URI urn, File file) {
-        String urnAsString = urn.toString();
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file, UTF_8))) {
-            String line;
-            Matcher m = matchPattern.matcher("");
-
-            for (int lineNr = 0; lineNr < 25; lineNr++) {
-                line = reader.readLine();
-                if (line == null) {
-                    break;
-                }
-
-                m = m.reset(line);
-                if (m.find()) {
-                    String urnInFile = m.group(1);
-                    if (urnAsString.equals(urnInFile)) {
-                        return true;
-                    }
-                }
-            }
-        } catch (IOException e) {
-            LOG.log(Level.SEVERE, "File I/O Exception.", e);
-        }
-
-        return false;
-    }
-
     /**
      * Performs a check on the accessibility of the system clipboard.
      * TODO: unify all copies of this function.
@@ -0,0 +1,288 @@
+package mpi.eudico.client.annotator.comments;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mpi.eudico.client.annotator.Constants;
+import mpi.eudico.client.annotator.util.ClientLogger;
+
+/**
+ * A persistent catalog of the URNs of EAF files, so that the file belonging
+ * to the URN of a comment can be found without opening every file in a
+ * directory tree.
+ * <p>
+ * The catalog maps the path of a file to the URN in its header, together with
+ * the modification time and size of the file at the time it was scanned. An
+ * entry is only trusted as long as these are unchanged, otherwise the header
+ * of the file is scanned again. Only the header of a file is read, the scan
+ * stops at the end of the header.
+ * <p>
+ * The catalog is loaded from the ELAN data folder on first use and written
+ * back by {@link #save()} when it has been modified. All methods are
+ * synchronized.
+ */
+public class URNCatalog implements ClientLogger {
+    /** the file in the ELAN data folder where the catalog is stored */
+    public static final String CATALOG_FILE = Constants.ELAN_DATA_DIR + File.separator + "urn_catalog.dat";
+    private static final int VERSION = 1;
+    /** the maximum number of lines to read if the end of the header is not found */
+    private static final int MAX_HEADER_LINES = 500;
+
+    // \\s is string literal denotation for \s which stands for any whitespace character
+    // The (.*) in the middle is group(1) which matches the URN.
+    // <PROPERTY NAME="URN">urn:nl-mpi-tools-elan-eaf:59d08e6a-5cd9-4aed-8aa4-7074c270e635</PROPERTY>
+    private static final Pattern matchPattern = Pattern.compile("<PROPERTY\\s+NAME\\s*=\\s*\"URN\">\\s*(.*)\\s*</PROPERTY>");
+
+    private static URNCatalog instance;
+
+    private final File catalogFile;
+    private final Map<String, Entry> entriesByPath = new HashMap<>();
+    private final Map<String, Set<String>> pathsByURN = new HashMap<>();
+    private boolean loaded;
+    private boolean modified;
+
+    /**
+     * Creates a catalog stored in the specified file.
+     *
+     * @param catalogFile the file to load from and save to, if {@code null}
+     *     the catalog is not persisted
+     */
+    public URNCatalog(File catalogFile) {
+        super();
+        this.catalogFile = catalogFile;
+    }
+
+    /**
+     * Returns the shared catalog, stored in the ELAN data folder.
+     *
+     * @return the catalog instance
+     */
+    public static synchronized URNCatalog getInstance() {
+        if (instance == null) {
+            instance = new URNCatalog(new File(CATALOG_FILE));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the catalogued files that have the specified URN. Entries of
+     * files that no longer exist are removed, files that have been modified
+     * since they were catalogued are scanned again.
+     *
+     * @param urn the URN to look up
+     *
+     * @return a list of files with the URN, can be empty
+     */
+    public synchronized List<File> lookup(URI urn) {
+        load();
+        String urnAsString = urn.toString();
+        List<File> res = new ArrayList<>();
+        Set<String> paths = pathsByURN.get(urnAsString);
+
+        if (paths != null) {
+            // copy, the sets are modified by getURN
+            for (String path : new ArrayList<>(paths)) {
+                File f = new File(path);
+                if (!f.isFile()) {
+                    remove(path);
+                } else if (urnAsString.equals(getURN(f))) {
+                    res.add(f);
+                }
+            }
+        }
+
+        return res;
+    }
+
+    /**
+     * Returns the URN of an EAF file, from the catalog if the file has not
+     * been modified since it was catalogued, otherwise from the header of the
+     * file (which is then added to the catalog).
+     *
+     * @param f the EAF file
+     *
+     * @return the URN or an empty string if the file has no URN or cannot be
+     *     read
+     */
+    public synchronized String getURN(File f) {
+        load();
+        String path = f.getAbsolutePath();
+        long lastModified = f.lastModified();
+        long length = f.length();
+        Entry entry = entriesByPath.get(path);
+
+        if (entry != null && entry.lastModified == lastModified && entry.length == length) {
+            return entry.urn;
+        }
+
+        String urn = readURN(f);
+        remove(path);
+        put(path, new Entry(urn, lastModified, length));
+
+        return urn;
+    }
+
+    /**
+     * Writes the catalog to its file if it has been modified. Failures are
+     * logged, the catalog is optional.
+     */
+    public synchronized void save() {
+        if (!modified || catalogFile == null) {
+            return;
+        }
+        File dir = catalogFile.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+
+        File tmpFile = null;
+        try {
+            tmpFile = File.createTempFile("urn_catalog", ".tmp", dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(VERSION);
+                out.writeInt(entriesByPath.size());
+                for (Map.Entry<String, Entry> me : entriesByPath.entrySet()) {
+                    out.writeUTF(me.getKey());
+                    out.writeLong(me.getValue().lastModified);
+                    out.writeLong(me.getValue().length);
+                    out.writeUTF(me.getValue().urn);
+                }
+            }
+            Files.move(tmpFile.toPath(), catalogFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } catch (IOException ioe) {
+            LOG.log(Level.WARNING, "Could not save the URN catalog: " + ioe.getMessage());
+        } finally {
+            if (tmpFile != null && tmpFile.exists()) {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Loads the catalog from its file the first time it is accessed.
+     */
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (catalogFile == null || !catalogFile.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(catalogFile)))) {
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                String urn = in.readUTF();
+                put(path, new Entry(urn, lastModified, length));
+            }
+            modified = false;
+        } catch (IOException ioe) {
+            // a corrupt or truncated catalog, start again with what could be read
+            LOG.log(Level.INFO, "Could not read the URN catalog: " + ioe.getMessage());
+            modified = true;
+        }
+    }
+
+    private void put(String path, Entry entry) {
+        entriesByPath.put(path, entry);
+        if (!entry.urn.isEmpty()) {
+            pathsByURN.computeIfAbsent(entry.urn, k -> new LinkedHashSet<>()).add(path);
+        }
+        modified = true;
+    }
+
+    private void remove(String path) {
+        Entry entry = entriesByPath.remove(path);
+        if (entry != null) {
+            Set<String> paths = pathsByURN.get(entry.urn);
+            if (paths != null) {
+                paths.remove(path);
+                if (paths.isEmpty()) {
+                    pathsByURN.remove(entry.urn);
+                }
+            }
+            modified = true;
+        }
+    }
+
+    /**
+     * Reads the URN from the header of an EAF file, looking for
+     * {@code <PROPERTY NAME="URN">urn:nl-mpi-tools-elan-eaf:59d08e6a-5cd9-4aed-8aa4-7074c270e635</PROPERTY>}.
+     * It uses the knowledge that when we write XML files, each PROPERTY is on
+     * a single line. Reading stops at the end of the header.
+     *
+     * @param file the file to scan
+     *
+     * @return the URN or an empty string if it is not found
+     */
+    static String readURN(File file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file, UTF_8))) {
+            String line;
+            Matcher m = matchPattern.matcher("");
+
+            for (int lineNr = 0; lineNr < MAX_HEADER_LINES; lineNr++) {
+                line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+
+                m = m.reset(line);
+                if (m.find()) {
+                    return m.group(1);
+                }
+                if (line.contains("</HEADER>") || line.contains("<TIME_ORDER")) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.SEVERE, "File I/O Exception.", e);
+        }
+
+        return "";
+    }
+
+    /**
+     * A catalogued URN with the modification time and size of the file.
+     */
+    private static class Entry {
+        final String urn;
+        final long lastModified;
+        final long length;
+
+        Entry(String urn, long lastModified, long length) {
+            this.urn = urn;
+            this.lastModified = lastModified;
+            this.length = length;
+        }
+    }
+}
@@ -3,6 +3,7 @@ package mpi.eudico.client.annotator.gui;
 import mpi.eudico.client.annotator.tier.TierExportTableModel;
 import mpi.eudico.server.corpora.clomimpl.abstr.ParseException;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonCache;
 import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonParser;
 
 import javax.swing.event.ChangeListener;
@@ -185,8 +186,7 @@ public class FilesTierSortAndSelectPanel extends AbstractTierSortAndSelectPanel
             String path = file.getAbsolutePath();
 
             try {
-                EAFSkeletonParser parser = new EAFSkeletonParser(path);
-                parser.parse();
+                EAFSkeletonParser parser = EAFSkeletonCache.getInstance().getParsedSkeleton(path);
                 List<TierImpl> pts = parser.getTiers();
 
                 for (TierImpl tier : pts) {
@@ -11,6 +11,7 @@ import mpi.eudico.client.annotator.tier.SelectableContentTableModel;
 import mpi.eudico.client.annotator.util.ProgressListener;
 import mpi.eudico.client.annotator.util.SquelchOutput;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonCache;
 import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonParser;
 import mpi.eudico.server.corpora.util.ProcessReport;
 import mpi.eudico.util.EmptyStringComparator;
@@ -469,7 +470,7 @@ public class NgramStatisticsDialog extends ClosableDialog implements ListSelecti
         int count = 0;
         while (tiers == null && count < fileNames.size()) {
             // Open the first file, and load the tiers from it, this assumes all files contain the same tiers
-            EAFSkeletonParser parser = new EAFSkeletonParser(fileNames.get(count++));
+            String fileName = fileNames.get(count++);
             // also, squelch any output...
             SquelchOutput s = new SquelchOutput();
             try {
@@ -478,7 +479,8 @@ public class NgramStatisticsDialog extends ClosableDialog implements ListSelecti
             }
 
             try {
-                parser.parse();
+                EAFSkeletonParser parser = EAFSkeletonCache.getInstance().getParsedSkeleton(fileName);
+                tiers = parser.getTiers();
             } catch (Exception e) {
                 // ignore?
             }
@@ -487,8 +489,6 @@ public class NgramStatisticsDialog extends ClosableDialog implements ListSelecti
                 s.restoreOutput();
             } catch (IOException ioe) {
             }
-
-            tiers = parser.getTiers();
         }
 
         Set<String> uniqueTierNames = new TreeSet<String>();
@@ -11,6 +11,7 @@ import mpi.eudico.client.util.TableHeaderToolTipAdapter;
 import mpi.eudico.server.corpora.clomimpl.abstr.ParseException;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonCache;
 import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonParser;
 import mpi.eudico.server.corpora.util.SimpleReport;
 import mpi.eudico.util.EmptyStringComparator;
@@ -745,8 +746,7 @@ public class StatisticsMultipleFilesDialog extends ClosableDialog implements Lis
 
             for (int i = 0; i < filenames.size(); i++) {
                 try {
-                    EAFSkeletonParser parser = new EAFSkeletonParser(filenames.get(i));
-                    parser.parse();
+                    EAFSkeletonParser parser = EAFSkeletonCache.getInstance().getParsedSkeleton(filenames.get(i));
 
                     List<TierImpl> tiers = parser.getTiers();
 
@@ -0,0 +1,89 @@
+package mpi.eudico.client.annotator.interannotator;
+
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * Loads transcriptions on a number of worker threads ahead of the moment they are requested. The files are loaded in the
+ * order in which they are expected to be requested; only a limited number of transcriptions is loaded in advance, so that
+ * the memory use remains bounded when processing many files.
+ *
+ * <p>A file that is requested but that is not (or no longer) scheduled for loading is loaded on the calling thread.
+ */
+public class TranscriptionPrefetcher implements AutoCloseable {
+    private final Function<File, TranscriptionImpl> loader;
+    private final Iterator<File> pendingFiles;
+    private final Map<File, Future<TranscriptionImpl>> loadingFiles;
+    private final ExecutorService executor;
+    private final int lookAhead;
+
+    /**
+     * Constructor, starts loading the first files.
+     *
+     * @param files the files in the order they will be requested, not null
+     * @param loader the function that loads a single file and returns {@code null} if loading fails
+     */
+    public TranscriptionPrefetcher(List<File> files, Function<File, TranscriptionImpl> loader) {
+        this.loader = loader;
+        pendingFiles = files.iterator();
+        loadingFiles = new HashMap<File, Future<TranscriptionImpl>>();
+        int numThreads = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+        executor = Executors.newFixedThreadPool(numThreads);
+        lookAhead = 2 * numThreads;
+        scheduleNext();
+    }
+
+    /**
+     * Returns the transcription of the specified file, waiting for it to be loaded if necessary.
+     *
+     * @param f the file
+     *
+     * @return the transcription or {@code null} if it could not be loaded
+     */
+    public TranscriptionImpl get(File f) {
+        Future<TranscriptionImpl> future = loadingFiles.remove(f);
+        scheduleNext();
+        if (future == null) {
+            return loader.apply(f);
+        }
+
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            LOG.warning("Could not load a transcription from file: " + f.getName());
+        }
+        return null;
+    }
+
+    private void scheduleNext() {
+        while (loadingFiles.size() < lookAhead && pendingFiles.hasNext()) {
+            final File f = pendingFiles.next();
+            if (f != null && !loadingFiles.containsKey(f)) {
+                loadingFiles.put(f, executor.submit(() -> loader.apply(f)));
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads, transcriptions that are being loaded are discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        loadingFiles.clear();
+    }
+}
@@ -177,6 +177,199 @@ public class TranscriptionScrubber implements ProcessReporter {
 		this.report = report;
 	}
 	
+    /**
+     * Removes the characters specified by the filters from the annotations
+     * of a transcription, without saving it.
+     *
+     * @param trans the transcription to scrub
+     * @param filters the characters to remove and their positions (leading, trailing, all)
+     *
+     * @return {@code true} if any annotation has been changed
+     */
+    public boolean scrub(TranscriptionImpl trans, Map<Character, boolean[]> filters) {
+        char[] chars = new char[filters.size()];
+        boolean[][] flags = new boolean[chars.length][];
+        int count = 0;
+
+        for (Map.Entry<Character, boolean[]> entry : filters.entrySet()) {
+            chars[count] = entry.getKey().charValue();
+            flags[count] = entry.getValue();
+            count++;
+        }
+
+        return scrubTranscription(trans, chars, flags);
+    }
+
+    /**
+     * Scrubs the annotations of all tiers of the transcription.
+     *
+     * @param trans the transcription
+     * @param chars the characters to remove
+     * @param flags for each character whether to remove leading, trailing or all occurrences
+     *
+     * @return {@code true} if any annotation has been changed
+     */
+    private boolean scrubTranscription(TranscriptionImpl trans, char[] chars, boolean[][] flags) {
+        StringBuilder builder = null;
+        boolean changed = false;// this transcription
+        boolean annChanged = false;// this annotation
+        List<TierImpl> tiers = trans.getTiers();
+
+        for (int j = 0; j < tiers.size(); j++) {
+            TierImpl tier = tiers.get(j);
+
+            if (tier == null) {
+                LOG.warning("Tier is null (index = " + j + ")");
+
+                continue;
+            }
+
+            List<AbstractAnnotation> annotations = tier.getAnnotations();
+
+            int numAnnos = tier.getNumberOfAnnotations();
+
+            for (int k = 0; k < numAnnos; k++) {
+                Annotation ann = annotations.get(k);
+                String val = ann.getValue();
+                annChanged = false;
+
+                if ((val != null) && (val.length() > 0)) {
+                    boolean nonSpaceChanged = false;
+                    // start the processing, first replace \t and \n by spaces
+                    for (int z = 0; z < chars.length; z++) {
+                        if (chars[z] != SP) {
+                            // optimize; if all tab and/or newline flags are false, skip the copying
+                            if (!flags[z][0] && !flags[z][1] && !flags[z][2]) {
+                                continue;
+                            }
+                            builder = new StringBuilder(val.length());
+                            char[] annChars = val.toCharArray();
+                            char lastCopied = SP;
+                            nonSpaceChanged = false;
+
+                            if (flags[z][2]) {// remove all, replace if prev and next are not spaces
+                                for (int y = 0; y < annChars.length; y++) {
+                                    if (annChars[y] != chars[z]) {
+                                        builder.append(annChars[y]);
+                                        lastCopied = annChars[y];
+                                    } else {
+                                        annChanged = true;
+                                        nonSpaceChanged = true;
+                                        // check prev, next
+                                        if ((y > 0 && lastCopied != SP) && 
+                                                (y < annChars.length - 1 && annChars[y + 1] != SP)) {
+                                            builder.append(SP);
+                                            lastCopied = SP;
+                                        } // don't copy 
+                                    }
+                                }
+                            } else { // remove begin and/or end
+                                int bi = 0;
+                                int ei = annChars.length - 1;
+                                if (flags[z][0]) {// remove leading
+                                    for (char annChar : annChars) {
+                                        if (annChar == chars[z]) {
+                                            bi++;
+                                        } else {
+                                            break;
+                                        }
+                                    }
+                                }
+                                if (flags[z][1]) {// remove trailing
+                                    for (int y = annChars.length - 1; y >= 0; y--) {
+                                        if (annChars[y] == chars[z]) {
+                                            ei--;
+                                        } else {
+                                            break;
+                                        }
+                                    }
+                                }
+                                if (bi != 0 || ei != annChars.length - 1) {
+                                    annChanged = true;
+                                    nonSpaceChanged = true;
+                                    builder.append(annChars, bi, (ei - bi + 1));
+                                }
+                            }
+                            if (nonSpaceChanged) {
+                                val = builder.toString();
+                            }
+                        }
+
+                    }
+                    char lastCopied = SP;
+                    boolean spaceChanged = false;
+                    // now check spaces
+                    for (int z = 0; z < chars.length; z++) {
+                        if (chars[z] == SP) {
+                            // optimize; if all space flags are false, skip the copying
+                            if (!flags[z][0] && !flags[z][1] && !flags[z][2]) {
+                                break;
+                            }
+                            builder = new StringBuilder(val.length());
+                            char[] annChars = val.toCharArray();
+                            spaceChanged = false;
+
+                            if (flags[z][2]) {// remove all, replace multiple spaces by one
+                                for (int y = 0; y < annChars.length; y++) {
+                                    if (annChars[y] != SP) {
+                                        builder.append(annChars[y]);
+                                        lastCopied = annChars[y];
+                                    } else {
+                                        // check prev, next
+                                        if ((y > 0 && lastCopied != SP) && 
+                                                (y < annChars.length - 1 && annChars[y + 1] != SP)) {
+                                            builder.append(SP);
+                                            lastCopied = SP;
+                                        } else {// don't copy
+                                            spaceChanged = true;
+                                            annChanged = true;
+                                        }
+                                    }
+                                }
+                            } else {// remove leading and or trailing
+                                int bi = 0;
+                                int ei = annChars.length - 1;
+                                if (flags[z][0]) {// remove leading
+                                    for (char annChar : annChars) {
+                                        if (annChar == SP) {
+                                            bi++;
+                                        } else {
+                                            break;
+                                        }
+                                    }
+                                }
+                                if (flags[z][1]) {// remove trailing
+                                    for (int y = annChars.length - 1; y >= 0; y--) {
+                                        if (annChars[y] == SP) {
+                                            ei--;
+                                        } else {
+                                            break;
+                                        }
+                                    }
+                                }
+                                if (bi != 0 || ei != annChars.length - 1) {
+                                    annChanged = true;
+                                    spaceChanged = true;
+                                    builder.append(annChars, bi, (ei - bi + 1));
+                                }
+                            }
+                            if (spaceChanged) {
+                                val = builder.toString();
+                            }
+                        }
+                    }
+
+                }
+                if (annChanged) {
+                    changed = true;
+                    ann.setValue(val);
+                }
+            }// end annotations
+        }// end tiers
+
+        return changed;
+    }
+
     //###############################################
     /**
      * The actual scrubbing in a separate thread. Customization options could
@@ -268,7 +461,6 @@ public class TranscriptionScrubber implements ProcessReporter {
             report("Number of files to process: " + numFiles);
 
             TranscriptionStore eafTranscriptionStore = ACMTranscriptionStore.getCurrentTranscriptionStore();
-            StringBuilder builder = null;
             float perFile = 95 / (float) numFiles;
             // stats
             int numProcessed = 0;
@@ -289,161 +481,7 @@ public class TranscriptionScrubber implements ProcessReporter {
                 	TranscriptionImpl trans = new TranscriptionImpl(file.getAbsolutePath());
                     trans.setNotifying(false);
 
-                    boolean changed = false;// this transcription
-                    boolean annChanged = false;// this annotation
-                    List<TierImpl> tiers = trans.getTiers();
-
-                    for (int j = 0; j < tiers.size(); j++) {
-                    	TierImpl tier = tiers.get(j);
-
-                        if (tier == null) {
-                            LOG.warning("Tier is null (index = " + j + ")");
-
-                            continue;
-                        }
-
-                        List<AbstractAnnotation> annotations = tier.getAnnotations();
-
-                        int numAnnos = tier.getNumberOfAnnotations();
-
-                        for (int k = 0; k < numAnnos; k++) {
-                        	Annotation ann = annotations.get(k);
-                        	String val = ann.getValue();
-                            annChanged = false;
-
-                            if ((val != null) && (val.length() > 0)) {
-                            	boolean nonSpaceChanged = false;
-                            	// start the processing, first replace \t and \n by spaces
-                            	for (int z = 0; z < chars.length; z++) {
-                            		if (chars[z] != SP) {
-                            			// optimize; if all tab and/or newline flags are false, skip the copying
-                            			if (!flags[z][0] && !flags[z][1] && !flags[z][2]) {
-                            				continue;
-                            			}
-                                    	builder = new StringBuilder(val.length());
-                                    	char[] annChars = val.toCharArray();
-                                    	char lastCopied = SP;
-                                    	nonSpaceChanged = false;
-                                    	
-                            			if (flags[z][2]) {// remove all, replace if prev and next are not spaces
-                            				for (int y = 0; y < annChars.length; y++) {
-                            					if (annChars[y] != chars[z]) {
-                            						builder.append(annChars[y]);
-                            						lastCopied = annChars[y];
-                            					} else {
-                            						annChanged = true;
-                            						nonSpaceChanged = true;
-                            						// check prev, next
-                            						if ((y > 0 && lastCopied != SP) && 
-                            								(y < annChars.length - 1 && annChars[y + 1] != SP)) {
-                                						builder.append(SP);
-                                						lastCopied = SP;
-                            						} // don't copy 
-                            					}
-                            				}
-                            			} else { // remove begin and/or end
-                            				int bi = 0;
-                            				int ei = annChars.length - 1;
-                            				if (flags[z][0]) {// remove leading
-	                            				for (char annChar : annChars) {
-	                            					if (annChar == chars[z]) {
-	                            						bi++;
-	                            					} else {
-	                            						break;
-	                            					}
-	                            				}
-                            				}
-                            				if (flags[z][1]) {// remove trailing
-                            					for (int y = annChars.length - 1; y >= 0; y--) {
-                            						if (annChars[y] == chars[z]) {
-                            							ei--;
-                            						} else {
-                            							break;
-                            						}
-                            					}
-                            				}
-                            				if (bi != 0 || ei != annChars.length - 1) {
-                            					annChanged = true;
-                            					nonSpaceChanged = true;
-                            					builder.append(annChars, bi, (ei - bi + 1));
-                            				}
-                            			}
-                            			if (nonSpaceChanged) {
-                            				val = builder.toString();
-                            			}
-                            		}
-                            		
-                            	}
-                            	char lastCopied = SP;
-                            	boolean spaceChanged = false;
-                            	// now check spaces
-                            	for (int z = 0; z < chars.length; z++) {
-                            		if (chars[z] == SP) {
-                            			// optimize; if all space flags are false, skip the copying
-                            			if (!flags[z][0] && !flags[z][1] && !flags[z][2]) {
-                            				break;
-                            			}
-                                    	builder = new StringBuilder(val.length());
-                                    	char[] annChars = val.toCharArray();
-                                    	spaceChanged = false;
-                                    	
-                                    	if (flags[z][2]) {// remove all, replace multiple spaces by one
-                            				for (int y = 0; y < annChars.length; y++) {
-                            					if (annChars[y] != SP) {
-                            						builder.append(annChars[y]);
-                            						lastCopied = annChars[y];
-                            					} else {
-                            						// check prev, next
-                            						if ((y > 0 && lastCopied != SP) && 
-                            								(y < annChars.length - 1 && annChars[y + 1] != SP)) {
-                                						builder.append(SP);
-                                						lastCopied = SP;
-                            						} else {// don't copy
-                            							spaceChanged = true;
-                            							annChanged = true;
-                            						}
-                            					}
-                            				}
-                                    	} else {// remove leading and or trailing
-                            				int bi = 0;
-                            				int ei = annChars.length - 1;
-                            				if (flags[z][0]) {// remove leading
-	                            				for (char annChar : annChars) {
-	                            					if (annChar == SP) {
-	                            						bi++;
-	                            					} else {
-	                            						break;
-	                            					}
-	                            				}
-                            				}
-                            				if (flags[z][1]) {// remove trailing
-                            					for (int y = annChars.length - 1; y >= 0; y--) {
-                            						if (annChars[y] == SP) {
-                            							ei--;
-                            						} else {
-                            							break;
-                            						}
-                            					}
-                            				}
-                            				if (bi != 0 || ei != annChars.length - 1) {
-                            					annChanged = true;
-                            					spaceChanged = true;
-                            					builder.append(annChars, bi, (ei - bi + 1));
-                            				}
-                                    	}
-                                    	if (spaceChanged) {
-                                    		val = builder.toString();
-                                    	}
-                            		}
-                            	}
-
-                            }
-                            if (annChanged) {
-                            	changed = true;
-                            	ann.setValue(val);
-                            }
-                        }// end annotations
-                    }// end tiers
+                    boolean changed = scrubTranscription(trans, chars, flags);
 
                     if (changed) {
                     	numChanged++;
@@ -0,0 +1,201 @@
+package mpi.eudico.client.annotator.multiplefilesedit.statistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import mpi.eudico.server.corpora.clomimpl.abstr.AbstractAnnotation;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+
+/**
+ * The statistics input extracted from a single file: the attributes of all
+ * tiers, the begin time, duration and value of all annotations and the names
+ * of all linguistic types. This is everything a {@link StatisticsCollectionMF}
+ * needs to add the file to the overall statistics, independent of the
+ * selection of tiers. Instances are immutable and can be stored in a
+ * {@link FileStatisticsCache}.
+ */
+public class FileStatistics {
+	private final List<TierData> tiers;
+	private final List<String> typeNames;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tiers the tier data, in the order of the tiers in the file
+	 * @param typeNames the names of all linguistic types in the file
+	 */
+	public FileStatistics(List<TierData> tiers, List<String> typeNames) {
+		super();
+		this.tiers = Collections.unmodifiableList(tiers);
+		this.typeNames = Collections.unmodifiableList(typeNames);
+	}
+
+	/**
+	 * Extracts the statistics input from a transcription.
+	 *
+	 * @param trans the transcription
+	 * @return the statistics input of the transcription
+	 */
+	public static FileStatistics fromTranscription(TranscriptionImpl trans) {
+		List<TierImpl> transTiers = trans.getTiers();
+		List<TierData> tierData = new ArrayList<TierData>(transTiers.size());
+
+		for (TierImpl tier : transTiers) {
+			List<AbstractAnnotation> annotations = tier.getAnnotations();
+			int num = annotations.size();
+			long[] beginTimes = new long[num];
+			long[] durations = new long[num];
+			String[] values = new String[num];
+
+			for (int i = 0; i < num; i++) {
+				AbstractAnnotation aa = annotations.get(i);
+				beginTimes[i] = aa.getBeginTimeBoundary();
+				durations[i] = aa.getEndTimeBoundary() - beginTimes[i];
+				values[i] = aa.getValue() != null ? aa.getValue() : "";
+			}
+
+			tierData.add(new TierData(tier.getName(),
+					tier.getLinguisticType().getLinguisticTypeName(), nonNull(tier.getParticipant()),
+					nonNull(tier.getAnnotator()), nonNull(tier.getLangRef()),
+					beginTimes, durations, values));
+		}
+
+		List<LinguisticType> types = trans.getLinguisticTypes();
+		List<String> typeNames = new ArrayList<String>(types.size());
+		for (LinguisticType lt : types) {
+			typeNames.add(lt.getLinguisticTypeName());
+		}
+
+		return new FileStatistics(tierData, typeNames);
+	}
+
+	private static String nonNull(String value) {
+		return value != null ? value : "";
+	}
+
+	/**
+	 * Returns the data of all tiers.
+	 *
+	 * @return the tiers, in the order of the tiers in the file
+	 */
+	public List<TierData> getTiers() {
+		return tiers;
+	}
+
+	/**
+	 * Returns the names of the linguistic types.
+	 *
+	 * @return the names of all types in the file, used or not
+	 */
+	public List<String> getTypeNames() {
+		return typeNames;
+	}
+
+	/**
+	 * The attributes and annotation data of a single tier.
+	 */
+	public static class TierData {
+		private final String name;
+		private final String typeName;
+		private final String participant;
+		private final String annotator;
+		private final String langRef;
+		private final long[] beginTimes;
+		private final long[] durations;
+		private final String[] values;
+
+		/**
+		 * Constructor, the arrays should have the same length.
+		 *
+		 * @param name the tier name
+		 * @param typeName the name of the linguistic type
+		 * @param participant the participant, an empty string if not specified
+		 * @param annotator the annotator, an empty string if not specified
+		 * @param langRef the content language, an empty string if not specified
+		 * @param beginTimes the begin times of the annotations
+		 * @param durations the durations of the annotations
+		 * @param values the annotation values, not {@code null}
+		 */
+		public TierData(String name, String typeName, String participant, String annotator,
+				String langRef, long[] beginTimes, long[] durations, String[] values) {
+			super();
+			this.name = name;
+			this.typeName = typeName;
+			this.participant = participant;
+			this.annotator = annotator;
+			this.langRef = langRef;
+			this.beginTimes = beginTimes;
+			this.durations = durations;
+			this.values = values;
+		}
+
+		/**
+		 * @return the tier name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the name of the linguistic type
+		 */
+		public String getTypeName() {
+			return typeName;
+		}
+
+		/**
+		 * @return the participant, an empty string if not specified
+		 */
+		public String getParticipant() {
+			return participant;
+		}
+
+		/**
+		 * @return the annotator, an empty string if not specified
+		 */
+		public String getAnnotator() {
+			return annotator;
+		}
+
+		/**
+		 * @return the content language, an empty string if not specified
+		 */
+		public String getLangRef() {
+			return langRef;
+		}
+
+		/**
+		 * @return the number of annotations
+		 */
+		public int getNumAnnotations() {
+			return values.length;
+		}
+
+		/**
+		 * @param index the annotation index
+		 * @return the begin time of the annotation
+		 */
+		public long getBeginTime(int index) {
+			return beginTimes[index];
+		}
+
+		/**
+		 * @param index the annotation index
+		 * @return the duration of the annotation
+		 */
+		public long getDuration(int index) {
+			return durations[index];
+		}
+
+		/**
+		 * @param index the annotation index
+		 * @return the value of the annotation, not {@code null}
+		 */
+		public String getValue(int index) {
+			return values[index];
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package mpi.eudico.client.annotator.multiplefilesedit.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import mpi.eudico.client.annotator.Constants;
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * A disk cache of {@link FileStatistics}, keyed by the path and the
+ * modification time (and size) of the source file. A file that has not
+ * changed since its statistics were cached does not need to be parsed again.
+ * <p>
+ * There is one binary cache file per source file; the cache file contains the
+ * path, modification time and size of the source file and is ignored and
+ * replaced if these don't match. Failures to read or write the cache are not
+ * reported, the cache is optional.
+ * <p>
+ * The total size of the cache files is limited; when a file is written and
+ * the cache exceeds the maximum size, the least recently used files are
+ * deleted. The maximum size can be set with the system property
+ * {@code ELAN.StatisticsCache.MaxSizeMB}. When a file is written, cache files
+ * with the same base name whose source file no longer exists (e.g. because
+ * it has been moved or renamed) are deleted as well.
+ * <p>
+ * {@link #getStatistics(File)} can be called from multiple threads.
+ */
+public class FileStatisticsCache {
+	/** the default cache folder */
+	public static final String CACHE_DIR = Constants.ELAN_DATA_DIR + File.separator + "statistics_cache";
+	/** the default maximum size of the cache in bytes */
+	public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".stats";
+
+	private final File cacheDir;
+	private final long maxSize;
+	/** the total size of the cache files, -1 until it has been determined, guarded by this */
+	private long cacheSize = -1;
+
+	/**
+	 * Creates a cache in the default cache folder.
+	 */
+	public FileStatisticsCache() {
+		this(new File(CACHE_DIR), getDefaultMaxSize());
+	}
+
+	/**
+	 * Creates a cache in the specified folder.
+	 *
+	 * @param cacheDir the cache folder, it is created when needed; if
+	 * {@code null} nothing is cached
+	 * @param maxSize the maximum total size of the cache files in bytes
+	 */
+	public FileStatisticsCache(File cacheDir, long maxSize) {
+		super();
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+	}
+
+	private static long getDefaultMaxSize() {
+		String prop = System.getProperty("ELAN.StatisticsCache.MaxSizeMB");
+		if (prop != null) {
+			try {
+				return Long.parseLong(prop.trim()) * 1024 * 1024;
+			} catch (NumberFormatException nfe) {
+				LOG.warning("Invalid value for the statistics cache size: " + prop);
+			}
+		}
+		return DEFAULT_MAX_SIZE;
+	}
+
+	/**
+	 * Returns the statistics input of a file, from the cache if the file has
+	 * not been modified since it was cached, otherwise the file is parsed
+	 * and the result is stored in the cache.
+	 *
+	 * @param f the annotation file
+	 * @return the statistics input of the file
+	 * @throws Exception any exception thrown while parsing the file
+	 */
+	public FileStatistics getStatistics(File f) throws Exception {
+		String path = f.getAbsolutePath();
+		long lastModified = f.lastModified();
+		long length = f.length();
+		File cacheFile = getCacheFile(f);
+
+		if (cacheFile != null && cacheFile.isFile()) {
+			try {
+				FileStatistics stats = read(cacheFile, path, lastModified, length);
+				if (stats != null) {
+					// the modification time serves as the access time for the LRU order
+					cacheFile.setLastModified(System.currentTimeMillis());
+					return stats;
+				}
+			} catch (IOException ioe) {
+				// ignore, parse the file again
+			}
+		}
+
+		FileStatistics stats = FileStatistics.fromTranscription(new TranscriptionImpl(f.getPath()));
+
+		if (cacheFile != null) {
+			try {
+				long oldLength = cacheFile.length();
+				write(cacheFile, path, lastModified, length, stats);
+				deleteSuperseded(f, cacheFile);
+				added(cacheFile.length() - oldLength);
+			} catch (IOException ioe) {
+				// the cache is optional
+			}
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Deletes the cache files with the same base name as the specified cache
+	 * file whose source file does not exist anymore.
+	 *
+	 * @param f the source file
+	 * @param cacheFile the cache file that has just been written for it
+	 */
+	private void deleteSuperseded(File f, File cacheFile) {
+		String prefix = f.getName() + "-";
+		File[] sameName = cacheDir.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(EXTENSION) &&
+				name.indexOf('-', prefix.length()) < 0);
+		if (sameName == null) {
+			return;
+		}
+		for (File other : sameName) {
+			if (other.equals(cacheFile)) {
+				continue;
+			}
+			String sourcePath = readSourcePath(other);
+			if (sourcePath == null || !new File(sourcePath).exists()) {
+				long otherLength = other.length();
+				if (other.delete()) {
+					added(-otherLength);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Updates the total size of the cache and deletes the least recently used
+	 * files if the size exceeds the maximum.
+	 *
+	 * @param delta the change of the total size in bytes
+	 */
+	private synchronized void added(long delta) {
+		if (cacheSize < 0) {
+			cacheSize = 0;
+			for (File cf : listCacheFiles()) {
+				cacheSize += cf.length();
+			}
+		} else {
+			cacheSize += delta;
+		}
+		if (cacheSize > maxSize) {
+			trim();
+		}
+	}
+
+	/**
+	 * Deletes least recently used files until the size of the cache does not
+	 * exceed the maximum size.
+	 */
+	private synchronized void trim() {
+		List<File> files = listCacheFiles();
+		long size = 0;
+		for (File cf : files) {
+			size += cf.length();
+		}
+		files.sort((f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+		for (File cf : files) {
+			if (size <= maxSize) {
+				break;
+			}
+			long length = cf.length();
+			if (cf.delete()) {
+				size -= length;
+			}
+		}
+		cacheSize = size;
+	}
+
+	private List<File> listCacheFiles() {
+		File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(EXTENSION));
+		return files == null ? new ArrayList<File>() : new ArrayList<File>(Arrays.asList(files));
+	}
+
+	/**
+	 * Returns the cache file for a source file, the name consists of the
+	 * name of the source file and the checksum of its path.
+	 *
+	 * @param f the source file
+	 * @return the cache file or {@code null}
+	 */
+	private File getCacheFile(File f) {
+		if (cacheDir == null) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		crc.update(f.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+
+		return new File(cacheDir, f.getName() + "-" + Long.toHexString(crc.getValue()) + EXTENSION);
+	}
+
+	/**
+	 * Reads the path of the source file from the header of a cache file.
+	 *
+	 * @return the path or {@code null} if the file cannot be read or is of
+	 * another version
+	 */
+	private String readSourcePath(File cacheFile) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (in.readInt() != VERSION) {
+				return null;
+			}
+			return readString(in, cacheFile.length());
+		} catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reads cached statistics.
+	 *
+	 * @return the statistics or {@code null} if the cache file is not for the
+	 * current version of the source file
+	 */
+	private FileStatistics read(File cacheFile, String path, long lastModified, long length) throws IOException {
+		// counts and lengths cannot exceed the size of the cache file, this guards against corrupt files
+		long limit = cacheFile.length();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+			if (in.readInt() != VERSION || !path.equals(readString(in, limit)) ||
+					in.readLong() != lastModified || in.readLong() != length) {
+				return null;
+			}
+
+			int numTypes = readCount(in, limit);
+			List<String> typeNames = new ArrayList<String>(numTypes);
+			for (int i = 0; i < numTypes; i++) {
+				typeNames.add(readString(in, limit));
+			}
+
+			int numTiers = readCount(in, limit);
+			List<FileStatistics.TierData> tiers = new ArrayList<FileStatistics.TierData>(numTiers);
+			for (int i = 0; i < numTiers; i++) {
+				String name = readString(in, limit);
+				String typeName = readString(in, limit);
+				String participant = readString(in, limit);
+				String annotator = readString(in, limit);
+				String langRef = readString(in, limit);
+				int numAnnotations = readCount(in, limit);
+				long[] beginTimes = new long[numAnnotations];
+				long[] durations = new long[numAnnotations];
+				String[] values = new String[numAnnotations];
+				for (int j = 0; j < numAnnotations; j++) {
+					beginTimes[j] = in.readLong();
+					durations[j] = in.readLong();
+					values[j] = readString(in, limit);
+				}
+				tiers.add(new FileStatistics.TierData(name, typeName, participant, annotator, langRef,
+						beginTimes, durations, values));
+			}
+
+			return new FileStatistics(tiers, typeNames);
+		}
+	}
+
+	/**
+	 * Writes statistics to a temporary file which then replaces the cache
+	 * file, so that concurrent readers never see a partial file.
+	 */
+	private void write(File cacheFile, String path, long lastModified, long length,
+			FileStatistics stats) throws IOException {
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			return;
+		}
+		File tmpFile = File.createTempFile("stats", ".tmp", cacheDir);
+
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				out.writeInt(VERSION);
+				writeString(out, path);
+				out.writeLong(lastModified);
+				out.writeLong(length);
+
+				out.writeInt(stats.getTypeNames().size());
+				for (String typeName : stats.getTypeNames()) {
+					writeString(out, typeName);
+				}
+
+				out.writeInt(stats.getTiers().size());
+				for (FileStatistics.TierData td : stats.getTiers()) {
+					writeString(out, td.getName());
+					writeString(out, td.getTypeName());
+					writeString(out, td.getParticipant());
+					writeString(out, td.getAnnotator());
+					writeString(out, td.getLangRef());
+					out.writeInt(td.getNumAnnotations());
+					for (int j = 0; j < td.getNumAnnotations(); j++) {
+						out.writeLong(td.getBeginTime(j));
+						out.writeLong(td.getDuration(j));
+						writeString(out, td.getValue(j));
+					}
+				}
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			if (tmpFile.exists()) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	// writeUTF is limited to 64K bytes, annotation values can be longer
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static int readCount(DataInputStream in, long limit) throws IOException {
+		int count = in.readInt();
+		if (count < 0 || count > limit) {
+			throw new IOException("Invalid count in statistics cache file: " + count);
+		}
+		return count;
+	}
+
+	private static String readString(DataInputStream in, long limit) throws IOException {
+		byte[] bytes = new byte[readCount(in, limit)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -55,6 +55,17 @@ public class StatisticsAnnotationsMF {
 		addTier(tier);
 	}
 	
+	/**
+	 * Constructor for statistics that are filled with {@link #addAnnotation(String, long, long)}.
+	 * 
+	 * @param tierName the name of the tier(s) to create annotation statistics for
+	 */
+	public StatisticsAnnotationsMF(String tierName) {
+		super();
+		this.tierName = tierName;
+		annotationStats = new HashMap<String, AnStats>();
+	}
+	
 	/**
 	 * Returns the tier name.
 	 * 
@@ -102,47 +113,57 @@ public class StatisticsAnnotationsMF {
             for (AbstractAnnotation ann : annotations) {
                 long bt = ann.getBeginTimeBoundary();
                 long et = ann.getEndTimeBoundary();
-                long dur = et - bt;
-        		AnStats stats;
-                
-                if ((ann.getValue() != null) && (ann.getValue().length() > 0)) {
-                    stats = annotationStats.get(ann.getValue());
-                    if (stats == null) {
-                    	stats = new AnStats(ann.getValue());
-                    	annotationStats.put(ann.getValue(), stats);
-                    	stats.minDur = dur;
-                    	stats.maxDur = dur;
-                    	stats.latency = bt;
-                    }
-                    
-                } else {
-                    stats = annotationStats.get(EMPTY);
-                    if (stats == null) {
-                    	stats = new AnStats(EMPTY);
-                    	annotationStats.put(EMPTY, stats);
-                    	stats.minDur = dur;
-                    	stats.maxDur = dur;
-                    	stats.latency = bt;
-                    }                	
-                }
-                
-                stats.numOccur++;
-                stats.durations.add(dur);
-                stats.totalDur += dur;
-                if (dur < stats.minDur) {
-                	stats.minDur = dur;
-                }
-                if (dur > stats.maxDur) {
-                	stats.maxDur = dur;
-                }
-                if (bt < stats.latency) {
-                	stats.latency = bt;
-                }
+                updateStatistics(ann.getValue(), bt, et - bt);
             }
         }
 		
 	}
 	
+	/**
+	 * Adds a single annotation of a tier with the name of this statistics object.
+	 * 
+	 * @param value the annotation value
+	 * @param beginTime the begin time of the annotation
+	 * @param duration the duration of the annotation
+	 */
+	public void addAnnotation(String value, long beginTime, long duration) {
+		numAnnotations++;
+		updateStatistics(value, beginTime, duration);
+	}
+	
+	/**
+	 * Creates or updates the statistics of an annotation value.
+	 * 
+	 * @param value the annotation value, {@code null} or empty values are
+	 * counted as {@link #EMPTY}
+	 * @param bt the begin time
+	 * @param dur the duration
+	 */
+	private void updateStatistics(String value, long bt, long dur) {
+		String key = (value != null && value.length() > 0) ? value : EMPTY;
+		AnStats stats = annotationStats.get(key);
+		if (stats == null) {
+			stats = new AnStats(key);
+			annotationStats.put(key, stats);
+			stats.minDur = dur;
+			stats.maxDur = dur;
+			stats.latency = bt;
+		}
+
+		stats.numOccur++;
+		stats.durations.add(dur);
+		stats.totalDur += dur;
+		if (dur < stats.minDur) {
+			stats.minDur = dur;
+		}
+		if (dur > stats.maxDur) {
+			stats.maxDur = dur;
+		}
+		if (bt < stats.latency) {
+			stats.latency = bt;
+		}
+	}
+	
 	/**
 	 * Returns the statistics of all unique values in this particular tier.
 	 * The columns are:<br>
@@ -4,10 +4,12 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
@@ -73,10 +75,104 @@ public class StatisticsCollectionMF {
 		if (tier == null) {
 			return;
 		}
+		addTier(file, tier.getName(), tier.getLinguisticType().getLinguisticTypeName(), 
+				tier.getParticipant(), tier.getAnnotator(), tier.getLangRef(), numAnnotations, 
+				minDur, maxDur, totalDur, latency, curDurations);
+	}
+	
+	/**
+	 * Adds the statistics input of a file to the collection, all tiers or
+	 * only the specified tiers. In case of all tiers, the linguistic types 
+	 * that are not used by any tier are added as well.
+	 * 
+	 * @param file the name or path of the file
+	 * @param fileStats the statistics input extracted from the file
+	 * @param allTiers if {@code true} all tiers are added, otherwise only the
+	 * tiers in the list of tier names
+	 * @param tierNames the names of the tiers to add if not all tiers are added
+	 * @return the number of tiers that have been added
+	 */
+	public int addFileStatistics(String file, FileStatistics fileStats, boolean allTiers, 
+			List<String> tierNames) {
+		int numAddedTiers = 0;
+		Set<String> typeNames = new HashSet<String>();
+		
+		for (FileStatistics.TierData td : fileStats.getTiers()) {
+			if (!allTiers && !tierNames.contains(td.getName())) {
+				continue;
+			}
+			int numAnnotations = td.getNumAnnotations();
+			long minDur = Long.MAX_VALUE;
+			long maxDur = 0, totalDur = 0;
+			long latency = Long.MAX_VALUE;
+			List<Long> durations = new ArrayList<Long>(numAnnotations);
+			
+			for (int i = 0; i < numAnnotations; i++) {
+				long curDur = td.getDuration(i);
+				if (curDur < minDur) {
+					minDur = curDur;
+				}
+				if (curDur > maxDur) {
+					maxDur = curDur;
+				}
+				if (td.getBeginTime(i) < latency) {
+					latency = td.getBeginTime(i);
+				}
+				totalDur += curDur;
+				durations.add(curDur);
+			}
+			
+			addTier(file, td.getName(), td.getTypeName(), td.getParticipant(), td.getAnnotator(),
+					td.getLangRef(), numAnnotations, minDur, maxDur, totalDur, latency, durations);
+			
+			StatisticsAnnotationsMF annMF = getAnnotationStats(td.getName());
+			if (annMF == null) {
+				annMF = new StatisticsAnnotationsMF(td.getName());
+				addAnnotations(file, td.getName(), annMF);
+			}
+			for (int i = 0; i < numAnnotations; i++) {
+				annMF.addAnnotation(td.getValue(i), td.getBeginTime(i), td.getDuration(i));
+			}
+			
+			typeNames.add(td.getTypeName());
+			numAddedTiers++;
+		}
+		
+		if (allTiers) {
+			for (String typeName : fileStats.getTypeNames()) {
+				if (!typeNames.contains(typeName)) {
+					addEmptyLinguisticType(file, typeName);
+				}
+			}
+		}
+		
+		return numAddedTiers;
+	}
+	
+	/**
+	 * Adds a tier, specified by its name and attributes, to the collection. 
+	 * The current overall statistics are updated with the new information.
+	 * 
+	 * @param file the name or path of the file containing the tier
+	 * @param tierName the name of the tier
+	 * @param typeName the name of the linguistic type of the tier
+	 * @param participant the participant, can be {@code null}
+	 * @param annotator the annotator, can be {@code null}
+	 * @param langRef the content language, can be {@code null}
+	 * @param numAnnotations the number of annotations of the tier
+	 * @param minDur the minimal annotation duration
+	 * @param maxDur the maximal annotation duration
+	 * @param totalDur the total annotation duration
+	 * @param latency the onset or first occurrence of an annotation
+	 * @param curDurations a list of all annotation durations 
+	 */
+	private void addTier(String file, String tierName, String typeName, String participant, 
+			String annotator, String langRef, int numAnnotations, long minDur, long maxDur, 
+			long totalDur, long latency, List<Long> curDurations) {
 		// tier
 		boolean tierFound = false;
 		for (TierStats ts : tierStatsMF) {
-			if (ts.getTierName().equals(tier.getName())) {
+			if (ts.getTierName().equals(tierName)) {
 				tierFound = true;
 				ts.numFiles++;
 				ts.numAnnotations += numAnnotations;
@@ -95,7 +191,7 @@ public class StatisticsCollectionMF {
 			}
 		}
 		if (!tierFound) {
-			TierStats ts = new TierStats(tier.getName());
+			TierStats ts = new TierStats(tierName);
 			ts.numFiles = 1;
 			ts.numAnnotations = numAnnotations;
 			ts.durations.addAll(curDurations);
@@ -107,13 +203,12 @@ public class StatisticsCollectionMF {
 		}
 		// type
 		boolean typeFound = false;
-		String typeName = tier.getLinguisticType().getLinguisticTypeName();
 		for (TierAttributeBasedStats tys : typeStatsMF) {
 			if (tys.getAttributeValue().equals(typeName)) {
 				typeFound = true;
 				tys.numTiers++;
 				tys.addFileName(file);
-				tys.addTierName(tier.getName());
+				tys.addTierName(tierName);
 				tys.numAnnotations += numAnnotations;
 				tys.durations.addAll(curDurations);
 				tys.totalDur += totalDur;
@@ -133,7 +228,7 @@ public class StatisticsCollectionMF {
 			TierAttributeBasedStats tys = new TierAttributeBasedStats(typeName);
 			tys.numTiers = 1;
 			tys.addFileName(file);
-			tys.addTierName(tier.getName());
+			tys.addTierName(tierName);
 			tys.numAnnotations = numAnnotations;
 			tys.durations.addAll(curDurations);
 			tys.minDur = minDur;
@@ -144,7 +239,7 @@ public class StatisticsCollectionMF {
 		}
 		// participant
 		boolean partFound = false;
-		String partName = tier.getParticipant();
+		String partName = participant;
 		if (partName == null || partName.length() == 0) {
 			partName = UNSPECIFIED;
 		}
@@ -153,7 +248,7 @@ public class StatisticsCollectionMF {
 				partFound = true;
 				ps.numTiers++;
 				ps.addFileName(file);
-				ps.addTierName(tier.getName());
+				ps.addTierName(tierName);
 				ps.numAnnotations += numAnnotations;
 				ps.durations.addAll(curDurations);
 				ps.totalDur += totalDur;
@@ -173,7 +268,7 @@ public class StatisticsCollectionMF {
 			TierAttributeBasedStats ps = new TierAttributeBasedStats(partName);
 			ps.numTiers = 1;
 			ps.addFileName(file);
-			ps.addTierName(tier.getName());
+			ps.addTierName(tierName);
 			ps.numAnnotations = numAnnotations;
 			ps.durations.addAll(curDurations);
 			ps.minDur = minDur;
@@ -184,7 +279,7 @@ public class StatisticsCollectionMF {
 		}
 		// annotator
 		boolean annotFound = false;
-		String annotName = tier.getAnnotator();
+		String annotName = annotator;
 		if (annotName == null || annotName.length() == 0) {
 			annotName = UNSPECIFIED;
 		}
@@ -193,7 +288,7 @@ public class StatisticsCollectionMF {
 				annotFound = true;
 				as.numTiers++;
 				as.addFileName(file);
-				as.addTierName(tier.getName());
+				as.addTierName(tierName);
 				as.numAnnotations += numAnnotations;
 				as.durations.addAll(curDurations);
 				as.totalDur += totalDur;
@@ -213,7 +308,7 @@ public class StatisticsCollectionMF {
 			TierAttributeBasedStats as = new TierAttributeBasedStats(annotName);
 			as.numTiers = 1;
 			as.addFileName(file);
-			as.addTierName(tier.getName());
+			as.addTierName(tierName);
 			as.numAnnotations = numAnnotations;
 			as.durations.addAll(curDurations);
 			as.minDur = minDur;
@@ -224,7 +319,7 @@ public class StatisticsCollectionMF {
 		}
 		// content language
 		boolean langFound = false;
-		String langName = tier.getLangRef();
+		String langName = langRef;
 		if (langName == null || langName.length() == 0) {
 			langName = UNSPECIFIED;
 		}
@@ -233,7 +328,7 @@ public class StatisticsCollectionMF {
 				langFound = true;
 				tas.numTiers++;
 				tas.addFileName(file);
-				tas.addTierName(tier.getName());
+				tas.addTierName(tierName);
 				tas.numAnnotations += numAnnotations;
 				tas.durations.addAll(curDurations);
 				tas.totalDur += totalDur;
@@ -253,7 +348,7 @@ public class StatisticsCollectionMF {
 			TierAttributeBasedStats tas = new TierAttributeBasedStats(langName);
 			tas.numTiers = 1;
 			tas.addFileName(file);
-			tas.addTierName(tier.getName());
+			tas.addTierName(tierName);
 			tas.numAnnotations = numAnnotations;
 			tas.durations.addAll(curDurations);
 			tas.minDur = minDur;
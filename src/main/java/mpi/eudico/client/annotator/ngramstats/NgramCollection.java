@@ -3,6 +3,7 @@ package mpi.eudico.client.annotator.ngramstats;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -21,6 +22,8 @@ public class NgramCollection {
 	/** the list of n-grams */
 	protected final List<Ngram> ngrams = new ArrayList<Ngram>();
 	private final int ngramSize;
+	// the name, determined once all n-grams have been added
+	private String name;
 
 	// formatter for ss.ms values
 	private static final DecimalFormat timeFormat = new DecimalFormat("#0.###", new DecimalFormatSymbols(Locale.US));
@@ -49,7 +52,10 @@ public class NgramCollection {
 	 * @return the name
 	 */
 	public String getName() {
-		return ngrams.get(0).annotationsAsString();
+		if (name == null) {
+			name = ngrams.get(0).annotationsAsString();
+		}
+		return name;
 	}
 
 	/**
@@ -535,17 +541,15 @@ public class NgramCollection {
 			if (start_range < 0) {
 				start_range = 0;
 			}
-			HashMap<Integer, Double> probabilities = calcDistribution( start_range, cT[0][0] );
+			double[] probabilities = calcDistribution( start_range, cT[0][0] );
 				
-			// calculate the leftfisher by summing the probabilites via ascending order from the map
-			List<Integer> keys = new ArrayList<Integer>(probabilities.keySet());
-			Collections.sort(keys);			
+			// calculate the leftfisher by summing the probabilites via ascending order from the array
 			double leftfisher = 0;
-			for (Integer k : keys) {
+			for (int k = start_range; k - start_range < probabilities.length; k++) {
 				if (k > cT[0][0]) {
 					break;
 				} else {
-					leftfisher += probabilities.get(k);
+					leftfisher += probabilities[k - start_range];
 				}
 			}
 			stats.put("cT|Fisher Exact Left Sided", leftfisher);
@@ -569,20 +573,21 @@ public class NgramCollection {
 			}
 				
 			// actually calculate the probabilities!
-			HashMap<Integer, Double> probabilities;
+			double[] probabilities;
+			int range_start;
 			if( (left_final_limit - left_n11) < (final_limit - n11_start) ) {
 				left_flag = true;
+				range_start = left_n11;
 				probabilities = calcDistribution(left_n11, left_final_limit);
 			} else {
 				// argh, no shortcuts here :(
+				range_start = n11_start;
 				probabilities = calcDistribution(n11_start, final_limit);
 			}
 				
-			// calculate the rightfisher by summing the probabilites via descending order from the map
-			List<Integer> keys = new ArrayList<Integer>(probabilities.keySet());
-			Collections.sort(keys, Collections.reverseOrder());
+			// calculate the rightfisher by summing the probabilites via descending order from the array
 			double rightfisher = 0;
-			for (Integer k : keys) {
+			for (int k = range_start + probabilities.length - 1; k >= range_start; k--) {
 				if (left_flag) {
 					if (k >= cT[0][0]) {
 						break;
@@ -592,7 +597,7 @@ public class NgramCollection {
 						break;
 					}
 				}
-				rightfisher += probabilities.get(k);
+				rightfisher += probabilities[k - range_start];
 			}
 				
 			// did we use the shortcut? if so, fix the result!
@@ -610,14 +615,15 @@ public class NgramCollection {
 			if ( n11_start < 0 ) {
 				n11_start = 0;
 			}
-			HashMap<Integer, Double> probabilities = calcDistribution( n11_start, final_limit );
+			double[] probabilities = calcDistribution( n11_start, final_limit );
+			double observed = probabilities[cT[0][0] - n11_start];
 				
-			// calculate the fisher by summing the probabilites via ascending order from the map
-			List<Double> values = new ArrayList<Double>(probabilities.values());
-			Collections.sort(values);
+			// calculate the fisher by summing the probabilites via ascending order of the values
+			double[] values = probabilities.clone();
+			Arrays.sort(values);
 			double ttfisher = 0;
-			for (Double v : values) {
-				if (v <= probabilities.get(cT[0][0])) {
+			for (double v : values) {
+				if (v <= observed) {
 					ttfisher += v;
 				}
 			}
@@ -631,10 +637,11 @@ public class NgramCollection {
 	 * 
 	 * @param start The starting range to search on the table
 	 * @param end The ending range to search on the table
-	 * @return HashMap of Integer =&gt; Double mappings of each range in the table with their probability 
+	 * @return the probability of each value in the range, the value {@code start} at index 0; values
+	 * for which no valid table exists have a probability of 0
 	 */
-	private HashMap<Integer, Double> calcDistribution( final int start, final int end ) {
-		final HashMap<Integer, Double> rv = new HashMap<Integer, Double>();
+	private double[] calcDistribution( final int start, final int end ) {
+		final double[] rv = new double[Math.max(0, end - start + 1)];
 		
 		// init the searching values
 		// the names are taken from the cT definitions in createContingencyTable()
@@ -658,7 +665,7 @@ public class NgramCollection {
 			n21 = cT[2][0] - i;
 			n22 = cT[1][2] - n21;
 
-			rv.put(i, calcHypergeometric( i, n12, n21, n22 ));
+			rv[i - start] = calcHypergeometric( i, n12, n21, n22 );
 		}
 			
 		return rv;
@@ -678,73 +685,75 @@ public class NgramCollection {
 		// TODO use the apache commons math library? not used here as I didn't want to add more libraries and bloat ELAN...
 		// furthermore, it seems like the NSP authors did different calculations and I just wanted to copy them :)
 		
-		// create the numerators from the marginals, then sort in descending order
-		final List<Integer> nums = new ArrayList<Integer>();
-		Collections.addAll(nums, cT[0][2], cT[1][2], cT[2][0], cT[2][1]);
-		Collections.sort(nums, Collections.reverseOrder());
+		// create the numerators from the marginals, then sort (read them in descending order)
+		final int[] nums = { cT[0][2], cT[1][2], cT[2][0], cT[2][1] };
+		Arrays.sort(nums);
 			
-		// create the denominators from the cells + total, then sort in descending order
-		final List<Integer> dems = new ArrayList<Integer>();
-		Collections.addAll(dems, cT[2][2], n11, n12, n21, n22);
-		Collections.sort(dems, Collections.reverseOrder());
+		// create the denominators from the cells + total, then sort (read them in descending order)
+		final int[] dems = { cT[2][2], n11, n12, n21, n22 };
+		Arrays.sort(dems);
 			
 		// the return value (product) of the calculations
 		double product = 1;
 			
-		// other variables used
-		final List<Integer> dLimits = new ArrayList<Integer>();
-		final List<Integer> nLimits = new ArrayList<Integer>();
+		// other variables used, the limits are stored as pairs, the first pair starting at the head index
+		final int[] dLimits = new int[10];
+		final int[] nLimits = new int[8];
 		int dIndex = 0;
 		int nIndex = 0;
+		int dHead = 0;
+		int nHead = 0;
 			
 		// set the dLimit/nLimit arrays
 		for (int i = 0; i < 4; i++) {
-			if (nums.get(i) > dems.get(i)) {
-				nLimits.add(nIndex++, dems.get(i) + 1);
-				nLimits.add(nIndex++, nums.get(i));
-			} else if (dems.get(i) > nums.get(i)) {
-				dLimits.add(dIndex++, nums.get(i) + 1);
-				dLimits.add(dIndex++, dems.get(i));
+			int num = nums[3 - i];
+			int dem = dems[4 - i];
+			if (num > dem) {
+				nLimits[nIndex++] = dem + 1;
+				nLimits[nIndex++] = num;
+			} else if (dem > num) {
+				dLimits[dIndex++] = num + 1;
+				dLimits[dIndex++] = dem;
 			}
 		}
 			
 		// add the remaining denominator ( we have 5 dems, only 4 nums )
-		dLimits.add(dIndex++, 1);
-		dLimits.add(dIndex, dems.get(4));
+		dLimits[dIndex++] = 1;
+		dLimits[dIndex++] = dems[0];
 			
 		// actually calculate the product now!
-		while ( ! nLimits.isEmpty() ) {
+		while ( nHead < nIndex ) {
 			// the funky 10000000 number is used to prevent overflow
 			// look at the Perl module's code to understand this better!
 				
 			// multiply the product by the numerators
-			while ( (product < 10000000) && ! nLimits.isEmpty() ) {
-				product = product * (double)nLimits.get(0);
-				nLimits.set(0, nLimits.get(0) + 1);
-				if (nLimits.get(0) > nLimits.get(1)) {
+			while ( (product < 10000000) && nHead < nIndex ) {
+				product = product * (double)nLimits[nHead];
+				nLimits[nHead]++;
+				if (nLimits[nHead] > nLimits[nHead + 1]) {
 					// remove the pair
-					nLimits.remove(0); nLimits.remove(0);
+					nHead += 2;
 				}
 			}
 				
 			// divide the product by the denominators
 			while (product > 1) {
-				product = product / (double)dLimits.get(0);
-				dLimits.set(0, dLimits.get(0) + 1);
-				if (dLimits.get(0) > dLimits.get(1)) {
+				product = product / (double)dLimits[dHead];
+				dLimits[dHead]++;
+				if (dLimits[dHead] > dLimits[dHead + 1]) {
 					// remove the pair
-					dLimits.remove(0); dLimits.remove(0);
+					dHead += 2;
 				}
 			}				
 		}
 			
 		// calculate the remaining denominators...
-		while ( ! dLimits.isEmpty() ) {
-			product = product / (double)dLimits.get(0);
-			dLimits.set(0, dLimits.get(0) + 1);
-			if (dLimits.get(0) > dLimits.get(1)) {
+		while ( dHead < dIndex ) {
+			product = product / (double)dLimits[dHead];
+			dLimits[dHead]++;
+			if (dLimits[dHead] > dLimits[dHead + 1]) {
 				// remove the pair
-				dLimits.remove(0); dLimits.remove(0);
+				dHead += 2;
 			}
 		}			
 		
@@ -807,33 +816,19 @@ public class NgramCollection {
 		String a1 = ngrams.get(0).annotations.get(0).value; //ann1
 		String a2 = ngrams.get(0).annotations.get(1).value; //ann2
 			
-		// get the ngrams containing ann1
-		List<Ngram> a1List = result.findNgramsWithAnnotation( a1 );
-			
-		// filter for ngrams NOT containing ann2
-		List<Ngram> a1NOa2 = new ArrayList<Ngram>();
-		for (Ngram n : a1List) {
-			if ( n.annotations.get(0).value.equals(a1) && ! n.annotations.get(1).value.equals(a2)) {
-				a1NOa2.add(n);
+		// count the ngrams in this collection with exactly ann1|ann2
+		int a1a2 = 0;
+		for (Ngram n : ngrams) {
+			if ( n.annotations.get(0).value.equals(a1) && n.annotations.get(1).value.equals(a2)) {
+				a1a2++;
 			}
 		}
 			
-		// fill in the data!
-		cT[0][1] = a1NOa2.size();
+		// the ngrams starting with ann1 but NOT followed by ann2
+		cT[0][1] = result.getFirstPositionCount( a1 ) - a1a2;
 			
-		// get the ngrams containing ann2
-		List<Ngram> a2List = result.findNgramsWithAnnotation( a2 );
-
-		// filter for ngrams NOT containing ann1
-		List<Ngram> a2NOa1 = new ArrayList<Ngram>();
-		for (Ngram n : a2List) {
-			if ( n.annotations.get(1).value.equals(a2) && ! n.annotations.get(0).value.equals(a1)) {
-				a2NOa1.add(n);
-			}
-		}
-						
-		// fill in the data!
-		cT[1][0] = a2NOa1.size();
+		// the ngrams ending with ann2 but NOT preceded by ann1
+		cT[1][0] = result.getSecondPositionCount( a2 ) - a1a2;
 
 		// lastly, calculate the final cell in the contingency table
 		cT[1][1] = cT[2][2] - ( cT[0][0] + cT[0][1] + cT[1][0] );
@@ -3,10 +3,13 @@ package mpi.eudico.client.annotator.ngramstats;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import mpi.eudico.server.corpora.clomimpl.abstr.AbstractAnnotation;
 
@@ -45,6 +48,12 @@ public class NgramStatsResult {
     // stores the collected ngrams ( identical Ngrams shoved into NgramCollection objects )
     private final List<NgramCollection> ngrams = new ArrayList<NgramCollection>();
     
+    // the annotation values interned to integer ids, per id the number of ngrams with that value at the first and
+    // at the second position (used for the contingency tables of bigrams)
+    private final Map<String, Integer> valueIds = new HashMap<String, Integer>();
+    private int[] firstPositionCounts = new int[64];
+    private int[] secondPositionCounts = new int[64];
+    
     // formatter for ss.ms values
  	private final DecimalFormat timeFormat = new DecimalFormat("#0.###", new DecimalFormatSymbols(Locale.US));
 	
@@ -271,24 +280,24 @@ public class NgramStatsResult {
 	 * @throws Exception If some statistics are malformed
 	 */
 	public void calculateStatistics() throws Exception {
-		// put same ngrams into a collection
+		// put same ngrams into a collection, keeping the order in which they were first seen
+		Map<String, NgramCollection> collectionsByName = new HashMap<String, NgramCollection>();
 		for (Ngram n : seen_ngrams) {
 			String searchName = n.annotationsAsString();
 			
 			// is the ngram already in the collection list?
-			boolean found = false;
-			for (NgramCollection nc : ngrams) {
-				if (nc.getName().equals(searchName)) {
-					nc.ngrams.add(n);
-					found = true;
-					break;
-				}
-			}
-			if (!found) {
-				NgramCollection nc = new NgramCollection(ngramSize);
-				nc.ngrams.add(n);
+			NgramCollection nc = collectionsByName.get(searchName);
+			if (nc == null) {
+				nc = new NgramCollection(ngramSize);
+				collectionsByName.put(searchName, nc);
 				ngrams.add(nc);
 			}
+			nc.ngrams.add(n);
+			
+			if (n.annotations.size() > 1) {
+				firstPositionCounts[internValue(n.annotations.get(0).value)]++;
+				secondPositionCounts[internValue(n.annotations.get(1).value)]++;
+			}
 		}
 		
 		// calculate stats on ngrams
@@ -317,6 +326,50 @@ public class NgramStatsResult {
 		endTime = System.currentTimeMillis();
 	}
 
+	/**
+	 * Returns the integer id of an annotation value, adding it if it is new.
+	 * 
+	 * @param value the annotation value
+	 * @return the id of the value
+	 */
+	private int internValue(String value) {
+		Integer id = valueIds.get(value);
+		if (id == null) {
+			id = valueIds.size();
+			valueIds.put(value, id);
+			if (id == firstPositionCounts.length) {
+				firstPositionCounts = Arrays.copyOf(firstPositionCounts, id * 2);
+				secondPositionCounts = Arrays.copyOf(secondPositionCounts, id * 2);
+			}
+		}
+		return id;
+	}
+	
+	/**
+	 * Returns the number of N-grams that start with an annotation, available
+	 * after the N-grams have been collected in {@link #calculateStatistics()}.
+	 * 
+	 * @param value the annotation value e.x. "BOOK"
+	 * @return the number of N-grams with the value as the first annotation
+	 */
+	int getFirstPositionCount(String value) {
+		Integer id = valueIds.get(value);
+		return id != null ? firstPositionCounts[id] : 0;
+	}
+	
+	/**
+	 * Returns the number of N-grams that have an annotation at the second
+	 * position, available after the N-grams have been collected in
+	 * {@link #calculateStatistics()}.
+	 * 
+	 * @param value the annotation value e.x. "BOOK"
+	 * @return the number of N-grams with the value as the second annotation
+	 */
+	int getSecondPositionCount(String value) {
+		Integer id = valueIds.get(value);
+		return id != null ? secondPositionCounts[id] : 0;
+	}
+	
 	/**
 	 * Finds N-grams containing an annotation.
 	 * @param search The N-gram name to search for e.x. "BOOK"
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 
 import mpi.eudico.client.annotator.Preferences;
 import mpi.eudico.client.annotator.util.SystemReporting;
+import mpi.eudico.client.util.MediaSampleRegistry;
 import mpi.eudico.client.util.WAVFromOtherSampler;
 import mpi.eudico.client.util.WAVHeader;
 import mpi.eudico.client.util.WAVSampler;
@@ -21,6 +22,10 @@ import nl.mpi.util.FileUtility;
  * Visualization of a waveform for the audio track of a video file or of a 
  * different type of audio file, may now be possible by using a native media
  * framework's functionality.  
+ * <p>
+ * The returned providers are cursors of the {@link MediaSampleRegistry}: 
+ * all providers for the same media file share one sampler and its cached
+ * samples. They should be closed when they are no longer needed.
  * 
  * @author Han Sloetjes
  * @version Jan 2021
@@ -86,10 +91,11 @@ public class WAVSamplerFactory {
 					compression == WAVHeader.WAVE_FORMAT_IEEE_FLOAT) {
 				if (header.getNumberOfChannels() < 3) {
 					try {
-						return new WAVSampler(mediaPath);
-					} catch (IOException ioe) {
+						final String wavPath = mediaPath;
+						return MediaSampleRegistry.getInstance().acquire(wavPath, () -> new WAVSampler(wavPath));
+					} catch (IOException | UnsupportedMediaException ex) {
 						if (LOG.isLoggable(Level.WARNING)) {
-							LOG.log(Level.WARNING, ioe.getMessage());
+							LOG.log(Level.WARNING, ex.getMessage());
 						}
 					}
 				}
@@ -108,7 +114,9 @@ public class WAVSamplerFactory {
 		}
 
 		try {
-			return new WAVFromOtherSampler(mediaPath, prefFrameWork);
+			final String otherPath = mediaPath;
+			return MediaSampleRegistry.getInstance().acquire(otherPath, 
+					() -> new WAVFromOtherSampler(otherPath, prefFrameWork));
 		} catch (UnsupportedMediaException ume) {
 			if (LOG.isLoggable(Level.WARNING)) {
 				LOG.log(Level.WARNING, ume.getMessage());
@@ -157,10 +165,11 @@ public class WAVSamplerFactory {
 						compression == WAVHeader.WAVE_FORMAT_IEEE_FLOAT) {
 					if (header.getNumberOfChannels() < 3) {
 						try {
-							return new WAVSampler(medPath);
-						} catch (IOException ioe) {
+							final String wavPath = medPath;
+							return MediaSampleRegistry.getInstance().acquire(wavPath, () -> new WAVSampler(wavPath));
+						} catch (IOException | UnsupportedMediaException ex) {
 							if (LOG.isLoggable(Level.WARNING)) {
-								LOG.log(Level.WARNING, ioe.getMessage());
+								LOG.log(Level.WARNING, ex.getMessage());
 							}
 						}
 					}
@@ -180,7 +189,9 @@ public class WAVSamplerFactory {
 		}
 		
 		try {
-			return new WAVFromOtherSampler(medPath, prefFrameWork);
+			final String otherPath = medPath;
+			return MediaSampleRegistry.getInstance().acquire(otherPath, 
+					() -> new WAVFromOtherSampler(otherPath, prefFrameWork));
 		} catch (UnsupportedMediaException ume) {// unsupported exception
 			if (LOG.isLoggable(Level.WARNING)) {
 				LOG.log(Level.WARNING, ume.getMessage());
@@ -1,6 +1,11 @@
 package mpi.eudico.client.annotator.prefs;
 
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.Map;
 
@@ -53,7 +58,9 @@ public class PreferencesWriter implements PrefConstants {
 
     /**
      * Creates the DOM for the objects in the prefs map and stores in the
-     * specified location.
+     * specified location. The file is first written to a temporary file next
+     * to the target, which then replaces the target, so that an interrupted
+     * write never leaves a truncated preferences file.
      *
      * @param prefs the preferences objects
      * @param path the file path
@@ -63,11 +70,8 @@ public class PreferencesWriter implements PrefConstants {
             return;
         }
 
-        Element root = createDOM(prefs);
-
         try {
-        	LOG.info("Writing preferences: " + path);
-            IoUtil.writeEncodedFile("UTF-8", path, root);
+            save(encode(prefs), path);
         } catch (IOException ioe) {
         	LOG.severe("Could not save the preferences xml file to: " + path +
                 "\n" + " Cause: " + ioe.getMessage());
@@ -77,6 +81,58 @@ public class PreferencesWriter implements PrefConstants {
         }
     }
 
+    /**
+     * Creates the DOM for the objects in the prefs map. The returned element
+     * does not refer to the map or its values, it can be saved later, e.g.
+     * on another thread.
+     *
+     * @param prefs the preferences objects
+     *
+     * @return the document element or {@code null} if no document could be
+     * created
+     */
+    public synchronized Element encode(Map<String, ?> prefs) {
+        if (prefs == null) {
+            return null;
+        }
+
+        return createDOM(prefs);
+    }
+
+    /**
+     * Writes a preferences document, as created by {@link #encode(Map)}, to
+     * the specified location, via a temporary file which then replaces the
+     * target.
+     *
+     * @param root the document element
+     * @param path the file path
+     *
+     * @throws IOException if the document could not be written or moved to
+     * the target location
+     */
+    public void save(Element root, String path) throws IOException {
+        if (root == null) {
+            throw new IOException("No preferences document to write to: " + path);
+        }
+
+    	LOG.info("Writing preferences: " + path);
+    	Path target = Paths.get(path);
+    	Path temp = Paths.get(path + ".tmp");
+        try {
+            IoUtil.writeEncodedFile("UTF-8", temp.toString(), root);
+        } catch (IOException ioe) {
+            throw ioe;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        try {
+        	Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+        			StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnse) {
+        	Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     /**
      * Creates a Document object, iterates over the key-value pairs in the map
      * and returns the root element.
@@ -49,56 +49,106 @@ public class RecogAvailabilityDetector {
 	private static void addFromBundle(Map<String, Recognizer>map,
 			Map<String, RecognizerBundle> bundles, int type) {
 		for (Map.Entry<String, RecognizerBundle> entry : bundles.entrySet()) {
-			String key = entry.getKey();
-			RecognizerBundle bundle = entry.getValue();
-			
-			if (bundle.getRecExecutionType().equals("local")) {
-				LocalRecognizer localRecognizer = new LocalRecognizer(bundle.getRecognizerClass());
-				localRecognizer.setParamList(bundle.getParamList());
-				localRecognizer.setName(bundle.getName());
-				localRecognizer.setId(bundle.getId());
-				localRecognizer.setRecognizerType(type);
-				localRecognizer.setBaseDir(bundle.getBaseDir());
-				map.put(key, localRecognizer);
-			} else if (bundle.getRecExecutionType().equals("shared")) {
-				SharedRecognizer sharedRecognizer = new SharedRecognizer(bundle.getRecognizerClass());
-				sharedRecognizer.setParamList(bundle.getParamList());// returns a copy of the list
-				sharedRecognizer.setName(bundle.getName());
-				sharedRecognizer.setId(bundle.getId());
-				sharedRecognizer.setRecognizerType(type);
-				sharedRecognizer.setBaseDir(bundle.getBaseDir());
-				map.put(key, sharedRecognizer);
-			} else if (bundle.getJavaLibs() != null) {// assume "direct" ?
-				
+			Recognizer rec = createFromBundle(entry.getValue(), type);
+			if (rec != null) {
+				map.put(entry.getKey(), rec);
+			}
+		}
+	}
+	
+	/**
+	 * Creates a new recognizer instance based on the information in the bundle.
+	 * 
+	 * @param bundle the bundle of the recognizer
+	 * @param type the recognizer type, audio, video or other
+	 * @return a new recognizer or {@code null} if it could not be created
+	 */
+	private static Recognizer createFromBundle(RecognizerBundle bundle, int type) {
+		if (bundle.getRecExecutionType().equals("local")) {
+			LocalRecognizer localRecognizer = new LocalRecognizer(bundle.getRecognizerClass());
+			localRecognizer.setParamList(bundle.getParamList());
+			localRecognizer.setName(bundle.getName());
+			localRecognizer.setId(bundle.getId());
+			localRecognizer.setRecognizerType(type);
+			localRecognizer.setBaseDir(bundle.getBaseDir());
+			return localRecognizer;
+		} else if (bundle.getRecExecutionType().equals("shared")) {
+			SharedRecognizer sharedRecognizer = new SharedRecognizer(bundle.getRecognizerClass());
+			sharedRecognizer.setParamList(bundle.getParamList());// returns a copy of the list
+			sharedRecognizer.setName(bundle.getName());
+			sharedRecognizer.setId(bundle.getId());
+			sharedRecognizer.setRecognizerType(type);
+			sharedRecognizer.setBaseDir(bundle.getBaseDir());
+			return sharedRecognizer;
+		} else if (bundle.getJavaLibs() != null) {// assume "direct" ?
+			synchronized (RecogAvailabilityDetector.class) {
 				if (recognizerLoader == null) {
 					recognizerLoader = new RecognizerLoader(bundle.getJavaLibs(), bundle.getNativeLibs());
 				} else {
 					recognizerLoader.addLibs(bundle.getJavaLibs());
 					recognizerLoader.addNativeLibs(bundle.getNativeLibs());
 				}
-				//RecognizerLoader loader = new RecognizerLoader(bundle.getJavaLibs(), bundle.getNativeLibs());
-				
-				try {
-					//loader.loadNativeLibs();
-					//rec = (Recognizer) Class.forName(bundle.getRecognizerClass(), true, loader).newInstance();
-					Recognizer rec = (Recognizer) Class.forName(bundle.getRecognizerClass(), true, recognizerLoader)
-							.getDeclaredConstructor().newInstance();
-					rec.setName(bundle.getName());
-					rec.setBaseDir(bundle.getBaseDir());
-					map.put(key, rec);
-				} catch (ClassNotFoundException cnfe) {
-					LOG.severe("Cannot load the recognizer class: " + bundle.getRecognizerClass() + " - Class not found");
-				} catch (InstantiationException ie) {
-					LOG.severe("Cannot instantiate the recognizer class: " + bundle.getRecognizerClass());
-				} catch (IllegalAccessException iae) {
-					LOG.severe("Cannot access the recognizer class: " + bundle.getRecognizerClass());
-				} catch (Exception ex) {// any other exception
-					LOG.severe("Cannot load the recognizer: " + bundle.getRecognizerClass() + " - " + ex.getMessage());
-				}
-			} else {
-				LOG.severe("Cannot load the recognizer: no Java library has been found: " + bundle.getName());
 			}
+			//RecognizerLoader loader = new RecognizerLoader(bundle.getJavaLibs(), bundle.getNativeLibs());
+			
+			try {
+				//loader.loadNativeLibs();
+				//rec = (Recognizer) Class.forName(bundle.getRecognizerClass(), true, loader).newInstance();
+				Recognizer rec = (Recognizer) Class.forName(bundle.getRecognizerClass(), true, recognizerLoader)
+						.getDeclaredConstructor().newInstance();
+				rec.setName(bundle.getName());
+				rec.setBaseDir(bundle.getBaseDir());
+				return rec;
+			} catch (ClassNotFoundException cnfe) {
+				LOG.severe("Cannot load the recognizer class: " + bundle.getRecognizerClass() + " - Class not found");
+			} catch (InstantiationException ie) {
+				LOG.severe("Cannot instantiate the recognizer class: " + bundle.getRecognizerClass());
+			} catch (IllegalAccessException iae) {
+				LOG.severe("Cannot access the recognizer class: " + bundle.getRecognizerClass());
+			} catch (Exception ex) {// any other exception
+				LOG.severe("Cannot load the recognizer: " + bundle.getRecognizerClass() + " - " + ex.getMessage());
+			}
+		} else {
+			LOG.severe("Cannot load the recognizer: no Java library has been found: " + bundle.getName());
 		}
+		
+		return null;
+	}
+	
+	/**
+	 * Creates a new, unshared instance of the recognizer with the specified
+	 * name. Unlike the maps returned by e.g. {@link #getAudioRecognizers()},
+	 * each call returns a fresh instance with its own copy of the parameter
+	 * list, so that several instances can run concurrently (e.g. in a batch
+	 * process).
+	 * 
+	 * @param recognizerName the (friendly) name of the recognizer
+	 * @return a new recognizer instance or {@code null} if there is no 
+	 * recognizer with that name or if it could not be created
+	 */
+	public static Recognizer createRecognizer(String recognizerName) {
+		if (recognizerName == null) {
+			return null;
+		}
+		if (recognizerName.equals(SilenceRecognizer.NAME)) {
+			return new SilenceRecognizer();
+		}
+		AvailabilityDetector.loadFilesFromExtensionsFolder();
+		
+		RecognizerBundle bundle = audioRecognizerBundles.get(recognizerName);
+		if (bundle != null) {
+			return createFromBundle(bundle, Recognizer.AUDIO_TYPE);
+		}
+		bundle = videoRecognizerBundles.get(recognizerName);
+		if (bundle != null) {
+			return createFromBundle(bundle, Recognizer.VIDEO_TYPE);
+		}
+		bundle = otherRecognizerBundles.get(recognizerName);
+		if (bundle != null) {
+			return createFromBundle(bundle, Recognizer.OTHER_TYPE);
+		}
+		
+		return null;
 	}
 
 	/**	
@@ -0,0 +1,165 @@
+package mpi.eudico.client.annotator.recognizer.batch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import mpi.eudico.client.annotator.recognizer.api.AbstractSelectionPanel;
+import mpi.eudico.client.annotator.recognizer.api.Recognizer;
+import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.annotator.recognizer.data.Segmentation;
+
+/**
+ * A recognizer host without a user interface, hosting a single recognizer run
+ * for a single media file. It collects the segmentations and the report
+ * produced by the recognizer and allows the batch process to wait for the
+ * recognizer to finish.
+ * <p>
+ * The recognizer is considered to be finished when it reports a progress of
+ * {@code 1} or when it reports an error. Recognizers that run synchronously
+ * in {@link Recognizer#start()} can be marked finished by calling
+ * {@link #finished()}.
+ */
+public class BatchRecognizerHost implements RecognizerHost {
+	private final List<String> mediaFiles;
+	private final List<Segmentation> segmentations;
+	private final StringBuilder report;
+	private final CountDownLatch doneLatch;
+	private volatile String errorMessage;
+	private volatile float progress;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mediaFile the media file to process
+	 */
+	public BatchRecognizerHost(String mediaFile) {
+		mediaFiles = Collections.singletonList(mediaFile);
+		segmentations = Collections.synchronizedList(new ArrayList<Segmentation>());
+		report = new StringBuilder();
+		doneLatch = new CountDownLatch(1);
+	}
+
+	@Override
+	public void addSegmentation(Segmentation segmentation) {
+		if (segmentation != null) {
+			segmentations.add(segmentation);
+		}
+	}
+
+	@Override
+	public void setProgress(float progress) {
+		this.progress = progress;
+		if (progress >= 1f) {
+			doneLatch.countDown();
+		}
+	}
+
+	@Override
+	public void setProgress(float progress, String message) {
+		if (message != null) {
+			appendToReport(message + '\n');
+		}
+		setProgress(progress);
+	}
+
+	@Override
+	public void errorOccurred(String message) {
+		errorMessage = message != null ? message : "Unknown error";
+		appendToReport("Error: " + errorMessage + '\n');
+		doneLatch.countDown();
+	}
+
+	@Override
+	public void appendToReport(String message) {
+		synchronized (report) {
+			report.append(message);
+		}
+	}
+
+	/**
+	 * There is no user interface, there are no selection panels.
+	 *
+	 * @return {@code null}
+	 */
+	@Override
+	public AbstractSelectionPanel getSelectionPanel(String paramName) {
+		return null;
+	}
+
+	/**
+	 * Returns the single media file of this run, regardless of the mode.
+	 */
+	@Override
+	public List<String> getMediaFiles(int mode) {
+		return mediaFiles;
+	}
+
+	@Override
+	public List<Segmentation> getSegmentations() {
+		synchronized (segmentations) {
+			return new ArrayList<Segmentation>(segmentations);
+		}
+	}
+
+	@Override
+	public boolean isBusy() {
+		return doneLatch.getCount() > 0;
+	}
+
+	/**
+	 * Marks the run as finished, e.g. after a synchronous recognizer returned
+	 * from its {@code start()} method.
+	 */
+	public void finished() {
+		doneLatch.countDown();
+	}
+
+	/**
+	 * Waits for the recognizer to finish.
+	 *
+	 * @param timeoutMillis the maximum time to wait, {@code 0} or less means
+	 * no time limit
+	 * @return {@code true} if the recognizer finished, {@code false} if the
+	 * time limit was reached
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public boolean waitForCompletion(long timeoutMillis) throws InterruptedException {
+		if (timeoutMillis <= 0) {
+			doneLatch.await();
+			return true;
+		}
+		return doneLatch.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the error message, if an error occurred.
+	 *
+	 * @return the error message or {@code null}
+	 */
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * Returns the last reported progress.
+	 *
+	 * @return the progress value
+	 */
+	public float getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Returns the collected report messages.
+	 *
+	 * @return the report
+	 */
+	public String getReport() {
+		synchronized (report) {
+			return report.toString();
+		}
+	}
+}
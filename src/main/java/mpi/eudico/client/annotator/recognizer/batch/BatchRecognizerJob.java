@@ -0,0 +1,76 @@
+package mpi.eudico.client.annotator.recognizer.batch;
+
+/**
+ * A single item of a batch recognition process: a media file and, optionally,
+ * the transcription to which the resulting tiers should be added.
+ */
+public class BatchRecognizerJob {
+	private final String mediaPath;
+	private final String eafPath;
+	private String outputBaseName;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mediaPath the path to the media file to process, not {@code null}
+	 * @param eafPath the path to an {@code .eaf} file, can be {@code null}
+	 */
+	public BatchRecognizerJob(String mediaPath, String eafPath) {
+		this.mediaPath = mediaPath;
+		this.eafPath = eafPath;
+	}
+
+	/**
+	 * Returns the media file path.
+	 *
+	 * @return the media file path
+	 */
+	public String getMediaPath() {
+		return mediaPath;
+	}
+
+	/**
+	 * Returns the transcription file path.
+	 *
+	 * @return the {@code .eaf} path or {@code null}
+	 */
+	public String getEafPath() {
+		return eafPath;
+	}
+
+	/**
+	 * Returns the key identifying this job in the journal of a batch process.
+	 *
+	 * @return a key based on the media and transcription paths
+	 */
+	public String getKey() {
+		if (eafPath == null) {
+			return mediaPath;
+		}
+		return mediaPath + '|' + eafPath;
+	}
+
+	/**
+	 * Returns the base name for output files of this job.
+	 *
+	 * @return the base name, without extension
+	 */
+	public String getOutputBaseName() {
+		return outputBaseName;
+	}
+
+	/**
+	 * Sets the base name for the output files of this job. Assigned by the
+	 * batch runner, which guarantees unique names within a batch.
+	 *
+	 * @param outputBaseName the base name
+	 */
+	void setOutputBaseName(String outputBaseName) {
+		this.outputBaseName = outputBaseName;
+	}
+
+	@Override
+	public String toString() {
+		return getKey();
+	}
+}
@@ -0,0 +1,672 @@
+package mpi.eudico.client.annotator.recognizer.batch;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import mpi.eudico.client.annotator.commands.ELANCommandFactory;
+import mpi.eudico.client.annotator.commands.SegmentsToTiersCommand;
+import mpi.eudico.client.annotator.recognizer.api.RecogAvailabilityDetector;
+import mpi.eudico.client.annotator.recognizer.api.Recognizer;
+import mpi.eudico.client.annotator.recognizer.api.RecognizerConfigurationException;
+import mpi.eudico.client.annotator.recognizer.data.FileParam;
+import mpi.eudico.client.annotator.recognizer.data.Param;
+import mpi.eudico.client.annotator.recognizer.data.RSelection;
+import mpi.eudico.client.annotator.recognizer.data.Segment;
+import mpi.eudico.client.annotator.recognizer.data.Segmentation;
+import mpi.eudico.client.annotator.recognizer.io.CsvTierIO;
+import mpi.eudico.client.annotator.recognizer.io.ParamIO;
+import mpi.eudico.client.annotator.recognizer.io.RecTierWriter;
+import mpi.eudico.client.annotator.recognizer.io.XmlTierIO;
+import mpi.eudico.client.annotator.recognizer.silence.SilenceRecognizer;
+import mpi.eudico.client.annotator.util.AnnotationDataRecord;
+import mpi.eudico.client.annotator.util.ProgressListener;
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACMTranscriptionStore;
+import nl.mpi.util.FileUtility;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * Applies a configured recognizer to a list of media files (optionally paired
+ * with a transcription) without a user interface.
+ * <p>
+ * The parameters of the recognizer are read from a parameter file as written
+ * by {@link ParamIO}. A number of files is processed concurrently, each by a
+ * new instance of the recognizer. The resulting segmentations are written as
+ * XML tier files by a {@link RecTierWriter} and, if a transcription is
+ * specified for a media file, are added as tiers to a copy of that
+ * transcription in the output folder.
+ * <p>
+ * Every finished or failed item is recorded in a journal file in the output
+ * folder. When the process is started again with the same output folder, the
+ * items that already finished successfully are skipped, so that a crashed or
+ * interrupted batch can be resumed. Output files are written to a temporary
+ * file first and then moved to their final location, so a crash never leaves
+ * a partially written result file.
+ */
+public class BatchRecognizerRunner {
+	/** the name of the journal file in the output folder */
+	public static final String JOURNAL_FILE = "batch-recognizer-journal.txt";
+	private static final String DONE = "DONE";
+	private static final String FAILED = "FAILED";
+	private static final String WORK_DIR = ".work";
+	private static final String USAGE = "Usage: java (...) BatchRecognizerRunner -r <recognizer name> " +
+			"-l <list file> -o <output folder> [-p <param file>] [-t <threads>] " +
+			"[-m <max heap use in MB>] [-timeout <minutes per file>] [-csv]";
+
+	private final String recognizerName;
+	private final Map<String, Object> paramMap;
+	private final File outputDir;
+	private Supplier<Recognizer> recognizerFactory;
+	private int numWorkers = 1;
+	private long memoryBudget = 0;
+	private long jobTimeout = 0;
+	private boolean csvOutput = false;
+
+	private PrintWriter journal;
+	private final AtomicInteger numRunning = new AtomicInteger();
+	/** serializes the decision to start a job, so that the memory check and
+	 * the increment of the number of running jobs are one step */
+	private final Semaphore startGate = new Semaphore(1);
+	private final AtomicInteger numSucceeded = new AtomicInteger();
+	private final AtomicInteger numFailed = new AtomicInteger();
+	private volatile boolean cancelled;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param recognizerName the name of the recognizer as listed in ELAN
+	 * @param paramMap the parameter name-value pairs, as read by
+	 * {@link ParamIO#read(File)}, can be {@code null}
+	 * @param outputDir the folder for the output files and the journal
+	 */
+	public BatchRecognizerRunner(String recognizerName, Map<String, Object> paramMap, File outputDir) {
+		this.recognizerName = recognizerName;
+		this.paramMap = paramMap != null ? paramMap : new HashMap<String, Object>(0);
+		this.outputDir = outputDir;
+		recognizerFactory = () -> RecogAvailabilityDetector.createRecognizer(recognizerName);
+	}
+
+	/**
+	 * Sets the factory that creates a new recognizer instance for each file,
+	 * by default the recognizer is created by name by the
+	 * {@link RecogAvailabilityDetector}.
+	 *
+	 * @param recognizerFactory the recognizer factory
+	 */
+	void setRecognizerFactory(Supplier<Recognizer> recognizerFactory) {
+		this.recognizerFactory = recognizerFactory;
+	}
+
+	/**
+	 * Sets the number of files that are processed concurrently.
+	 *
+	 * @param numWorkers the number of worker threads, at least 1
+	 */
+	public void setNumWorkers(int numWorkers) {
+		this.numWorkers = Math.max(1, numWorkers);
+	}
+
+	/**
+	 * Sets the maximum amount of heap memory in use at which a new file is
+	 * still started. If the used memory exceeds this budget, workers wait until
+	 * other files have been finished. At least one file is always processed.
+	 *
+	 * @param memoryBudget the budget in bytes, {@code 0} means no limit
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Sets the maximum time a recognizer may run on a single file.
+	 *
+	 * @param jobTimeout the timeout in milliseconds, {@code 0} means no limit
+	 */
+	public void setJobTimeout(long jobTimeout) {
+		this.jobTimeout = jobTimeout;
+	}
+
+	/**
+	 * Sets whether tier files are written in CSV format instead of XML format.
+	 *
+	 * @param csvOutput if {@code true} CSV files are written
+	 */
+	public void setCsvOutput(boolean csvOutput) {
+		this.csvOutput = csvOutput;
+	}
+
+	/**
+	 * Stops the batch process: no new files are started, files that are
+	 * being processed are finished.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns the number of files that have been processed successfully in the
+	 * last run.
+	 *
+	 * @return the number of successful files
+	 */
+	public int getNumSucceeded() {
+		return numSucceeded.get();
+	}
+
+	/**
+	 * Returns the number of files that failed in the last run.
+	 *
+	 * @return the number of failed files
+	 */
+	public int getNumFailed() {
+		return numFailed.get();
+	}
+
+	/**
+	 * Processes all jobs of the list, skipping those that have been finished
+	 * successfully in a previous run with the same output folder.
+	 * This method blocks until all jobs have been processed.
+	 *
+	 * @param jobs the media files to process
+	 * @throws IOException if the output folder or the journal cannot be
+	 * created or read
+	 */
+	public void run(List<BatchRecognizerJob> jobs) throws IOException {
+		if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("Cannot create the output folder: " + outputDir);
+		}
+		File workDir = new File(outputDir, WORK_DIR);
+		if (!workDir.isDirectory() && !workDir.mkdirs()) {
+			throw new IOException("Cannot create the work folder: " + workDir);
+		}
+		assignOutputNames(jobs);
+
+		File journalFile = new File(outputDir, JOURNAL_FILE);
+		Set<String> finished = readJournal(journalFile);
+		List<BatchRecognizerJob> todo = new ArrayList<BatchRecognizerJob>(jobs.size());
+		for (BatchRecognizerJob job : jobs) {
+			if (!finished.contains(job.getKey())) {
+				todo.add(job);
+			}
+		}
+		if (todo.size() < jobs.size()) {
+			LOG.info(String.format("Resuming batch: %d of %d files already processed",
+					jobs.size() - todo.size(), jobs.size()));
+		}
+		numSucceeded.set(0);
+		numFailed.set(0);
+
+		journal = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(journalFile, true), StandardCharsets.UTF_8)));
+		ExecutorService executor = Executors.newFixedThreadPool(numWorkers);
+		try {
+			for (final BatchRecognizerJob job : todo) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						if (!cancelled) {
+							processJob(job, workDir);
+						}
+					}
+				});
+			}
+			executor.shutdown();
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOG.info(String.format("Batch progress: %d done, %d failed, %d running",
+						numSucceeded.get(), numFailed.get(), numRunning.get()));
+			}
+		} catch (InterruptedException ie) {
+			cancelled = true;
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			synchronized (this) {
+				journal.close();
+				journal = null;
+			}
+		}
+	}
+
+	/**
+	 * Assigns unique base names for the output files, based on the media
+	 * file names. The names depend only on the order of the list, so that
+	 * they are the same when a batch is resumed.
+	 */
+	private void assignOutputNames(List<BatchRecognizerJob> jobs) {
+		Map<String, Integer> nameCount = new HashMap<String, Integer>();
+		for (BatchRecognizerJob job : jobs) {
+			String base = FileUtility.dropExtension(FileUtility.fileNameFromPath(job.getMediaPath()));
+			Integer count = nameCount.get(base);
+			if (count == null) {
+				nameCount.put(base, 1);
+				job.setOutputBaseName(base);
+			} else {
+				nameCount.put(base, count + 1);
+				job.setOutputBaseName(base + "-" + (count + 1));
+			}
+		}
+	}
+
+	/**
+	 * Reads the keys of the successfully processed jobs from the journal.
+	 */
+	private Set<String> readJournal(File journalFile) throws IOException {
+		Set<String> finished = new HashSet<String>();
+		if (!journalFile.exists()) {
+			return finished;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] tokens = line.split("\t");
+				if (tokens.length >= 2 && tokens[0].equals(DONE)) {
+					finished.add(tokens[1]);
+				}
+			}
+		}
+		return finished;
+	}
+
+	private synchronized void writeJournal(String status, BatchRecognizerJob job, String message) {
+		if (journal != null) {
+			journal.print(status);
+			journal.print('\t');
+			journal.print(job.getKey());
+			if (message != null) {
+				journal.print('\t');
+				journal.print(message.replace('\t', ' ').replace('\n', ' '));
+			}
+			journal.println();
+			journal.flush();
+		}
+	}
+
+	/**
+	 * Waits until the used heap memory is below the budget or until no other
+	 * job is running and then registers the job as running. Only one worker
+	 * at a time can pass the check, therefore no more jobs than allowed by
+	 * the budget can be started at the same time.
+	 */
+	private void acquireStart() throws InterruptedException {
+		startGate.acquire();
+		try {
+			if (memoryBudget > 0) {
+				Runtime rt = Runtime.getRuntime();
+				while (!cancelled && numRunning.get() > 0 &&
+						rt.totalMemory() - rt.freeMemory() > memoryBudget) {
+					Thread.sleep(500);
+				}
+			}
+			numRunning.incrementAndGet();
+		} finally {
+			startGate.release();
+		}
+	}
+
+	/**
+	 * Processes a single job and records the result in the journal.
+	 */
+	private void processJob(BatchRecognizerJob job, File workDir) {
+		try {
+			acquireStart();
+		} catch (InterruptedException ie) {
+			return;
+		}
+		Recognizer recognizer = null;
+		try {
+			recognizer = recognizerFactory.get();
+			if (recognizer == null) {
+				throw new IOException("Cannot create the recognizer: " + recognizerName);
+			}
+			List<Segmentation> segmentations = recognize(recognizer, job, workDir);
+			writeResults(job, segmentations, workDir);
+			writeJournal(DONE, job, segmentations.size() + " segmentation(s)");
+			numSucceeded.incrementAndGet();
+			LOG.info("Batch recognizer finished: " + job.getMediaPath());
+		} catch (Exception ex) {// any exception, continue with the next file
+			writeJournal(FAILED, job, ex.getMessage());
+			numFailed.incrementAndGet();
+			LOG.warning("Batch recognizer failed for " + job.getMediaPath() + ": " + ex.getMessage());
+		} finally {
+			if (recognizer != null) {
+				recognizer.dispose();
+			}
+			numRunning.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Configures and runs the recognizer for one media file and collects the
+	 * segmentations it produced, either directly or by means of tier output
+	 * files.
+	 */
+	private List<Segmentation> recognize(Recognizer recognizer, BatchRecognizerJob job, File workDir)
+			throws IOException, InterruptedException, RecognizerConfigurationException {
+		BatchRecognizerHost host = new BatchRecognizerHost(job.getMediaPath());
+		recognizer.setRecognizerHost(host);
+		recognizer.setMedia(Collections.singletonList(job.getMediaPath()));
+
+		for (Map.Entry<String, Object> entry : paramMap.entrySet()) {
+			if (entry.getValue() instanceof String) {
+				String value = (String) entry.getValue();
+				recognizer.setParameterValue(entry.getKey(), value);
+				try {
+					recognizer.setParameterValue(entry.getKey(), Float.parseFloat(value));
+				} catch (NumberFormatException nfe) {
+					// not a numerical parameter
+				}
+			}
+		}
+
+		// per file input and output parameters
+		List<File> tierOutputFiles = new ArrayList<File>(2);
+		List<Param> params = RecogAvailabilityDetector.getParamList(recognizerName);
+		if (params != null) {
+			for (Param p : params) {
+				if (!(p instanceof FileParam)) {
+					continue;
+				}
+				FileParam fp = (FileParam) p;
+				if (fp.ioType == FileParam.IN &&
+						(fp.contentType == FileParam.AUDIO || fp.contentType == FileParam.VIDEO)) {
+					recognizer.setParameterValue(fp.id, job.getMediaPath());
+				} else if (fp.ioType == FileParam.OUT &&
+						(fp.contentType == FileParam.TIER || fp.contentType == FileParam.MULTITIER ||
+						fp.contentType == FileParam.CSV_TIER)) {
+					String ext = fp.contentType == FileParam.CSV_TIER ? ".csv" : ".xml";
+					File outFile = new File(workDir, job.getOutputBaseName() + "_" + fp.id + ext);
+					Files.deleteIfExists(outFile.toPath());
+					recognizer.setParameterValue(fp.id, outFile.getAbsolutePath());
+					tierOutputFiles.add(outFile);
+				}
+			}
+		}
+
+		recognizer.validateParameters();
+		// most recognizers start a process or a thread and return from start()
+		// immediately, they are finished when they report a progress of 1 or an
+		// error. start() is called on a separate thread so that the time limit
+		// also applies to recognizers that do their work in start().
+		final boolean synchronous = isSynchronous(recognizer);
+		Thread startThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					recognizer.start();
+				} catch (RuntimeException re) {
+					host.errorOccurred(re.getMessage());
+				} finally {
+					if (synchronous) {
+						host.finished();
+					}
+				}
+			}
+		}, "BatchRecognizer-" + job.getOutputBaseName());
+		startThread.setDaemon(true);
+		startThread.start();
+
+		if (!host.waitForCompletion(jobTimeout)) {
+			recognizer.stop();
+			startThread.interrupt();
+			throw new IOException("The recognizer did not finish within the time limit");
+		}
+		if (host.getErrorMessage() != null) {
+			throw new IOException(host.getErrorMessage());
+		}
+
+		List<Segmentation> segmentations = new ArrayList<Segmentation>(host.getSegmentations());
+		for (File outFile : tierOutputFiles) {
+			if (!outFile.canRead()) {
+				continue;
+			}
+			List<Segmentation> segm;
+			if (outFile.getName().endsWith(".csv")) {
+				segm = new CsvTierIO().read(outFile);
+			} else {
+				try {
+					segm = new XmlTierIO(outFile).parse();
+				} catch (Exception ex) {
+					throw new IOException("Cannot read tier file " + outFile.getName() + ": " + ex.getMessage());
+				}
+			}
+			if (segm != null) {
+				segmentations.addAll(segm);
+			}
+			Files.deleteIfExists(outFile.toPath());
+		}
+
+		return segmentations;
+	}
+
+	/**
+	 * Returns whether a recognizer does all its work in {@code start()}. Such
+	 * a recognizer is finished when {@code start()} returns, also if it did
+	 * not report a progress of 1 (e.g. when it has been stopped).
+	 *
+	 * @param recognizer the recognizer
+	 * @return {@code true} if the recognizer runs synchronously
+	 */
+	private boolean isSynchronous(Recognizer recognizer) {
+		return recognizer instanceof SilenceRecognizer;
+	}
+
+	/**
+	 * Writes one tier file per segmentation and, if there is a transcription,
+	 * a copy of the transcription with the segmentations added as tiers.
+	 */
+	private void writeResults(BatchRecognizerJob job, List<Segmentation> segmentations, File workDir)
+			throws IOException, InterruptedException {
+		RecTierWriter tierWriter = new RecTierWriter();
+		String ext = csvOutput ? ".csv" : ".xml";
+		Set<String> usedNames = new HashSet<String>();
+
+		for (Segmentation seg : segmentations) {
+			String segName = seg.getName() != null ? seg.getName().replaceAll("[^\\w\\-]", "_") : "tier";
+			String name = job.getOutputBaseName() + "_" + segName;
+			int count = 2;
+			while (!usedNames.add(name)) {
+				name = job.getOutputBaseName() + "_" + segName + "-" + count++;
+			}
+			File tmpFile = new File(workDir, name + ext);
+			tierWriter.write(tmpFile, seg.getSegments());
+			moveToOutput(tmpFile, new File(outputDir, name + ext));
+		}
+
+		if (job.getEafPath() != null) {
+			writeTranscription(job, segmentations, workDir);
+		}
+	}
+
+	/**
+	 * Loads the transcription, adds the segmentations as new tiers and saves
+	 * the result in the output folder.
+	 */
+	private void writeTranscription(BatchRecognizerJob job, List<Segmentation> segmentations, File workDir)
+			throws IOException, InterruptedException {
+		TranscriptionImpl transcription = new TranscriptionImpl(new File(job.getEafPath()).getAbsolutePath());
+
+		Map<String, List<AnnotationDataRecord>> segmentationMap =
+				new HashMap<String, List<AnnotationDataRecord>>();
+		for (Segmentation seg : segmentations) {
+			List<AnnotationDataRecord> records = new ArrayList<AnnotationDataRecord>();
+			for (RSelection sel : seg.getSegments()) {
+				String label = sel instanceof Segment ? ((Segment) sel).label : "";
+				records.add(new AnnotationDataRecord("", label, sel.beginTime, sel.endTime));
+			}
+			segmentationMap.put(seg.getName(), records);
+		}
+
+		if (!segmentationMap.isEmpty()) {
+			final CountDownLatch tiersLatch = new CountDownLatch(1);
+			SegmentsToTiersCommand command = new SegmentsToTiersCommand(ELANCommandFactory.SEGMENTS_2_TIER);
+			command.addProgressListener(new ProgressListener() {
+				@Override
+				public void progressUpdated(Object source, int percent, String message) {
+				}
+
+				@Override
+				public void progressCompleted(Object source, String message) {
+					tiersLatch.countDown();
+				}
+
+				@Override
+				public void progressInterrupted(Object source, String message) {
+					tiersLatch.countDown();
+				}
+			});
+			command.execute(transcription, new Object[] {segmentationMap});
+			if (!tiersLatch.await(10, TimeUnit.MINUTES)) {
+				throw new IOException("Creating tiers did not finish in time");
+			}
+		}
+
+		String fileName = job.getOutputBaseName() + ".eaf";
+		File tmpFile = new File(workDir, fileName);
+		ACMTranscriptionStore.getCurrentTranscriptionStore().storeTranscriptionIn(transcription, null,
+				null, tmpFile.getAbsolutePath(), TranscriptionStore.EAF);
+		moveToOutput(tmpFile, new File(outputDir, fileName));
+	}
+
+	private void moveToOutput(File source, File destination) throws IOException {
+		try {
+			Files.move(source.toPath(), destination.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException amnse) {
+			Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a list of jobs from a text file. Each non-empty line that does not
+	 * start with {@code #} contains the path to a media file, optionally
+	 * followed by a tab and the path to an {@code .eaf} file.
+	 *
+	 * @param listFile the list file
+	 * @return a list of jobs
+	 * @throws IOException if the file cannot be read
+	 */
+	public static List<BatchRecognizerJob> readJobList(File listFile) throws IOException {
+		List<BatchRecognizerJob> jobs = new ArrayList<BatchRecognizerJob>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new FileInputStream(listFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] tokens = line.split("\t");
+				String eaf = tokens.length > 1 && !tokens[1].trim().isEmpty() ? tokens[1].trim() : null;
+				jobs.add(new BatchRecognizerJob(tokens[0].trim(), eaf));
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * Runs a batch from the command line.
+	 *
+	 * @param args the command line arguments, see the usage message
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true");
+		String recName = null;
+		String listPath = null;
+		String outPath = null;
+		String paramPath = null;
+		int threads = 1;
+		long maxMemMB = 0;
+		long timeoutMin = 0;
+		boolean csv = false;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-r":
+					recName = args[++i];
+					break;
+				case "-l":
+					listPath = args[++i];
+					break;
+				case "-o":
+					outPath = args[++i];
+					break;
+				case "-p":
+					paramPath = args[++i];
+					break;
+				case "-t":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "-m":
+					maxMemMB = Long.parseLong(args[++i]);
+					break;
+				case "-timeout":
+					timeoutMin = Long.parseLong(args[++i]);
+					break;
+				case "-csv":
+					csv = true;
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown argument: " + args[i]);
+				}
+			}
+		} catch (RuntimeException re) {// index out of bounds, number format etc.
+			System.err.println("The command line arguments are not correct: " + re.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		if (recName == null || listPath == null || outPath == null) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+
+		try {
+			Map<String, Object> params = null;
+			if (paramPath != null) {
+				params = new ParamIO().read(new File(paramPath));
+			}
+			BatchRecognizerRunner runner = new BatchRecognizerRunner(recName, params, new File(outPath));
+			runner.setNumWorkers(threads);
+			runner.setMemoryBudget(maxMemMB * 1024 * 1024);
+			runner.setJobTimeout(timeoutMin * 60 * 1000);
+			runner.setCsvOutput(csv);
+			List<BatchRecognizerJob> jobs = readJobList(new File(listPath));
+			System.out.println("Number of files: " + jobs.size());
+			runner.run(jobs);
+			System.out.println(String.format("Finished: %d succeeded, %d failed",
+					runner.getNumSucceeded(), runner.getNumFailed()));
+			System.exit(runner.getNumFailed() == 0 ? 0 : 2);
+		} catch (IOException ioe) {
+			System.err.println("Batch process failed: " + ioe.getMessage());
+			System.exit(1);
+		}
+	}
+}
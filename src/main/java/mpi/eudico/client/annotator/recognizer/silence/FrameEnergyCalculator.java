@@ -0,0 +1,330 @@
+package mpi.eudico.client.annotator.recognizer.silence;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import mpi.eudico.client.util.MappedWAVSamples;
+import mpi.eudico.client.util.WAVSamplesProvider;
+
+/**
+ * Calculates the average energy (the root mean square of the sample values)
+ * for consecutive frames of fixed duration for all channels of an audio file.
+ * <p>
+ * The calculation is performed once for the whole file and the resulting
+ * per-frame arrays can be used for both the estimation of a noise threshold
+ * and for the silence/non-silence segmentation.
+ * If the audio is available as a {@link MappedWAVSamples} source, the frames
+ * are divided in chunks which are processed in parallel on a
+ * {@code ForkJoinPool}. Otherwise the samples are read sequentially by means of a
+ * {@link WAVSamplesProvider}.
+ */
+public class FrameEnergyCalculator {
+	/** the number of frames processed by a single task without further splitting */
+	private static final int CHUNK_FRAMES = 1500;
+	/** the duration of the blocks read in sequential mode, in ms */
+	private static final int SEQUENTIAL_BLOCK_DURATION = 10000;
+
+	private final int frameDuration;
+	private final AtomicLong framesProcessed = new AtomicLong();
+	private volatile boolean cancelled;
+	private long totalFrames;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param frameDuration the duration of a single frame in milliseconds
+	 */
+	public FrameEnergyCalculator(int frameDuration) {
+		this.frameDuration = frameDuration;
+	}
+
+	/**
+	 * Calculates the energy per frame for each channel, in parallel.
+	 * The calling thread waits for the result.
+	 *
+	 * @param source the memory mapped sample source
+	 * @param pool the pool to run the calculation on, if {@code null} the
+	 * common pool is used
+	 *
+	 * @return an array containing an array of energy values for each channel,
+	 * or {@code null} if the calculation was cancelled
+	 */
+	public float[][] calculate(MappedWAVSamples source, ForkJoinPool pool) {
+		int nrOfChannels = source.getNumberOfChannels();
+		int numFrames = (int) (source.getDuration() / frameDuration);
+		float[][] energies = new float[nrOfChannels][numFrames];
+		totalFrames = numFrames;
+		framesProcessed.set(0);
+
+		if (pool == null) {
+			pool = ForkJoinPool.commonPool();
+		}
+
+		ForkJoinTask<Void> task = pool.submit(new EnergyTask(source, energies, 0, numFrames));
+		try {
+			task.get();
+		} catch (InterruptedException ie) {
+			cancel();
+			// the tasks stop at the next check, wait for them so the caller can release the samples
+			task.quietlyJoin();
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException ee) {
+			throw new RuntimeException(ee.getCause());
+		}
+
+		return cancelled ? null : energies;
+	}
+
+	/**
+	 * Starts the parallel calculation and returns immediately. The caller can
+	 * wait for the results by repeatedly calling {@link EnergyResult#waitFor(long)}
+	 * while updating progress information based on {@link #getProgress()}.
+	 *
+	 * @param source the memory mapped sample source
+	 * @param pool the pool to use, if {@code null} the common pool is used
+	 *
+	 * @return an object giving access to the running calculation and, when
+	 * finished, to the energy arrays
+	 */
+	public EnergyResult submit(MappedWAVSamples source, ForkJoinPool pool) {
+		int nrOfChannels = source.getNumberOfChannels();
+		int numFrames = (int) (source.getDuration() / frameDuration);
+		float[][] energies = new float[nrOfChannels][numFrames];
+		totalFrames = numFrames;
+		framesProcessed.set(0);
+
+		if (pool == null) {
+			pool = ForkJoinPool.commonPool();
+		}
+
+		return new EnergyResult(pool.submit(new EnergyTask(source, energies, 0, numFrames)), energies);
+	}
+
+	/**
+	 * Calculates the energy per frame for each channel by sequentially reading
+	 * blocks of samples. This is the fallback for files that cannot be memory
+	 * mapped.
+	 *
+	 * @param sampler the sampler to read from, the position of the sampler
+	 * is changed
+	 *
+	 * @return an array containing an array of energy values for each channel,
+	 * or {@code null} if the calculation was cancelled
+	 */
+	public float[][] calculate(WAVSamplesProvider sampler) {
+		int nrOfChannels = Math.min(2, sampler.getNumberOfChannels());
+		int sampleFrequency = sampler.getSampleFrequency();
+		int numFrames = (int) (sampler.getDuration() / frameDuration);
+		float[][] energies = new float[nrOfChannels][numFrames];
+		totalFrames = numFrames;
+		framesProcessed.set(0);
+
+		int framesPerBlock = SEQUENTIAL_BLOCK_DURATION / frameDuration;
+		int samplesPerFrame = (sampleFrequency * frameDuration) / 1000;
+
+		for (int blockStart = 0; blockStart < numFrames; blockStart += framesPerBlock) {
+			if (cancelled) {
+				return null;
+			}
+			int blockEnd = Math.min(numFrames, blockStart + framesPerBlock);
+			long firstSample = frameToSample(blockStart, sampleFrequency);
+			int numSamples = (int) (frameToSample(blockEnd, sampleFrequency) - firstSample) + samplesPerFrame;
+			sampler.seekSample(firstSample);
+			int numRead = sampler.readInterval(numSamples, nrOfChannels);
+
+			for (int ch = 0; ch < nrOfChannels; ch++) {
+				int[] samples = sampler.getChannelArray(ch);
+				if (samples == null) {
+					continue;
+				}
+				for (int f = blockStart; f < blockEnd; f++) {
+					int offset = (int) (frameToSample(f, sampleFrequency) - firstSample);
+					energies[ch][f] = rms(samples, offset, Math.min(numRead, offset + samplesPerFrame),
+							samplesPerFrame);
+				}
+			}
+			framesProcessed.addAndGet(blockEnd - blockStart);
+		}
+
+		return energies;
+	}
+
+	/**
+	 * Requests cancellation of a running calculation.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Returns the fraction of frames that have been processed.
+	 *
+	 * @return a value between 0 and 1
+	 */
+	public float getProgress() {
+		if (totalFrames == 0) {
+			return 0f;
+		}
+		return framesProcessed.get() / (float) totalFrames;
+	}
+
+	/**
+	 * Returns the frame duration.
+	 *
+	 * @return the duration of a frame in milliseconds
+	 */
+	public int getFrameDuration() {
+		return frameDuration;
+	}
+
+	private long frameToSample(long frame, int sampleFrequency) {
+		return (frame * frameDuration * sampleFrequency) / 1000;
+	}
+
+	/**
+	 * Calculates the root mean square of part of an array. The divisor is
+	 * always the number of samples in a frame, missing samples at the end of
+	 * a file count as zeros.
+	 */
+	private static float rms(int[] samples, int from, int to, int samplesPerFrame) {
+		if (samplesPerFrame == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = from; i < to; i++) {
+			int sample = samples[i];
+			sum += (double) sample * sample;
+		}
+
+		return (float) Math.sqrt(sum / samplesPerFrame);
+	}
+
+	/**
+	 * Returns the maximum of the energy values in a range of frames.
+	 *
+	 * @param energies the energy values of a single channel
+	 * @param beginTime the begin time of the range in ms
+	 * @param endTime the end time of the range in ms
+	 * @param frameDuration the frame duration in ms
+	 *
+	 * @return the maximum energy in the range or {@code Integer.MIN_VALUE} if
+	 * the range is empty
+	 */
+	public static float maxEnergy(float[] energies, long beginTime, long endTime, int frameDuration) {
+		float max = Integer.MIN_VALUE;
+		int from = (int) Math.max(0, beginTime / frameDuration);
+		int to = (int) Math.min(energies.length, (endTime + frameDuration - 1) / frameDuration);
+		for (int i = from; i < to; i++) {
+			if (energies[i] > max) {
+				max = energies[i];
+			}
+		}
+
+		return max;
+	}
+
+	/**
+	 * The results of a calculation started with
+	 * {@link FrameEnergyCalculator#submit(MappedWAVSamples, ForkJoinPool)}.
+	 */
+	public class EnergyResult {
+		private final ForkJoinTask<Void> task;
+		private final float[][] energies;
+
+		private EnergyResult(ForkJoinTask<Void> task, float[][] energies) {
+			this.task = task;
+			this.energies = energies;
+		}
+
+		/**
+		 * Waits at most the specified time for the calculation to finish.
+		 *
+		 * @param millis the maximum time to wait in milliseconds
+		 *
+		 * @return {@code true} if the calculation is done (or cancelled),
+		 * {@code false} if it is still running
+		 * @throws InterruptedException if the waiting thread is interrupted
+		 */
+		public boolean waitFor(long millis) throws InterruptedException {
+			try {
+				task.get(millis, TimeUnit.MILLISECONDS);
+				return true;
+			} catch (TimeoutException te) {
+				return false;
+			} catch (ExecutionException ee) {
+				throw new RuntimeException(ee.getCause());
+			}
+		}
+
+		/**
+		 * Waits, without being interruptible, until the calculation is done
+		 * or, after a cancel, until all tasks have returned.
+		 */
+		public void join() {
+			task.quietlyJoin();
+		}
+
+		/**
+		 * Returns the energies per channel per frame.
+		 *
+		 * @return the energy arrays, or {@code null} if the calculation was
+		 * cancelled or is not finished yet
+		 */
+		public float[][] getEnergies() {
+			if (cancelled || !task.isDone()) {
+				return null;
+			}
+			return energies;
+		}
+	}
+
+	/**
+	 * Recursively splits a range of frames until it is small enough to be
+	 * processed by a single worker.
+	 */
+	@SuppressWarnings("serial")
+	private class EnergyTask extends RecursiveAction {
+		private final MappedWAVSamples source;
+		private final float[][] energies;
+		private final int fromFrame;
+		private final int toFrame;
+
+		EnergyTask(MappedWAVSamples source, float[][] energies, int fromFrame, int toFrame) {
+			this.source = source;
+			this.energies = energies;
+			this.fromFrame = fromFrame;
+			this.toFrame = toFrame;
+		}
+
+		@Override
+		protected void compute() {
+			if (cancelled) {
+				return;
+			}
+			if (toFrame - fromFrame > CHUNK_FRAMES) {
+				int mid = (fromFrame + toFrame) >>> 1;
+				invokeAll(new EnergyTask(source, energies, fromFrame, mid),
+						new EnergyTask(source, energies, mid, toFrame));
+				return;
+			}
+
+			int sampleFrequency = source.getSampleFrequency();
+			int samplesPerFrame = (sampleFrequency * frameDuration) / 1000;
+			int[] samples = new int[samplesPerFrame];
+
+			for (int ch = 0; ch < energies.length; ch++) {
+				for (int f = fromFrame; f < toFrame; f++) {
+					source.readSamples(frameToSample(f, sampleFrequency), samplesPerFrame, ch, samples);
+					energies[ch][f] = rms(samples, 0, samplesPerFrame, samplesPerFrame);
+				}
+			}
+			framesProcessed.addAndGet(toFrame - fromFrame);
+		}
+	}
+}
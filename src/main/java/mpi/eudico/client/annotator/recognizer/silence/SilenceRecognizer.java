@@ -3,13 +3,13 @@ package mpi.eudico.client.annotator.recognizer.silence;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
 
 import javax.swing.JPanel;
 
+import mpi.eudico.client.annotator.recognizer.api.AbstractSelectionPanel;
 import mpi.eudico.client.annotator.recognizer.api.Recognizer;
 import mpi.eudico.client.annotator.recognizer.api.RecognizerConfigurationException;
 import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
@@ -18,6 +18,7 @@ import mpi.eudico.client.annotator.recognizer.data.MediaDescriptor;
 import mpi.eudico.client.annotator.recognizer.data.RSelection;
 import mpi.eudico.client.annotator.recognizer.data.Segment;
 import mpi.eudico.client.annotator.recognizer.data.Segmentation;
+import mpi.eudico.client.util.MappedWAVSamples;
 import mpi.eudico.client.util.WAVSamplesProvider;
 import mpi.eudico.client.util.WAVSampler;
 
@@ -58,13 +59,8 @@ public class SilenceRecognizer implements Recognizer {
 	//private long nrOfSamples;
 	private float duration;
 	boolean canHandleMedia;
-	private long sampleBufferBeginTime;
-	private int sampleBufferDuration;
-	private boolean keepRunning;
-	private float[] averageEnergy1;
-	private int[] samples1;
-	private float[] averageEnergy2;
-	private int[] samples2;
+	private volatile boolean keepRunning;
+	private FrameEnergyCalculator energyCalculator;
 	
 	private float noiseThreshold1 = DEFAULT_NOISE_THRESHOLD_1;
 	private float noiseThreshold2 = DEFAULT_NOISE_THRESHOLD_2;
@@ -72,6 +68,9 @@ public class SilenceRecognizer implements Recognizer {
 	private boolean noiseThr2Set = false;
 	private int silenceDur = DEFAULT_SILENCE_DURATION;
 	private int nonSilenceDur = DEFAULT_NON_SILENCE_DURATION;
+	/** relative noise threshold, only used in headless mode, negative if not set */
+	private double relativeNoiseThreshold = -1;
+	private List<String> mediaFilePaths;
 	
 	/**
 	 * Lightweight constructor, try to do as little as possible here.
@@ -114,156 +113,87 @@ public class SilenceRecognizer implements Recognizer {
 	
 	@Override
 	public void validateParameters() throws RecognizerConfigurationException {
-		getSilRecPanel().validateParameters();		
+		if (getSilRecPanel() != null) {
+			getSilRecPanel().validateParameters();
+		}
 	}
 	
+	/**
+	 * Returns the control panel, creating it if needed. If the host does not 
+	 * provide a selection panel (e.g. when running without a user interface)
+	 * no panel is created and the parameters set by means of 
+	 * {@link #setParameterValue(String, float)} are used instead.
+	 * 
+	 * The host is asked again as long as there is no panel, since it may
+	 * not be able to provide a selection panel yet when it is first asked.
+	 * 
+	 * @return the control panel or {@code null} in headless mode
+	 */
 	private SilenceRecognizerPanel getSilRecPanel(){
-		if (controlPanel == null) {			
-			controlPanel= new SilenceRecognizerPanel(host.getSelectionPanel(null));
+		if (controlPanel == null) {
+			AbstractSelectionPanel selectionPanel = host != null ? host.getSelectionPanel(null) : null;
+			if (selectionPanel != null) {
+				controlPanel= new SilenceRecognizerPanel(selectionPanel);
+			}
 		}
 		return controlPanel;
 	}
 	
 	@Override
 	public boolean setMedia(List<String> mediaFilePaths) {
-		getSilRecPanel().updateMediaFiles(mediaFilePaths);
+		this.mediaFilePaths = mediaFilePaths;
+		if (getSilRecPanel() != null) {
+			getSilRecPanel().updateMediaFiles(mediaFilePaths);
+		}
 		return true;
 	}
-		
-	/**
-	 * Called by RecognizerHost to give this recognizer an object for callbacks
-	 * 
-	 * @param host the RecognizerHost that talks with this recognizer
-	 */
-	@Override
-	public void setRecognizerHost(RecognizerHost host) {
-		this.host = host;
-	}
 	
-	/**
-	 * Fills an array with sample values for a certain time interval and a certain channel.
-	 * This method was needed to optimize the WAVReader that is rather slow for small time steps
-	 * 
-	 * Pad with zeros if you read more samples than available in the media file
-	 * 
-	 * @param from interval begin time in milliseconds
-	 * @param to interval end time in milliseconds
-	 * @param channel the audio channel from which the samples must be read
-	 * @param samples the int[] array that must be filled with the samples
-	 */
-	private void getSamples(long from, long to, int channel, int[] samples) {
-		try {
-			// check if the requested samples are in the buffer
-			long sampleBufferEndTime = sampleBufferBeginTime + sampleBufferDuration;
-			if (from < sampleBufferBeginTime || from >= sampleBufferEndTime || 
-			                                    to < sampleBufferBeginTime || to >= sampleBufferEndTime) {
-				sampleBufferDuration = 10000;
-				while (to - from > sampleBufferDuration) {
-					sampleBufferDuration += 1000;
-				}
-				int nSamples = (sampleBufferDuration * sampleFrequency) / 1000;
-				sampleBufferBeginTime = from;
-				sampler.seekTime(sampleBufferBeginTime);
-				sampler.readInterval(nSamples, nrOfChannels);
-			}
-			
-			Arrays.fill(samples, 0);
-			int srcPos = (int) (((from - sampleBufferBeginTime) * sampleFrequency) / 1000);
-			int length = (int) (((to - from) * sampleFrequency) / 1000);
-			if (channel == 1) {
-				System.arraycopy(sampler.getChannelArray(0), srcPos, samples, 0, length);
-			} else {
-				System.arraycopy(sampler.getChannelArray(1), srcPos, samples, 0, length);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
+	private String getSelectedMediaFile() {
+		if (getSilRecPanel() != null) {
+			return getSilRecPanel().getSelectedMediaFile();
+		}
+		if (mediaFilePaths != null && !mediaFilePaths.isEmpty()) {
+			return mediaFilePaths.get(0);
 		}
+		return null;
 	}
-
-	/**
-	 * Retrieves the maximum value from an array of samples.
-	 * 
-	 * @param samples the samples
-	 * @return the maximum value
-	 */
-	private float max(int[] samples) {
-		int max = Integer.MIN_VALUE;
-		for (int i = 0; i < samples.length; i++) {
-			if (max < samples[i]) {
-				max = samples[i];
-			}
+	
+	private boolean isNoiseThresholdSetManually() {
+		if (getSilRecPanel() != null) {
+			return getSilRecPanel().isNoiseThresholdSetManually();
 		}
-		
-		return max;
+		return relativeNoiseThreshold >= 0;
 	}
-
-	/**
-	 * Returns the number of zero-crossings in the samples array.
-	 * 
-	 * @param samples the samples to test
-	 * @return the count of zero-crossings
-	 */
-	private int zeroCrossings(int[] samples) {
-		int crossings = 0;
-		for (int i = 0; i + 1 < samples.length; i++) {
-			if (samples[i] * samples[i + 1] < 0) {
-				crossings++;
-			}
+	
+	private double getRelativeNoiseThreshold() {
+		if (getSilRecPanel() != null) {
+			return getSilRecPanel().getNoiseThreshold();
 		}
-		
-		return crossings;
+		return relativeNoiseThreshold;
 	}
 	
-	/**
-	 * Calculates the average energy of an array of samples.
-	 * 
-	 * @param samples the input samples
-	 * @return the root mean square (RMS) of the samples
-	 */
-	private float averageEnergy(int[] samples) {
-		if (samples.length == 0) return 0;
-		
-		double average = 0;
-		for (int i = 0; i < samples.length; i++) {
-			int sample = samples[i];
-			average += sample * sample;
+	private int getMinimalSilenceDuration() {
+		if (getSilRecPanel() != null) {
+			return getSilRecPanel().getMinimalSilenceDuration();
 		}
-		
-		return (float) Math.sqrt(average / samples.length);
+		return silenceDur;
 	}
 	
-	private float averageEnergy(int channel, int step) {
-		if (channel == 1) {
-			if (averageEnergy1 == null) {
-				averageEnergy1 = new float[nSteps];
-				for (int i = 0; i < nSteps; i++) {
-					averageEnergy1[i] = -1;
-				}
-				samples1 = new int[(sampleFrequency * stepDuration) / 1000]; 
-			}
-			if (averageEnergy1[step] < 0) {
-				long time = (long)step * stepDuration;
-				getSamples(time, time + stepDuration, 1, samples1);
-				averageEnergy1[step] = averageEnergy(samples1);
-			}
-			return averageEnergy1[step];
-		} else if (channel == 2) {
-			if (averageEnergy2 == null) {
-				averageEnergy2 = new float[nSteps];
-				for (int i = 0; i < nSteps; i++) {
-					averageEnergy2[i] = -1;
-				}
-				samples2 = new int[(sampleFrequency * stepDuration) / 1000]; 
-			}
-			if (averageEnergy2[step] < 0) {
-				long time = (long)step * stepDuration;
-				getSamples(time, time + stepDuration, 2, samples2);
-				averageEnergy2[step] = averageEnergy(samples2);
-			}
-			return averageEnergy2[step];
-		} else {
-			return 0;
+	private int getMinimalNonSilenceDuration() {
+		if (getSilRecPanel() != null) {
+			return getSilRecPanel().getMinimalNonSilenceDuration();
 		}
+		return nonSilenceDur;
+	}
+		
+	/**
+	 * Called by RecognizerHost to give this recognizer an object for callbacks
+	 * 
+	 * @param host the RecognizerHost that talks with this recognizer
+	 */
+	@Override
+	public void setRecognizerHost(RecognizerHost host) {
+		this.host = host;
 	}
 	
 	/**
@@ -283,53 +213,51 @@ public class SilenceRecognizer implements Recognizer {
 	@Override
 	public void stop() {
 		keepRunning = false;
+		if (energyCalculator != null) {
+			energyCalculator.cancel();
+		}
 	}
 	
 	/**
 	 * The actual work.
+	 * <p>
+	 * The energy per frame is calculated once, for all channels, and is used
+	 * both for the noise threshold and for the segmentation. For memory mapped 
+	 * {@code .wav} files this calculation runs in parallel on a fork-join pool.
 	 * 
-	 * Progress: 10% threshold calculation, 80% stepping frames, 
-	 * calculating averages, 10% pruning and creating segmentations
+	 * Progress: 80% calculating averages per frame, 10% threshold calculation,
+	 * 10% pruning and creating segmentations
 	 */
 	public void recog() {
-		currentMediaFilePath = getSilRecPanel().getSelectedMediaFile();
+		currentMediaFilePath = getSelectedMediaFile();
 		if(currentMediaFilePath == null){
 			System.out.println("No media available");
 			stop();
 			return;
 		}
-		averageEnergy1 = null;
-		averageEnergy2 = null;
-		
-		try {
-			sampler = new WAVSampler(currentMediaFilePath);
-			nrOfChannels = sampler.getNumberOfChannels();
-			//System.out.println("Nr. of channels: " + nrOfChannels);
-			sampleFrequency = sampler.getSampleFrequency();
-			//nrOfSamples = sampler.getNrOfSamples();
-			duration = sampler.getDuration();
-			nSteps = (int) (duration / stepDuration);
-			sampleBufferBeginTime = -1;
-			sampleBufferDuration = 0;
-			canHandleMedia = true;
-		} catch (Exception e) {
-			//e.printStackTrace();
-		}		
 		
 		long curTime = System.currentTimeMillis();
-		host.setProgress(0.01f, "Retrieving noise thresholds...");
+		host.setProgress(0.01f, "Calculating averages per frame....");
+		
+		float[][] energies = calculateEnergies();
+		if (energies == null) {
+			if (keepRunning) {
+				host.errorOccurred("Could not read the samples of the media file");
+			}
+			return;
+		}
+		nrOfChannels = energies.length;
 		
 		float maxEnergyChannel1 = Integer.MIN_VALUE;
 		float maxEnergyChannel2 = Integer.MIN_VALUE;
 		boolean lookAtChannel1 = false;
 		boolean lookAtChannel2 = false;
-		int[] samples = new int[(sampleFrequency * stepDuration) / 1000]; 
 		
-		host.setProgress(0.01f, "Loading selection/tier objects...");		
+		host.setProgress(0.8f, "Loading selection/tier objects...");		
 	
 		ArrayList<RSelection> selections = null;
 		
-		if (getSilRecPanel().isNoiseThresholdSetManually()) {
+		if (isNoiseThresholdSetManually()) {
 			// If the noise threshold is set manually, calculate the maximum energy over the whole audio track.
 			selections = new ArrayList<RSelection>();
 			RSelection r = new AudioSegment(0, (int)duration, null, 1);
@@ -338,6 +266,9 @@ public class SilenceRecognizer implements Recognizer {
 				r = new AudioSegment(0, (int)duration, null, 2);
 				selections.add(r);
 			}
+		} else if (getSilRecPanel() == null) {
+			// headless, no example selections, use the absolute thresholds
+			selections = new ArrayList<RSelection>(0);
 		} else {
 			selections = getSilRecPanel().getSelections();
 		}
@@ -349,26 +280,24 @@ public class SilenceRecognizer implements Recognizer {
 			return;
 		}
 		
+		host.setProgress(0.85f, "Retrieving noise thresholds...");
+		
 		if (selections.size() > 0) {
 			for (int i = 0; i < selections.size(); i++) {
 				RSelection selection = (RSelection) selections.get(i);
-				for (long time = selection.beginTime; time < selection.endTime; time += stepDuration) {
-					long to = time + stepDuration;
-					if (to > selection.endTime) {
-						to = selection.endTime;
-					}
-					if ((selection instanceof AudioSegment) && ((AudioSegment) selection).channel == 2) {
-						getSamples(time, to, 2, samples);
-						float energy = averageEnergy(samples);
+				if ((selection instanceof AudioSegment) && ((AudioSegment) selection).channel == 2) {
+					if (nrOfChannels > 1) {
+						float energy = FrameEnergyCalculator.maxEnergy(energies[1], 
+								selection.beginTime, selection.endTime, stepDuration);
 						if (energy > maxEnergyChannel2) {
 							maxEnergyChannel2 = energy;
 						}
-					} else {// all other cases in channel 1
-						getSamples(time, to, 1, samples);
-						float energy = averageEnergy(samples);
-						if (energy > maxEnergyChannel1) {
-							maxEnergyChannel1 = energy;
-						}
+					}
+				} else {// all other cases in channel 1
+					float energy = FrameEnergyCalculator.maxEnergy(energies[0], 
+							selection.beginTime, selection.endTime, stepDuration);
+					if (energy > maxEnergyChannel1) {
+						maxEnergyChannel1 = energy;
 					}
 				}
 			}
@@ -385,52 +314,40 @@ public class SilenceRecognizer implements Recognizer {
 			}
 		}
 		
-		if (getSilRecPanel().isNoiseThresholdSetManually()) {
-			noiseThreshold1 = (float) (maxEnergyChannel1 * getSilRecPanel().getNoiseThreshold());
-			noiseThreshold2 = (float) (maxEnergyChannel2 * getSilRecPanel().getNoiseThreshold());	
+		if (isNoiseThresholdSetManually()) {
+			noiseThreshold1 = (float) (maxEnergyChannel1 * getRelativeNoiseThreshold());
+			noiseThreshold2 = (float) (maxEnergyChannel2 * getRelativeNoiseThreshold());	
 			
 			host.appendToReport("Max energy level 1:\t" + maxEnergyChannel1 + '\n');
 			if (lookAtChannel2) {
 				host.appendToReport("Max energy level 2:\t" + maxEnergyChannel2 + '\n');
 			}
 		}
-		
-		//System.out.println("Threshold calc: " + (System.currentTimeMillis() - curTime));
 
 		host.appendToReport("Noise level 1:\t" + noiseThreshold1 + '\n');
 		if (lookAtChannel2) {
 			host.appendToReport("Noise level 2:\t" + noiseThreshold2 + "\n\n");
 		}
 		
-		host.appendToReport("Minimal silence duration :\t" + getSilRecPanel().getMinimalSilenceDuration() + " ms\n");
-		host.appendToReport("Minimal non-silence duration :\t" + getSilRecPanel().getMinimalNonSilenceDuration() + " ms\n");
+		host.appendToReport("Minimal silence duration :\t" + getMinimalSilenceDuration() + " ms\n");
+		host.appendToReport("Minimal non-silence duration :\t" + getMinimalNonSilenceDuration() + " ms\n");
 //		host.appendToReport("Step duration :\t" + stepDuration + " ms\n");
-				
-		host.setProgress(0.1f, "Calculating averages per frame....");
 		
-		int nSteps = (int) (duration / stepDuration);
 		int[] steps1 = new int[nSteps];
 		int[] steps2 = new int[nSteps];
 		for (int step = 0; step < nSteps; step++) {
-			long time = step * stepDuration;
-			host.setProgress(0.1f + (0.8f * (time / duration)));
-
 			if (lookAtChannel1) {
-				//getSamples(time, time + stepDuration, 1, samples);
-				//steps1[step] = averageEnergy(samples) < maxEnergyChannel1 ? SILENCE : NON_SILENCE;
-				steps1[step] = averageEnergy(1, step) < noiseThreshold1 ? SILENCE : NON_SILENCE;
+				steps1[step] = energies[0][step] < noiseThreshold1 ? SILENCE : NON_SILENCE;
 			}
 			if (lookAtChannel2) {
-				//getSamples(time, time + stepDuration, 2, samples);
-				//steps2[step] = averageEnergy(samples) < maxEnergyChannel2 ? SILENCE : NON_SILENCE;
-				steps2[step] = averageEnergy(2, step) < noiseThreshold2 ? SILENCE : NON_SILENCE;
-			}
-			
-			if (!keepRunning) {
-				break;
+				steps2[step] = energies[1][step] < noiseThreshold2 ? SILENCE : NON_SILENCE;
 			}
 		}
-		//System.out.println("Stepping frames: " + (System.currentTimeMillis() - curTime));
+		
+		if (!keepRunning) {
+			return;
+		}
+
 		host.setProgress(0.9f, "Pruning segments...");
 		// prune 
 		if (lookAtChannel1) {
@@ -439,12 +356,8 @@ public class SilenceRecognizer implements Recognizer {
 		if (lookAtChannel2) {
 			prune(steps2, stepDuration);
 		}
-		// if keepRunning is still true make sure the progress is set to 1
-//		if (keepRunning) {
-//			host.setProgress(1);
-//		}
+
 		host.setProgress(0.97f, "Creating segmentations...");
-		//System.out.println("Pruning: " + (System.currentTimeMillis() - curTime));
 		// create the segments
 		if (lookAtChannel1) {
 			ArrayList<RSelection> segments = createSegmentation(steps1, stepDuration);
@@ -466,7 +379,73 @@ public class SilenceRecognizer implements Recognizer {
 		if (keepRunning) {
 			host.setProgress(1);
 		}
-		//System.out.println("Recognizing: " + (System.currentTimeMillis() - curTime));
+	}
+	
+	/**
+	 * Calculates the energy per frame for (maximal two) channels of the 
+	 * current media file. A memory mapped sample source is tried first, in 
+	 * which case the frames are processed in parallel, otherwise the file is 
+	 * read sequentially by a {@code WAVSampler}.
+	 * 
+	 * @return the energy arrays, one per channel, or {@code null} if the file 
+	 * could not be read or if the process has been stopped
+	 */
+	private float[][] calculateEnergies() {
+		energyCalculator = new FrameEnergyCalculator(stepDuration);
+		if (!keepRunning) {
+			energyCalculator.cancel();
+		}
+		
+		MappedWAVSamples mappedSamples = null;
+		FrameEnergyCalculator.EnergyResult result = null;
+		try {
+			mappedSamples = new MappedWAVSamples(currentMediaFilePath);
+			sampleFrequency = mappedSamples.getSampleFrequency();
+			duration = mappedSamples.getDuration();
+			nSteps = (int) (duration / stepDuration);
+			canHandleMedia = true;
+			
+			result = energyCalculator.submit(mappedSamples, null);
+			while (!result.waitFor(200)) {
+				host.setProgress(0.8f * energyCalculator.getProgress());
+			}
+			float[][] energies = result.getEnergies();
+			if (energies != null && energies.length > 2) {
+				energies = new float[][] {energies[0], energies[1]};
+			}
+			return energies;
+		} catch (IOException ioe) {
+			// unsupported encoding etc., fall back to sequential reading
+		} catch (InterruptedException ie) {
+			energyCalculator.cancel();
+			return null;
+		} finally {
+			if (mappedSamples != null) {
+				// the mapping can only be released when no task reads from it anymore
+				if (result != null) {
+					result.join();
+				}
+				mappedSamples.close();
+			}
+		}
+		
+		try {
+			sampler = new WAVSampler(currentMediaFilePath);
+			sampleFrequency = sampler.getSampleFrequency();
+			duration = sampler.getDuration();
+			nSteps = (int) (duration / stepDuration);
+			canHandleMedia = true;
+			
+			return energyCalculator.calculate(sampler);
+		} catch (Exception e) {
+			//e.printStackTrace();
+			return null;
+		} finally {
+			if (sampler != null) {
+				sampler.close();
+				sampler = null;
+			}
+		}
 	}
 
 	private void prune(int[] steps, int stepDuration) {
@@ -506,7 +485,7 @@ public class SilenceRecognizer implements Recognizer {
 		
 		// remove NON_SILENCE patterns that are too short
 		int minimalNonSilenceSteps = 1 + nonSilenceDur / stepDuration;
-		minimalNonSilenceSteps = 1 + getSilRecPanel().getMinimalNonSilenceDuration() / stepDuration;
+		minimalNonSilenceSteps = 1 + getMinimalNonSilenceDuration() / stepDuration;
 		
 		for (int step = 0; step < steps.length; step++) {
 			if (steps[step] >= NON_SILENCE) {
@@ -525,7 +504,7 @@ public class SilenceRecognizer implements Recognizer {
 		
 		// remove SILENCE patterns that are too short
 		int minimalSilenceSteps = 1 + silenceDur / stepDuration;
-		minimalSilenceSteps = 1 + getSilRecPanel().getMinimalSilenceDuration() / stepDuration;
+		minimalSilenceSteps = 1 + getMinimalSilenceDuration() / stepDuration;
 		
 		for (int step = 0; step < steps.length; step++) {
 			if (steps[step] <= SILENCE) {
@@ -575,13 +554,17 @@ public class SilenceRecognizer implements Recognizer {
 
 	@Override
 	public void updateLocale(Locale locale) {		
-		getSilRecPanel().updateLocale(locale);
+		if (getSilRecPanel() != null) {
+			getSilRecPanel().updateLocale(locale);
+		}
 	}
 	
 
 	@Override
 	public void updateLocaleBundle(ResourceBundle bundle) {
-		getSilRecPanel().updateLocaleBundle(bundle);
+		if (getSilRecPanel() != null) {
+			getSilRecPanel().updateLocaleBundle(bundle);
+		}
 	}
 
 	@Override
@@ -641,6 +624,8 @@ public class SilenceRecognizer implements Recognizer {
 			silenceDur = (int) value;
 		} else if (param.equals("non_silence_dur")) {
 			nonSilenceDur = (int) value;
+		} else if (param.equals("noise_threshold")) {
+			relativeNoiseThreshold = value;
 		}
 	}
 	
@@ -657,6 +642,8 @@ public class SilenceRecognizer implements Recognizer {
 			return Float.valueOf(silenceDur);
 		} else if (param.equals("non_silence_dur")) {
 			return Float.valueOf(nonSilenceDur);
+		} else if (param.equals("noise_threshold")) {
+			return Float.valueOf((float) relativeNoiseThreshold);
 		}
 		
 		return null;
@@ -665,10 +652,7 @@ public class SilenceRecognizer implements Recognizer {
 	@Override
 	public void dispose() {
 		controlPanel = null;
-		averageEnergy1 = null;
-		samples1 = null;
-		averageEnergy2 = null;
-		samples2 = null;
+		energyCalculator = null;
 		host = null;
 	}
 
@@ -19,6 +19,7 @@ import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
 import mpi.eudico.util.TimeRelation;
+import mpi.eudico.util.jfr.SearchEvent;
 import mpi.search.SearchLocale;
 import mpi.search.content.model.CorpusType;
 import mpi.search.content.query.model.AnchorConstraint;
@@ -71,6 +72,8 @@ public class ElanSearchEngine implements SearchEngine {
     public void executeThread(ContentQuery query)
         throws PatternSyntaxException, QueryFormulationException, 
             NullPointerException {
+        SearchEvent searchEvent = new SearchEvent();
+        searchEvent.begin();
         //set unlimited size since search is done only within one transcription
         query.getResult().setPageSize(Integer.MAX_VALUE);
         initHashtables(query);
@@ -117,6 +120,8 @@ public class ElanSearchEngine implements SearchEngine {
                 //query.getResult().addMatch((ElanMatch) anchorMatches.get(j));
             }
         }
+        searchEvent.finish(anchorConstraint.getPattern(), anchorConstraint.isRegEx(),
+        		tierNames.length, query.getResult().getMatches().size());
     }
 
     /**
@@ -41,6 +41,7 @@ import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
 import mpi.eudico.client.annotator.util.WindowLocationAndSizeManager;
 import mpi.eudico.server.corpora.clomimpl.abstr.ParseException;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonCache;
 import mpi.eudico.server.corpora.clomimpl.dobes.EAFSkeletonParser;
 import nl.mpi.util.FileExtension;
 
@@ -714,8 +715,7 @@ public class AddTiersDlg extends ClosableDialog implements ActionListener {
 			        	path = file.getAbsolutePath();
 
 			            try {
-			            	parser = new EAFSkeletonParser(path);
-			                parser.parse();
+			            	parser = EAFSkeletonCache.getInstance().getParsedSkeleton(path);
 			                pts = parser.getTiers();
 
 			                TierImpl tier;
@@ -11,8 +11,10 @@ import mpi.eudico.util.ControlledVocabulary;
 import javax.swing.tree.DefaultMutableTreeNode;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -350,7 +352,10 @@ uploop:
             }
             
             // Set the Value last, since it may trigger update events.
-            aa.setValue(annData.getValue());
+            // Annotations created in a batch already have their value.
+            if (!Objects.equals(aa.getValue(), annData.getValue())) {
+            	aa.setValue(annData.getValue());
+            }
 
             return true;
         } else {// aa == null
@@ -691,12 +696,15 @@ uploop:
         TierImpl tier = null;
         LinguisticType linType = null;
 
+        // annotations without children on top level tiers are created per tier in one batch
+        boolean[] batched = createTopLevelAnnotationsInBatch(trans, annotationsNodes, includeId);
+
         // first recreate aligned annotations
         for (int i = 0; i < annotationsNodes.size(); i++) {
             node = annotationsNodes.get(i);
             annData = (AnnotationDataRecord) node.getUserObject();
 
-            if (annData.isBeginTimeAligned()) {
+            if (annData.isBeginTimeAligned() && !batched[i]) {
                 AnnotationRecreator.createAnnotationFromTree(trans, node, includeId);
             }
         }
@@ -767,6 +775,72 @@ uploop:
         }
     }
 
+    /**
+     * Creates the annotations of nodes without child nodes on time alignable
+     * top level tiers, grouped per tier, with
+     * {@link TierImpl#addAnnotations(AnnotationBatch)}.
+     *
+     * @param trans the transcription
+     * @param annotationsNodes the nodes of the annotations to recreate
+     * @param includeId if {@code true} the id's of annotations are recreated too
+     * @return an array of the size of the list of nodes, with {@code true}
+     * for each node that has been processed
+     */
+    private static boolean[] createTopLevelAnnotationsInBatch(Transcription trans,
+        List<DefaultMutableTreeNode> annotationsNodes, boolean includeId) {
+        boolean[] batched = new boolean[annotationsNodes.size()];
+        Map<TierImpl, List<Integer>> nodesPerTier = new LinkedHashMap<TierImpl, List<Integer>>();
+
+        for (int i = 0; i < annotationsNodes.size(); i++) {
+            DefaultMutableTreeNode node = annotationsNodes.get(i);
+            AnnotationDataRecord annData = (AnnotationDataRecord) node.getUserObject();
+
+            if (node.getChildCount() > 0 || !annData.isBeginTimeAligned() || 
+                    !annData.isEndTimeAligned()) {
+                continue;
+            }
+            TierImpl tier = (TierImpl) trans.getTierWithId(annData.getTierName());
+
+            if (tier == null || tier.hasParentTier() || !tier.isTimeAlignable()) {
+                continue;
+            }
+            List<Integer> indices = nodesPerTier.get(tier);
+            if (indices == null) {
+                indices = new ArrayList<Integer>();
+                nodesPerTier.put(tier, indices);
+            }
+            indices.add(i);
+        }
+
+        for (Map.Entry<TierImpl, List<Integer>> entry : nodesPerTier.entrySet()) {
+            List<Integer> indices = entry.getValue();
+            indices.sort((i1, i2) -> Long.compare(
+                    ((AnnotationDataRecord) annotationsNodes.get(i1).getUserObject()).getBeginTime(),
+                    ((AnnotationDataRecord) annotationsNodes.get(i2).getUserObject()).getBeginTime()));
+            AnnotationBatch batch = new AnnotationBatch(indices.size());
+
+            try {
+                for (int index : indices) {
+                    AnnotationDataRecord annData = (AnnotationDataRecord) annotationsNodes.get(index).getUserObject();
+                    batch.add(annData.getBeginTime(), annData.getEndTime(), annData.getValue());
+                }
+            } catch (IllegalArgumentException iae) {
+                // leave these to the regular procedure
+                continue;
+            }
+
+            List<Annotation> created = entry.getKey().addAnnotations(batch);
+            for (int j = 0; j < indices.size(); j++) {
+                int index = indices.get(j);
+                restoreValueEtc((AbstractAnnotation) created.get(j),
+                        (AnnotationDataRecord) annotationsNodes.get(index).getUserObject(), includeId);
+                batched[index] = true;
+            }
+        }
+
+        return batched;
+    }
+
     /**
      * Creates a number of unaligned child annotations that share the same
      * parent  annotation. Does not set the id of the annotations.
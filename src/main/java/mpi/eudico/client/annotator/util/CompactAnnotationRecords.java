@@ -0,0 +1,480 @@
+package mpi.eudico.client.annotator.util;
+
+import mpi.eudico.server.corpora.clom.ExternalReference;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * A compact store for the {@link AnnotationDataRecord}s that commands keep for undo and redo. Instead of a tree of
+ * {@code DefaultMutableTreeNode}s with a record object per annotation, the data of all records are stored in primitive
+ * arrays, the strings (tier names, values, id's, file paths) are stored once in a table of unique strings.
+ * <p>
+ * Records are added as trees (as created by {@link AnnotationRecreator#createTreeForAnnotation}), as single records
+ * or as groups of records. The trees, records or groups are recreated on request, in the order in which they were
+ * added. The store can be written to a temporary file to free memory; it is read back when the records are requested.
+ * If the file cannot be read back, the records are lost and every request fails with an exception, the store never
+ * silently continues with fewer records.
+ */
+public class CompactAnnotationRecords {
+    private static final int BEGIN_ALIGNED = 1;
+    private static final int END_ALIGNED = 2;
+    /** rough estimate of the memory used by an object header and reference */
+    private static final int OBJECT_OVERHEAD = 16;
+
+    private int size;
+    private long[] beginTimes;
+    private long[] endTimes;
+    /** the index of the parent record, or -1 for the root of a tree */
+    private int[] parents;
+    private byte[] alignedFlags;
+    private int[] tierNames;
+    private int[] values;
+    private int[] ids;
+    private int[] cvEntryIds;
+    private int[] filePaths;
+    /** the index of the first root of each group */
+    private int[] groupStarts;
+    private int numGroups;
+    /** the external references, per record index, most records have none */
+    private Map<Integer, ExternalReference> extRefs;
+
+    private List<String> strings;
+    private Map<String, Integer> stringIndexes;
+    private long stringBytes;
+
+    private File spillFile;
+
+    /**
+     * Creates an empty store.
+     */
+    public CompactAnnotationRecords() {
+        this(16);
+    }
+
+    /**
+     * Creates an empty store.
+     *
+     * @param capacity the expected number of records
+     */
+    public CompactAnnotationRecords(int capacity) {
+        allocate(Math.max(capacity, 1));
+        strings = new ArrayList<String>();
+        stringIndexes = new HashMap<String, Integer>();
+        extRefs = new HashMap<Integer, ExternalReference>(4);
+        groupStarts = new int[4];
+    }
+
+    private void allocate(int capacity) {
+        beginTimes = new long[capacity];
+        endTimes = new long[capacity];
+        parents = new int[capacity];
+        alignedFlags = new byte[capacity];
+        tierNames = new int[capacity];
+        values = new int[capacity];
+        ids = new int[capacity];
+        cvEntryIds = new int[capacity];
+        filePaths = new int[capacity];
+    }
+
+    /**
+     * Adds a tree of records, the user object of each node is an {@code AnnotationDataRecord}.
+     *
+     * @param root the root node of the tree
+     *
+     * @throws UncheckedIOException if the records have been written to file and cannot be read back
+     */
+    public void addTree(DefaultMutableTreeNode root) {
+        loadForAdding();
+        addNode(root, -1);
+    }
+
+    private void addNode(DefaultMutableTreeNode node, int parent) {
+        int index = add((AnnotationDataRecord) node.getUserObject(), parent);
+
+        for (int i = 0; i < node.getChildCount(); i++) {
+            addNode((DefaultMutableTreeNode) node.getChildAt(i), index);
+        }
+    }
+
+    /**
+     * Adds a single record, without children.
+     *
+     * @param record the record
+     *
+     * @throws UncheckedIOException if the records have been written to file and cannot be read back
+     */
+    public void addRecord(AnnotationDataRecord record) {
+        loadForAdding();
+        add(record, -1);
+    }
+
+    /**
+     * Adds a group of records, without children. The group can be retrieved as a whole by {@link #toGroups()}.
+     *
+     * @param group the records of the group
+     *
+     * @throws UncheckedIOException if the records have been written to file and cannot be read back
+     */
+    public void addGroup(List<AnnotationDataRecord> group) {
+        loadForAdding();
+        if (numGroups == groupStarts.length) {
+            groupStarts = Arrays.copyOf(groupStarts, numGroups * 2);
+        }
+        groupStarts[numGroups++] = size;
+
+        for (AnnotationDataRecord record : group) {
+            add(record, -1);
+        }
+    }
+
+    private int add(AnnotationDataRecord record, int parent) {
+        if (size == beginTimes.length) {
+            grow(size * 2);
+        }
+        beginTimes[size] = record.getBeginTime();
+        endTimes[size] = record.getEndTime();
+        parents[size] = parent;
+        alignedFlags[size] = (byte) ((record.isBeginTimeAligned() ? BEGIN_ALIGNED : 0) |
+                                     (record.isEndTimeAligned() ? END_ALIGNED : 0));
+        tierNames[size] = indexOf(record.getTierName());
+        values[size] = indexOf(record.getValue());
+        ids[size] = indexOf(record.getId());
+        cvEntryIds[size] = indexOf(record.getCvEntryId());
+        filePaths[size] = indexOf(record.getFilePath());
+        if (record.getExtRef() != null) {
+            extRefs.put(size, record.getExtRef());
+        }
+
+        return size++;
+    }
+
+    private void grow(int capacity) {
+        beginTimes = Arrays.copyOf(beginTimes, capacity);
+        endTimes = Arrays.copyOf(endTimes, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        alignedFlags = Arrays.copyOf(alignedFlags, capacity);
+        tierNames = Arrays.copyOf(tierNames, capacity);
+        values = Arrays.copyOf(values, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        cvEntryIds = Arrays.copyOf(cvEntryIds, capacity);
+        filePaths = Arrays.copyOf(filePaths, capacity);
+    }
+
+    /**
+     * Returns the index of the string in the table of unique strings, adding it if necessary.
+     *
+     * @param s the string, can be {@code null}
+     *
+     * @return the index or -1 for {@code null}
+     */
+    private int indexOf(String s) {
+        if (s == null) {
+            return -1;
+        }
+        Integer index = stringIndexes.get(s);
+
+        if (index == null) {
+            index = strings.size();
+            strings.add(s);
+            stringIndexes.put(s, index);
+            stringBytes += 2L * s.length() + 2 * OBJECT_OVERHEAD;
+        }
+
+        return index;
+    }
+
+    private String stringAt(int index) {
+        return index < 0 ? null : strings.get(index);
+    }
+
+    /**
+     * Releases unused capacity of the arrays. Records can still be added afterwards.
+     */
+    public void trimToSize() {
+        if (spillFile == null && beginTimes.length > size) {
+            grow(Math.max(size, 1));
+            groupStarts = Arrays.copyOf(groupStarts, Math.max(numGroups, 1));
+        }
+    }
+
+    /**
+     * @return the number of records, including child records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return {@code true} if no records have been added
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Recreates the trees of records, one per added tree or added single record.
+     *
+     * @return a list of root nodes
+     *
+     * @throws IOException if the records have been written to file and cannot be read back
+     */
+    public List<DefaultMutableTreeNode> toTrees() throws IOException {
+        load();
+        List<DefaultMutableTreeNode> roots = new ArrayList<DefaultMutableTreeNode>();
+        DefaultMutableTreeNode[] nodes = new DefaultMutableTreeNode[size];
+
+        // parents are always added before their children
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new DefaultMutableTreeNode(createRecord(i));
+            if (parents[i] < 0) {
+                roots.add(nodes[i]);
+            } else {
+                nodes[parents[i]].add(nodes[i]);
+            }
+        }
+
+        return roots;
+    }
+
+    /**
+     * Recreates the records that have been added without children.
+     *
+     * @return a list of records
+     *
+     * @throws IOException if the records have been written to file and cannot be read back
+     */
+    public List<AnnotationDataRecord> toRecords() throws IOException {
+        load();
+        List<AnnotationDataRecord> records = new ArrayList<AnnotationDataRecord>(size);
+
+        for (int i = 0; i < size; i++) {
+            if (parents[i] < 0) {
+                records.add(createRecord(i));
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Recreates the groups of records.
+     *
+     * @return a list of groups of records
+     *
+     * @throws IOException if the records have been written to file and cannot be read back
+     */
+    public List<List<AnnotationDataRecord>> toGroups() throws IOException {
+        load();
+        List<List<AnnotationDataRecord>> groups = new ArrayList<List<AnnotationDataRecord>>(numGroups);
+
+        for (int g = 0; g < numGroups; g++) {
+            int end = g < numGroups - 1 ? groupStarts[g + 1] : size;
+            List<AnnotationDataRecord> group = new ArrayList<AnnotationDataRecord>(end - groupStarts[g]);
+            for (int i = groupStarts[g]; i < end; i++) {
+                group.add(createRecord(i));
+            }
+            groups.add(group);
+        }
+
+        return groups;
+    }
+
+    private AnnotationDataRecord createRecord(int i) {
+        AnnotationDataRecord record = new AnnotationDataRecord(stringAt(tierNames[i]), stringAt(values[i]),
+                                                               beginTimes[i], endTimes[i]);
+        record.setBeginTime(beginTimes[i]);
+        record.setEndTime(endTimes[i]);
+        record.setBeginTimeAligned((alignedFlags[i] & BEGIN_ALIGNED) != 0);
+        record.setEndTimeAligned((alignedFlags[i] & END_ALIGNED) != 0);
+        record.setId(stringAt(ids[i]));
+        record.setCvEntryId(stringAt(cvEntryIds[i]));
+        record.setFilePath(stringAt(filePaths[i]));
+        ExternalReference extRef = extRefs.get(i);
+        if (extRef != null) {
+            try {
+                // every recreated record gets its own copy, as the original records did
+                record.setExtRef(extRef.clone());
+            } catch (CloneNotSupportedException cnse) {
+                record.setExtRef(extRef);
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * Returns an estimate of the number of bytes of memory used by this store. A store that has been written to a
+     * temporary file uses hardly any memory.
+     *
+     * @return the estimated memory use in bytes
+     */
+    public long getMemoryUsage() {
+        if (spillFile != null) {
+            return OBJECT_OVERHEAD;
+        }
+        long capacity = beginTimes.length;
+
+        return 8 * OBJECT_OVERHEAD + capacity * (8 + 8 + 4 + 1 + 4 * 5) + 4L * groupStarts.length +
+               stringBytes + (long) strings.size() * 3 * OBJECT_OVERHEAD +
+               (long) extRefs.size() * 4 * OBJECT_OVERHEAD;
+    }
+
+    /**
+     * @return {@code true} if the records are currently stored in a temporary file
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Writes the records to a temporary file and releases the memory. The records are read back from the file when
+     * they are requested or when records are added.
+     *
+     * @return {@code true} if the records have been written to file
+     */
+    public boolean spill() {
+        if (spillFile != null) {
+            return true;
+        }
+        trimToSize();
+        File file = null;
+
+        try {
+            file = File.createTempFile("elan-undo-", ".tmp");
+            file.deleteOnExit();
+            try (ObjectOutputStream out = new ObjectOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeInt(size);
+                out.writeInt(numGroups);
+                out.writeObject(beginTimes);
+                out.writeObject(endTimes);
+                out.writeObject(parents);
+                out.writeObject(alignedFlags);
+                out.writeObject(tierNames);
+                out.writeObject(values);
+                out.writeObject(ids);
+                out.writeObject(cvEntryIds);
+                out.writeObject(filePaths);
+                out.writeObject(groupStarts);
+                out.writeObject(strings.toArray(new String[0]));
+                out.writeObject(new HashMap<Integer, ExternalReference>(extRefs));
+            }
+        } catch (IOException ioe) {
+            LOG.warning("Could not write undo data to a temporary file: " + ioe.getMessage());
+            if (file != null) {
+                file.delete();
+            }
+            return false;
+        }
+
+        spillFile = file;
+        beginTimes = null;
+        endTimes = null;
+        parents = null;
+        alignedFlags = null;
+        tierNames = null;
+        values = null;
+        ids = null;
+        cvEntryIds = null;
+        filePaths = null;
+        groupStarts = null;
+        strings = null;
+        stringIndexes = null;
+        extRefs = null;
+
+        return true;
+    }
+
+    /**
+     * @return the temporary file the records have been written to, or {@code null}
+     */
+    File getSpillFile() {
+        return spillFile;
+    }
+
+    private void loadForAdding() {
+        try {
+            load();
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    /**
+     * Reads the records back from the temporary file, if they have been written to file. If that fails the store
+     * remains in the written state, so that every later request fails as well.
+     *
+     * @throws IOException if the file cannot be read or does not contain the expected data
+     */
+    @SuppressWarnings("unchecked")
+    private void load() throws IOException {
+        if (spillFile == null) {
+            return;
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(
+            new BufferedInputStream(new FileInputStream(spillFile)))) {
+            size = in.readInt();
+            numGroups = in.readInt();
+            beginTimes = (long[]) in.readObject();
+            endTimes = (long[]) in.readObject();
+            parents = (int[]) in.readObject();
+            alignedFlags = (byte[]) in.readObject();
+            tierNames = (int[]) in.readObject();
+            values = (int[]) in.readObject();
+            ids = (int[]) in.readObject();
+            cvEntryIds = (int[]) in.readObject();
+            filePaths = (int[]) in.readObject();
+            groupStarts = (int[]) in.readObject();
+            strings = new ArrayList<String>(Arrays.asList((String[]) in.readObject()));
+            extRefs = (Map<Integer, ExternalReference>) in.readObject();
+        } catch (IOException ioe) {
+            LOG.warning("Could not read undo data from a temporary file: " + ioe.getMessage());
+            throw ioe;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            LOG.warning("Could not read undo data from a temporary file: " + e.getMessage());
+            throw new IOException("The undo data file is corrupt: " + spillFile.getName(), e);
+        }
+
+        stringIndexes = new HashMap<String, Integer>();
+        for (int i = 0; i < strings.size(); i++) {
+            stringIndexes.put(strings.get(i), i);
+        }
+        spillFile.delete();
+        spillFile = null;
+    }
+
+    /**
+     * Deletes the temporary file, if there is one, and releases the memory. The store is empty afterwards.
+     */
+    public void discard() {
+        if (spillFile != null) {
+            spillFile.delete();
+            spillFile = null;
+        }
+        size = 0;
+        numGroups = 0;
+        allocate(1);
+        groupStarts = new int[4];
+        strings = new ArrayList<String>();
+        stringIndexes = new HashMap<String, Integer>();
+        extRefs = new HashMap<Integer, ExternalReference>(4);
+        stringBytes = 0;
+    }
+}
@@ -269,20 +269,7 @@ public class CorpusECVUpdater {
 					t.setNotifying(false);
 					t.setUnchanged();
 					
-					if (t.getControlledVocabularies().size() > 0) {
-						boolean allCVSReplaced = true;
-						if (urlMap != null) {
-							allCVSReplaced = updateAlreadyLoadedCVS(urlMap, t);
-						} 
-						if (urlMap == null || !allCVSReplaced) {
-							TranscriptionECVLoader tl = new TranscriptionECVLoader();
-							tl.loadExternalCVs(t, null, false);
-							updateAnnotations(t);
-							
-							urlMap = new HashMap<String, List<ExternalCV>>(tl.getLoadedECVMap());
-							removeACMEditableObjects(urlMap);
-						}
-					}
+					updateTranscription(t);
 					
 					if (outputFolder == null) {
 						if (t.isChanged()) {
@@ -332,6 +319,42 @@ public class CorpusECVUpdater {
 		}
 	}
 	
+	/**
+	 * Updates the annotations of a single, loaded transcription based on the
+	 * external controlled vocabularies it refers to. ECV's that have been
+	 * loaded for previous transcriptions are reused. The transcription is 
+	 * not saved.
+	 * <p>
+	 * An instance of this class is not thread safe, concurrent processing
+	 * requires an updater per thread.
+	 * 
+	 * @param t the transcription to update, the changed flag should be reset
+	 * before calling this method
+	 * @return true if the transcription has been changed
+	 */
+	public boolean updateTranscription(TranscriptionImpl t) {
+		if (unknownAnnotations == null) {
+			unknownAnnotations = new HashMap<String, Integer>();
+		}
+		
+		if (t.getControlledVocabularies().size() > 0) {
+			boolean allCVSReplaced = true;
+			if (urlMap != null) {
+				allCVSReplaced = updateAlreadyLoadedCVS(urlMap, t);
+			} 
+			if (urlMap == null || !allCVSReplaced) {
+				TranscriptionECVLoader tl = new TranscriptionECVLoader();
+				tl.loadExternalCVs(t, null, false);
+				updateAnnotations(t);
+				
+				urlMap = new HashMap<String, List<ExternalCV>>(tl.getLoadedECVMap());
+				removeACMEditableObjects(urlMap);
+			}
+		}
+		
+		return t.isChanged();
+	}
+	
 	/**
 	 * Removes <b>ACMEditableObject</b>s from ECVs
 	 * 
@@ -561,6 +584,17 @@ public class CorpusECVUpdater {
 		this.recursive = recursive;
 	}
 	
+	/**
+	 * Sets the language to select from the CV's, overriding the language
+	 * of the tiers.
+	 * 
+	 * @param forcedLanguage the language identifier, usually a 3-letter
+	 * code, or null
+	 */
+	public void setForcedLanguage(String forcedLanguage) {
+		this.forcedLanguage = forcedLanguage;
+	}
+	
 	/**
 	 * Setter method for cancel
 	 */
@@ -20,6 +20,9 @@ import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.AlignableAnnotation;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
 import mpi.eudico.server.corpora.clomimpl.type.Constraint;
+import mpi.eudico.util.jfr.ViewerPaintEvent;
+
+import java.awt.Graphics;
 
 import javax.swing.JComponent;
 
@@ -45,6 +48,20 @@ public abstract class AbstractViewer extends JComponent
     public AbstractViewer() {
 		super();
 	}
+
+    /**
+     * Paints the viewer, recording a {@link ViewerPaintEvent} if the paint
+     * operation is slow and a flight recording is running.
+     *
+     * @param g the graphics context
+     */
+    @Override
+	public void paint(Graphics g) {
+    	ViewerPaintEvent paintEvent = new ViewerPaintEvent();
+    	paintEvent.begin();
+    	super.paint(g);
+    	paintEvent.finish(this, false);
+    }
     
     // ControllerListener methods
 
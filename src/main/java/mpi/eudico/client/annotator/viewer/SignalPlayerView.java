@@ -47,11 +47,14 @@ import mpi.eudico.client.mediacontrol.ControllerEvent;
 import mpi.eudico.client.mediacontrol.ControllerListener;
 import mpi.eudico.client.mediacontrol.StopEvent;
 import mpi.eudico.client.mediacontrol.TimeEvent;
+import mpi.eudico.client.util.MediaSampleRegistry;
+import mpi.eudico.client.util.SharedSamplesCursor;
 import mpi.eudico.client.util.WAVCuePoint;
 import mpi.eudico.client.util.WAVHeader;
 import mpi.eudico.client.util.WAVSamplesProvider;
 import mpi.eudico.client.util.WAVSampler;
 import mpi.eudico.util.TimeFormatter;
+import nl.mpi.media.UnsupportedMediaException;
 
 /**
  * Variant of the {@link SignalViewer} with a direct link to a media player,
@@ -390,8 +393,8 @@ public class SignalPlayerView extends TimeScaleBasedViewer
     private void initLoad(String sourcePath) {
 
         try {
-            samp = new WAVSampler(sourcePath);
-        } catch (IOException ioe) {
+            samp = MediaSampleRegistry.getInstance().acquire(sourcePath, () -> new WAVSampler(sourcePath));
+        } catch (IOException | UnsupportedMediaException ioe) {
             System.out.println("Failed to create a WAVSampler");
             errorKey = ElanLocale.getString("SignalViewer.Message.NoReader") + ": " + ioe.getMessage();
         }
@@ -760,13 +763,17 @@ public class SignalPlayerView extends TimeScaleBasedViewer
      * @param big2g the graphics object
      */
     private void drawCuePoints(Graphics2D big2g) {
-    	// change this test again when/once other WAVSamplesProviders are supported
-    	//if (!(samp instanceof WAVSampler)) {
-    	if (samp == null) {
+    	WAVHeader header = null;
+    	if (samp instanceof WAVSampler) {
+    		header = ((WAVSampler) samp).getWavHeader();
+    	} else if (samp instanceof SharedSamplesCursor) {
+    		header = ((SharedSamplesCursor) samp).getWavHeader();
+    	}
+    	if (header == null) {
     		return;
 		}
 		
-        WAVCuePoint[] cuePoints = ((WAVSampler) samp).getWavHeader().getCuePoints();
+        WAVCuePoint[] cuePoints = header.getCuePoints();
 
         if (cuePoints.length > 0) {
             big2d.setStroke(new BasicStroke(1.0f, BasicStroke.CAP_SQUARE,
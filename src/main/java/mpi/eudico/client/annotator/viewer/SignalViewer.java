@@ -62,12 +62,16 @@ import mpi.eudico.client.mediacontrol.ControllerEvent;
 import mpi.eudico.client.mediacontrol.StopEvent;
 import mpi.eudico.client.mediacontrol.TimeEvent;
 import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+import mpi.eudico.client.util.MediaSampleRegistry;
+import mpi.eudico.client.util.SharedSamplesCursor;
 import mpi.eudico.client.util.WAVCuePoint;
 import mpi.eudico.client.util.WAVHeader;
 import mpi.eudico.client.util.WAVSamplesProvider;
 import mpi.eudico.server.corpora.clomimpl.abstr.MediaDescriptor;
 import mpi.eudico.client.util.WAVSampler;
 import mpi.eudico.util.TimeFormatter;
+import mpi.eudico.util.jfr.ViewerPaintEvent;
+import nl.mpi.media.UnsupportedMediaException;
 import nl.mpi.util.FileUtility;
 
 /**
@@ -466,6 +470,9 @@ public class SignalViewer extends TimeScaleBasedViewer
      */
     public void setMediaSampler(WAVSamplesProvider sampler, MediaDescriptor mediaDescriptor) {
     	if (sampler != null) {
+    		if (samp != null && samp != sampler) {
+    			samp.close();
+    		}
     		samp = sampler;
     		mediaFilePath = sampler.getMediaLocation();
     		// treat the path the same as in setMedia(String)?
@@ -569,11 +576,14 @@ public class SignalViewer extends TimeScaleBasedViewer
      * @param sourcePath the URL of the source file as a String
      */
     private void initSampler(String sourcePath) {
+        if (samp != null) {
+            samp.close();
+        }
         samp = null;
         errorKey = null;
 
         try {
-            samp = new WAVSampler(sourcePath);
+            samp = MediaSampleRegistry.getInstance().acquire(sourcePath, () -> new WAVSampler(sourcePath));
             
             short compr = samp.getCompressionCode();
 			if (compr != WAVHeader.WAVE_FORMAT_UNCOMPRESSED && 
@@ -591,7 +601,7 @@ public class SignalViewer extends TimeScaleBasedViewer
     				LOG.info(sb.toString());
     			}
             }// else log some header info
-        } catch (IOException ioe) {
+        } catch (IOException | UnsupportedMediaException ioe) {
         	if (LOG.isLoggable(Level.INFO)) {
     			LOG.log(Level.INFO, "Failed to create a WAVSampler " + ioe.getMessage());
     		}
@@ -916,6 +926,17 @@ public class SignalViewer extends TimeScaleBasedViewer
 
     }
 
+    /**
+     * Paints to the buffer, see {@link #doPaintBuffer()}, recording a
+     * {@link ViewerPaintEvent} if painting is slow.
+     */
+    private void paintBuffer() {
+    	ViewerPaintEvent paintEvent = new ViewerPaintEvent();
+    	paintEvent.begin();
+    	doPaintBuffer();
+    	paintEvent.finish(this, true);
+    }
+
     /**
      * Paint to the BufferedImage. 
      * This is necessary in the following situations:<ul>
@@ -927,7 +948,7 @@ public class SignalViewer extends TimeScaleBasedViewer
      * <li> the MONO - STEREO mode has been changed
      * </ul>
      */
-    private void paintBuffer() {
+    private void doPaintBuffer() {
     	int curWidth = getViewWidth();
     	int curHeight = getViewHeight();
     	
@@ -1135,11 +1156,17 @@ public class SignalViewer extends TimeScaleBasedViewer
      * @param big2g the graphics context
      */
     private void drawCuePoints(Graphics2D big2g) {
-    	if (!(samp instanceof WAVSampler)) {
+    	WAVHeader header = null;
+    	if (samp instanceof WAVSampler) {
+    		header = ((WAVSampler) samp).getWavHeader();
+    	} else if (samp instanceof SharedSamplesCursor) {
+    		header = ((SharedSamplesCursor) samp).getWavHeader();
+    	}
+    	if (header == null) {
     		return;
 		}
 		
-        WAVCuePoint[] cuePoints = ((WAVSampler) samp).getWavHeader().getCuePoints();
+        WAVCuePoint[] cuePoints = header.getCuePoints();
 
         if (cuePoints.length > 0) {
             big2g.setStroke(new BasicStroke(1.0f, BasicStroke.CAP_SQUARE,
@@ -34,6 +34,7 @@ import mpi.eudico.client.annotator.ViewerManager2;
 import mpi.eudico.client.annotator.gui.SpectrogramSettingsDialog;
 import mpi.eudico.client.mediacontrol.ControllerEvent;
 import mpi.eudico.client.mediacontrol.StopEvent;
+import mpi.eudico.client.util.MediaSampleRegistry;
 import mpi.eudico.client.util.WAVHeader;
 import mpi.eudico.client.util.WAVSampler;
 import mpi.eudico.client.util.WAVSamplesProvider;
@@ -44,6 +45,7 @@ import nl.mpi.media.spectrogram.ImageCreator;
 import nl.mpi.media.spectrogram.SpectrogramSettings;
 import nl.mpi.media.spectrogram.SpectrogramSettings.FREQ_CHANNEL;
 import nl.mpi.media.spectrogram.SpectrogramSettings.AMPL_UNIT;
+import nl.mpi.media.UnsupportedMediaException;
 import nl.mpi.util.FileUtility;
 import nl.mpi.media.spectrogram.WindowFunction;
 
@@ -213,6 +215,9 @@ public class SpectrogramViewer extends DefaultTimeScaleBasedViewer implements It
      */
     public void setMediaSampler(WAVSamplesProvider sampler, MediaDescriptor mediaDescriptor) {
     	if (sampler != null) {
+    		if (mediaSampler != null && mediaSampler != sampler) {
+    			mediaSampler.close();
+    		}
     		mediaSampler = sampler;
     		mediaFilePath = sampler.getMediaLocation();
     		// treat the path the same as in setMedia(String)?
@@ -246,11 +251,14 @@ public class SpectrogramViewer extends DefaultTimeScaleBasedViewer implements It
      * @param sourcePath the URL of the source file as a String
      */
     private void initSampler(String sourcePath) {
+        if (mediaSampler != null) {
+            mediaSampler.close();
+        }
         mediaSampler = null;
         errorKey = null;
 
         try {
-        	mediaSampler = new WAVSampler(sourcePath);
+        	mediaSampler = MediaSampleRegistry.getInstance().acquire(sourcePath, () -> new WAVSampler(sourcePath));
             
             short compr = mediaSampler.getCompressionCode();
 			if (compr != WAVHeader.WAVE_FORMAT_UNCOMPRESSED && 
@@ -270,7 +278,7 @@ public class SpectrogramViewer extends DefaultTimeScaleBasedViewer implements It
 			specSettings.setSampleFrequency(mediaSampler.getSampleFrequency());
 			specSettings.setPossibleMaxFrequency(mediaSampler.getSampleFrequency() / 2d);
 			//System.out.println("Sampler max amplitude: " + mediaSampler.getPossibleMaxSample());
-        } catch (IOException ioe) {
+        } catch (IOException | UnsupportedMediaException ioe) {
         	if (LOG.isLoggable(Level.INFO)) {
     			LOG.log(Level.INFO, "Failed to create a WAVSampler " + ioe.getMessage());
     		}
@@ -1353,6 +1361,17 @@ public class SpectrogramViewer extends DefaultTimeScaleBasedViewer implements It
 		globalPrefsInited = true;
 		recreateSpectrogramImage();
 	}
+	
+    /**
+     * Releases the samples provider, the shared samples of the media file
+     * are released when no other viewer uses them.
+     */
+    @Override
+	protected void finalize() {
+        if (mediaSampler != null) {
+            mediaSampler.close();
+        }
+    }
 	 
 	/** 
 	 * A class to collect and store data concerning the current or latest 
@@ -109,6 +109,7 @@ import mpi.eudico.server.corpora.event.ACMEditListener;
 import mpi.eudico.util.CVEntry;
 import mpi.eudico.util.ControlledVocabulary;
 import mpi.eudico.util.TimeFormatter;
+import mpi.eudico.util.jfr.ViewerPaintEvent;
 
 
 /**
@@ -773,12 +774,23 @@ public class TimeLineViewer extends TimeScaleBasedViewer
         return line;
     }
 
+    /**
+     * Paints to the buffer, see {@link #doPaintBuffer()}, recording a
+     * {@link ViewerPaintEvent} if painting is slow.
+     */
+    private void paintBuffer() {
+    	ViewerPaintEvent paintEvent = new ViewerPaintEvent();
+    	paintEvent.begin();
+    	doPaintBuffer();
+    	paintEvent.finish(this, true);
+    }
+
     /**
      * Paint to a buffer.
      * First paint the top ruler, next the current selection and finally paint
      * the tags of the visible tiers.
      */
-    private void paintBuffer() {
+    private void doPaintBuffer() {
     	if (!useBufferedImage /* && !playerIsPlaying() */) {
     		repaint();
     		return;
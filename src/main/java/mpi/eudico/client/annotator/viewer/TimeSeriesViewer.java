@@ -56,6 +56,7 @@ import mpi.eudico.client.mediacontrol.StopEvent;
 import mpi.eudico.client.mediacontrol.TimeEvent;
 import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.util.jfr.ViewerPaintEvent;
 
 
 /**
@@ -355,11 +356,22 @@ public class TimeSeriesViewer extends DefaultTimeScaleBasedViewer
         }
     }
 
+    /**
+     * Paints to the buffer, see {@link #doPaintBuffer()}, recording a
+     * {@link ViewerPaintEvent} if painting is slow.
+     */
+    private void paintBuffer() {
+    	ViewerPaintEvent paintEvent = new ViewerPaintEvent();
+    	paintEvent.begin();
+    	doPaintBuffer();
+    	paintEvent.finish(this, true);
+    }
+
     /**
      * Paint to a buffer.
      * First paint the top ruler, next the annotations of the current tier.
      */
-    private void paintBuffer() {
+    private void doPaintBuffer() {
         if ((getWidth() <= 0) || (getHeight() <= 0)) {
             return;
         }
@@ -0,0 +1,237 @@
+package mpi.eudico.client.mediacontrol;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
+/**
+ * Delivers ControllerEvents to ControllerListeners on a shared set of
+ * threads, replacing a new thread per event per listener.
+ * <p>
+ * Each listener has a mailbox: the events for a listener are delivered one
+ * at a time and in the order in which they were posted, also if they are
+ * posted by different controllers. Different listeners are served
+ * concurrently by a fixed number of threads. A {@link TimeEvent} carries no information other than its
+ * source, therefore a pending TimeEvent is dropped when a newer TimeEvent
+ * of the same source is posted to the same listener before it has been
+ * delivered (as long as no other type of event is pending after it). A slow
+ * listener thus receives the most recent time event instead of a backlog.
+ * <p>
+ * The dispatcher keeps track of the number of delivered and dropped events
+ * and of the dispatch lag, the time between posting an event and the start
+ * of its delivery.
+ */
+public final class ControllerEventDispatcher {
+	/** the maximum number of events delivered to a listener before the thread is yielded to other listeners */
+	private static final int MAX_EVENTS_PER_RUN = 16;
+	/** the number of delivery threads */
+	private static final int NUM_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors());
+	private static final ControllerEventDispatcher instance = new ControllerEventDispatcher();
+
+	private final ExecutorService executor;
+	// the mailbox should not hold a reference to its listener, the listener is the weak key
+	private final Map<ControllerListener, Mailbox> mailboxes = new WeakHashMap<ControllerListener, Mailbox>();
+
+	private final LongAdder numDelivered = new LongAdder();
+	private final LongAdder numDropped = new LongAdder();
+	private final LongAdder totalLagNanos = new LongAdder();
+	private final AtomicLong maxLagNanos = new AtomicLong();
+
+	private ControllerEventDispatcher() {
+		// a fixed number of threads; there is at most one task per listener in the queue,
+		// a listener that blocks occupies one of the threads until it returns
+		final AtomicInteger threadCount = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(NUM_THREADS, r -> {
+			Thread t = new Thread(r, "EventPoster-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Returns the shared dispatcher.
+	 *
+	 * @return the dispatcher instance
+	 */
+	public static ControllerEventDispatcher getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Posts an event to a listener. The event is delivered asynchronously.
+	 *
+	 * @param listener the receiver of the event
+	 * @param event the event to deliver
+	 */
+	public void dispatch(ControllerListener listener, ControllerEvent event) {
+		if (listener == null || event == null) {
+			return;
+		}
+		Mailbox mailbox;
+		synchronized (mailboxes) {
+			mailbox = mailboxes.get(listener);
+			if (mailbox == null) {
+				mailbox = new Mailbox();
+				mailboxes.put(listener, mailbox);
+			}
+		}
+		if (mailbox.add(event)) {
+			final Mailbox mb = mailbox;
+			executor.execute(() -> deliver(listener, mb));
+		}
+	}
+
+	/**
+	 * Delivers pending events of a mailbox to its listener, on a pool thread.
+	 */
+	private void deliver(ControllerListener listener, Mailbox mailbox) {
+		for (int i = 0; i < MAX_EVENTS_PER_RUN; i++) {
+			PendingEvent pending = mailbox.next();
+			if (pending == null) {
+				return;
+			}
+			long lag = System.nanoTime() - pending.postTime;
+			numDelivered.increment();
+			totalLagNanos.add(lag);
+			maxLagNanos.accumulateAndGet(lag, Math::max);
+
+			try {
+				listener.controllerUpdate(pending.event);
+			} catch (Throwable t) {
+				if (LOG.isLoggable(Level.WARNING)) {
+					LOG.log(Level.WARNING, "Exception in a controller listener: " + t, t);
+				}
+			}
+		}
+		// there are more events, continue in a new task to give other listeners a turn
+		executor.execute(() -> deliver(listener, mailbox));
+	}
+
+	/**
+	 * Returns the number of events that have been delivered.
+	 *
+	 * @return the number of delivered events
+	 */
+	public long getNumDeliveredEvents() {
+		return numDelivered.sum();
+	}
+
+	/**
+	 * Returns the number of time events that were dropped because a newer
+	 * time event of the same source was posted before they were delivered.
+	 *
+	 * @return the number of dropped events
+	 */
+	public long getNumDroppedEvents() {
+		return numDropped.sum();
+	}
+
+	/**
+	 * Returns the average time between posting an event and the start of
+	 * its delivery.
+	 *
+	 * @return the average dispatch lag in milliseconds
+	 */
+	public double getAverageDispatchLag() {
+		long delivered = numDelivered.sum();
+		return delivered == 0 ? 0 : totalLagNanos.sum() / (delivered * 1000000d);
+	}
+
+	/**
+	 * Returns the maximum time between posting an event and the start of
+	 * its delivery.
+	 *
+	 * @return the maximum dispatch lag in milliseconds
+	 */
+	public double getMaxDispatchLag() {
+		return maxLagNanos.get() / 1000000d;
+	}
+
+	/**
+	 * Resets the delivery and lag counters.
+	 */
+	public void resetStatistics() {
+		numDelivered.reset();
+		numDropped.reset();
+		totalLagNanos.reset();
+		maxLagNanos.set(0);
+	}
+
+	/**
+	 * An event with the time it was posted.
+	 */
+	private static class PendingEvent {
+		final ControllerEvent event;
+		final long postTime;
+
+		PendingEvent(ControllerEvent event, long postTime) {
+			this.event = event;
+			this.postTime = postTime;
+		}
+	}
+
+	/**
+	 * The queue of pending events of a single listener.
+	 */
+	private class Mailbox {
+		private final ArrayDeque<PendingEvent> queue = new ArrayDeque<PendingEvent>(4);
+		private boolean scheduled;
+
+		/**
+		 * Adds an event, possibly replacing a pending time event of the same
+		 * source.
+		 *
+		 * @param event the event
+		 * @return {@code true} if a delivery task has to be scheduled
+		 */
+		synchronized boolean add(ControllerEvent event) {
+			long postTime = System.nanoTime();
+			if (event instanceof TimeEvent) {
+				Iterator<PendingEvent> pendingIt = queue.descendingIterator();
+				while (pendingIt.hasNext()) {
+					PendingEvent pending = pendingIt.next();
+					if (!(pending.event instanceof TimeEvent)) {
+						break;
+					}
+					if (pending.event.getSource() == event.getSource()) {
+						// the lag is measured from the oldest of the coalesced events
+						postTime = pending.postTime;
+						pendingIt.remove();
+						numDropped.increment();
+						break;
+					}
+				}
+			}
+			queue.add(new PendingEvent(event, postTime));
+
+			if (!scheduled) {
+				scheduled = true;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Removes and returns the next event, or marks the mailbox as not
+		 * scheduled if it is empty.
+		 *
+		 * @return the next event or {@code null}
+		 */
+		synchronized PendingEvent next() {
+			PendingEvent pending = queue.poll();
+			if (pending == null) {
+				scheduled = false;
+			}
+			return pending;
+		}
+	}
+}
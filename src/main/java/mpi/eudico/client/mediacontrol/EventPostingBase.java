@@ -56,14 +56,18 @@ public class EventPostingBase {
     }
 
     /**
-     * Posts a ControllerEvent to all registered listeners.
+     * Posts a ControllerEvent to all registered listeners. The event is
+     * delivered asynchronously by the {@link ControllerEventDispatcher}, in
+     * order per listener; a time event that is superseded by a newer time
+     * event before it is delivered, is dropped.
      *
      * @param event the Controller event that has to be posted to all
      *        registered listeners.
      */
     public synchronized void postEvent(ControllerEvent event) {
+        ControllerEventDispatcher dispatcher = ControllerEventDispatcher.getInstance();
         for (ControllerListener cl : listeners) {
-            new EventPoster(cl, event);
+            dispatcher.dispatch(cl, event);
         }
     }
 }
@@ -1,8 +1,30 @@
 package mpi.eudico.client.mediacontrol;
 
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
+
 /**
  * Class that generates periodic TimeEvents. This class must implement the
  * Controller interface in order to be able to be coupled to a Player.
+ * <p>
+ * The events are posted at a fixed rate: the time of each tick is computed
+ * from the start time, so the period does not grow with the time it takes
+ * to post an event. If the clock thread falls behind by one or more periods,
+ * the missed ticks are skipped instead of being posted in a burst.
+ * <p>
+ * Optionally the period can be aligned to the refresh rate of the default
+ * screen, it is then rounded to a whole number of display frames (this can
+ * be switched on for all controllers with the system property
+ * {@code ELAN.Media.AlignUpdatesToDisplayRefresh=true}).
+ * <p>
+ * The controller keeps statistics of the current or most recent run: the
+ * achieved tick rate, the lateness of the ticks and the number of skipped
+ * ticks. Together these show whether the clock can keep up during playback.
  */
 public class PeriodicUpdateController extends EventPostingBase
     implements Controller, Runnable {
@@ -13,17 +35,26 @@ public class PeriodicUpdateController extends EventPostingBase
     private final int STOPPED = 1;
     private long period;
     private float rate;
-    private Thread thread;
+    private volatile Thread thread;
     private volatile int state; // Thread docs advice to use volatile
+    private volatile boolean alignToDisplayRefresh;
     private TimeEvent timeEvent;
     private StartEvent startEvent;
     private StopEvent stopEvent;
 
+    // statistics, written by the clock thread only
+    private volatile long numTicks;
+    private volatile long numSkippedTicks;
+    private volatile long firstTickNanos;
+    private volatile long lastTickNanos;
+    private volatile long totalLatenessNanos;
+    private volatile long maxLatenessNanos;
+
     /**
      * Create a controller that must be connected to an ElanMediaPlayer and that
-     * calls {@code controllerUpdate} on its connected listeners every {@code t} 
+     * calls {@code controllerUpdate} on its connected listeners every {@code t}
      * milliseconds.
-     * 
+     *
      * @param period the number of milliseconds between posts
      */
     public PeriodicUpdateController(long period) {
@@ -33,6 +64,9 @@ public class PeriodicUpdateController extends EventPostingBase
         // initially the controller is not running
         state = STOPPED;
 
+        alignToDisplayRefresh = Boolean.parseBoolean(
+                System.getProperty("ELAN.Media.AlignUpdatesToDisplayRefresh"));
+
         // create the events
         timeEvent = new TimeEvent(this);
         startEvent = new StartEvent(this);
@@ -44,23 +78,53 @@ public class PeriodicUpdateController extends EventPostingBase
      */
     @Override
 	public void run() {
-        long n = 0;
+        final Thread current = Thread.currentThread();
+        final long periodNanos = getEffectivePeriodNanos();
+        long nextTick = System.nanoTime();
 
-        // the run Thread started so set the state accordingly
-        state = STARTED;
+        numTicks = 0;
+        numSkippedTicks = 0;
+        totalLatenessNanos = 0;
+        maxLatenessNanos = 0;
+        firstTickNanos = nextTick;
+        lastTickNanos = nextTick;
+
+        // a stop() followed by a start() replaces the thread, the old thread then ends
+        while (state == STARTED && thread == current) {
+            long now = System.nanoTime();
+            long lateness = now - nextTick;
 
-        while (state == STARTED) {
             // send a TimeEvent to the connected ControllerListeners
             postEvent(timeEvent);
 
-            // sleep period milli seconds
-            if (!Thread.currentThread().isInterrupted()) {
-                // sleep until next event
-                try {
-                    Thread.sleep(period);
-                } catch (InterruptedException e) {
-                }
+            numTicks++;
+            lastTickNanos = now;
+            totalLatenessNanos += lateness;
+            if (lateness > maxLatenessNanos) {
+                maxLatenessNanos = lateness;
+            }
+
+            nextTick += periodNanos;
+            now = System.nanoTime();
+            if (now - nextTick >= periodNanos) {
+                // more than a period behind, skip the missed ticks
+                long missed = (now - nextTick) / periodNanos;
+                nextTick += missed * periodNanos;
+                numSkippedTicks += missed;
             }
+
+            // wait until the next tick, parkNanos can return early
+            long wait;
+            while ((wait = nextTick - System.nanoTime()) > 0 && state == STARTED
+                    && !Thread.interrupted()) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+
+        if (LOG.isLoggable(Level.FINE) && numTicks > 1) {
+            LOG.fine(String.format("PeriodicUpdateController (%d ms): %.1f ticks/s, lateness avg. %.2f ms, max. %.2f ms, %d skipped",
+                    getEffectivePeriod(), getAchievedTickRate(), getAverageLateness(),
+                    getMaxLateness(), numSkippedTicks));
         }
     }
 
@@ -69,9 +133,9 @@ public class PeriodicUpdateController extends EventPostingBase
      */
     @Override
 	public void setStopTime(long time) {
-    	
+
     }
-    
+
     /**
      * Notify listeners of a time event.
      * Calls {@code #postEvent(ControllerEvent)} with a single {@code TimeEvent}
@@ -125,7 +189,125 @@ public class PeriodicUpdateController extends EventPostingBase
         postEvent(startEvent);
 
         // start the run method
+        state = STARTED;
         thread = new Thread(this, "PeriodicUpdateController");
         thread.start();
     }
+
+    /**
+     * Sets whether the period should be aligned to the refresh rate of the
+     * default screen. Takes effect the next time the controller is started.
+     *
+     * @param align if {@code true} the period is rounded to a whole number
+     * of display frames
+     */
+    public void setAlignToDisplayRefresh(boolean align) {
+        alignToDisplayRefresh = align;
+    }
+
+    /**
+     * Returns whether the period is aligned to the display refresh rate.
+     *
+     * @return {@code true} if the period is rounded to a whole number of
+     * display frames
+     */
+    public boolean isAlignToDisplayRefresh() {
+        return alignToDisplayRefresh;
+    }
+
+    /**
+     * Returns the period between ticks, taking alignment to the display
+     * refresh rate into account.
+     *
+     * @return the period in milliseconds (rounded), the requested period if
+     * alignment is off or the refresh rate is unknown
+     */
+    public long getEffectivePeriod() {
+        return Math.round(getEffectivePeriodNanos() / 1000000d);
+    }
+
+    /**
+     * Returns the period between ticks in nanoseconds, a frame duration is
+     * not a whole number of milliseconds.
+     *
+     * @return the period in nanoseconds
+     */
+    private long getEffectivePeriodNanos() {
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, period));
+        if (!alignToDisplayRefresh) {
+            return periodNanos;
+        }
+        int refreshRate = getDisplayRefreshRate();
+        if (refreshRate <= 0) {
+            return periodNanos;
+        }
+        // a whole number of frames, at least one
+        long frameNanos = TimeUnit.SECONDS.toNanos(1) / refreshRate;
+        long frames = Math.max(1, Math.round(periodNanos / (double) frameNanos));
+
+        return frames * frameNanos;
+    }
+
+    /**
+     * Returns the refresh rate of the default screen.
+     *
+     * @return the refresh rate in Hz or {@link DisplayMode#REFRESH_RATE_UNKNOWN}
+     */
+    private static int getDisplayRefreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return DisplayMode.REFRESH_RATE_UNKNOWN;
+        }
+        try {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDisplayMode().getRefreshRate();
+        } catch (Throwable t) {
+            return DisplayMode.REFRESH_RATE_UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns the number of ticks per second achieved in the current or most
+     * recent run.
+     *
+     * @return the achieved tick rate, 0 if there have been fewer than two ticks
+     */
+    public double getAchievedTickRate() {
+        long ticks = numTicks;
+        long elapsed = lastTickNanos - firstTickNanos;
+        if (ticks < 2 || elapsed <= 0) {
+            return 0;
+        }
+        return (ticks - 1) * 1000000000d / elapsed;
+    }
+
+    /**
+     * Returns the average time between the scheduled time of a tick and the
+     * time it was actually posted, in the current or most recent run.
+     *
+     * @return the average lateness in milliseconds
+     */
+    public double getAverageLateness() {
+        long ticks = numTicks;
+        return ticks == 0 ? 0 : totalLatenessNanos / (ticks * 1000000d);
+    }
+
+    /**
+     * Returns the maximum time between the scheduled time of a tick and the
+     * time it was actually posted, in the current or most recent run.
+     *
+     * @return the maximum lateness in milliseconds
+     */
+    public double getMaxLateness() {
+        return maxLatenessNanos / 1000000d;
+    }
+
+    /**
+     * Returns the number of ticks that were skipped in the current or most
+     * recent run because the clock had fallen behind by more than a period.
+     *
+     * @return the number of skipped ticks
+     */
+    public long getNumSkippedTicks() {
+        return numSkippedTicks;
+    }
 }
@@ -0,0 +1,625 @@
+package mpi.eudico.client.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+
+import mpi.eudico.client.annotator.Constants;
+import mpi.eudico.client.annotator.util.ClientLogger;
+import nl.mpi.media.AudioExtraction;
+import nl.mpi.media.UnsupportedMediaException;
+
+/**
+ * A disk cache of decoded audio, for media files whose audio has to be
+ * decoded by a native framework (video files, compressed audio). The first
+ * time a file is requested, its audio track is decoded once, in the
+ * background, into a {@code .wav} file in the cache folder. From then on the
+ * samples are read from a memory mapped view of that file instead of being
+ * decoded again for every interval, by each viewer separately.
+ * <p>
+ * Until decoding has finished, reads are delegated to the native extractor.
+ * The cached files are identified by the path, modification time and size of
+ * the media file. The total size of the cache is limited, when it is exceeded
+ * the least recently used files that are not in use are deleted. The maximum
+ * size can be set with the system property
+ * {@code ELAN.DecodedAudioCache.MaxSizeMB}, a value of {@code 0} disables the
+ * cache.
+ */
+public class DecodedAudioCache implements ClientLogger {
+	/** the default maximum size of the cache in bytes */
+	public static final long DEFAULT_MAX_SIZE = 4L * 1024 * 1024 * 1024;
+	private static final String CACHE_FOLDER_NAME = "DecodedAudio";
+	private static final String EXT = ".wav";
+	private static final int WAV_HEADER_SIZE = 44;
+	/** the number of seconds decoded in one call to the extractor */
+	private static final int DECODE_CHUNK_SEC = 10;
+	/** the maximum size of a single mapped segment, a multiple of the block
+	 * align value is used */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private static DecodedAudioCache instance;
+
+	private final File cacheDir;
+	private volatile long maxSize;
+	private final Map<String, CacheEntry> entries = new HashMap<String, CacheEntry>();
+	private final ExecutorService decodeExecutor;
+
+	/**
+	 * A factory for the extractor that decodes a media file in the background.
+	 * The extractor of the sampler cannot be used for this, the native
+	 * extractors should not be used by different threads concurrently.
+	 */
+	public interface ExtractorFactory {
+		/**
+		 * Creates a new extractor for a media file.
+		 *
+		 * @param mediaPath the path of the media file
+		 * @return a new extractor, released by the cache after decoding
+		 * @throws UnsupportedMediaException if the extractor cannot be created
+		 */
+		AudioExtraction createExtractor(String mediaPath) throws UnsupportedMediaException;
+	}
+
+	/**
+	 * Creates a cache in the specified folder.
+	 *
+	 * @param cacheDir the folder for the decoded files
+	 * @param maxSize the maximum total size of the files in bytes
+	 */
+	public DecodedAudioCache(File cacheDir, long maxSize) {
+		super();
+		this.cacheDir = cacheDir;
+		this.maxSize = maxSize;
+		decodeExecutor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "DecodedAudioCache");
+			t.setDaemon(true);
+			t.setPriority(Thread.MIN_PRIORITY);
+			return t;
+		});
+	}
+
+	/**
+	 * Returns the shared cache, in the ELAN data folder.
+	 *
+	 * @return the cache instance
+	 */
+	public static synchronized DecodedAudioCache getInstance() {
+		if (instance == null) {
+			long max = DEFAULT_MAX_SIZE;
+			String prop = System.getProperty("ELAN.DecodedAudioCache.MaxSizeMB");
+			if (prop != null) {
+				try {
+					max = Long.parseLong(prop.trim()) * 1024 * 1024;
+				} catch (NumberFormatException nfe) {
+					LOG.warning("Invalid value for the decoded audio cache size: " + prop);
+				}
+			}
+			instance = new DecodedAudioCache(new File(Constants.ELAN_DATA_DIR, CACHE_FOLDER_NAME), max);
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the maximum size of the cache.
+	 *
+	 * @return the maximum total size in bytes, {@code 0} if the cache is
+	 * disabled
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Sets the maximum size of the cache, least recently used files are
+	 * deleted if the cache is larger than this.
+	 *
+	 * @param maxSize the maximum total size in bytes, {@code 0} disables the
+	 * cache
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		trim();
+	}
+
+	/**
+	 * Returns an extractor that reads from the cache for the specified media
+	 * file. If the file has not been decoded yet, decoding is started in the
+	 * background and the returned extractor delegates to the specified
+	 * extractor until it has finished.
+	 *
+	 * @param mediaPath the path of the media file
+	 * @param extractor the extractor created for the media file, it is
+	 * released when the returned extractor is released
+	 * @param factory creates the extractor for background decoding
+	 *
+	 * @return an extractor for the media file, the specified extractor if the
+	 * file cannot be cached (e.g. a remote file or a disabled cache)
+	 */
+	public AudioExtraction getCachedExtraction(String mediaPath, AudioExtraction extractor,
+			ExtractorFactory factory) {
+		if (maxSize <= 0 || mediaPath == null || extractor == null) {
+			return extractor;
+		}
+		File mediaFile = new File(mediaPath);
+		if (!mediaFile.isFile()) {
+			return extractor;
+		}
+		int blockAlign = extractor.getNumberOfChannels() * (extractor.getBitsPerSample() / 8);
+		long expectedSize = WAV_HEADER_SIZE +
+				(long) (extractor.getDurationSec() * extractor.getSampleFrequency()) * blockAlign;
+		if (blockAlign <= 0 || expectedSize > maxSize) {
+			return extractor;
+		}
+
+		String key = createKey(mediaFile);
+		CacheEntry entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+			if (entry != null && entry.failed) {
+				// not tried again as long as the file is in use
+				return extractor;
+			}
+			if (entry == null) {
+				entry = new CacheEntry(key, new File(cacheDir, key + EXT));
+				entries.put(key, entry);
+			}
+			entry.useCount++;
+		}
+
+		if (entry.startLoading()) {
+			final CacheEntry e = entry;
+			final int channels = extractor.getNumberOfChannels();
+			final int frequency = extractor.getSampleFrequency();
+			final int bitsPerSample = extractor.getBitsPerSample();
+			if (!e.file.isFile() || !e.open(channels, frequency, bitsPerSample)) {
+				decodeExecutor.execute(() -> decode(e, mediaPath, channels, frequency, bitsPerSample, factory));
+			}
+		}
+
+		return new CachedExtraction(entry, extractor);
+	}
+
+	/**
+	 * Returns the total size of the files in the cache folder.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getCacheSize() {
+		long size = 0;
+		for (File f : listCacheFiles()) {
+			size += f.length();
+		}
+		return size;
+	}
+
+	/**
+	 * Deletes all cached files that are not in use.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			for (File f : listCacheFiles()) {
+				if (!isInUse(f)) {
+					f.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes the audio of a media file into the file of the entry, on the
+	 * decoding thread.
+	 */
+	private void decode(CacheEntry entry, String mediaPath, int expChannels, int expFrequency,
+			int expBitsPerSample, ExtractorFactory factory) {
+		AudioExtraction decoder = null;
+		File tmpFile = null;
+		long start = System.currentTimeMillis();
+		try {
+			if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+				throw new IOException("Cannot create the cache folder " + cacheDir);
+			}
+			decoder = factory.createExtractor(mediaPath);
+			int frequency = decoder.getSampleFrequency();
+			int channels = decoder.getNumberOfChannels();
+			int bitsPerSample = decoder.getBitsPerSample();
+			int formatTag = decoder.getFormatTag();
+			int blockAlign = channels * (bitsPerSample / 8);
+			if (frequency != expFrequency || channels != expChannels ||
+					bitsPerSample != expBitsPerSample || blockAlign <= 0) {
+				throw new IOException("The decoder reports different audio properties");
+			}
+			long totalSamples = (long) (decoder.getDurationSec() * frequency);
+			int chunkSamples = DECODE_CHUNK_SEC * frequency;
+			byte[] chunk = new byte[chunkSamples * blockAlign];
+
+			tmpFile = File.createTempFile(entry.key, ".tmp", cacheDir);
+			try (FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.WRITE)) {
+				// the header is written again when the size of the data is known
+				out.write(createHeader(formatTag, channels, frequency, bitsPerSample, 0), 0);
+				out.position(WAV_HEADER_SIZE);
+				long dataSize = 0;
+
+				for (long s = 0; s < totalSamples; s += chunkSamples) {
+					if (entry.isUnused()) {
+						throw new IOException("Decoding cancelled, the file is no longer in use");
+					}
+					int numSamples = (int) Math.min(chunkSamples, totalSamples - s);
+					int numBytes = numSamples * blockAlign;
+					byte[] decoded = decoder.getSamples(s / (double) frequency,
+							(s + numSamples) / (double) frequency);
+					if (decoded == null) {
+						break;
+					}
+					// the decoder may deliver somewhat more or fewer bytes than requested
+					int n = Math.min(numBytes, decoded.length);
+					System.arraycopy(decoded, 0, chunk, 0, n);
+					Arrays.fill(chunk, n, numBytes, (byte) 0);
+					ByteBuffer bb = ByteBuffer.wrap(chunk, 0, numBytes);
+					while (bb.hasRemaining()) {
+						out.write(bb);
+					}
+					dataSize += numBytes;
+				}
+				out.write(createHeader(formatTag, channels, frequency, bitsPerSample, dataSize), 0);
+			}
+			Files.move(tmpFile.toPath(), entry.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine(String.format("Decoded the audio of %s in %d ms (%d bytes)", mediaPath,
+						System.currentTimeMillis() - start, entry.file.length()));
+			}
+			if (!entry.open(channels, frequency, bitsPerSample)) {
+				throw new IOException("Cannot map the decoded audio file");
+			}
+			trim();
+		} catch (Throwable t) {
+			// the samplers continue to use the native extractor
+			entry.setFailed();
+			if (LOG.isLoggable(Level.INFO)) {
+				LOG.info("Could not cache the decoded audio of " + mediaPath + ": " + t.getMessage());
+			}
+		} finally {
+			if (decoder != null) {
+				try {
+					decoder.release();
+				} catch (Throwable t) {}
+			}
+			if (tmpFile != null && tmpFile.exists()) {
+				tmpFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Deletes least recently used files that are not in use, until the size
+	 * of the cache does not exceed the maximum size.
+	 */
+	private void trim() {
+		synchronized (entries) {
+			List<File> files = listCacheFiles();
+			long size = 0;
+			for (File f : files) {
+				size += f.length();
+			}
+			if (size <= maxSize) {
+				return;
+			}
+			// the modification time of a file is updated when it is opened
+			files.sort((f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()));
+			for (File f : files) {
+				if (size <= maxSize) {
+					break;
+				}
+				if (!isInUse(f)) {
+					long length = f.length();
+					if (f.delete()) {
+						size -= length;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean isInUse(File f) {
+		String name = f.getName();
+		CacheEntry entry = entries.get(name.substring(0, name.length() - EXT.length()));
+		return entry != null && entry.useCount > 0;
+	}
+
+	private List<File> listCacheFiles() {
+		List<File> files = new ArrayList<File>();
+		File[] list = cacheDir.listFiles((dir, name) -> name.endsWith(EXT));
+		if (list != null) {
+			files.addAll(Arrays.asList(list));
+		}
+		return files;
+	}
+
+	/**
+	 * Called when an extractor of an entry is released.
+	 */
+	private void release(CacheEntry entry) {
+		synchronized (entries) {
+			entry.useCount--;
+			if (entry.useCount <= 0 && entries.get(entry.key) == entry) {
+				entries.remove(entry.key);
+				// unmapping is left to the garbage collector
+				entry.segments = null;
+			}
+		}
+	}
+
+	/**
+	 * Creates a file name for a media file from a hash of its path,
+	 * modification time and size. A modified media file is decoded again,
+	 * the old file is eventually removed from the cache.
+	 */
+	private static String createKey(File mediaFile) {
+		String id = mediaFile.getAbsolutePath() + '|' + mediaFile.lastModified() + '|' + mediaFile.length();
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(id.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException nsae) {
+			return Integer.toHexString(id.hashCode()) + Long.toHexString(mediaFile.length());
+		}
+	}
+
+	/**
+	 * Creates a canonical 44 byte WAVE header.
+	 */
+	private static ByteBuffer createHeader(int formatTag, int channels, int frequency, int bitsPerSample,
+			long dataSize) {
+		int blockAlign = channels * (bitsPerSample / 8);
+		ByteBuffer bb = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		bb.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+		bb.putInt((int) Math.min(0xFFFFFFFFL, dataSize + WAV_HEADER_SIZE - 8));
+		bb.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+		bb.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+		bb.putInt(16);
+		bb.putShort((short) (formatTag == WAVHeader.WAVE_FORMAT_IEEE_FLOAT ?
+				WAVHeader.WAVE_FORMAT_IEEE_FLOAT : WAVHeader.WAVE_FORMAT_PCM));
+		bb.putShort((short) channels);
+		bb.putInt(frequency);
+		bb.putInt(frequency * blockAlign);
+		bb.putShort((short) blockAlign);
+		bb.putShort((short) bitsPerSample);
+		bb.put("data".getBytes(StandardCharsets.US_ASCII));
+		bb.putInt((int) Math.min(0xFFFFFFFFL, dataSize));
+		bb.flip();
+		return bb;
+	}
+
+	/**
+	 * The decoded file of a media file and its state.
+	 */
+	private static class CacheEntry {
+		final String key;
+		final File file;
+		/** the number of extractors using the entry, modified while holding the entries map */
+		volatile int useCount;
+		private boolean loading;
+		volatile boolean failed;
+		/** the mapped data chunk, {@code null} until decoding has finished */
+		volatile MappedByteBuffer[] segments;
+		long segmentSize;
+		long dataSize;
+
+		CacheEntry(String key, File file) {
+			this.key = key;
+			this.file = file;
+		}
+
+		/**
+		 * @return {@code true} the first time it is called, the caller then
+		 * opens or decodes the file
+		 */
+		synchronized boolean startLoading() {
+			if (loading) {
+				return false;
+			}
+			loading = true;
+			return true;
+		}
+
+		void setFailed() {
+			failed = true;
+		}
+
+		boolean isUnused() {
+			return useCount <= 0;
+		}
+
+		/**
+		 * Maps the data of the cached file, if its format matches the
+		 * properties reported by the extractor.
+		 *
+		 * @return {@code true} if the file has been mapped
+		 */
+		boolean open(int channels, int frequency, int bitsPerSample) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				ByteBuffer header = ByteBuffer.allocate(WAV_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				while (header.hasRemaining() && channel.read(header) >= 0) {
+					// read the complete header
+				}
+				int blockAlign = channels * (bitsPerSample / 8);
+				if (header.hasRemaining() || header.getShort(22) != channels ||
+						header.getInt(24) != frequency || header.getShort(34) != bitsPerSample) {
+					return false;
+				}
+				long size = channel.size() - WAV_HEADER_SIZE;
+				long numSegmentBytes = (MAX_SEGMENT_SIZE / blockAlign) * (long) blockAlign;
+				int numSegments = (int) ((size + numSegmentBytes - 1) / numSegmentBytes);
+				MappedByteBuffer[] mapped = new MappedByteBuffer[numSegments];
+				for (int i = 0; i < numSegments; i++) {
+					long offset = i * numSegmentBytes;
+					mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY, WAV_HEADER_SIZE + offset,
+							Math.min(numSegmentBytes, size - offset));
+				}
+				segmentSize = numSegmentBytes;
+				dataSize = size;
+				segments = mapped;
+				// the modification time serves as the access time for the LRU order
+				file.setLastModified(System.currentTimeMillis());
+				return true;
+			} catch (IOException ioe) {
+				return false;
+			}
+		}
+
+		/**
+		 * Copies bytes from the mapped data, only absolute reads are used so
+		 * that multiple extractors can read concurrently.
+		 */
+		static void copy(MappedByteBuffer[] mapped, long segmentSize, long from, byte[] dest, int len) {
+			int off = 0;
+			while (off < len) {
+				int seg = (int) (from / segmentSize);
+				int pos = (int) (from % segmentSize);
+				int n = Math.min(len - off, mapped[seg].capacity() - pos);
+				mapped[seg].get(pos, dest, off, n);
+				off += n;
+				from += n;
+			}
+		}
+	}
+
+	/**
+	 * An extractor that reads from the decoded file once it is available and
+	 * from the native extractor until then.
+	 */
+	private class CachedExtraction implements AudioExtraction {
+		private final CacheEntry entry;
+		private final AudioExtraction delegate;
+		private double position;
+		private boolean released;
+
+		CachedExtraction(CacheEntry entry, AudioExtraction delegate) {
+			this.entry = entry;
+			this.delegate = delegate;
+		}
+
+		@Override
+		public int getSampleFrequency() {
+			return delegate.getSampleFrequency();
+		}
+
+		@Override
+		public int getBitsPerSample() {
+			return delegate.getBitsPerSample();
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return delegate.getNumberOfChannels();
+		}
+
+		@Override
+		public int getFormatTag() {
+			return delegate.getFormatTag();
+		}
+
+		@Override
+		public long getDuration() {
+			return delegate.getDuration();
+		}
+
+		@Override
+		public double getDurationSec() {
+			return delegate.getDurationSec();
+		}
+
+		@Override
+		public long getSampleBufferSize() {
+			return delegate.getSampleBufferSize();
+		}
+
+		@Override
+		public long getSampleBufferDurationMs() {
+			return delegate.getSampleBufferDurationMs();
+		}
+
+		@Override
+		public double getSampleBufferDurationSec() {
+			return delegate.getSampleBufferDurationSec();
+		}
+
+		@Override
+		public byte[] getSamples(double fromTime, double toTime) {
+			MappedByteBuffer[] mapped = entry.segments;
+			if (mapped == null) {
+				return delegate.getSamples(fromTime, toTime);
+			}
+			if (toTime <= fromTime || fromTime >= getDurationSec()) {
+				return null;
+			}
+			int blockAlign = getNumberOfChannels() * (getBitsPerSample() / 8);
+			long fromByte = Math.max(0, Math.round(fromTime * getSampleFrequency())) * blockAlign;
+			long numBytes = Math.round((toTime - fromTime) * getSampleFrequency()) * blockAlign;
+			numBytes = Math.min(numBytes, entry.dataSize - fromByte);
+			if (numBytes <= 0) {
+				return null;
+			}
+			byte[] samples = new byte[(int) numBytes];
+			CacheEntry.copy(mapped, entry.segmentSize, fromByte, samples, samples.length);
+			position = toTime;
+
+			return samples;
+		}
+
+		@Override
+		public byte[] getSample(double forTime) {
+			MappedByteBuffer[] mapped = entry.segments;
+			if (mapped == null) {
+				return delegate.getSample(forTime);
+			}
+			double bufferDur = getSampleBufferDurationSec();
+			if (bufferDur <= 0) {
+				bufferDur = 0.1;
+			}
+			return getSamples(forTime, forTime + bufferDur);
+		}
+
+		@Override
+		public double getPositionSec() {
+			return entry.segments != null ? position : delegate.getPositionSec();
+		}
+
+		@Override
+		public void setPositionSec(double seekPositionSec) {
+			position = seekPositionSec;
+			if (entry.segments == null) {
+				delegate.setPositionSec(seekPositionSec);
+			}
+		}
+
+		@Override
+		public void release() {
+			if (!released) {
+				released = true;
+				DecodedAudioCache.this.release(entry);
+			}
+			delegate.release();
+		}
+	}
+}
@@ -0,0 +1,275 @@
+package mpi.eudico.client.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only, memory mapped view on the sample data of a local WAV file.
+ * <p>
+ * In contrast to {@link WAVSampler} this class has no sample or file pointer;
+ * samples are always read from an absolute sample index. The mapped buffers
+ * are only accessed by means of absolute {@code get} methods, which makes it
+ * safe to read from one instance from multiple threads concurrently.
+ * <p>
+ * Only linear PCM (8, 16, 24 and 32 bit) and 32 bit IEEE float data are
+ * supported, for other encodings an {@code IOException} is thrown by the
+ * constructor and callers should fall back to {@link WAVSampler}.
+ * Since a single {@code MappedByteBuffer} is limited to 2 GB, the data chunk
+ * is mapped in a number of segments.
+ * <p>
+ * The mapping is released by {@link #close()}, which should only be called
+ * when no other thread is reading from this instance anymore.
+ */
+public class MappedWAVSamples implements Closeable {
+	/** the maximum size of a single mapped segment, a multiple of the block
+	 * align value is used */
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private final String filePath;
+	private final MappedByteBuffer[] segments;
+	private final long samplesPerSegment;
+	private final int sampleFrequency;
+	private final int nrOfChannels;
+	private final int bytesPerSample;// per channel
+	private final int blockAlign;
+	private final long nrOfSamples;
+	private final boolean floatData;
+	private final int possibleMaxSample;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a mapped sample source for the specified file.
+	 *
+	 * @param fileName the path to a {@code .wav} file
+	 *
+	 * @throws IOException if the file is not a valid {@code .wav} file, if the
+	 * encoding is not supported or if mapping the file fails
+	 */
+	public MappedWAVSamples(String fileName) throws IOException {
+		if (fileName == null || !fileName.toLowerCase().endsWith(".wav")) {
+			throw new IOException("Unsupported file format");
+		}
+		filePath = fileName;
+		WAVHeader header = new WAVHeader(fileName);
+
+		if (header.getHeaderSize() == 0 || header.getSampleSize() <= 0 ||
+				header.getNumberOfChannels() <= 0) {
+			throw new IOException("Invalid wav file format");
+		}
+
+		short compression = header.getCompressionCode();
+		nrOfChannels = header.getNumberOfChannels();
+		blockAlign = header.getSampleSize();
+		bytesPerSample = blockAlign / nrOfChannels;
+		sampleFrequency = header.getFrequency();
+		floatData = compression == WAVHeader.WAVE_FORMAT_IEEE_FLOAT;
+
+		if (compression != WAVHeader.WAVE_FORMAT_PCM &&
+				compression != WAVHeader.WAVE_FORMAT_UNCOMPRESSED &&
+				compression != WAVHeader.WAVE_FORMAT_EXTENSIBLE && !floatData) {
+			throw new IOException("Unsupported wav encoding: " +
+				header.getCompressionString(compression));
+		}
+		if (bytesPerSample < 1 || bytesPerSample > 4 || (floatData && bytesPerSample != 4)) {
+			throw new IOException("Unsupported sample size: " + bytesPerSample);
+		}
+		possibleMaxSample = (int) (-1 + Math.pow(2, bytesPerSample * 8 - 1));
+
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long dataStart = header.getHeaderSize();
+			// the data length in the header can be larger than the actual data
+			long dataLength = Math.min(header.getDataLength(), channel.size() - dataStart);
+			if (dataLength < 0) {
+				dataLength = 0;
+			}
+			nrOfSamples = dataLength / blockAlign;
+			samplesPerSegment = MAX_SEGMENT_SIZE / blockAlign;
+			long segmentBytes = samplesPerSegment * blockAlign;
+			int numSegments = (int) ((nrOfSamples + samplesPerSegment - 1) / samplesPerSegment);
+			segments = new MappedByteBuffer[numSegments];
+
+			for (int i = 0; i < numSegments; i++) {
+				long offset = i * segmentBytes;
+				long size = Math.min(segmentBytes, nrOfSamples * blockAlign - offset);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + offset, size);
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+		}
+	}
+
+	/**
+	 * Returns the path of the mapped file.
+	 *
+	 * @return the file path
+	 */
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Returns the sample frequency.
+	 *
+	 * @return the number of samples per second
+	 */
+	public int getSampleFrequency() {
+		return sampleFrequency;
+	}
+
+	/**
+	 * Returns the number of channels.
+	 *
+	 * @return the number of channels
+	 */
+	public int getNumberOfChannels() {
+		return nrOfChannels;
+	}
+
+	/**
+	 * Returns the number of samples (per channel).
+	 *
+	 * @return the total number of samples
+	 */
+	public long getNrOfSamples() {
+		return nrOfSamples;
+	}
+
+	/**
+	 * Returns the duration in milliseconds.
+	 *
+	 * @return the duration of the data in milliseconds
+	 */
+	public float getDuration() {
+		return ((float) 1000 * nrOfSamples) / sampleFrequency;
+	}
+
+	/**
+	 * Returns the value of a single sample.
+	 *
+	 * @param sampleIndex the index of the sample, {@code 0 <= index < nrOfSamples}
+	 * @param channelIndex the 0-based channel index
+	 *
+	 * @return the sample value, consistent with the values produced by
+	 * {@link WAVSampler}
+	 */
+	public int getSample(long sampleIndex, int channelIndex) {
+		MappedByteBuffer segment = segments[(int) (sampleIndex / samplesPerSegment)];
+		int pos = (int) (sampleIndex % samplesPerSegment) * blockAlign + channelIndex * bytesPerSample;
+
+		switch (bytesPerSample) {
+		case 1:
+			return (segment.get(pos) & 0xFF) - 128;
+		case 2:
+			return segment.getShort(pos);
+		case 3:
+			return (segment.get(pos) & 0xFF) | ((segment.get(pos + 1) & 0xFF) << 8) |
+					(segment.get(pos + 2) << 16);
+		default:
+			if (floatData) {
+				return (int) (segment.getFloat(pos) * possibleMaxSample);
+			}
+			return segment.getInt(pos);
+		}
+	}
+
+	/**
+	 * Copies a number of samples of one channel to an array. If the requested
+	 * interval extends beyond the end of the data, the remainder of the array
+	 * is filled with zeros.
+	 *
+	 * @param fromSample the index of the first sample
+	 * @param numSamples the number of samples to read
+	 * @param channelIndex the 0-based channel index
+	 * @param samples the destination array, at least {@code numSamples} long
+	 *
+	 * @return the number of samples actually read
+	 */
+	public int readSamples(long fromSample, int numSamples, int channelIndex, int[] samples) {
+		int numRead = 0;
+		if (fromSample >= 0 && channelIndex >= 0 && channelIndex < nrOfChannels) {
+			numRead = (int) Math.max(0, Math.min(numSamples, nrOfSamples - fromSample));
+			for (int i = 0; i < numRead; i++) {
+				samples[i] = getSample(fromSample + i, channelIndex);
+			}
+		}
+		for (int i = numRead; i < numSamples; i++) {
+			samples[i] = 0;
+		}
+
+		return numRead;
+	}
+
+	/**
+	 * Releases the mapped segments. Without an explicit release the file
+	 * stays mapped until the buffers are garbage collected, which can take
+	 * long and keeps the file locked on some platforms. The samples can
+	 * not be read after this call.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		for (int i = 0; i < segments.length; i++) {
+			MappedByteBuffer segment = segments[i];
+			segments[i] = null;
+			if (segment != null) {
+				Unmapper.unmap(segment);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether this source has been closed.
+	 *
+	 * @return {@code true} after {@link #close()} has been called
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Releases a mapped buffer immediately by means of the cleaner of the
+	 * buffer. If that is not possible with the current runtime, the buffer
+	 * is left to the garbage collector.
+	 */
+	private static class Unmapper {
+		private static final Object UNSAFE;
+		private static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Field field = unsafeClass.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = field.get(null);
+				invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (Exception ex) {
+				// not available, unmapping is left to the garbage collector
+			}
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+
+		static void unmap(MappedByteBuffer buffer) {
+			if (INVOKE_CLEANER == null) {
+				return;
+			}
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} catch (Exception ex) {
+				// ignore, unmapping is left to the garbage collector
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package mpi.eudico.client.util;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import nl.mpi.media.UnsupportedMediaException;
+
+/**
+ * A registry of shared sample sources, one per media file. Viewers and
+ * analyzers that need the samples of the same file (e.g. the signal viewer,
+ * the spectrogram viewer and the silence recognizer) each get their own
+ * lightweight {@link SharedSamplesCursor}, but the file is opened (or the
+ * audio is decoded) by a single provider and the blocks of samples that have
+ * been read are cached and reused by all cursors.
+ * <p>
+ * The sources are reference counted: a source is created when the first
+ * cursor for a file is requested and it is closed when the last cursor for
+ * the file is closed.
+ */
+public class MediaSampleRegistry {
+	private static final MediaSampleRegistry instance = new MediaSampleRegistry();
+
+	private final Map<String, SharedSampleSource> sources = new HashMap<String, SharedSampleSource>();
+
+	/**
+	 * Creates the provider that reads the samples of a media file for a
+	 * shared source.
+	 */
+	public interface ProviderCreator {
+		/**
+		 * Creates a new provider, it will be used exclusively by the shared
+		 * source.
+		 *
+		 * @return the provider
+		 * @throws IOException if the file cannot be read
+		 * @throws UnsupportedMediaException if the file is not supported
+		 */
+		WAVSamplesProvider createProvider() throws IOException, UnsupportedMediaException;
+	}
+
+	/**
+	 * Private constructor.
+	 */
+	private MediaSampleRegistry() {
+		super();
+	}
+
+	/**
+	 * Returns the shared registry.
+	 *
+	 * @return the registry instance
+	 */
+	public static MediaSampleRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns a new cursor for a media file. If there is no open source for
+	 * the file yet, one is created with a provider from the creator.
+	 *
+	 * @param mediaPath the path or URL of the media file, the key of the
+	 * source
+	 * @param creator creates the provider if there is no source for the file
+	 *
+	 * @return a cursor for the file, to be closed when it is no longer needed
+	 * @throws IOException if the provider cannot be created
+	 * @throws UnsupportedMediaException if the file is not supported
+	 */
+	public synchronized SharedSamplesCursor acquire(String mediaPath, ProviderCreator creator)
+			throws IOException, UnsupportedMediaException {
+		SharedSampleSource source = sources.get(mediaPath);
+		if (source == null) {
+			WAVSamplesProvider provider = creator.createProvider();
+			if (provider == null) {
+				throw new IOException("No sampler for " + mediaPath);
+			}
+			source = new SharedSampleSource(mediaPath, provider);
+			sources.put(mediaPath, source);
+		}
+		source.refCount++;
+
+		return new SharedSamplesCursor(this, source);
+	}
+
+	/**
+	 * Returns the number of open sources.
+	 *
+	 * @return the number of media files with at least one open cursor
+	 */
+	public synchronized int getNumberOfSources() {
+		return sources.size();
+	}
+
+	/**
+	 * Called when a cursor is closed, the source is closed when it is no
+	 * longer used.
+	 *
+	 * @param source the source of the cursor
+	 */
+	synchronized void release(SharedSampleSource source) {
+		source.refCount--;
+		if (source.refCount <= 0) {
+			if (sources.get(source.getKey()) == source) {
+				sources.remove(source.getKey());
+			}
+			source.close();
+		}
+	}
+}
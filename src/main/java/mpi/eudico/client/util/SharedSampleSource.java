@@ -0,0 +1,208 @@
+package mpi.eudico.client.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mpi.eudico.util.jfr.SampleReadEvent;
+
+/**
+ * The samples of one media file, shared by all cursors that have been handed
+ * out for that file by the {@link MediaSampleRegistry}.
+ * <p>
+ * The samples are read by a single, underlying {@link WAVSamplesProvider} in
+ * blocks of a fixed number of samples. The blocks are kept in a least
+ * recently used cache of limited size, so that viewers and analyzers showing
+ * the same part of a file reuse each other's reads and decoding. Access to
+ * the underlying provider is synchronized, the blocks are never modified
+ * after they have been cached.
+ */
+class SharedSampleSource {
+	/** the number of samples (per channel) in a block */
+	static final int BLOCK_SIZE = 1 << 16;
+	/** the maximum number of {@code int} values in the cached blocks */
+	private static final long MAX_CACHED_VALUES = 1 << 22;
+
+	private final String key;
+	private final WAVSamplesProvider provider;
+	/** the number of cursors using this source, guarded by the registry */
+	int refCount;
+
+	// properties of the media, these do not change while the file is open
+	private final String mediaLocation;
+	private final float duration;
+	private final double durationSec;
+	private final int nrOfChannels;
+	private final int bitsPerSample;
+	private final long nrOfSamples;
+	private final int possibleMaxSample;
+	private final int possibleMinSample;
+	private final int sampleFrequency;
+	private final short compressionCode;
+
+	private long cachedValues;
+	private final Map<Long, Block> blocks = new LinkedHashMap<Long, Block>(64, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+			if (cachedValues > MAX_CACHED_VALUES) {
+				cachedValues -= eldest.getValue().size();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Creates a shared source reading from the specified provider.
+	 *
+	 * @param key the registry key of the media file
+	 * @param provider the provider, it should not be used by other objects
+	 */
+	SharedSampleSource(String key, WAVSamplesProvider provider) {
+		this.key = key;
+		this.provider = provider;
+		mediaLocation = provider.getMediaLocation();
+		duration = provider.getDuration();
+		durationSec = provider.getDurationSeconds();
+		nrOfChannels = provider.getNumberOfChannels();
+		bitsPerSample = provider.getBitsPerSample();
+		nrOfSamples = provider.getNrOfSamples();
+		possibleMaxSample = provider.getPossibleMaxSample();
+		possibleMinSample = provider.getPossibleMinSample();
+		sampleFrequency = provider.getSampleFrequency();
+		compressionCode = provider.getCompressionCode();
+	}
+
+	/**
+	 * Returns a block of samples, from the cache or read by the provider.
+	 *
+	 * @param blockIndex the index of the block, the first sample of the
+	 * block is {@code blockIndex * BLOCK_SIZE}
+	 * @param nrOfChannelsToLoad {@code 2} for separate channels, {@code 1}
+	 * for the first or the merged channels, as in
+	 * {@link WAVSamplesProvider#readInterval(int, int)}
+	 *
+	 * @return the block, the number of samples can be less than the block
+	 * size at the end of the file
+	 */
+	synchronized Block getBlock(long blockIndex, int nrOfChannelsToLoad) {
+		Long blockKey = Long.valueOf(blockIndex * 2 + (nrOfChannelsToLoad == 2 ? 1 : 0));
+		Block block = blocks.get(blockKey);
+		if (block != null) {
+			return block;
+		}
+
+		SampleReadEvent readEvent = new SampleReadEvent();
+		readEvent.begin();
+		provider.seekSample(blockIndex * BLOCK_SIZE);
+		int numRead = Math.max(0, provider.readInterval(BLOCK_SIZE, nrOfChannelsToLoad));
+		int numArrays = (nrOfChannelsToLoad == 2 && provider.getChannelArray(1) != null) ? 2 : 1;
+		int[][] channels = new int[numArrays][];
+		for (int c = 0; c < numArrays; c++) {
+			int[] read = provider.getChannelArray(c);
+			channels[c] = new int[numRead];
+			if (read != null) {
+				System.arraycopy(read, 0, channels[c], 0, Math.min(numRead, read.length));
+			}
+		}
+		readEvent.finish(mediaLocation, blockIndex * BLOCK_SIZE, numRead,
+				(long) numRead * nrOfChannels * ((bitsPerSample + 7) / 8));
+		block = new Block(channels, numRead);
+		cachedValues += block.size();
+		blocks.put(blockKey, block);
+
+		return block;
+	}
+
+	/**
+	 * Removes all cached blocks and closes the provider.
+	 */
+	synchronized void close() {
+		blocks.clear();
+		cachedValues = 0;
+		provider.close();
+	}
+
+	/**
+	 * Returns the header of the file if the provider reads a {@code .wav}
+	 * file directly.
+	 *
+	 * @return the header or {@code null}
+	 */
+	synchronized WAVHeader getWavHeader() {
+		if (provider instanceof WAVSampler) {
+			return ((WAVSampler) provider).getWavHeader();
+		}
+		return null;
+	}
+
+	synchronized void setDebugMode(boolean enable) {
+		provider.setDebugMode(enable);
+	}
+
+	synchronized String getCompressionString(short compr) {
+		return provider.getCompressionString(compr);
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	String getMediaLocation() {
+		return mediaLocation;
+	}
+
+	float getDuration() {
+		return duration;
+	}
+
+	double getDurationSeconds() {
+		return durationSec;
+	}
+
+	int getNumberOfChannels() {
+		return nrOfChannels;
+	}
+
+	int getBitsPerSample() {
+		return bitsPerSample;
+	}
+
+	long getNrOfSamples() {
+		return nrOfSamples;
+	}
+
+	int getPossibleMaxSample() {
+		return possibleMaxSample;
+	}
+
+	int getPossibleMinSample() {
+		return possibleMinSample;
+	}
+
+	int getSampleFrequency() {
+		return sampleFrequency;
+	}
+
+	short getCompressionCode() {
+		return compressionCode;
+	}
+
+	/**
+	 * An immutable block of samples, one array per channel.
+	 */
+	static class Block {
+		final int[][] channels;
+		final int numSamples;
+
+		Block(int[][] channels, int numSamples) {
+			this.channels = channels;
+			this.numSamples = numSamples;
+		}
+
+		long size() {
+			return (long) channels.length * numSamples;
+		}
+	}
+}
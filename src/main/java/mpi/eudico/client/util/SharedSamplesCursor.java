@@ -0,0 +1,277 @@
+package mpi.eudico.client.util;
+
+import java.util.Arrays;
+
+/**
+ * A lightweight {@link WAVSamplesProvider} handed out by the
+ * {@link MediaSampleRegistry}. A cursor has its own sample pointer and its
+ * own arrays for the samples of the last read interval, but it reads from
+ * the blocks of a source that is shared by all cursors of the same media
+ * file. Like the other providers, a single cursor should not be used from
+ * different threads concurrently; different cursors can be.
+ * <p>
+ * {@link #close()} returns the cursor to the registry, the cursor can not be
+ * used after that.
+ */
+public class SharedSamplesCursor implements WAVSamplesProvider {
+	private final MediaSampleRegistry registry;
+	private final SharedSampleSource source;
+	private boolean closed;
+	private long samplePointer;
+	private int[][] channelArrays;
+	/** the number of samples of the last read interval, the arrays can be longer */
+	private int numSamplesRead;
+	private int[] maxSamplePerChannel;
+	private int[] minSamplePerChannel;
+
+	/**
+	 * Creates a cursor for a shared source.
+	 *
+	 * @param registry the registry the cursor is released to
+	 * @param source the shared source
+	 */
+	SharedSamplesCursor(MediaSampleRegistry registry, SharedSampleSource source) {
+		this.registry = registry;
+		this.source = source;
+	}
+
+	@Override
+	public String getMediaLocation() {
+		return source.getMediaLocation();
+	}
+
+	@Override
+	public float getDuration() {
+		return source.getDuration();
+	}
+
+	@Override
+	public double getDurationSeconds() {
+		return source.getDurationSeconds();
+	}
+
+	@Override
+	public int getNumberOfChannels() {
+		return source.getNumberOfChannels();
+	}
+
+	@Override
+	public int getBitsPerSample() {
+		return source.getBitsPerSample();
+	}
+
+	@Override
+	public int[] getChannelArray(int channelIndex) {
+		if (channelArrays != null && channelIndex >= 0 && channelIndex < channelArrays.length) {
+			return channelArrays[channelIndex];
+		}
+		return null;
+	}
+
+	@Override
+	public int getMaxSample(int channelIndex) {
+		if (maxSamplePerChannel == null) {
+			calculateMinMax();
+		}
+		if (maxSamplePerChannel != null && channelIndex >= 0 && channelIndex < maxSamplePerChannel.length) {
+			return maxSamplePerChannel[channelIndex];
+		}
+		return 0;
+	}
+
+	@Override
+	public int getMinSample(int channelIndex) {
+		if (minSamplePerChannel == null) {
+			calculateMinMax();
+		}
+		if (minSamplePerChannel != null && channelIndex >= 0 && channelIndex < minSamplePerChannel.length) {
+			return minSamplePerChannel[channelIndex];
+		}
+		return 0;
+	}
+
+	/**
+	 * Calculates the minimum and maximum of each channel of the last read
+	 * interval.
+	 */
+	private void calculateMinMax() {
+		if (channelArrays == null) {
+			return;
+		}
+		maxSamplePerChannel = new int[channelArrays.length];
+		minSamplePerChannel = new int[channelArrays.length];
+		for (int c = 0; c < channelArrays.length; c++) {
+			int max = Integer.MIN_VALUE;
+			int min = Integer.MAX_VALUE;
+			int[] values = channelArrays[c];
+			for (int i = 0; i < numSamplesRead && i < values.length; i++) {
+				if (values[i] > max) max = values[i];
+				if (values[i] < min) min = values[i];
+			}
+			maxSamplePerChannel[c] = max == Integer.MIN_VALUE ? 0 : max;
+			minSamplePerChannel[c] = min == Integer.MAX_VALUE ? 0 : min;
+		}
+	}
+
+	@Override
+	public long getNrOfSamples() {
+		return source.getNrOfSamples();
+	}
+
+	@Override
+	public int getPossibleMaxSample() {
+		return source.getPossibleMaxSample();
+	}
+
+	@Override
+	public int getPossibleMinSample() {
+		return source.getPossibleMinSample();
+	}
+
+	@Override
+	public int getSampleFrequency() {
+		return source.getSampleFrequency();
+	}
+
+	@Override
+	public long getSamplePointer() {
+		return samplePointer;
+	}
+
+	@Override
+	public long getTimeAtSample(long sample) {
+		return (long) (((sample * 1000f) / getSampleFrequency()) + .5);
+	}
+
+	@Override
+	public float getTimePointer() {
+		return ((float) 1000 * samplePointer) / getSampleFrequency();
+	}
+
+	@Override
+	public double getTimePointerSeconds() {
+		return samplePointer / (double) getSampleFrequency();
+	}
+
+	/**
+	 * Releases the cursor, the shared source is closed when the last cursor
+	 * for the media file is closed.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			registry.release(source);
+		}
+	}
+
+	/**
+	 * Reads the requested number of samples starting at the sample pointer,
+	 * from the blocks of the shared source. The sample pointer is moved to
+	 * the end of the interval.
+	 *
+	 * @param requestedNrOfSamplesToRead the number of samples to read
+	 * @param nrOfChannelsToLoad the number of channels to get, if {@code 1}
+	 * the channels of a stereo file are merged
+	 *
+	 * @return the number of samples that have been read
+	 */
+	@Override
+	public int readInterval(int requestedNrOfSamplesToRead, int nrOfChannelsToLoad) {
+		int mode = nrOfChannelsToLoad == 2 ? 2 : 1;
+		int actualNrOfSamplesToRead = (int) Math.max(0,
+				Math.min(requestedNrOfSamplesToRead, getNrOfSamples() - samplePointer));
+		maxSamplePerChannel = null;
+		minSamplePerChannel = null;
+
+		int numRead = 0;
+		int[][] arrays = null;
+		while (numRead < actualNrOfSamplesToRead) {
+			long sample = samplePointer + numRead;
+			long blockIndex = sample / SharedSampleSource.BLOCK_SIZE;
+			int offset = (int) (sample % SharedSampleSource.BLOCK_SIZE);
+			SharedSampleSource.Block block = source.getBlock(blockIndex, mode);
+			if (arrays == null) {
+				arrays = prepareArrays(block.channels.length, actualNrOfSamplesToRead);
+			}
+			int n = Math.min(block.numSamples - offset, actualNrOfSamplesToRead - numRead);
+			if (n <= 0) {
+				// fewer samples than reported by the header
+				break;
+			}
+			for (int c = 0; c < arrays.length && c < block.channels.length; c++) {
+				System.arraycopy(block.channels[c], offset, arrays[c], numRead, n);
+			}
+			numRead += n;
+		}
+		if (arrays == null) {
+			prepareArrays(mode == 2 && getNumberOfChannels() > 1 ? 2 : 1, 0);
+		}
+		samplePointer += numRead;
+		numSamplesRead = numRead;
+
+		return numRead;
+	}
+
+	/**
+	 * Reuses the arrays of the previous read if they are large enough,
+	 * otherwise new arrays are created. The arrays are cleared.
+	 */
+	private int[][] prepareArrays(int numArrays, int numSamples) {
+		if (channelArrays == null || channelArrays.length != numArrays) {
+			channelArrays = new int[numArrays][];
+		}
+		for (int c = 0; c < numArrays; c++) {
+			if (channelArrays[c] == null || channelArrays[c].length < numSamples) {
+				channelArrays[c] = new int[numSamples];
+			} else {
+				Arrays.fill(channelArrays[c], 0);
+			}
+		}
+		return channelArrays;
+	}
+
+	@Override
+	public void seekSample(long n) {
+		samplePointer = Math.max(0, Math.min(n, getNrOfSamples()));
+	}
+
+	@Override
+	public void seekTime(float time) {
+		if (time >= 0) {
+			seekSample((long) ((time * getSampleFrequency()) / 1000));
+		}
+	}
+
+	@Override
+	public void seekTimeSeconds(double timeSec) {
+		if (timeSec >= 0) {
+			seekSample((long) (timeSec * getSampleFrequency()));
+		}
+	}
+
+	@Override
+	public short getCompressionCode() {
+		return source.getCompressionCode();
+	}
+
+	@Override
+	public String getCompressionString(short compr) {
+		return source.getCompressionString(compr);
+	}
+
+	/**
+	 * Returns the header of the media file if it is a {@code .wav} file that
+	 * is read directly, e.g. for access to the cue points.
+	 *
+	 * @return the header or {@code null}
+	 */
+	public WAVHeader getWavHeader() {
+		return source.getWavHeader();
+	}
+
+	@Override
+	public void setDebugMode(boolean enable) {
+		source.setDebugMode(enable);
+	}
+}
@@ -4,17 +4,27 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import mpi.eudico.client.annotator.Constants;
 import mpi.eudico.client.annotator.ElanLocale;
-import mpi.eudico.client.annotator.export.TabExportTableModel;
 import mpi.eudico.client.annotator.search.result.model.EAFMultipleFileMatch;
 
 import static mpi.eudico.client.annotator.util.ClientLogger.LOG;
@@ -25,9 +35,9 @@ import mpi.eudico.server.corpora.clom.Transcription;
 import mpi.eudico.server.corpora.clomimpl.abstr.MediaDescriptor;
 import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
 import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.delimitedtext.DelimitedTextEncoderInfo;
 import mpi.eudico.server.corpora.clomimpl.delimitedtext.DelimitedTextEncoderInfoFiles;
 import mpi.eudico.server.corpora.clomimpl.delimitedtext.DelimitedTextEncoderInfoTrans;
-import mpi.eudico.server.corpora.util.AnnotationCoreComparator;
 import mpi.eudico.util.CVEntry;
 import mpi.eudico.util.ControlledVocabulary;
 import mpi.eudico.util.TimeFormatter;
@@ -216,8 +226,9 @@ public class Transcription2TabDelimitedText {
     /**
      * Exports the annotations of each tier in a separate column. If annotations
      * of multiple tiers share the same begin AND end time they will be on the same
-     * row in the output. All annotations are collected in one list and sorted on
-     * the time values.
+     * row in the output. The annotations of each tier are already sorted, the
+     * tiers are merged while the rows are written, see 
+     * {@link #writeRows(Writer, List, DelimitedTextEncoderInfo, String, long, String, String)}.
      * Exports annotations of the specified tiers that overlap the specified
      * interval. Which time information and in which time formats should be
      * included in the output is specified by parameters contained in the encoder info object).
@@ -239,18 +250,7 @@ public class Transcription2TabDelimitedText {
     		csvEncodeText = true;
     	}
     	
-        FileOutputStream out = new FileOutputStream(encoderInfo.getExportFile());
-        OutputStreamWriter osw = null;
-
-        try {
-            osw = new OutputStreamWriter(out, encoderInfo.getCharEncoding());
-        } catch (UnsupportedCharsetException uce) {
-            osw = new OutputStreamWriter(out, "UTF-8");
-        }
-
-        BufferedWriter writer = new BufferedWriter(osw);
-        List<Annotation> allAnnotations = new ArrayList<Annotation>(100);
-        List<String> allCVs = new ArrayList<String>();
+        BufferedWriter writer = createWriter(encoderInfo);
         
     	long mediaOffset = 0L;
     	if (encoderInfo.isAddMasterMediaOffset()) {
@@ -265,75 +265,18 @@ public class Transcription2TabDelimitedText {
         		writer.write(line + NEWLINE);
         	}
         }
-    	// determination of SMPTE format string
-    	String smpteType = null;
-    	if (encoderInfo.isIncludeSMPTE()) {
-    		if (encoderInfo.isPalFormat()) {
-    			smpteType = Constants.PAL_STRING;
-    		} else if (encoderInfo.isPal50Format()) {
-    			smpteType = Constants.PAL_50_STRING;
-    		} else {
-    			smpteType = Constants.NTSC_STRING;
-    		}
-    	}
-    	
-        for (String tierName : encoderInfo.getTierNames()) {
-            Tier tier = encoderInfo.getTranscription().getTierWithId(tierName);
-
-            if (tier != null) {
-                if (encoderInfo.isIncludeCVDescription()) {
-                	String cvName = tier.getLinguisticType().getControlledVocabularyName();
-                	if (cvName != null) {
-                		allCVs.add(cvName);
-                	}
-                }
+    	String smpteType = getSMPTEType(encoderInfo);
 
-                for (Annotation annotation : tier.getAnnotations()) {
-                    if (annotation != null) {
-                        if (TimeRelation.overlaps(annotation, encoderInfo.getBeginTime(),
-                                    encoderInfo.getEndTime())) {
-                            allAnnotations.add(annotation);
-                        }
-
-                        if (annotation.getBeginTimeBoundary() > encoderInfo.getEndTime()) {
-                            break;
-                        }
-                    }
-                }
-            }
-        }
-         // end tier loop
-
-        Collections.sort(allAnnotations, new AnnotationCoreComparator());        
-        
-        Map<String, Map<String,String>> cvMap = null;
-        if (encoderInfo.isIncludeCVDescription()){
-        	cvMap = new HashMap<String, Map<String,String>>();
-        	for (String cvName : allCVs) {
-        		Map<String,String> map = new HashMap<String,String>();
-        		ControlledVocabulary cv = encoderInfo.getTranscription().getControlledVocabulary(cvName);
-        		if (!cv.isEmpty()) {
-        			cvMap.put(cvName, map);
-        			int defLang = cv.getDefaultLanguageIndex();
-        			for (CVEntry entry : cv) {
-        				map.put(entry.getValue(defLang), entry.getDescription(defLang));
-        			}
-        		}
-        	}
-        }
-
-        // group the annotations that share the same begin and end time
-        TabExportTableModel model = new TabExportTableModel(allAnnotations, 
-        		cvMap, encoderInfo.getTierNames());
+        List<TierCursor> cursors = createTierCursors(encoderInfo.getTranscription(), 
+        		encoderInfo.getTierNames(), encoderInfo.isIncludeCVDescription(), true, 
+        		encoderInfo.getBeginTime(), encoderInfo.getEndTime());
 
         // write header, write each row, taking into account the formatting flags
-        writer.write(getHeaders(model, encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
+        writer.write(getHeaders(getColumnNames(encoderInfo), encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
                 encoderInfo.isIncludeDuration(), encoderInfo.isIncludeHHMM(), encoderInfo.isIncludeSSMS(), encoderInfo.isIncludeMS(),
                 encoderInfo.isIncludeSMPTE(), smpteType));
         
-        writeRows(writer, model, encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
-            encoderInfo.isIncludeDuration(), encoderInfo.isIncludeHHMM(), encoderInfo.isIncludeSSMS(), encoderInfo.isIncludeMS(), encoderInfo.isIncludeSMPTE(),
-            smpteType, mediaOffset, false, false );
+        writeRows(writer, cursors, encoderInfo, smpteType, mediaOffset, null, null);
 
         try {
         	writer.close();
@@ -343,17 +286,21 @@ public class Transcription2TabDelimitedText {
    /**
     * Exports the annotations of each tier in a separate column. If annotations
     * of multiple tiers share the same begin AND end time they will be on the same
-    * row in the output. All annotations are collected in one list and sorted on
-    * the time values.
+    * row in the output. 
     * Exports annotations of the specified tiers that overlap the specified
     * interval. Which time information and in which time formats should be
     * included in the output is specified by the encoder information object.
+    * <p>
+    * The files are loaded and converted to text on a number of worker threads,
+    * the output of each file is written in the order of the list of files.
+    * Only a limited number of files is processed ahead of the one that is 
+    * being written, so that the memory use does not depend on the number of files.
     *
     * @param encoderInfo the encoder information object, not {@code null}
     * 
     * @throws IOException any IO exception
     */
-     public void exportTiersColumnPerTierFromFiles(DelimitedTextEncoderInfoFiles encoderInfo) throws IOException {
+     public void exportTiersColumnPerTierFromFiles(final DelimitedTextEncoderInfoFiles encoderInfo) throws IOException {
         if (encoderInfo.getExportFile() == null) {
             throw new IOException("Encoder: no destination file specified for export");
         }
@@ -372,150 +319,62 @@ public class Transcription2TabDelimitedText {
     		csvEncodeText = true;
     	}
     	
-        FileOutputStream out = new FileOutputStream(encoderInfo.getExportFile());
-        OutputStreamWriter osw = null;
-
-        try {
-            osw = new OutputStreamWriter(out, encoderInfo.getCharEncoding());
-        } catch (UnsupportedCharsetException uce) {
-            osw = new OutputStreamWriter(out, "UTF-8");
-        }
-
-        BufferedWriter writer = new BufferedWriter(osw);
-        List<Annotation> allAnnotations = new ArrayList<Annotation>(100);
-        AnnotationCoreComparator comparator = new AnnotationCoreComparator();
-
-     // determination of SMPTE format string
-    	String smpteType = null;
-    	if (encoderInfo.isIncludeSMPTE()) {
-    		if (encoderInfo.isPalFormat()) {
-    			smpteType = Constants.PAL_STRING;
-    		} else if (encoderInfo.isPal50Format()) {
-    			smpteType = Constants.PAL_50_STRING;
-    		} else {
-    			smpteType = Constants.NTSC_STRING;
-    		}
-    	}
-        List<String> allCVs = new ArrayList<String>();
-
-        for (int i = 0; i < encoderInfo.getFiles().size(); i++) {
-            File file = encoderInfo.getFiles().get(i);
-            allAnnotations.clear();
+        BufferedWriter writer = createWriter(encoderInfo);
+    	final String smpteType = getSMPTEType(encoderInfo);
+
+        String header = getHeaders(getColumnNames(encoderInfo), encoderInfo.isIncludeBeginTime(),
+                encoderInfo.isIncludeEndTime(), encoderInfo.isIncludeDuration(), 
+                encoderInfo.isIncludeHHMM(),
+                encoderInfo.isIncludeSSMS(), encoderInfo.isIncludeMS(), 
+                encoderInfo.isIncludeSMPTE(), smpteType);
+        writer.write(header, 0, header.length() - 1);
+        // the next line could depend on choices for file name/path by the user
+        writer.write(TAB +
+            csvEncodeCond1(ElanLocale.getString("Frame.GridFrame.ColumnFileName")) + TAB + 
+            csvEncodeCond1(ElanLocale.getString("Frame.GridFrame.ColumnFilePath")) + NEWLINE); 
+
+        exportFilesInOrder(writer, encoderInfo.getFiles(), (fileWriter, file) -> {
+        	TranscriptionImpl trans = new TranscriptionImpl(file.getAbsolutePath());
+        	//HS Nov 2015 support for media offset correction in multiple file export
+        	long mediaOffset = 0L;
+        	if (encoderInfo.isAddMasterMediaOffset()) {
+        		if (trans.getMediaDescriptors() != null && !trans.getMediaDescriptors().isEmpty()) {
+        			mediaOffset = trans.getMediaDescriptors().get(0).timeOrigin;
+        		}
+        	}
 
-            if (file == null) {
-                continue;
-            }
+        	List<TierCursor> cursors = createTierCursors(trans, encoderInfo.getTierNames(), 
+        			encoderInfo.isIncludeCVDescription(), false, 0L, Long.MAX_VALUE);
+
+        	// Nov 2015 new option, file name or path in a row            	
+        	if (encoderInfo.isFileNameInRow()) {
+        		fileWriter.write(NEWLINE); //insert empty line
+        		if (encoderInfo.isIncludeFileName()) {
+        			fileWriter.write(csvEncodeCond1(file.getName()) + NEWLINE);
+        		} 
+        		// write the path if neither file name nor file path is selected but file name in a row is
+        		if ( encoderInfo.isIncludeFilePath() || (!encoderInfo.isIncludeFileName() && !encoderInfo.isIncludeFilePath()) ){
+        			fileWriter.write(csvEncodeCond1(file.getAbsolutePath()) + NEWLINE);
+        		}
+        	}
+        	// Nov 2015 new option, linked media information
+        	if (encoderInfo.isIncludeMediaHeaders()) {
+        		List<String> medHeaders = getMediaHeaders(trans);
+        		if (medHeaders != null) {
+        			if (!encoderInfo.isFileNameInRow()) {
+        				fileWriter.write(NEWLINE); //insert empty line
+        			}
+        			for (String s : medHeaders) {
+        				fileWriter.write(s);
+        				fileWriter.write(NEWLINE);
+        			}
+        		}         		
+        	}
 
-            try {
-            	TranscriptionImpl trans = new TranscriptionImpl(file.getAbsolutePath());
-            	//HS Nov 2015 support for media offset correction in multiple file export
-            	long mediaOffset = 0L;
-            	if (encoderInfo.isAddMasterMediaOffset()) {
-            		if (trans.getMediaDescriptors() != null && !trans.getMediaDescriptors().isEmpty()) {
-            			mediaOffset = trans.getMediaDescriptors().get(0).timeOrigin;
-            		}
-            	}
-            	
-                for (String tierName : encoderInfo.getTierNames()) {
-                    Tier tier = trans.getTierWithId(tierName);
-
-                    if (tier != null) {
-                    	if(encoderInfo.isIncludeCVDescription()){
-                        	String cvName = tier.getLinguisticType().getControlledVocabularyName();
-                        	if(cvName != null){
-                        		allCVs.add(cvName);
-                        	}
-                        }
-                    	
-                        for (Annotation annotation : tier.getAnnotations()) {
-                            if (annotation != null) {
-                                //if (TimeRelation.overlaps(annotations[k], beginTime, endTime)) {
-                                allAnnotations.add(annotation);
-
-                                //}
-                                //if (annotations[k].getBeginTimeBoundary() > endTime) {
-                                //    break;
-                                //}
-                            }
-                        }
-                    }
-                }
-                 // end tier loop
-
-                Collections.sort(allAnnotations, comparator);
-                
-                Map<String, Map<String,String>> cvMap = null;
-                if (encoderInfo.isIncludeCVDescription()){
-                	cvMap = new HashMap<String, Map<String,String>>();
-                	for (String cvName : allCVs) {
-                		Map<String,String> map = new HashMap<String,String>();
-                		ControlledVocabulary cv = trans.getControlledVocabulary(cvName);
-                		if (!cv.isEmpty()) {
-                			cvMap.put(cvName, map);
-                			int defLang = cv.getDefaultLanguageIndex();
-                			for(CVEntry entry : cv){
-                				// HS Nov 2015 putting cve ID - cve Description key-value pairs might be better?
-                				map.put(entry.getValue(defLang), entry.getDescription(defLang));
-                			}
-                		}
-                	}
-                }
-
-                // group the annotations that share the same begin and end time
-                TabExportTableModel model = new TabExportTableModel(allAnnotations, cvMap, encoderInfo.getTierNames());
-                model.setFileName(file.getName());
-                model.setAbsoluteFilePath(file.getAbsolutePath());
-                
-                // write header, write each row, taking into account the formatting flags
-                if (i == 0) {
-                    String header = getHeaders(model, encoderInfo.isIncludeBeginTime(),
-                            encoderInfo.isIncludeEndTime(), encoderInfo.isIncludeDuration(), 
-                            encoderInfo.isIncludeHHMM(),
-                            encoderInfo.isIncludeSSMS(), encoderInfo.isIncludeMS(), 
-                            encoderInfo.isIncludeSMPTE(), smpteType);
-                    writer.write(header, 0, header.length() - 1);
-                    // the next line could depend on choices for file name/path by the user
-                    writer.write(TAB +
-                        csvEncodeCond1(ElanLocale.getString("Frame.GridFrame.ColumnFileName")) + TAB + 
-                        csvEncodeCond1(ElanLocale.getString("Frame.GridFrame.ColumnFilePath")) + NEWLINE); 
-                }
-                // if table headers would be written for each transcription it could be done after the following 2 blocks
-            	// Nov 2015 new option, file name or path in a row            	
-            	if (encoderInfo.isFileNameInRow()) {
-            		writer.write(NEWLINE); //insert empty line
-            		if (encoderInfo.isIncludeFileName()) {
-            			writer.write(csvEncodeCond1(file.getName()) + NEWLINE);
-            		} 
-            		// write the path if neither file name nor file path is selected but file name in a row is
-            		if ( encoderInfo.isIncludeFilePath() || (!encoderInfo.isIncludeFileName() && !encoderInfo.isIncludeFilePath()) ){
-            			writer.write(csvEncodeCond1(file.getAbsolutePath()) + NEWLINE);
-            		}
-            	}
-            	// Nov 2015 new option, linked media information
-            	if (encoderInfo.isIncludeMediaHeaders()) {
-            		List<String> medHeaders = getMediaHeaders(trans);
-        			if (medHeaders != null) {
-                		if (!encoderInfo.isFileNameInRow()) {
-                			writer.write(NEWLINE); //insert empty line
-                		}
-        				for (String s : medHeaders) {
-        					writer.write(s);
-        					writer.write(NEWLINE);
-        				}
-        			}         		
-            	}
-                
-                writeRows(writer, model, encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
-                    encoderInfo.isIncludeDuration(), encoderInfo.isIncludeHHMM(), encoderInfo.isIncludeSSMS(), 
-                    encoderInfo.isIncludeMS(), encoderInfo.isIncludeSMPTE(), smpteType, mediaOffset, 
-                    (encoderInfo.isIncludeFileName() && !encoderInfo.isFileNameInRow()), 
-                    (encoderInfo.isIncludeFilePath() && !encoderInfo.isFileNameInRow()) );
-            } catch (Exception ex) {
-                // catch any exception that could occur and continue
-                LOG.warning("Could not handle file: " +
-                    file.getAbsolutePath());
-            }
-        }
+        	writeRows(fileWriter, cursors, encoderInfo, smpteType, mediaOffset, 
+        			(encoderInfo.isIncludeFileName() && !encoderInfo.isFileNameInRow()) ? file.getName() : null, 
+        			(encoderInfo.isIncludeFilePath() && !encoderInfo.isFileNameInRow()) ? file.getAbsolutePath() : null);
+        });
 
         writer.close();
     }
@@ -523,13 +382,16 @@ public class Transcription2TabDelimitedText {
     /**
      * Exports annotations from selected tiers, from selected files to a specified output file 
      * location. 
+     * <p>
+     * The files are loaded and converted to text on a number of worker threads,
+     * the output of each file is written in the order of the list of files.
      * 
      * @param encoderInfo an object containing all configuration parameters for the export.
      * Not {@code null}. The embedded list of files is not {@code null} and not empty.
      * 
      * @throws IOException any IO exception
      */
-     public void exportTiersFromFiles(DelimitedTextEncoderInfoFiles encoderInfo) throws IOException {
+     public void exportTiersFromFiles(final DelimitedTextEncoderInfoFiles encoderInfo) throws IOException {
         if (encoderInfo.getExportFile() == null) {
             throw new IOException("Encoder: no destination file specified for export");
         }
@@ -547,6 +409,213 @@ public class Transcription2TabDelimitedText {
     		csvEncodeText = true;
     	}
     	
+        BufferedWriter writer = createWriter(encoderInfo);
+
+        final String EMPTY = "";
+    	final String smpteType = getSMPTEType(encoderInfo);
+
+        exportFilesInOrder(writer, encoderInfo.getFiles(), (fileWriter, file) -> {
+        	TranscriptionImpl trans = new TranscriptionImpl(file.getAbsolutePath());
+
+        	// HS Nov 2015 new option to correct for media offset
+        	long mediaOffset = 0L;
+        	if (encoderInfo.isAddMasterMediaOffset()) {
+        		if (trans.getMediaDescriptors() != null && !trans.getMediaDescriptors().isEmpty()) {
+        			mediaOffset = trans.getMediaDescriptors().get(0).timeOrigin;
+        		}
+        	}
+
+        	// Nov 2015 new option, file name or path in a row            	
+        	if (encoderInfo.isFileNameInRow()) {
+        		if (encoderInfo.isIncludeFileName()) {
+        			fileWriter.write("\"#" + file.getName() + "\"" + NEWLINE);
+        		} 
+        		// write the path if neither file name nor file path is selected but file name in a row is
+        		if ( encoderInfo.isIncludeFilePath() || (!encoderInfo.isIncludeFileName() && !encoderInfo.isIncludeFilePath()) ) {
+        			fileWriter.write("\"#" + file.getAbsolutePath() + "\"" + NEWLINE);
+        		}
+        	}
+        	// Nov 2015 new option, linked media information
+        	if (encoderInfo.isIncludeMediaHeaders()) {
+        		List<String> medHeaders = getMediaHeaders(trans);
+        		if (medHeaders != null) {
+        			for (String s : medHeaders) {
+        				fileWriter.write(s);
+        				fileWriter.write(NEWLINE);
+        			}
+        		}         		
+        	}
+
+        	// This outputs the tiers in the order of tierNames.
+        	// The original code used the order of the tiers in the transcription.
+        	List<TierImpl> tiers = trans.getTiersWithIds(encoderInfo.getTierNames());
+
+        	for (TierImpl tier : tiers) {
+
+        		Map<String, String> cvEntryMap = null;
+        		String cvName = null;
+        		// HS Nov 2015 putting cve ID - cve Description key-value pairs might be better?
+        		if (encoderInfo.isIncludeCVDescription()){        
+        			cvEntryMap = new HashMap<String, String>();
+        			cvName = tier.getLinguisticType().getControlledVocabularyName();
+        			if (cvName != null){
+        				ControlledVocabulary cv = trans.getControlledVocabulary(cvName);
+        				int defLang = cv.getDefaultLanguageIndex();
+        				for (CVEntry cve : cv) {
+        					cvEntryMap.put(cve.getValue(defLang), cve.getDescription(defLang));
+        				}
+        			}
+        		}
+
+        		String participant = tier.getParticipant();
+
+        		if (participant == null) {
+        			participant = EMPTY;
+        		}
+
+        		for (AnnotationCore annotation : tier.getAnnotations()) {
+        			if (annotation != null) {
+        				if (encoderInfo.isIncludeNames()) {
+        					fileWriter.write(csvEncodeCond1(tier.getName()));
+        					if (encoderInfo.isIncludeParticipants()) {
+        						fileWriter.write(TAB + csvEncodeCond1(participant));
+        					}
+        				} else {
+        					if (encoderInfo.isIncludeParticipants()) {
+        						fileWriter.write(csvEncodeCond1(participant));
+        					}
+        				}
+
+        				String tabString = getTabString(annotation,
+        						encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
+        						encoderInfo.isIncludeDuration(), encoderInfo.isIncludeHHMM(), encoderInfo.isIncludeSSMS(),
+        						encoderInfo.isIncludeMS(), encoderInfo.isIncludeSMPTE(),
+        						smpteType, mediaOffset);       		
+
+        				if (encoderInfo.isIncludeCVDescription()) { 
+        					// TODO HS Nov 2015 this can fail in case of multilingual CV's; getting the description
+        					// on the basis of the annotation value returns null if the annotation does not have the 
+        					// default language's cve value. Matching on the basis of the CVE ID could be better in some cases
+        					// although it would be possible to get mixed languages results. Or get the description in
+        					// the same language of the value by checking all values of the cve based on the id?
+        					String description = cvEntryMap.get(annotation.getValue());
+        					if (description != null) {
+        						StringBuilder tsBuffer = new StringBuilder(tabString.replace(NEWLINE, TAB));
+        						tsBuffer.append(csvEncodeCond2(description) + NEWLINE);
+        						tabString = tsBuffer.toString();
+        					}
+        				}  
+
+        				if (encoderInfo.isIncludeNames() || encoderInfo.isIncludeParticipants()) {
+        					fileWriter.write(tabString, 0,
+        							tabString.length() - 1);
+        				} else {
+        					fileWriter.write(tabString, 1,
+        							tabString.length() - 2);
+        				}
+
+        				// Nov 2015 don't add the file name in a column if it is in the first row
+        				if (!encoderInfo.isFileNameInRow()) {
+        					if (encoderInfo.isIncludeFileName()) {
+        						fileWriter.write(TAB + csvEncodeCond1(file.getName()));
+        					}
+
+        					if (encoderInfo.isIncludeFilePath()) {
+        						fileWriter.write(TAB + csvEncodeCond1(file.getAbsolutePath()));
+        					}
+        				}
+        				fileWriter.write( NEWLINE);                              
+        			}
+        		}
+        	}
+        	// extra empty line in some cases
+        	if (encoderInfo.isFileNameInRow() || encoderInfo.isIncludeMediaHeaders()) {
+        		fileWriter.write(NEWLINE);
+        	}
+        });
+
+        try {
+        	writer.close();
+        } catch (IOException ioe){}
+    }
+
+    /**
+     * Writes the text of a single file of a multiple file export.
+     */
+    private interface FileExport {
+    	/**
+    	 * @param writer the writer for the text of the file
+    	 * @param file the file to export
+    	 * @throws Exception any exception, the file is then skipped
+    	 */
+    	void write(Writer writer, File file) throws Exception;
+    }
+
+    /**
+     * Converts the files on a number of worker threads and writes the text
+     * of each file to the writer in the order of the list. At most twice the 
+     * number of workers files are converted ahead of the file that is written
+     * next. A file that cannot be converted is skipped, a warning is logged. 
+     * 
+     * @param writer the writer of the export file
+     * @param files the files to export, elements can be {@code null}
+     * @param export the conversion of a single file
+     * 
+     * @throws IOException if writing fails or if the export is interrupted
+     */
+    private void exportFilesInOrder(Writer writer, List<File> files, final FileExport export) 
+    		throws IOException {
+    	int numThreads = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+    	ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    	Deque<Future<String>> pending = new ArrayDeque<Future<String>>();
+    	Iterator<File> fileIter = files.iterator();
+
+    	try {
+    		while (true) {
+    			while (pending.size() < 2 * numThreads && fileIter.hasNext()) {
+    				final File file = fileIter.next();
+    				if (file != null) {
+    					pending.add(executor.submit(() -> {
+    						StringWriter fileWriter = new StringWriter();
+    						try {
+    							export.write(fileWriter, file);
+    						} catch (Exception ex) {
+    							// catch any exception that could occur and continue
+    							LOG.warning("Could not handle file: " + file.getAbsolutePath());
+    							return null;
+    						}
+    						return fileWriter.toString();
+    					}));
+    				}
+    			}
+    			if (pending.isEmpty()) {
+    				break;
+    			}
+
+    			String text = pending.poll().get();
+    			if (text != null) {
+    				writer.write(text);
+    			}
+    		}
+    	} catch (InterruptedException ie) {
+    		Thread.currentThread().interrupt();
+    		throw new InterruptedIOException("The export was interrupted");
+    	} catch (ExecutionException ee) {
+    		throw new IOException(ee.getCause());
+    	} finally {
+    		executor.shutdownNow();
+    	}
+    }
+
+    /**
+     * Creates the writer for the export file in the configured encoding, 
+     * or UTF-8 if the encoding is not supported.
+     * 
+     * @param encoderInfo the encoder information
+     * @return the buffered writer
+     * @throws IOException if the file cannot be created
+     */
+    private BufferedWriter createWriter(DelimitedTextEncoderInfo encoderInfo) throws IOException {
         FileOutputStream out = new FileOutputStream(encoderInfo.getExportFile());
         OutputStreamWriter osw = null;
 
@@ -556,160 +625,168 @@ public class Transcription2TabDelimitedText {
             osw = new OutputStreamWriter(out, "UTF-8");
         }
 
-        BufferedWriter writer = new BufferedWriter(osw);
+        return new BufferedWriter(osw);
+    }
 
-        final String EMPTY = "";
+    /**
+     * @param encoderInfo the encoder information
+     * @return the SMPTE time code type or {@code null} if SMPTE is not included
+     */
+    private String getSMPTEType(DelimitedTextEncoderInfo encoderInfo) {
+    	if (encoderInfo.isIncludeSMPTE()) {
+    		if (encoderInfo.isPalFormat()) {
+    			return Constants.PAL_STRING;
+    		} else if (encoderInfo.isPal50Format()) {
+    			return Constants.PAL_50_STRING;
+    		} else {
+    			return Constants.NTSC_STRING;
+    		}
+    	}
+    	return null;
+    }
 
-        for (File file : encoderInfo.getFiles()) {
-            if (file == null) {
-                continue;
-            }
+    /**
+     * @param encoderInfo the encoder information
+     * @return the names of the annotation columns of the column per tier 
+     * output: the tier names plus the description column if CV descriptions 
+     * are included
+     */
+    private List<String> getColumnNames(DelimitedTextEncoderInfo encoderInfo) {
+    	List<String> columnNames = new ArrayList<String>(encoderInfo.getTierNames());
+    	if (encoderInfo.isIncludeCVDescription()) {
+    		columnNames.add(ElanLocale.getString("EditCVDialog.Label.CVDescription"));
+    	}
+    	return columnNames;
+    }
 
-            try {
-            	TranscriptionImpl trans = new TranscriptionImpl(file.getAbsolutePath());
-                
-                // HS Nov 2015 new option to correct for media offset
-            	long mediaOffset = 0L;
-            	if (encoderInfo.isAddMasterMediaOffset()) {
-            		if (trans.getMediaDescriptors() != null && !trans.getMediaDescriptors().isEmpty()) {
-            			mediaOffset = trans.getMediaDescriptors().get(0).timeOrigin;
-            		}
-            	}
-            	
-            	// Nov 2015 new option, file name or path in a row            	
-            	if (encoderInfo.isFileNameInRow()) {
-            		if (encoderInfo.isIncludeFileName()) {
-            			writer.write("\"#" + file.getName() + "\"" + NEWLINE);
-            		} 
-            		// write the path if neither file name nor file path is selected but file name in a row is
-            		if ( encoderInfo.isIncludeFilePath() || (!encoderInfo.isIncludeFileName() && !encoderInfo.isIncludeFilePath()) ) {
-            			writer.write("\"#" + file.getAbsolutePath() + "\"" + NEWLINE);
-            		}
-            	}
-            	// Nov 2015 new option, linked media information
-            	if (encoderInfo.isIncludeMediaHeaders()) {
-            		List<String> medHeaders = getMediaHeaders(trans);
-        			if (medHeaders != null) {
-        				for (String s : medHeaders) {
-        					writer.write(s);
-        					writer.write(NEWLINE);
-        				}
-        			}         		
-            	}
-            	
-            	String smpteType = null;
-            	if (encoderInfo.isIncludeSMPTE()) {
-            		if (encoderInfo.isPalFormat()) {
-            			smpteType = Constants.PAL_STRING;
-            		} else if (encoderInfo.isPal50Format()) {
-            			smpteType = Constants.PAL_50_STRING;
-            		} else {
-            			smpteType = Constants.NTSC_STRING;
-            		}
-            	}
-            	// This outputs the tiers in the order of tierNames.
-            	// The original code used the order of the tiers in the transcription.
-                List<TierImpl> tiers = trans.getTiersWithIds(encoderInfo.getTierNames());
-
-                for (TierImpl tier : tiers) {
-                    
-                    Map<String, String> cvEntryMap = null;
-                	String cvName = null;
-                    // HS Nov 2015 putting cve ID - cve Description key-value pairs might be better?
-                    if (encoderInfo.isIncludeCVDescription()){        
-                    	cvEntryMap = new HashMap<String, String>();
-                        cvName = tier.getLinguisticType().getControlledVocabularyName();
-                    	if (cvName != null){
-                    		ControlledVocabulary cv = trans.getControlledVocabulary(cvName);
-                    		int defLang = cv.getDefaultLanguageIndex();
-                    		for (CVEntry cve : cv) {
-                            	cvEntryMap.put(cve.getValue(defLang), cve.getDescription(defLang));
-                    		}
-                    	}
-                	}
+    /**
+     * Creates a cursor for each of the tiers that exist in the transcription,
+     * positioned at the first annotation to export.
+     * 
+     * @param trans the transcription
+     * @param tierNames the names of the tiers, the index of a name is the 
+     * column index of the tier
+     * @param includeCVDescription if {@code true} the descriptions of the 
+     * CV entries of the tiers are retrieved
+     * @param inInterval if {@code true} only annotations overlapping the 
+     * interval are included
+     * @param beginTime the begin time of the interval
+     * @param endTime the end time of the interval
+     * 
+     * @return a list of cursors of tiers that have at least one annotation to export
+     */
+    private List<TierCursor> createTierCursors(Transcription trans, List<String> tierNames, 
+    		boolean includeCVDescription, boolean inInterval, long beginTime, long endTime) {
+    	List<TierCursor> cursors = new ArrayList<TierCursor>(tierNames.size());
+    	Map<String, Map<String, String>> cvMap = new HashMap<String, Map<String, String>>();
+
+    	for (int i = 0; i < tierNames.size(); i++) {
+    		String tierName = tierNames.get(i);
+    		Tier tier = trans.getTierWithId(tierName);
+    		// a duplicate name refers to the first column with that name
+    		if (tier == null || tierNames.indexOf(tierName) != i) {
+    			continue;
+    		}
 
-                    String participant = tier.getParticipant();
-                    
-                    if (participant == null) {
-                    	participant = EMPTY;
-                    }
+    		Map<String, String> descriptions = null;
+    		if (includeCVDescription) {
+    			String cvName = tier.getLinguisticType().getControlledVocabularyName();
+    			if (cvName != null) {
+    				descriptions = cvMap.get(cvName);
+    				if (descriptions == null) {
+    					descriptions = new HashMap<String, String>();
+    					ControlledVocabulary cv = trans.getControlledVocabulary(cvName);
+    					if (cv != null) {
+    						int defLang = cv.getDefaultLanguageIndex();
+    						for (CVEntry entry : cv) {
+    							descriptions.put(entry.getValue(defLang), entry.getDescription(defLang));
+    						}
+    					}
+    					cvMap.put(cvName, descriptions);
+    				}
+    			}
+    		}
 
-                    for (AnnotationCore annotation : tier.getAnnotations()) {
-                        if (annotation != null) {
-                            if (encoderInfo.isIncludeNames()) {
-                                writer.write(csvEncodeCond1(tier.getName()));
-                                if (encoderInfo.isIncludeParticipants()) {
-                                	writer.write(TAB + csvEncodeCond1(participant));
-                                }
-                            } else {
-                            	if (encoderInfo.isIncludeParticipants()) {
-                                	writer.write(csvEncodeCond1(participant));
-                                }
-                            }
-                            
-                            String tabString = getTabString(annotation,
-                            		encoderInfo.isIncludeBeginTime(), encoderInfo.isIncludeEndTime(),
-                            		encoderInfo.isIncludeDuration(), encoderInfo.isIncludeHHMM(), encoderInfo.isIncludeSSMS(),
-                            		encoderInfo.isIncludeMS(), encoderInfo.isIncludeSMPTE(),
-                            		smpteType, mediaOffset);       		
-                            
-                            if (encoderInfo.isIncludeCVDescription()) { 
-                            	// TODO HS Nov 2015 this can fail in case of multilingual CV's; getting the description
-                            	// on the basis of the annotation value returns null if the annotation does not have the 
-                            	// default language's cve value. Matching on the basis of the CVE ID could be better in some cases
-                            	// although it would be possible to get mixed languages results. Or get the description in
-                            	// the same language of the value by checking all values of the cve based on the id?
-                            	String description = cvEntryMap.get(annotation.getValue());
-                            	if (description != null) {
-                            		StringBuilder tsBuffer = new StringBuilder(tabString.replace(NEWLINE, TAB));
-                            		tsBuffer.append(csvEncodeCond2(description) + NEWLINE);
-                            		tabString = tsBuffer.toString();
-                            	}
-                            }  
-
-                            if (encoderInfo.isIncludeNames() || encoderInfo.isIncludeParticipants()) {
-                                writer.write(tabString, 0,
-                                        tabString.length() - 1);
-                            } else {
-                            	writer.write(tabString, 1,
-                                        tabString.length() - 2);
-                            }
-                            
-                            // Nov 2015 don't add the file name in a column if it is in the first row
-                            if (!encoderInfo.isFileNameInRow()) {
-	                            if (encoderInfo.isIncludeFileName()) {
-	                            	writer.write(TAB + csvEncodeCond1(file.getName()));
-	                            }
-	                            
-	                            if (encoderInfo.isIncludeFilePath()) {
-	                            	writer.write(TAB + csvEncodeCond1(file.getAbsolutePath()));
-	                            }
-                            }
-                            writer.write( NEWLINE);                              
-                        }
-                    }
-                }
-                // extra empty line in some cases
-                if (encoderInfo.isFileNameInRow() || encoderInfo.isIncludeMediaHeaders()) {
-                	writer.write(NEWLINE);
-                }
-            } catch (Exception ex) {
-                // catch any exception that could occur and continue
-                LOG.warning("Could not handle file: " +
-                    file.getAbsolutePath());
-            }
-        }
+    		TierCursor cursor = new TierCursor(tier.getAnnotations().iterator(), i, descriptions, 
+    				inInterval, beginTime, endTime);
+    		if (cursor.advance()) {
+    			cursors.add(cursor);
+    		}
+    	}
 
-        try {
-        	writer.close();
-        } catch (IOException ioe){}
+    	return cursors;
+    }
+
+    /**
+     * A position in the sorted sequence of annotations of a tier, used to merge
+     * the annotations of multiple tiers. Cursors are ordered by the begin and 
+     * end time of their current annotation and then by column index.
+     */
+    private static class TierCursor implements Comparable<TierCursor> {
+    	private final Iterator<? extends Annotation> annotations;
+    	private final int column;
+    	private final Map<String, String> descriptions;
+    	private final boolean inInterval;
+    	private final long beginTime;
+    	private final long endTime;
+    	private Annotation current;
+    	private long currentBT;
+    	private long currentET;
+
+    	TierCursor(Iterator<? extends Annotation> annotations, int column, Map<String, String> descriptions,
+    			boolean inInterval, long beginTime, long endTime) {
+    		this.annotations = annotations;
+    		this.column = column;
+    		this.descriptions = descriptions;
+    		this.inInterval = inInterval;
+    		this.beginTime = beginTime;
+    		this.endTime = endTime;
+    	}
+
+    	/**
+    	 * Moves to the next annotation to export.
+    	 * 
+    	 * @return {@code false} if there are no more annotations
+    	 */
+    	boolean advance() {
+    		while (annotations.hasNext()) {
+    			Annotation annotation = annotations.next();
+    			if (annotation == null) {
+    				continue;
+    			}
+    			if (inInterval) {
+    				if (annotation.getBeginTimeBoundary() > endTime) {
+    					break;
+    				}
+    				if (!TimeRelation.overlaps(annotation, beginTime, endTime)) {
+    					continue;
+    				}
+    			}
+    			current = annotation;
+    			currentBT = annotation.getBeginTimeBoundary();
+    			currentET = annotation.getEndTimeBoundary();
+    			return true;
+    		}
+    		current = null;
+    		return false;
+    	}
+
+    	@Override
+    	public int compareTo(TierCursor other) {
+    		if (currentBT != other.currentBT) {
+    			return currentBT < other.currentBT ? -1 : 1;
+    		}
+    		if (currentET != other.currentET) {
+    			return currentET < other.currentET ? -1 : 1;
+    		}
+    		return Integer.compare(column, other.column);
+    	}
     }
 
     /**
      * Returns the column headers / labels.
      * 
-     * @param model the table model used to group annotations with the same begin and end time
-     * in one row
+     * @param columnNames the names of the annotation columns
      * @param includeBeginTime whether or not the begin time is exported
      * @param includeEndTime whether or not the end time is exported
      * @param includeDuration whether or not the duration is exported
@@ -721,7 +798,7 @@ public class Transcription2TabDelimitedText {
      * 
      * @return the header labels delimited by tabs
      */
-    private  String getHeaders(TabExportTableModel model,
+    private  String getHeaders(List<String> columnNames,
         boolean includeBeginTime, boolean includeEndTime,
         boolean includeDuration, boolean includeHHMM, boolean includeSSMS,
         boolean includeMS, boolean includeSMPTE, String actualSMPTEType) {
@@ -838,10 +915,10 @@ public class Transcription2TabDelimitedText {
             }
         }
 
-        for (int i = 2; i < model.getColumnCount(); i++) {
-            buf.append(csvEncodeCond1(model.getColumnName(i)));
+        for (int i = 0; i < columnNames.size(); i++) {
+            buf.append(csvEncodeCond1(columnNames.get(i)));
 
-            if (i != (model.getColumnCount() - 1)) {
+            if (i != (columnNames.size() - 1)) {
                 buf.append(TAB);
             }
         }
@@ -851,18 +928,69 @@ public class Transcription2TabDelimitedText {
         return buf.toString();
     }
 
-    private  void writeRows(BufferedWriter writer,
-        TabExportTableModel model, boolean includeBeginTime,
-        boolean includeEndTime, boolean includeDuration, boolean includeHHMM,
-        boolean includeSSMS, boolean includeMS, boolean includeSMPTE,
-        String smpteType, long mediaOffset, boolean includeFileName, boolean includeFilePath ) throws IOException {
+    /**
+     * Merges the sorted annotation sequences of the tiers and writes the rows 
+     * while merging. The cursors are kept in a priority queue, annotations
+     * of multiple tiers that share the same begin and end time are written
+     * on the same row.
+     * 
+     * @param writer the writer
+     * @param cursors the tier cursors, positioned at the first annotation of each tier
+     * @param encoderInfo the encoder information for the time formats and columns
+     * @param smpteType the SMPTE time code type
+     * @param mediaOffset the offset to add to the time values
+     * @param fileName the file name to add to each row or {@code null}
+     * @param filePath the file path to add to each row or {@code null}
+     * 
+     * @throws IOException any IO exception
+     */
+    private void writeRows(Writer writer, List<TierCursor> cursors, 
+    	DelimitedTextEncoderInfo encoderInfo, String smpteType, long mediaOffset, 
+    	String fileName, String filePath) throws IOException {
+    	final boolean includeBeginTime = encoderInfo.isIncludeBeginTime();
+    	final boolean includeEndTime = encoderInfo.isIncludeEndTime();
+    	final boolean includeDuration = encoderInfo.isIncludeDuration();
+    	final boolean includeHHMM = encoderInfo.isIncludeHHMM();
+    	final boolean includeSSMS = encoderInfo.isIncludeSSMS();
+    	final boolean includeMS = encoderInfo.isIncludeMS();
+    	final boolean includeSMPTE = encoderInfo.isIncludeSMPTE();
+    	// the tier columns plus the optional description column
+    	final int numColumns = encoderInfo.getTierNames().size() + 
+    			(encoderInfo.isIncludeCVDescription() ? 1 : 0);
+    	final String[] values = new String[numColumns];
+        PriorityQueue<TierCursor> queue = new PriorityQueue<TierCursor>(Math.max(1, cursors.size()));
+        queue.addAll(cursors);
         long bt;
         long et;
-        Object value;
 
-        for (int i = 0; i < model.getRowCount(); i++) {
-            bt = ((Long) model.getValueAt(i, 0)).longValue() + mediaOffset;
-            et = ((Long) model.getValueAt(i, 1)).longValue() + mediaOffset;
+        while (!queue.isEmpty()) {
+        	TierCursor cursor = queue.poll();
+        	long rowBT = cursor.currentBT;
+        	long rowET = cursor.currentET;
+        	Arrays.fill(values, null);
+
+        	// collect the annotations of all tiers with the same begin and end time
+        	while (cursor != null) {
+        		values[cursor.column] = cursor.current.getValue();
+        		if (cursor.descriptions != null) {
+        			String description = cursor.descriptions.get(cursor.current.getValue());
+        			if (description != null) {
+        				values[numColumns - 1] = description;
+        			}
+        		}
+        		if (cursor.advance()) {
+        			queue.add(cursor);
+        		}
+        		cursor = queue.peek();
+        		if (cursor != null && cursor.currentBT == rowBT && cursor.currentET == rowET) {
+        			queue.poll();
+        		} else {
+        			cursor = null;
+        		}
+        	}
+
+            bt = rowBT + mediaOffset;
+            et = rowET + mediaOffset;
 
             if (includeBeginTime) {
                 if (includeHHMM) {
@@ -941,25 +1069,21 @@ public class Transcription2TabDelimitedText {
             }
 
             // write annotations in the columns
-            for (int j = 2; j < model.getColumnCount(); j++) {
-                value = model.getValueAt(i, j);
-
-                if (value instanceof String) {
-                    writer.write(csvEncodeCond2((String) value));
+            for (int j = 0; j < numColumns; j++) {
+                if (values[j] != null) {
+                    writer.write(csvEncodeCond2(values[j]));
                 }
 
-                if (j != (model.getColumnCount() - 1)) {
+                if (j != (numColumns - 1)) {
                     writer.write(TAB);
                 }
             }
             
-            if (model.getFileName() != null) {
-            	if(includeFileName) {
-					writer.write(TAB + csvEncodeCond1(model.getFileName()));
-				}
-            	if(includeFilePath) {
-					writer.write(TAB + csvEncodeCond1(model.getAbsoluteFilePath()));
-				}            		
+            if (fileName != null) {
+				writer.write(TAB + csvEncodeCond1(fileName));
+            }
+            if (filePath != null) {
+				writer.write(TAB + csvEncodeCond1(filePath));
             }
 
             writer.write(NEWLINE);
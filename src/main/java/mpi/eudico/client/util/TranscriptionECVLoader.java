@@ -105,22 +105,25 @@ public class TranscriptionECVLoader {
         		}
 
         		try {
-        			ecvStore.loadExternalCVS(ecvList, urlStr);
-        			for (ExternalCV excv : ecvList) {
-        				excv.setLoadedFromURL(true);
-        				// check languages of the ECV
-        				for (int i = 0; i < excv.getNumberOfLanguages(); i++) {
-        					LangInfo lInfo = excv.getLangInfo(i);
-        					int li = RecentLanguages.getInstance().addRecentLanguage(lInfo);
-        					if (LOG.isLoggable(Level.FINE)) {
-        						LOG.fine(String.format("Added language %s (%s) at index %d",
-        								lInfo.getId(), lInfo.getLabel(), li));
+        			// other transcriptions may load this source and write its cache at the same time
+        			synchronized (ECVStore.getLock(urlStr)) {
+        				ecvStore.loadExternalCVS(ecvList, urlStr);
+        				for (ExternalCV excv : ecvList) {
+        					excv.setLoadedFromURL(true);
+        					// check languages of the ECV
+        					for (int i = 0; i < excv.getNumberOfLanguages(); i++) {
+        						LangInfo lInfo = excv.getLangInfo(i);
+        						int li = RecentLanguages.getInstance().addRecentLanguage(lInfo);
+        						if (LOG.isLoggable(Level.FINE)) {
+        							LOG.fine(String.format("Added language %s (%s) at index %d",
+        									lInfo.getId(), lInfo.getLabel(), li));
+        						}
         					}
         				}
+        				numLoadedExternal += ecvList.size();
+        				// update cache
+        				ecvStore.storeExternalCVS(ecvList, cachedCV, urlStr);
         			}
-        			numLoadedExternal += ecvList.size();
-        			// update cache
-        			ecvStore.storeExternalCVS(ecvList, cachedCV, urlStr);
         		} catch (Exception exc) {
         			// load local
         			try {
@@ -134,7 +137,9 @@ public class TranscriptionECVLoader {
                         for (String pathElement : pathElements) {
                             cachedCV += Constants.FILESEPARATOR + pathElement;
                         }
-						ecvStore.loadExternalCVS(ecvList, cachedCV);
+						synchronized (ECVStore.getLock(urlStr)) {
+							ecvStore.loadExternalCVS(ecvList, cachedCV);
+						}
             			for (ExternalCV excv : ecvList) {
             				excv.setLoadedFromCache(true);
             			}
@@ -14,7 +14,9 @@ import nl.mpi.media.UnsupportedMediaException;
  * media framework to decode the audio of a video file or of an audio file of a 
  * type other than (local, uncompressed) {@code .wav} files. 
  * This sampler uses an {@link AudioExtractor} instance which builds on 
- * {@code JNI} to interact with the native decoder.
+ * {@code JNI} to interact with the native decoder. For local files the
+ * decoded audio is stored in the {@link DecodedAudioCache}, after which the
+ * samples are read from there.
  *  
  * @author Han Sloetjes
  */
@@ -94,13 +96,30 @@ public class WAVFromOtherSampler implements WAVSamplesProvider {
 //    		}
         }
         mediaUrlString = urlString;
-        if (prefFramework != null && prefFramework.equals("FFmpeg")) {//PlayerFactory.FFMPEG
-        	audioExtractor = new FFAudioExtractor(mediaUrlString);
-        } else {
-        	audioExtractor = new AudioExtractor(mediaUrlString);
-        }
+        final boolean useFF = prefFramework != null && prefFramework.equals("FFmpeg");//PlayerFactory.FFMPEG
+        audioExtractor = createExtractor(mediaUrlString, useFF);
 		
 		initTest();
+		// serve the samples from the decoded audio cache once the file has been decoded
+		audioExtractor = DecodedAudioCache.getInstance().getCachedExtraction(mediaUrlString,
+				audioExtractor, path -> createExtractor(path, useFF));
+	}
+	
+	/**
+	 * Creates a native audio extractor for the media file.
+	 * 
+	 * @param mediaPath the media file path or URL
+	 * @param useFF if {@code true} an FFmpeg based extractor is created
+	 * @return the extractor
+	 * @throws UnsupportedMediaException if the framework cannot be initialized
+	 * or the media is not supported 
+	 */
+	private static AudioExtraction createExtractor(String mediaPath, boolean useFF) 
+			throws UnsupportedMediaException {
+		if (useFF) {
+			return new FFAudioExtractor(mediaPath);
+		}
+		return new AudioExtractor(mediaPath);
 	}
 	
 	/**
@@ -76,6 +76,17 @@ public abstract class AbstractAnnotation implements Annotation {
         modified(ACMEditEvent.CHANGE_ANNOTATION_VALUE, null);
     }
 
+    /**
+     * Sets the initial value of a newly created annotation without issuing
+     * a modified event. Used when annotations are created in bulk, in which
+     * case a single event is issued for the whole operation.
+     *
+     * @param theValue the text value of this annotation
+     */
+    void initValue(String theValue) {
+        value = theValue;
+    }
+
     /**
      * Returns the annotation id.
      * If it does not have one yet, it is invented. By default the id has the 
@@ -0,0 +1,103 @@
+package mpi.eudico.server.corpora.clomimpl.abstr;
+
+import java.util.Arrays;
+
+/**
+ * A batch of annotations to be created in one operation on a top level tier,
+ * see {@link TierImpl#addAnnotations(AnnotationBatch)}. The intervals have to
+ * be added in the order of their begin time, each interval is validated when
+ * it is added. While adding, the batch keeps track of whether the intervals
+ * overlap each other.
+ */
+public class AnnotationBatch {
+	private long[] beginTimes;
+	private long[] endTimes;
+	private String[] values;
+	private int size;
+	private boolean nonOverlapping = true;
+	private long maxEndTime = -1;
+
+	/**
+	 * Creates an empty batch.
+	 *
+	 * @param capacity the expected number of annotations
+	 */
+	public AnnotationBatch(int capacity) {
+		int cap = Math.max(capacity, 4);
+		beginTimes = new long[cap];
+		endTimes = new long[cap];
+		values = new String[cap];
+	}
+
+	/**
+	 * Adds an interval and value to the batch.
+	 *
+	 * @param beginTime the begin time, not negative and not smaller than the
+	 * begin time of the previously added interval
+	 * @param endTime the end time, greater than the begin time
+	 * @param value the annotation value, {@code null} is converted to the empty string
+	 *
+	 * @throws IllegalArgumentException if the interval is invalid or not in order
+	 */
+	public void add(long beginTime, long endTime, String value) {
+		if (beginTime < 0 || endTime <= beginTime) {
+			throw new IllegalArgumentException(String.format(
+					"Invalid annotation interval: %d - %d", beginTime, endTime));
+		}
+		if (size > 0 && beginTime < beginTimes[size - 1]) {
+			throw new IllegalArgumentException(String.format(
+					"Annotation intervals are not sorted: %d after %d", beginTime, beginTimes[size - 1]));
+		}
+		if (size == beginTimes.length) {
+			beginTimes = Arrays.copyOf(beginTimes, size * 2);
+			endTimes = Arrays.copyOf(endTimes, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		if (beginTime < maxEndTime) {
+			nonOverlapping = false;
+		}
+		beginTimes[size] = beginTime;
+		endTimes[size] = endTime;
+		values[size] = value != null ? value : "";
+		maxEndTime = Math.max(maxEndTime, endTime);
+		size++;
+	}
+
+	/**
+	 * @return the number of annotations in the batch
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return {@code true} if none of the intervals overlap another interval of the batch
+	 */
+	public boolean isNonOverlapping() {
+		return nonOverlapping;
+	}
+
+	/**
+	 * @param index the index of the annotation
+	 * @return the begin time
+	 */
+	public long getBeginTime(int index) {
+		return beginTimes[index];
+	}
+
+	/**
+	 * @param index the index of the annotation
+	 * @return the end time
+	 */
+	public long getEndTime(int index) {
+		return endTimes[index];
+	}
+
+	/**
+	 * @param index the index of the annotation
+	 * @return the value, not {@code null}
+	 */
+	public String getValue(int index) {
+		return values[index];
+	}
+}
@@ -206,6 +206,93 @@ public class TierImpl implements Tier {
 		return annotation;
 	}
 
+	/**
+	 * Creates the annotations of a batch in one operation and issues a single
+	 * {@link ACMEditEvent#CHANGE_ANNOTATIONS} event afterwards, instead of one
+	 * or more events per annotation.
+	 * <p>
+	 * If this is a time alignable top level tier without constraints and the
+	 * annotations of the batch neither overlap each other nor any of the existing
+	 * annotations, the time slots are merged into the time order in one pass
+	 * and the annotations are added without overlap correction. Otherwise each
+	 * annotation is created as by {@link #createAnnotation(long, long)},
+	 * including the correction of overlaps.
+	 *
+	 * @param batch the intervals and values of the annotations to create
+	 * @return a list of the same size as the batch, containing the created
+	 * annotations in the order of the batch; an element is {@code null} if
+	 * the annotation could not be created
+	 */
+	public List<Annotation> addAnnotations(AnnotationBatch batch) {
+		List<Annotation> created = new ArrayList<Annotation>(batch.size());
+		if (batch.size() == 0) {
+			return created;
+		}
+
+		if (getParentTier() == null && isTimeAlignable() &&
+				getLinguisticType().getConstraints() == null &&
+				batch.isNonOverlapping() && !overlapsAnnotations(batch)) {
+			TimeOrder timeOrder = transcription.getTimeOrder();
+			List<TimeSlot> slots = new ArrayList<TimeSlot>(batch.size() * 2);
+			for (int i = 0; i < batch.size(); i++) {
+				slots.add(new TimeSlotImpl(batch.getBeginTime(i), timeOrder));
+				slots.add(new TimeSlotImpl(batch.getEndTime(i), timeOrder));
+			}
+			((TimeOrderImpl) timeOrder).mergeOrderedSlots(slots);
+
+			for (int i = 0; i < batch.size(); i++) {
+				AlignableAnnotation annotation = new AlignableAnnotation(slots.get(2 * i),
+						slots.get(2 * i + 1), this);
+				annotation.initValue(batch.getValue(i));
+				annotations.add(annotation);
+				created.add(annotation);
+			}
+
+			modified(ACMEditEvent.CHANGE_ANNOTATIONS, null);
+		} else {
+			boolean wasNotifying = transcription.isNotifying();
+			transcription.setNotifying(false);
+			try {
+				for (int i = 0; i < batch.size(); i++) {
+					Annotation annotation = createAnnotation(batch.getBeginTime(i), batch.getEndTime(i));
+					if (annotation != null) {
+						annotation.setValue(batch.getValue(i));
+					}
+					created.add(annotation);
+				}
+			} finally {
+				transcription.setNotifying(wasNotifying);
+			}
+		}
+
+		return created;
+	}
+
+	/**
+	 * Checks whether any of the (mutually non-overlapping) intervals of the
+	 * batch overlaps one of the annotations of this tier, in a single pass
+	 * over the annotations and the batch.
+	 *
+	 * @param batch a batch of non-overlapping intervals
+	 * @return {@code true} if there is at least one overlap
+	 */
+	private boolean overlapsAnnotations(AnnotationBatch batch) {
+		int i = 0;
+		for (Annotation ann : annotations) {
+			long annEnd = ann.getEndTimeBoundary();
+			while (i < batch.size() && batch.getEndTime(i) <= ann.getBeginTimeBoundary()) {
+				i++;
+			}
+			if (i == batch.size()) {
+				return false;
+			}
+			if (batch.getBeginTime(i) < annEnd) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	// Tier interface methods
 	@Override
 	public String getName() {
@@ -602,4 +602,40 @@ public class TimeOrderImpl implements TimeOrder {
 		orderedTimeSlotList.addAll(slots);
 		reindex();
 	}
+	
+	/**
+	 * Merges a list of time aligned TimeSlots into the TimeOrder in one 
+	 * operation. Each slot is positioned as if it had been added by
+	 * {@link #insertTimeSlot(TimeSlot)}, i.e. after all slots with a time
+	 * less than or equal to its time, but the list is traversed only once.<br>
+	 * <b>Note: </b> it is assumed that the TimeSlots in the list are ordered
+	 * by time and are all time aligned.
+	 * 
+	 * @param slots a collection of ordered, aligned Time Slots
+	 */
+	public void mergeOrderedSlots(List<TimeSlot> slots) {
+		if (slots == null || slots.isEmpty()) {
+			return;
+		}
+		final int numExisting = orderedTimeSlotList.size();
+		ArrayList<TimeSlot> merged = new ArrayList<TimeSlot>(numExisting + slots.size());
+		int firstChanged = -1;
+		int j = 0;
+		for (TimeSlot slot : slots) {
+			long time = slot.getTime();
+			while (j < numExisting && orderedTimeSlotList.get(j).getTime() <= time) {
+				merged.add(orderedTimeSlotList.get(j++));
+			}
+			if (firstChanged < 0) {
+				firstChanged = merged.size();
+			}
+			merged.add(slot);
+		}
+		while (j < numExisting) {
+			merged.add(orderedTimeSlotList.get(j++));
+		}
+		
+		orderedTimeSlotList = merged;
+		reindex(firstChanged);
+	}
 }
@@ -37,6 +37,7 @@ import mpi.eudico.util.ControlledVocabulary;
 import mpi.eudico.util.ExternalCV;
 import mpi.eudico.util.Pair;
 import mpi.eudico.util.TimeFormatter;
+import mpi.eudico.util.jfr.EditNotificationEvent;
 import nl.mpi.util.FileUtility;
 /**
  * TranscriptionImpl implements Transcription.
@@ -256,7 +257,11 @@ public class TranscriptionImpl implements Transcription {
 		Iterator<ACMEditListener> i=listeners.iterator();
 		ACMEditEvent event = new ACMEditEvent(source, operation, modification);
 		while(i.hasNext()){
-			i.next().ACMEdited(event);
+			ACMEditListener listener = i.next();
+			EditNotificationEvent notificationEvent = new EditNotificationEvent();
+			notificationEvent.begin();
+			listener.ACMEdited(event);
+			notificationEvent.finish(listener, operation);
 		}
 	}
 
@@ -306,6 +311,29 @@ public class TranscriptionImpl implements Transcription {
 		return isNotifying;
 	}
 
+	/**
+	 * Creates the annotations of a batch per tier, see
+	 * {@link TierImpl#addAnnotations(AnnotationBatch)}. Listeners are notified
+	 * once, after all batches have been processed.
+	 *
+	 * @param batches a map of tier to the batch of annotations to create on that tier
+	 * @return a map of tier to the list of created annotations, in batch order
+	 */
+	public Map<TierImpl, List<Annotation>> addAnnotations(Map<TierImpl, AnnotationBatch> batches) {
+		Map<TierImpl, List<Annotation>> created = new HashMap<TierImpl, List<Annotation>>(batches.size());
+		boolean wasNotifying = isNotifying;
+		setNotifying(false);
+		try {
+			for (Map.Entry<TierImpl, AnnotationBatch> entry : batches.entrySet()) {
+				created.put(entry.getKey(), entry.getKey().addAnnotations(entry.getValue()));
+			}
+		} finally {
+			setNotifying(wasNotifying);
+		}
+
+		return created;
+	}
+
 	/**
 	 * Returns the name of the Transcription
 	 *
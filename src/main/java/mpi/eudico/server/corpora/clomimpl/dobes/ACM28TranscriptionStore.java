@@ -56,6 +56,7 @@ import static mpi.eudico.server.corpora.util.ServerLogger.LOG;
 import mpi.eudico.util.CVEntry;
 import mpi.eudico.util.ControlledVocabulary;
 import mpi.eudico.util.ExternalCV;
+import mpi.eudico.util.jfr.TranscriptionPhaseEvent;
 import mpi.eudico.util.multilangcv.LangInfo;
 import mpi.eudico.util.multilangcv.RecentLanguages;
 
@@ -80,8 +81,6 @@ import mpi.eudico.util.multilangcv.RecentLanguages;
  * @version May 2014 support for multi-lingual CVs added, and prefs format conversion
  */
 public class ACM28TranscriptionStore implements TranscriptionStore {
-	/** a debug flag */
-	public boolean debug = false;
 	// after importing/parsing certain file types symbolic associated 
 	// annotations need to be concatenated as a postprocessing step
 	private boolean concatenateAfterParse = false;
@@ -91,7 +90,6 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
      */
     public ACM28TranscriptionStore() {
         super();
-		//debug = true;
     }
 	
     /**
@@ -292,11 +290,9 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
 		}
 		*/
         
-		long beginTime = System.currentTimeMillis();
-		if (debug) {
-			System.out.println("Parsing eaf took: " + (System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();
-		}
+		// the document is parsed when the first part of it is requested
+		TranscriptionPhaseEvent phaseEvent = TranscriptionPhaseEvent.start(
+				TranscriptionPhaseEvent.LOAD, trPathName);
 
         // set license and url
         attisTr.setLicenses(parser.getLicenses(trPathName));
@@ -355,10 +351,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
             attisTr.setAuthor(author);
         }
 
-		if (debug) {
-			System.out.println("Extracting header took: " + (System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("parse and header");
 		// get the ext refs mappings
 		Map<String, ExternalReferenceImpl> extReferences = parser.getExternalReferences(trPathName);
         // make linguistic types available in transcription
@@ -428,11 +421,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
 
         attisTr.setLinguisticTypes(new ArrayList<LinguisticType>(typesCopy));
 
-		if (debug) {
-			System.out.println("Creating linguistic types took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("linguistic types");
 		
         //attisTr.setLinguisticTypes(linguisticTypes);
         TimeOrder timeOrder = attisTr.getTimeOrder();
@@ -482,11 +471,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
 		Collections.sort(tempSlots, new TimeSlotComparator());
 		((TimeOrderImpl)timeOrder).insertOrderedSlots(tempSlots);
 		
-		if (debug) {
-			System.out.println("Creating time slots and time order took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("time order");
 		
         Map<TierImpl, String> parentHash = new HashMap<TierImpl, String>();
         
@@ -557,11 +542,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
         	depTier.setParentTier(attisTr.getTierWithId(parentEntry.getValue()));
         }
 
-		if (debug) {
-			System.out.println("Creating tiers took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("tiers");
 		
         //	attisTr.setLoaded(true);	// else endless recursion !!!!!
         List<TierImpl> tiers = attisTr.getTiers();
@@ -765,11 +746,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
             }
         }
         
-		if (debug) {
-			System.out.println("Creating and connecting annotations took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("annotations");
         // HS jun 2004 create the ControlledVocabularies, if any
         
         Map<String, CVRecord> cvTable = parser.getControlledVocabularies(trPathName);
@@ -902,11 +879,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
         	}
         }
 
-		if (debug) {
-			System.out.println("Creating CVs took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}
+		phaseEvent = phaseEvent.next("controlled vocabularies");
 		
 		// Now that we have the CVs, we can find the CVEntryIDs where they were not given.
 		// If this is an old file format, from before the time that CvEntryIDs were habitually
@@ -944,11 +917,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
 	        	}
 			}
 			
-			if (debug) {
-				System.out.println("Looking up Annotation values in their CVs took: " + 
-					(System.currentTimeMillis() - beginTime) + " ms");
-				beginTime = System.currentTimeMillis();	
-			}
+			phaseEvent = phaseEvent.next("cv entry lookup");
 		}
 
 		// Lexicon Services (Micha Hulsbosch, 2010)
@@ -1010,11 +979,7 @@ public class ACM28TranscriptionStore implements TranscriptionStore {
         // HS set the loaded flag
 		attisTr.setLoaded(true);
 		
-		if (debug) {
-			System.out.println("Post-processing took: " + 
-				(System.currentTimeMillis() - beginTime) + " ms");
-			beginTime = System.currentTimeMillis();	
-		}      
+		phaseEvent.finish("post-processing");
         //System.out.println("getName: " + attisTr.getName());
         //System.out.println("fullpath: " + attisTr.getFullPath());
         //System.out.println("pathname: " + attisTr.getPathName());
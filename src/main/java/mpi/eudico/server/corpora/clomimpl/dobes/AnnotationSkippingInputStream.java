@@ -0,0 +1,323 @@
+package mpi.eudico.server.corpora.clomimpl.dobes;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An input stream that removes the {@code ANNOTATION}, {@code TIME_SLOT} and
+ * {@code REF_LINK_SET} elements from an EAF document before it reaches the
+ * XML parser. These elements make up the bulk of an EAF file but are not
+ * needed for the skeleton (tiers, types, controlled vocabularies etc.);
+ * removing them as a whole keeps the document valid, including the key and
+ * key reference constraints of the schema.
+ * <p>
+ * The filter works on the bytes of the file and relies on the markup being
+ * ASCII compatible; UTF-16 encoded documents are passed through unchanged.
+ * Since a {@code <} in text content or in an attribute value has to be
+ * escaped, the element tags can otherwise only occur in comments, CDATA
+ * sections and processing instructions. These are recognized and copied (or
+ * skipped, inside a skipped element) as a whole. A document with a document
+ * type declaration is passed through unchanged from the declaration on,
+ * since its entities could contain markup. Line numbers in parse errors may
+ * not correspond to the file.
+ */
+class AnnotationSkippingInputStream extends FilterInputStream {
+    private static final byte[][] SKIPPED_ELEMENTS = {
+            "ANNOTATION".getBytes(StandardCharsets.US_ASCII),
+            "TIME_SLOT".getBytes(StandardCharsets.US_ASCII),
+            "REF_LINK_SET".getBytes(StandardCharsets.US_ASCII)};
+    /** the start and end of sections in which markup is not recognized */
+    private static final byte[][][] SECTIONS = {
+            {"<!--".getBytes(StandardCharsets.US_ASCII), "-->".getBytes(StandardCharsets.US_ASCII)},
+            {"<![CDATA[".getBytes(StandardCharsets.US_ASCII), "]]>".getBytes(StandardCharsets.US_ASCII)},
+            {"<?".getBytes(StandardCharsets.US_ASCII), "?>".getBytes(StandardCharsets.US_ASCII)}};
+    private static final byte[] DOCTYPE = "<!DOCTYPE".getBytes(StandardCharsets.US_ASCII);
+    /** the number of bytes needed to recognize the start or end of a skipped element */
+    private static final int LOOKAHEAD = 16;
+
+    private static final int COPY = 0;
+    private static final int IN_START_TAG = 1;
+    private static final int IN_CONTENT = 2;
+    private static final int IN_END_TAG = 3;
+    private static final int COPY_SECTION = 4;
+    private static final int SKIP_SECTION = 5;
+
+    private final byte[] buf = new byte[16384];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean started;
+    private boolean passThrough;
+
+    private int state = COPY;
+    private byte[] skippedName;
+    private byte quote;
+    private byte prev;
+    /** the end of the comment, CDATA section or processing instruction being copied or skipped */
+    private byte[] sectionEnd;
+    /** the number of bytes of the start of a copied section still to copy */
+    private int sectionStartRemaining;
+
+    /**
+     * Constructor.
+     *
+     * @param in the stream of the EAF document
+     */
+    AnnotationSkippingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!started) {
+            started = true;
+            fill();
+            // a byte order mark or a '<' encoded in two bytes
+            if (limit - pos >= 2 && (((buf[0] & 0xFF) == 0xFE && (buf[1] & 0xFF) == 0xFF) ||
+                    ((buf[0] & 0xFF) == 0xFF && (buf[1] & 0xFF) == 0xFE) ||
+                    (buf[0] == 0 && buf[1] == '<') || (buf[0] == '<' && buf[1] == 0))) {
+                passThrough = true;
+            }
+        }
+        if (passThrough) {
+            if (pos < limit) {
+                int n = Math.min(len, limit - pos);
+                System.arraycopy(buf, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+            return in.read(b, off, len);
+        }
+
+        int n = 0;
+        while (n < len && !passThrough) {
+            if (limit - pos < LOOKAHEAD && !eof) {
+                fill();
+            }
+            if (pos >= limit) {
+                break;
+            }
+            byte c = buf[pos];
+
+            switch (state) {
+            case COPY:
+                if (c == '<') {
+                    byte[] name = matchStartTag();
+                    if (name != null) {
+                        skippedName = name;
+                        state = IN_START_TAG;
+                        quote = 0;
+                        prev = 0;
+                        pos += 1 + name.length;
+                        continue;
+                    }
+                    byte[][] section = matchSection();
+                    if (section != null) {
+                        state = COPY_SECTION;
+                        sectionEnd = section[1];
+                        // the start is copied first, so that e.g. "<!-->" is not taken as the end
+                        sectionStartRemaining = section[0].length - 1;
+                    } else if (matches(pos, DOCTYPE)) {
+                        passThrough = true;
+                    }
+                }
+                b[off + n++] = c;
+                pos++;
+                break;
+            case COPY_SECTION:
+                if (sectionStartRemaining > 0) {
+                    sectionStartRemaining--;
+                } else if (matches(pos, sectionEnd)) {
+                    // the end is copied in the copy state
+                    state = COPY;
+                    continue;
+                }
+                b[off + n++] = c;
+                pos++;
+                break;
+            case IN_START_TAG:
+                pos++;
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    // an empty element ends here
+                    state = prev == '/' ? COPY : IN_CONTENT;
+                }
+                prev = c;
+                break;
+            case IN_CONTENT:
+                if (c == '<') {
+                    if (matchEndTag()) {
+                        state = IN_END_TAG;
+                        pos += 2 + skippedName.length;
+                        continue;
+                    }
+                    byte[][] section = matchSection();
+                    if (section != null) {
+                        state = SKIP_SECTION;
+                        sectionEnd = section[1];
+                        pos += section[0].length;
+                        continue;
+                    }
+                }
+                pos++;
+                break;
+            case SKIP_SECTION:
+                if (matches(pos, sectionEnd)) {
+                    state = IN_CONTENT;
+                    pos += sectionEnd.length;
+                } else {
+                    pos++;
+                }
+                break;
+            case IN_END_TAG:
+                pos++;
+                if (c == '>') {
+                    state = COPY;
+                }
+                break;
+            default:
+                pos++;
+            }
+        }
+
+        return n == 0 ? -1 : n;
+    }
+
+    /**
+     * Checks whether the '{@code <}' at the current position starts a
+     * comment, a CDATA section or a processing instruction.
+     *
+     * @return the start and end of the section or {@code null}
+     */
+    private byte[][] matchSection() {
+        for (byte[][] section : SECTIONS) {
+            if (matches(pos, section[0])) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the '{@code <}' at the current position starts one of
+     * the skipped elements.
+     *
+     * @return the name of the element or {@code null}
+     */
+    private byte[] matchStartTag() {
+        for (byte[] name : SKIPPED_ELEMENTS) {
+            if (matches(pos + 1, name)) {
+                int delim = pos + 1 + name.length;
+                if (delim < limit && (buf[delim] == '/' || isEndOfName(buf[delim]))) {
+                    return name;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the '{@code <}' at the current position starts the end
+     * tag of the element being skipped.
+     *
+     * @return {@code true} if it is the end tag
+     */
+    private boolean matchEndTag() {
+        int delim = pos + 2 + skippedName.length;
+        // not the end tag of an element with a longer name, e.g. ANNOTATION_VALUE
+        return delim < limit && buf[pos + 1] == '/' && matches(pos + 2, skippedName) &&
+                isEndOfName(buf[delim]);
+    }
+
+    private static boolean isEndOfName(byte b) {
+        return b == '>' || b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private boolean matches(int from, byte[] name) {
+        if (from + name.length > limit) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buf[from + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the remaining bytes to the start of the buffer and reads until
+     * the buffer is full or the end of the stream is reached.
+     */
+    private void fill() throws IOException {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+        while (limit < buf.length) {
+            int n = in.read(buf, limit, buf.length - limit);
+            if (n < 0) {
+                eof = true;
+                break;
+            }
+            limit += n;
+            if (limit - pos >= LOOKAHEAD) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] skipBuf = new byte[(int) Math.min(n, 4096)];
+        long remaining = n;
+        while (remaining > 0) {
+            int r = read(skipBuf, 0, (int) Math.min(remaining, skipBuf.length));
+            if (r < 0) {
+                break;
+            }
+            remaining -= r;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
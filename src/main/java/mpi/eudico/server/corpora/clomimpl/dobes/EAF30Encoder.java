@@ -14,6 +14,7 @@ import mpi.eudico.server.corpora.clomimpl.reflink.CrossRefLink;
 import mpi.eudico.server.corpora.clomimpl.reflink.GroupRefLink;
 import mpi.eudico.server.corpora.clomimpl.reflink.RefLinkSet;
 import mpi.eudico.util.IoUtil;
+import mpi.eudico.util.jfr.TranscriptionPhaseEvent;
 import static mpi.eudico.server.corpora.util.ServerLogger.LOG;
 
 import org.w3c.dom.Element;
@@ -67,7 +68,12 @@ public class EAF30Encoder extends EAF28Encoder {
 	public void encodeAndSave(Transcription theTranscription,
         EncoderInfo encoderInfo, List<TierImpl> tierOrder, String path)
     	   throws IOException{
-    	super.encodeAndSave(theTranscription, encoderInfo, tierOrder, path);
+    	TranscriptionPhaseEvent phaseEvent = TranscriptionPhaseEvent.start(
+    			TranscriptionPhaseEvent.SAVE, path);
+    	Element documentElement = createDOM(theTranscription, tierOrder, path);
+    	phaseEvent = phaseEvent.next("create DOM");
+        save(documentElement, path);
+        phaseEvent.finish("write");
     }
 
     /**
@@ -0,0 +1,122 @@
+package mpi.eudico.server.corpora.clomimpl.dobes;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import mpi.eudico.server.corpora.clomimpl.abstr.ParseException;
+
+/**
+ * An application wide cache of parsed EAF skeletons, keyed by the path and
+ * the modification time (and size) of the file. Dialogs that list tiers,
+ * types or participants of many files can then reuse the results of a
+ * previous parse of a file that has not been changed since.
+ * <p>
+ * The cached parsers are shared: the tiers, types and vocabularies they
+ * return must be treated as read-only. Clients that modify or import these
+ * objects should create their own {@link EAFSkeletonParser}. The results are
+ * softly referenced, the cache does not prevent them from being garbage
+ * collected when memory is low.
+ */
+public class EAFSkeletonCache {
+    /** the maximum number of files in the cache */
+    private static final int MAX_ENTRIES = 5000;
+    private static final EAFSkeletonCache instance = new EAFSkeletonCache();
+
+    private final Map<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Private constructor.
+     */
+    private EAFSkeletonCache() {
+        super();
+    }
+
+    /**
+     * Returns the shared cache.
+     *
+     * @return the cache instance
+     */
+    public static EAFSkeletonCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns a parser that has parsed the specified file, from the cache if
+     * the file has not been modified since it was parsed. Files that are not
+     * local (e.g. a URL) are parsed but not cached.
+     *
+     * @param fileName the path to the file
+     *
+     * @return a parser that has completed parsing, to be treated as read-only
+     * @throws ParseException if the file cannot be parsed, failures are not
+     * cached
+     */
+    public EAFSkeletonParser getParsedSkeleton(String fileName) throws ParseException {
+        File f = new File(fileName);
+        if (!f.isFile()) {
+            EAFSkeletonParser parser = new EAFSkeletonParser(fileName);
+            parser.parse();
+            return parser;
+        }
+
+        String key = f.getAbsolutePath();
+        long lastModified = f.lastModified();
+        long length = f.length();
+
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry != null) {
+                EAFSkeletonParser parser = entry.parserRef.get();
+                if (parser != null && entry.lastModified == lastModified && entry.length == length) {
+                    return parser;
+                }
+                entries.remove(key);
+            }
+        }
+
+        // parse outside of the lock, different files can be parsed concurrently
+        EAFSkeletonParser parser = new EAFSkeletonParser(fileName);
+        parser.parse();
+        parser.releaseParsingResources();
+
+        synchronized (entries) {
+            entries.put(key, new CacheEntry(lastModified, length, parser));
+        }
+
+        return parser;
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * The parse result of a file and the file attributes at the time of
+     * parsing.
+     */
+    private static class CacheEntry {
+        final long lastModified;
+        final long length;
+        final SoftReference<EAFSkeletonParser> parserRef;
+
+        CacheEntry(long lastModified, long length, EAFSkeletonParser parser) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.parserRef = new SoftReference<EAFSkeletonParser>(parser);
+        }
+    }
+}
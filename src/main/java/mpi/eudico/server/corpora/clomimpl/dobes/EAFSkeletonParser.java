@@ -43,7 +43,10 @@ import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Parses an eaf file, creating objects of ControlledVocabularies,
- * LinguisticTypes and Tiers only. The rest is skipped.
+ * LinguisticTypes and Tiers only. The rest is skipped: annotations, time
+ * slots and reference links are removed from the input before it reaches
+ * the XML parser (and validator), and in non-strict mode parsing stops at the
+ * external references if none of them is referenced.
  *
  * @author Han Sloetjes
  * @version 1.0 jan 2006: reflects EAFv2.2.xsd
@@ -53,6 +56,8 @@ import org.xml.sax.helpers.DefaultHandler;
  * to Linguistic Type and CV entry
  */
 public class EAFSkeletonParser {
+    /** the compiled EAF schema, shared by all instances */
+    private static Schema eafSchema;
     /** the sax parser */
 	private SAXParser parser;
     private boolean strict;
@@ -159,11 +164,7 @@ public class EAFSkeletonParser {
 			
 			if (validate) {
 				// to get a validating parser, set the schema to the proper xsd schema
-				SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-				Schema eafSchema = schemaFactory.newSchema(
-						this.getClass().getResource(ACMTranscriptionStore.getCurrentEAFSchemaLocal()));
-				
-				parserFactory.setSchema(eafSchema);// the validating flag should be false (the default)
+				parserFactory.setSchema(getEAFSchema());// the validating flag should be false (the default)
 			} else {
 				parserFactory.setValidating(false);// superfluous, false is already the default
 			}
@@ -177,6 +178,23 @@ public class EAFSkeletonParser {
     		throw new ParseException(thr.getMessage());
     	}
     }
+
+    /**
+     * Returns the compiled EAF schema, it is created the first time it is
+     * needed. A {@code Schema} is immutable and can be shared between parsers.
+     *
+     * @return the schema
+     * @throws SAXException if the schema cannot be parsed
+     */
+    private static synchronized Schema getEAFSchema() throws SAXException {
+    	if (eafSchema == null) {
+			SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+			eafSchema = schemaFactory.newSchema(
+					EAFSkeletonParser.class.getResource(ACMTranscriptionStore.getCurrentEAFSchemaLocal()));
+    	}
+    	return eafSchema;
+    }
+
     /*
        public ArrayList getMediaDescriptors() {
            return null;
@@ -330,11 +348,20 @@ public class EAFSkeletonParser {
         */
         // get an input source for the file name, create a content handler
         // and call parse.
+        InputSource is = null;
         try {
-        	InputSource is = ACMTranscriptionStore.toInputSource(fileName);
+        	is = ACMTranscriptionStore.toInputSource(fileName);
+        	if (is != null && is.getByteStream() != null) {
+        		// the annotations are not needed, don't let the parser see them
+        		is.setByteStream(new AnnotationSkippingInputStream(is.getByteStream()));
+        	}
         	EAFSkeletonHandler contentHandler = new EAFSkeletonHandler();
         	
-        	parser.parse(is, contentHandler);
+        	try {
+        		parser.parse(is, contentHandler);
+        	} catch (SkeletonCompleteException sce) {
+        		// the rest of the document is not needed
+        	}
         	
         	createObjects();
         } catch (IOException ioe) {
@@ -343,9 +370,31 @@ public class EAFSkeletonParser {
         } catch (SAXException saex) {
         	System.out.println("Parsing error: " + saex.getMessage());
         	throw new ParseException("Parsing error: " + saex.getMessage(), saex.getCause());
+        } finally {
+        	if (is != null && is.getByteStream() != null) {
+        		try {
+        			is.getByteStream().close();
+        		} catch (IOException ioe) {
+        		}
+        	}
         }
     }
 
+    /**
+     * Releases the parser and the intermediate records after parsing, so that
+     * a parser can be kept (e.g. in a cache) for its results only.
+     */
+    void releaseParsingResources() {
+    	parser = null;
+    	tierMap.clear();
+    	lingTypeRecords.clear();
+    	controlledVocabularies.clear();
+    	lexiconServices.clear();
+    	lexRefs.clear();
+    	extReferences.clear();
+    	cvEntryExtRef.clear();
+    }
+
     /**
      * After parsing create objects from the records; tiers and linguistic
      * types, CV's, CVEntries, Languages and Lexicon services. 
@@ -634,6 +683,8 @@ public class EAFSkeletonParser {
         private String currentTierId;
         private String currentCVId;
         private boolean controlledVocabularyIsMultiLanguage;
+        /** whether any type, CV or CV entry refers to an external reference */
+        private boolean extRefsReferenced;
         
         /**
          * ContentHandler method
@@ -715,6 +766,7 @@ public class EAFSkeletonParser {
                         "CONTROLLED_VOCABULARY_REF"));
 
                 ltr.setExtRefId(attributes.getValue("EXT_REF"));
+                extRefsReferenced |= ltr.getExtRefId() != null;
                 ltr.setLexiconReference(attributes.getValue("LEXICON_REF"));
                 
                 lingTypeRecords.add(ltr);
@@ -796,6 +848,7 @@ public class EAFSkeletonParser {
     			String extRefId = attributes.getValue("EXT_REF");
     			if (extRefId != null) {
     				cv.setExtRefId(extRefId);
+    				extRefsReferenced = true;
     			}
     			
     			controlledVocabularies.put(currentCVId, cv);
@@ -817,6 +870,7 @@ public class EAFSkeletonParser {
     				attributes.getValue("DESCRIPTION"));
     			currentEntryRecord.setExtRefId(attributes.getValue("EXT_REF"));
     			currentEntryRecord.setId(attributes.getValue("ID"));
+    			extRefsReferenced |= currentEntryRecord.getExtRefId() != null;
 
     			controlledVocabularies.get(currentCVId).addEntry(currentEntryRecord);
     			ignoreContent = false;
@@ -829,6 +883,7 @@ public class EAFSkeletonParser {
     			
     			currentEntryRecord.setExtRefId(extRef);
     			currentEntryRecord.setId(cveID);
+    			extRefsReferenced |= extRef != null;
     			
     			controlledVocabularies.get(currentCVId).addEntry(currentEntryRecord);
             } else if (name.equals("CVE_VALUE")) {				// New in 2.8
@@ -843,6 +898,10 @@ public class EAFSkeletonParser {
     			currentEntryRecord.addSubEntry(currentSubEntryRecord);       
     			ignoreContent = false;
             } else if (name.equals("EXTERNAL_REF")) {
+            	// the external references are the last elements of the document
+            	if (!extRefsReferenced && !strict) {
+            		throw new SkeletonCompleteException();
+            	}
             	String value = attributes.getValue("VALUE");
             	String type = attributes.getValue("TYPE");
             	String erId = attributes.getValue("EXT_REF_ID");
@@ -903,5 +962,17 @@ public class EAFSkeletonParser {
 				System.out.println("Warning: " + exception.getMessage());
 			}
 		}
-    }  
+    }
+
+    /**
+     * Thrown by the handler to stop parsing when the rest of the document is
+     * not needed.
+     */
+    private static class SkeletonCompleteException extends SAXException {
+		private static final long serialVersionUID = 1L;
+
+		SkeletonCompleteException() {
+			super("Skeleton complete");
+		}
+    }
 }
@@ -3,6 +3,8 @@ package mpi.eudico.server.corpora.clomimpl.dobes;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 
 import javax.xml.XMLConstants;
@@ -31,6 +33,21 @@ import mpi.eudico.util.ExternalCV;
  * @version jul 2010
  */
 public class ECVStore {
+	/** one lock object per source url, shared by all store instances */
+	private static final ConcurrentMap<String, Object> URL_LOCKS = new ConcurrentHashMap<String, Object>();
+	
+	/**
+	 * Returns the lock that serializes loading and caching of the controlled
+	 * vocabularies of one source. Transcriptions that are opened or updated 
+	 * concurrently, e.g. in a batch process, share the cached copy of an 
+	 * external CV and should not load and write it at the same time.
+	 * 
+	 * @param urlString the location of the source file
+	 * @return the object to synchronize on for that location
+	 */
+	public static Object getLock(String urlString) {
+		return URL_LOCKS.computeIfAbsent(String.valueOf(urlString), k -> new Object());
+	}
 	
 	/**
 	 * Creates a new ECV store instance.
@@ -144,7 +161,8 @@ public class ECVStore {
 	
 	/**
 	 * Creates a cached version of the controlled vocabularies loaded from the same
-	 * external source.
+	 * external source. The cache files of a source are written while holding
+	 * the lock of {@link #getLock(String)}.
 	 * 
 	 * @param ecvList the list of controlled vocabularies
 	 * @param cachePath the path to the cache base folder
@@ -165,11 +183,13 @@ public class ECVStore {
 		}
 		
 		ExternalReferenceImpl eri = new ExternalReferenceImpl(urlString, ExternalReference.EXTERNAL_CV);
-		try {
-			ECV02Encoder encoder = new ECV02Encoder();
-			encoder.encodeAndSave(ecvList, cachePath, eri);
-		} catch (Throwable thr) {// catch anything that can go wrong, caching is not crucial
-			ServerLogger.LOG.severe("Could not create a cached version: " + thr.getMessage());
+		synchronized (getLock(urlString)) {
+			try {
+				ECV02Encoder encoder = new ECV02Encoder();
+				encoder.encodeAndSave(ecvList, cachePath, eri);
+			} catch (Throwable thr) {// catch anything that can go wrong, caching is not crucial
+				ServerLogger.LOG.severe("Could not create a cached version: " + thr.getMessage());
+			}
 		}
 	}
 	
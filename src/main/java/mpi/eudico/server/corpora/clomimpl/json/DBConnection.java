@@ -3,19 +3,37 @@ package mpi.eudico.server.corpora.clomimpl.json;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import mpi.eudico.client.annotator.Constants;
 import static mpi.eudico.server.corpora.util.ServerLogger.LOG;
 
 
 /**
  * Singleton class to get the Database connection object.
- * 
+ * <p>
+ * The connection is shared: users {@link #acquireConnection() acquire} it and
+ * {@link #releaseConnection() release} it when done. Opening the file database
+ * is relatively expensive, therefore the database is not shut down when the
+ * last user releases the connection, but after it has not been used for
+ * {@link #IDLE_TIMEOUT_MS} milliseconds, or when the application exits.
  */
 public class DBConnection {
 	private static Connection connection = null;
 	/** The path to a default database file or folder */
 	public static final String DB_FILEPATH = Constants.ELAN_DATA_DIR + Constants.FILESEPARATOR + Constants.DB_DIR
 			+ Constants.FILESEPARATOR + "WA_MAPPER";
+	/** the time after which an unused connection is closed and the database is shut down */
+	public static final long IDLE_TIMEOUT_MS = 30000;
+
+	private static String databasePath = DB_FILEPATH;
+	private static int numUsers = 0;
+	private static ScheduledExecutorService closeExecutor;
+	private static ScheduledFuture<?> pendingClose;
 
 	// load the driver
 	static {
@@ -33,14 +51,47 @@ public class DBConnection {
 		super();
 	}
 
+	/**
+	 * Returns the shared connection, opening it if necessary, and registers a
+	 * user of the connection. Every call should be followed by a call to
+	 * {@link #releaseConnection()}, also if the returned connection is
+	 * {@code null}.
+	 *
+	 * @return the connection object or {@code null} if the database cannot be
+	 * opened
+	 */
+	public static synchronized Connection acquireConnection() {
+		numUsers++;
+		if (pendingClose != null) {
+			pendingClose.cancel(false);
+			pendingClose = null;
+		}
+		return getDBConnection();
+	}
+
+	/**
+	 * Unregisters a user of the connection. When there are no users left, the
+	 * database is shut down after a period of inactivity.
+	 */
+	public static synchronized void releaseConnection() {
+		if (numUsers > 0) {
+			numUsers--;
+		}
+		if (numUsers == 0 && connection != null && pendingClose == null) {
+			pendingClose = getCloseExecutor().schedule(DBConnection::closeIfUnused,
+					IDLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
 	/**
 	 * Static method which returns the connection object and if the connection
 	 * object is closed or {@code null} then calls the method which creates the
-	 * new connection.
-	 * 
+	 * new connection. Users of the connection should preferably call
+	 * {@link #acquireConnection()} instead.
+	 *
 	 * @return the connection object
 	 */
-	public static Connection getDBConnection() {
+	public static synchronized Connection getDBConnection() {
 		try {
 			if (connection != null && !connection.isClosed()) {
 				return connection;
@@ -54,33 +105,76 @@ public class DBConnection {
 
 	/**
 	 * Method to create a new connection object from the Driver Manager.
-	 * 
+	 *
 	 * @return a new connection object
 	 */
 	private static Connection getConnection() {
 
 		try {
-			connection = DriverManager.getConnection("jdbc:hsqldb:file:" + DB_FILEPATH, "SA", "");
+			connection = DriverManager.getConnection("jdbc:hsqldb:file:" + databasePath, "SA", "");
 		} catch (SQLException e) {
 			LOG.severe("ERROR: SQL Exception while trying to get the connection object");
 		}
 		return connection;
 	}
 
-	
-	
 	/**
-	 * Closes the database connection if it is not {@code null}.
+	 * Sets the path of the database to use instead of the default
+	 * {@link #DB_FILEPATH}, e.g. for testing. An open connection to the
+	 * current database is closed.
+	 *
+	 * @param path the path of the database file or folder
 	 */
-	public static void closeDBConnection() {
+	static synchronized void setDatabasePath(String path) {
+		closeDBConnection();
+		databasePath = path;
+	}
+
+	private static synchronized void closeIfUnused() {
+		pendingClose = null;
+		if (numUsers == 0) {
+			closeDBConnection();
+		}
+	}
+
+	/**
+	 * Shuts the database down and closes the connection if it is not
+	 * {@code null}, regardless of the number of users.
+	 */
+	public static synchronized void closeDBConnection() {
 
 		try {
-			if (connection != null) {
+			if (connection != null && !connection.isClosed()) {
+				try (Statement statement = connection.createStatement()) {
+					statement.execute("SHUTDOWN");
+				} catch (SQLException e) {
+					LOG.warning("SQLException with shutdown query " + e);
+				}
 				connection.close();
 			}
 		} catch (SQLException e) {
 			LOG.severe("ERROR: SQL Exception while trying to close the connection object");
 		}
+		connection = null;
+	}
+
+	/**
+	 * Returns the executor for closing the connection after a delay, creates
+	 * it and registers a shutdown hook the first time.
+	 *
+	 * @return the single threaded executor
+	 */
+	private static ScheduledExecutorService getCloseExecutor() {
+		if (closeExecutor == null) {
+			closeExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "ELAN-WAMapperDBClose");
+				t.setDaemon(true);
+				return t;
+			});
+			Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::closeDBConnection,
+					"ELAN-WAMapperDBShutdown"));
+		}
+		return closeExecutor;
 	}
 
 }
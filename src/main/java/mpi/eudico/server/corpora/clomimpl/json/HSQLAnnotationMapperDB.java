@@ -7,6 +7,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Map;
 import javax.swing.table.DefaultTableModel;
 
 import mpi.eudico.server.corpora.clom.Annotation;
@@ -24,6 +26,9 @@ public class HSQLAnnotationMapperDB {
 
 	private int valueVarchar = 512;
 
+	/** the maximal number of rows sent to the database in one batch */
+	private static final int BATCH_SIZE = 1000;
+
 	private Integer generatedCollectionID;
 
 	/**
@@ -59,21 +64,33 @@ public class HSQLAnnotationMapperDB {
 		String addForeignKeyConstraint = "ALTER TABLE annotation "
 				+ "ADD CONSTRAINT IF NOT EXISTS FK_AC_ID FOREIGN KEY(annotation_collection_id) REFERENCES annotation_collection(id)";
 
-		connection = DBConnection.getDBConnection();
+		/*
+		 * indexes for the lookup of annotations and of the collections of a transcription
+		 */
+		String createAnnotationIndex = "CREATE INDEX IF NOT EXISTS IDX_ANN_ELAN_ID ON annotation (elan_annotation_id)";
+		String createURNIndex = "CREATE INDEX IF NOT EXISTS IDX_AC_URN ON annotation_collection (urn)";
 
-		if (connection != null) {
+		connection = DBConnection.acquireConnection();
 
-			try (Statement statement = connection.createStatement()) {
-				statement.executeUpdate(createSchema);
-				statement.executeUpdate(createACTable);
-				statement.executeUpdate(createAnnotationTable);
-				statement.executeUpdate(addForeignKeyConstraint);
-			} catch (SQLException e) {
-				LOG.severe("HSQLDBQuery create tables SQLException: " + e);
-			}
+		try {
+			if (connection != null) {
 
-		} else {
-			LOG.warning("Connection not estabilished with database");
+				try (Statement statement = connection.createStatement()) {
+					statement.executeUpdate(createSchema);
+					statement.executeUpdate(createACTable);
+					statement.executeUpdate(createAnnotationTable);
+					statement.executeUpdate(addForeignKeyConstraint);
+					statement.executeUpdate(createAnnotationIndex);
+					statement.executeUpdate(createURNIndex);
+				} catch (SQLException e) {
+					LOG.severe("HSQLDBQuery create tables SQLException: " + e);
+				}
+
+			} else {
+				LOG.warning("Connection not estabilished with database");
+			}
+		} finally {
+			DBConnection.releaseConnection();
 		}
 	}
 
@@ -87,7 +104,7 @@ public class HSQLAnnotationMapperDB {
 		ResultSet rs = null;
 		String query = "INSERT INTO annotation_collection (elan_tier_id, urn ,wa_collection_id,createdDate) VALUES (?, ?, ?, ?)";
 		
-		connection = DBConnection.getDBConnection();
+		connection = DBConnection.acquireConnection();
 		if (connection != null) {
 			try (PreparedStatement statementCollection = connection.prepareStatement(query, 
 					Statement.RETURN_GENERATED_KEYS)){
@@ -112,11 +129,14 @@ public class HSQLAnnotationMapperDB {
 		} else {
 			LOG.warning("Connection not estabilished with database");
 		}
+		DBConnection.releaseConnection();
 	}
 
 	
 	/**
-	 * Inserts annotationId in the database
+	 * Inserts annotationId in the database. To insert the ids of multiple
+	 * annotations {@link #saveAnnotationIDsInDB(Transcription, Map, String)}
+	 * should be used.
 	 * @param transcription the transcription file object
 	 * @param annotation the annotation object
 	 * @param AnnotationID annotation id to be saved
@@ -124,22 +144,82 @@ public class HSQLAnnotationMapperDB {
 	 */
 	public void saveAnnotationIDinDB(Transcription transcription, Annotation annotation, String AnnotationID,
 			String collectionID) {
-		connection = DBConnection.getDBConnection();
-		if (connection != null) {
-			try (PreparedStatement statementAnnotation = connection.prepareStatement(
-					"INSERT INTO annotation (elan_annotation_id, wa_annotation_id, annotation_collection_id,createdDate) VALUES (?,?,?,?)")) {
-				statementAnnotation.setString(1, annotation.getId());
-				statementAnnotation.setString(2, AnnotationID);
-				statementAnnotation.setInt(3, generatedCollectionID);
-				statementAnnotation.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now().withNano(0)));
+		saveAnnotationIDsInDB(transcription, Collections.singletonMap(annotation, AnnotationID), collectionID);
+	}
 	
-				statementAnnotation.executeUpdate();
-
-			}  catch (SQLException e) {
-				LOG.warning( "SQLException while inserting into hsql annotation table " + e);
+	/**
+	 * Inserts the ids of a number of annotations of the collection that has
+	 * been saved last, in batches and in a single transaction. If an insert
+	 * fails none of the ids is saved.
+	 * @param transcription the transcription file object
+	 * @param annotationIDs a map of annotation objects to the annotation ids to be saved
+	 * @param collectionID collection id to be saved
+	 */
+	public void saveAnnotationIDsInDB(Transcription transcription, Map<? extends Annotation, String> annotationIDs,
+			String collectionID) {
+		if (annotationIDs.isEmpty()) {
+			return;
+		}
+		if (generatedCollectionID == null) {
+			LOG.warning("The annotation ids cannot be saved, the collection has not been saved");
+			return;
+		}
+		connection = DBConnection.acquireConnection();
+		try {
+			if (connection != null) {
+				insertAnnotationIDs(annotationIDs);
+			} else {
+				LOG.warning( "Connection not estabilished with database");
+			}
+		} finally {
+			DBConnection.releaseConnection();
+		}
+	}
+	
+	private void insertAnnotationIDs(Map<? extends Annotation, String> annotationIDs) {
+		boolean autoCommit = true;
+		try {
+			autoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+		} catch (SQLException e) {
+			LOG.warning( "SQLException while starting a transaction " + e);
+			return;
+		}
+		
+		try (PreparedStatement statementAnnotation = connection.prepareStatement(
+				"INSERT INTO annotation (elan_annotation_id, wa_annotation_id, annotation_collection_id,createdDate) VALUES (?,?,?,?)")) {
+			Timestamp createdDate = Timestamp.valueOf(LocalDateTime.now().withNano(0));
+			int numInBatch = 0;
+			
+			for (Map.Entry<? extends Annotation, String> entry : annotationIDs.entrySet()) {
+				statementAnnotation.setString(1, entry.getKey().getId());
+				statementAnnotation.setString(2, entry.getValue());
+				statementAnnotation.setInt(3, generatedCollectionID);
+				statementAnnotation.setTimestamp(4, createdDate);
+				statementAnnotation.addBatch();
+				
+				if (++numInBatch == BATCH_SIZE) {
+					statementAnnotation.executeBatch();
+					numInBatch = 0;
+				}
+			}
+			if (numInBatch > 0) {
+				statementAnnotation.executeBatch();
+			}
+			connection.commit();
+		}  catch (SQLException e) {
+			LOG.warning( "SQLException while inserting into hsql annotation table " + e);
+			try {
+				connection.rollback();
+			} catch (SQLException re) {
+				LOG.warning( "SQLException while rolling back the annotation inserts " + re);
+			}
+		} finally {
+			try {
+				connection.setAutoCommit(autoCommit);
+			} catch (SQLException e) {
+				LOG.warning( "SQLException while ending a transaction " + e);
 			}
-		} else {
-			LOG.warning( "Connection not estabilished with database");
 		}
 	}
 	
@@ -158,7 +238,7 @@ public class HSQLAnnotationMapperDB {
 		}
 
 		ResultSet rs = null;
-		connection = DBConnection.getDBConnection();
+		connection = DBConnection.acquireConnection();
 		if (connection != null) {			
 			try (PreparedStatement statement = connection.prepareStatement(
 					"SELECT elan_tier_id, wa_collection_id, createddate FROM annotation_collection where urn=? order by elan_tier_id,createddate")) {
@@ -183,15 +263,10 @@ public class HSQLAnnotationMapperDB {
 			} catch (SQLException e) {
 				LOG.warning( "SQLException with select query on annotation_collection table " + e);
 			}
-			
-			try (PreparedStatement closeStatement = connection.prepareStatement("SHUTDOWN")) {
-				closeStatement.execute();
-			} catch (SQLException e) {
-				LOG.warning( "SQLException with shutdown query " + e);
-			}
 		}
 		
-		DBConnection.closeDBConnection();
+		// the database is shut down by the connection manager after a period of inactivity
+		DBConnection.releaseConnection();
 		return isListPresent;
 
 	}
@@ -8,8 +8,19 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 
 import org.json.JSONObject;
@@ -19,6 +30,12 @@ import static mpi.eudico.server.corpora.util.ServerLogger.LOG;
 /**
  * Client class to carry out the http requests to the annotation server. 
  * The {@link HttpClient} is used to send requests and retrieve their responses.
+ * <p>
+ * The client prefers HTTP/2, for plain {@code http} URIs HTTP/1.1 is used.
+ * Multiple annotations can be exported with
+ * {@link #exportAnnotations(List, String, String, IntConsumer)}, which sends
+ * a limited number of requests concurrently and retries requests that failed
+ * because of a connection problem or a temporary server condition.
  */
 public class WebAnnotationClient {
 	/** accept header */
@@ -36,14 +53,31 @@ public class WebAnnotationClient {
 	/** HTTP UNAUTHORIZED status code */
 	public static final int UNAUTHORIZED = 401;
 	
+	/** HTTP TOO MANY REQUESTS status code */
+	public static final int TOO_MANY_REQUESTS = 429;
+	
+	/** the default maximum number of concurrent requests */
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+	
+	/** the default maximum number of retries of a failed request */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+	
+	/** the default delay before the first retry in milliseconds, it doubles for every next retry */
+	public static final long DEFAULT_RETRY_DELAY = 500;
+	
     /** Boolean to indicate authentication enabled */
 	static Boolean isAuthenticationEnabled = false;
 			
 	HttpClient httpClient = HttpClient.newBuilder()
-	        .version(HttpClient.Version.HTTP_1_1)
+	        .version(HttpClient.Version.HTTP_2)
 	        .connectTimeout(Duration.ofSeconds(20))
 	        .build();
 	
+	private int maxConcurrentRequests = Integer.getInteger("AnnotationServer.MaxConcurrentRequests",
+			DEFAULT_MAX_CONCURRENT_REQUESTS);
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+	private long retryDelay = DEFAULT_RETRY_DELAY;
+	
 	static {
 		String uriProperty = System.getProperty("AnnotationServer.URL");
 		if (uriProperty == null || uriProperty.isEmpty()) {
@@ -75,11 +109,8 @@ public class WebAnnotationClient {
 			authenticationBearerKey = "Bearer " + authenticationBearerKey ;
 		}
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-					  .uri(new URI(URI + "/w3c/"))
-					  .headers("Accept", ACCEPT, "Content-Type", CONTENT_TYPE, "Authorization" , authenticationBearerKey)
-					  .POST(HttpRequest.BodyPublishers.ofString(annotatioCollectionJson))
-					  .build();
+			HttpRequest request = newPostRequest(new URI(URI + "/w3c/"), authenticationBearerKey,
+					annotatioCollectionJson);
 			HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
 						
 			if (response.statusCode() == HTTP_CREATED) {
@@ -132,11 +163,8 @@ public class WebAnnotationClient {
 			authenticationBearerKey = "Bearer " + authenticationBearerKey ;
 		}
 		try {
-			HttpRequest request = HttpRequest.newBuilder()
-							.uri(new URI(collectionIDURI))
-							 .headers("Accept", ACCEPT, "Content-Type", CONTENT_TYPE, "Authorization", authenticationBearerKey)
-							 .POST(HttpRequest.BodyPublishers.ofString(annotationJson))
-							 .build();
+			HttpRequest request = newPostRequest(new URI(collectionIDURI), authenticationBearerKey,
+					annotationJson);
 			
 			HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
 									
@@ -173,6 +201,221 @@ public class WebAnnotationClient {
 		}
 	}
 	
+	/**
+	 * Exports a number of annotations to a collection on the annotation
+	 * server. At most {@link #getMaxConcurrentRequests()} requests are in
+	 * progress at the same time; a request that fails because of a
+	 * connection problem or because the server is temporarily unavailable
+	 * is retried after a delay that doubles with every attempt.
+	 * <p>
+	 * The progress callback is called on the calling thread, every time a
+	 * request has been completed (successfully or not).
+	 * 
+	 * @param annotationJsons the annotation json strings
+	 * @param collectionIDURI the collection id returned from from the server
+	 * @param authenticationBearerKey the authentication bearer key if authentication is enabled 
+	 * @param progress receives the number of completed requests, can be {@code null}
+	 * 
+	 * @return the annotation ids from the server in the order of the json
+	 * strings, an empty string for an annotation that could not be exported 
+	 */
+	public List<String> exportAnnotations(List<String> annotationJsons, String collectionIDURI,
+			String authenticationBearerKey, IntConsumer progress) {
+		final int numAnnotations = annotationJsons.size();
+		final String[] annotationIDs = new String[numAnnotations];
+		Arrays.fill(annotationIDs, "");
+		
+		if(!authenticationBearerKey.isEmpty()) {
+			authenticationBearerKey = "Bearer " + authenticationBearerKey ;
+		}
+		URI collectionURI;
+		try {
+			collectionURI = new URI(collectionIDURI);
+		} catch (URISyntaxException e) {
+			if (LOG.isLoggable(Level.WARNING)) {
+				LOG.log(Level.WARNING, "URI Syntax Exception when exporting annotations to annotation server ");
+			}
+			return Arrays.asList(annotationIDs);
+		}
+		
+		// indexes of completed requests, the ids are stored before the index is added
+		BlockingQueue<Integer> completed = new LinkedBlockingQueue<Integer>();
+		// the requests that have been taken from the completed queue
+		boolean[] finished = new boolean[numAnnotations];
+		List<CompletableFuture<?>> inProgress = new ArrayList<CompletableFuture<?>>(numAnnotations);
+		int numSent = 0;
+		int numCompleted = 0;
+		
+		try {
+			while (numCompleted < numAnnotations) {
+				while (numSent < numAnnotations && numSent - numCompleted < maxConcurrentRequests) {
+					final int index = numSent++;
+					HttpRequest request = newPostRequest(collectionURI, authenticationBearerKey,
+							annotationJsons.get(index));
+					inProgress.add(sendWithRetry(request, 0).whenComplete((response, ex) -> {
+						annotationIDs[index] = annotationIDFromResponse(response, ex);
+						completed.add(index);
+					}));
+				}
+				finished[completed.take()] = true;
+				numCompleted++;
+				if (progress != null) {
+					progress.accept(numCompleted);
+				}
+			}
+		} catch (InterruptedException e) {
+			if (LOG.isLoggable(Level.WARNING)) {
+				LOG.log(Level.WARNING, "InterruptedException when exporting annotations to annotation server");
+			}
+			for (CompletableFuture<?> cf : inProgress) {
+				cf.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			// only return the ids of the requests that are known to be completed,
+			// the ones already taken and the ones still in the queue
+			Integer index;
+			while ((index = completed.poll()) != null) {
+				finished[index] = true;
+			}
+			String[] completedIDs = new String[numAnnotations];
+			Arrays.fill(completedIDs, "");
+			for (int i = 0; i < numAnnotations; i++) {
+				if (finished[i]) {
+					completedIDs[i] = annotationIDs[i];
+				}
+			}
+			return Arrays.asList(completedIDs);
+		}
+		
+		return Arrays.asList(annotationIDs);
+	}
+	
+	/**
+	 * Creates a POST request for an annotation or collection json.
+	 * 
+	 * @param uri the target uri
+	 * @param authorization the authorization header value
+	 * @param json the json to post
+	 * @return the request
+	 */
+	private HttpRequest newPostRequest(URI uri, String authorization, String json) {
+		return HttpRequest.newBuilder()
+				.uri(uri)
+				.version(versionFor(uri))
+				.headers("Accept", ACCEPT, "Content-Type", CONTENT_TYPE, "Authorization", authorization)
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+	}
+	
+	/**
+	 * Returns the HTTP version to use for a uri: HTTP/2 is negotiated for
+	 * secure connections, over a plain connection no upgrade to HTTP/2 is
+	 * attempted.
+	 * 
+	 * @param uri the request uri
+	 * @return the HTTP version for the request
+	 */
+	private HttpClient.Version versionFor(URI uri) {
+		return "http".equalsIgnoreCase(uri.getScheme()) ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2;
+	}
+	
+	/**
+	 * Sends a request asynchronously and retries it with an increasing delay
+	 * in case of a connection error or a temporary server condition.
+	 * 
+	 * @param request the request
+	 * @param attempt the number of the attempt, 0 for the first attempt
+	 * @return the future response
+	 */
+	private CompletableFuture<HttpResponse<String>> sendWithRetry(HttpRequest request, int attempt) {
+		return httpClient.sendAsync(request, BodyHandlers.ofString()).handle((response, ex) -> {
+			boolean retry = attempt < maxRetries &&
+					(ex != null ? isRetryable(ex) : isRetryable(response.statusCode()));
+			if (retry) {
+				Executor delayed = CompletableFuture.delayedExecutor(retryDelay << attempt, TimeUnit.MILLISECONDS);
+				return CompletableFuture.runAsync(() -> {}, delayed).thenCompose(v -> sendWithRetry(request, attempt + 1));
+			}
+			if (ex != null) {
+				return CompletableFuture.<HttpResponse<String>>failedFuture(ex);
+			}
+			return CompletableFuture.completedFuture(response);
+		}).thenCompose(Function.identity());
+	}
+	
+	private boolean isRetryable(Throwable ex) {
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		return cause instanceof IOException;
+	}
+	
+	private boolean isRetryable(int statusCode) {
+		return statusCode == TOO_MANY_REQUESTS || statusCode == 502 || statusCode == 503 || statusCode == 504;
+	}
+	
+	/**
+	 * Extracts the annotation id from the response of an annotation post
+	 * request.
+	 * 
+	 * @param response the response or {@code null}
+	 * @param ex the exception if the request failed
+	 * @return the annotation id or an empty string
+	 */
+	private String annotationIDFromResponse(HttpResponse<String> response, Throwable ex) {
+		if (ex != null) {
+			if (LOG.isLoggable(Level.WARNING)) {
+				LOG.log(Level.WARNING, "Error when exporting annotation to annotation server: " + ex);
+			}
+			return "";
+		}
+		if (response.statusCode() == HTTP_CREATED) {
+			try {
+				JSONObject annotationResponse = new JSONObject(response.body());
+				return (String) annotationResponse.get("id");
+			} catch (Exception e) {
+				if (LOG.isLoggable(Level.WARNING)) {
+					LOG.log(Level.WARNING, "Error when reading the response of the annotation server");
+				}
+				return "";
+			}
+		}
+		if (LOG.isLoggable(Level.WARNING)) {
+			LOG.log(Level.WARNING, "Unable to export annotation to server. The server responded with status code: " + response.statusCode());
+		}
+		return "";
+	}
+	
+	/**
+	 * Returns the maximum number of requests that are in progress at the same
+	 * time when exporting multiple annotations.
+	 * 
+	 * @return the maximum number of concurrent requests
+	 */
+	public int getMaxConcurrentRequests() {
+		return maxConcurrentRequests;
+	}
+
+	/**
+	 * Sets the maximum number of requests that are in progress at the same
+	 * time when exporting multiple annotations. The default can be set with
+	 * the {@code AnnotationServer.MaxConcurrentRequests} system property.
+	 * 
+	 * @param maxConcurrentRequests the maximum number of concurrent requests, at least 1
+	 */
+	public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+		this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+	}
+
+	/**
+	 * Sets the retry policy for exporting multiple annotations.
+	 * 
+	 * @param maxRetries the maximum number of retries of a single request, 0 to disable retries
+	 * @param retryDelay the delay before the first retry in milliseconds, the delay doubles for
+	 * every next retry
+	 */
+	public void setRetryPolicy(int maxRetries, long retryDelay) {
+		this.maxRetries = Math.max(0, maxRetries);
+		this.retryDelay = Math.max(0, retryDelay);
+	}
+	
 	/**
 	 * Get collection request to fetch the collection response
 	 * @param collectionIdURI the collection uri to be passed to the request
@@ -186,7 +429,8 @@ public class WebAnnotationClient {
 			authenticationBearerKey = "Bearer " + authenticationBearerKey ;
 		}
 		try {
-			HttpRequest httpRequest = HttpRequest.newBuilder().uri(new URI(collectionIdURI)).headers("Accept", ACCEPT , "Authorization" , authenticationBearerKey).GET().build();
+			URI uri = new URI(collectionIdURI);
+			HttpRequest httpRequest = HttpRequest.newBuilder().uri(uri).version(versionFor(uri)).headers("Accept", ACCEPT , "Authorization" , authenticationBearerKey).GET().build();
 			
 			HttpResponse<String> response = httpClient.send(httpRequest, BodyHandlers.ofString());
 			
@@ -235,7 +479,8 @@ public class WebAnnotationClient {
 	 */
 	public Boolean isAuthenticationEnabled() {
 		try {
-			HttpRequest httpRequest = HttpRequest.newBuilder().uri(new URI(URI + "/about/")).GET().build();
+			URI uri = new URI(URI + "/about/");
+			HttpRequest httpRequest = HttpRequest.newBuilder().uri(uri).version(versionFor(uri)).GET().build();
 
 			HttpResponse<String> response = httpClient.send(httpRequest, BodyHandlers.ofString());
 
@@ -4,11 +4,9 @@ import static mpi.eudico.server.corpora.clomimpl.json.WAConstants.*;
 
 import static mpi.eudico.server.corpora.util.ServerLogger.LOG;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -40,6 +38,10 @@ public class WebAnnotationJSONBuilder {
     
     private Map<String, Integer> exportedData = new HashMap<>();
     int exportedAnnotationsCount = 0;
+    
+    /** the default number of annotations that are converted and exported in one batch */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    private int batchSize = DEFAULT_BATCH_SIZE;
 	
     
     /**
@@ -90,56 +92,80 @@ public class WebAnnotationJSONBuilder {
 		
 		int progressPercent = (100/size);
 		WebAnnotationClient annotationClient = new WebAnnotationClient();
+		// keep the database open during the export
+		DBConnection.acquireConnection();
 		
-		for (String tierId : selectedTiers) {
-			String collectionID = "";
+		try {
+			for (String tierId : selectedTiers) {
+				// an interrupt during the export of the previous tier ends the export
+				if (Thread.currentThread().isInterrupted()) {
+					break;
+				}
+				String collectionID = "";
 			
-			Tier tier = transcription.getTierWithId(tierId);
+				Tier tier = transcription.getTierWithId(tierId);
 			
-			String collectionJSON = constructW3CAnnotationCollection(tier);
+				String collectionJSON = constructW3CAnnotationCollection(tier);
 			
-			if (collectionJSON != null) {
-				collectionID = annotationClient.exportAnnotationCollection(collectionJSON, authenticationKey);
-				if (collectionID != null && !collectionID.isEmpty()) {
-					exportedData.put(tier.getName(), exportedAnnotationsCount);
-					annotationMapperDB.saveCollectionIDinDB(transcription, tier, collectionID);
-					progressCount++;
-					progressUpdate(progressPercent, "");
+				if (collectionJSON != null) {
+					collectionID = annotationClient.exportAnnotationCollection(collectionJSON, authenticationKey);
+					if (collectionID != null && !collectionID.isEmpty()) {
+						exportedData.put(tier.getName(), exportedAnnotationsCount);
+						annotationMapperDB.saveCollectionIDinDB(transcription, tier, collectionID);
+						progressCount++;
+						progressUpdate(progressPercent - (100/size), "");
+					}
 				}
-			}
-			if (tier.getNumberOfAnnotations() != 0 && collectionID != null && !collectionID.isEmpty()) {
-				
-				for (Annotation annotation: tier.getAnnotations()) {
-					
-					String annotationJson = constructW3CAnnotation(annotation , tier);
-					String annotationID = annotationClient.exportAnnotation(annotationJson, collectionID, authenticationKey);
+				if (tier.getNumberOfAnnotations() != 0 && collectionID != null && !collectionID.isEmpty()) {
+					List<? extends Annotation> annotations = tier.getAnnotations();
+					final int numAnnotations = annotations.size();
+					final int tierStartPercent = progressPercent - (100/size);
 					
-					if (collectionID != null && !collectionID.isEmpty() && annotationID != null && !annotationID.isEmpty()) {
-						exportedAnnotationsCount = exportedAnnotationsCount + 1;
-						annotationMapperDB.saveAnnotationIDinDB(transcription, annotation, annotationID, collectionID);
+					// the annotations are converted, exported (concurrently) and their ids saved per batch
+					for (int from = 0; from < numAnnotations; from += batchSize) {
+						List<? extends Annotation> batch = annotations.subList(from, Math.min(numAnnotations, from + batchSize));
+						List<String> annotationJsons = new ArrayList<String>(batch.size());
+						for (Annotation annotation : batch) {
+							annotationJsons.add(constructW3CAnnotation(annotation , tier));
+						}
+						
+						final int numDone = from;
+						List<String> batchIDs = annotationClient.exportAnnotations(annotationJsons, collectionID,
+								authenticationKey, numCompleted -> progressUpdate(tierStartPercent +
+										(int) ((100/size) * (long) (numDone + numCompleted) / numAnnotations), ""));
+						
+						Map<Annotation, String> annotationIDs = new LinkedHashMap<Annotation, String>();
+						for (int i = 0; i < batch.size(); i++) {
+							String annotationID = batchIDs.get(i);
+							if (annotationID != null && !annotationID.isEmpty()) {
+								exportedAnnotationsCount = exportedAnnotationsCount + 1;
+								annotationIDs.put(batch.get(i), annotationID);
+							}
+						}
+						annotationMapperDB.saveAnnotationIDsInDB(transcription, annotationIDs, collectionID);
+						
+						if (Thread.currentThread().isInterrupted()) {
+							break;
+						}
 					}
+					exportedData.put(tier.getName(), exportedAnnotationsCount);
+				}
+				if (collectionID != null && !collectionID.isEmpty()) {
+					progressUpdate(progressPercent, "");
 				}
-				exportedData.put(tier.getName(), exportedAnnotationsCount);
-			}
 		
-			progressPercent = progressPercent + (100/size);
+				progressPercent = progressPercent + (100/size);
 			
-			if (progressCount == size) {
-				progressComplete("");
-			}
+				if (progressCount == size) {
+					progressComplete("");
+				}
 
-			exportedAnnotationsCount = 0;
-		}
-		
-		try {
-			Connection connection = DBConnection.getDBConnection();
-			try (PreparedStatement closeStatement = connection.prepareStatement("SHUTDOWN")) {
-				closeStatement.execute();
+				exportedAnnotationsCount = 0;
 			}
-		} catch (SQLException e) {
-			e.printStackTrace();
+		} finally {
+			// the database is shut down by the connection manager after a period of inactivity
+			DBConnection.releaseConnection();
 		}
-		DBConnection.closeDBConnection();
 		
 		return exportedData;
 		
@@ -148,6 +174,17 @@ public class WebAnnotationJSONBuilder {
 	
 
 
+    /**
+     * Sets the number of annotations that are converted to JSON and exported
+     * in one batch; the requests of a batch are sent concurrently by the
+     * {@link WebAnnotationClient}, the returned ids are saved per batch.
+     * 
+     * @param batchSize the batch size, at least 1
+     */
+    public void setBatchSize(int batchSize) {
+    	this.batchSize = Math.max(1, batchSize);
+    }
+    
     /**
      * Constructs the web annotation collection JSON model from the tier object
      * @param tier the tier object to create the annotation collection json
@@ -42,6 +42,12 @@ import javax.swing.tree.DefaultMutableTreeNode;
  * alignment both non-spacing characters and "multiple bytes" characters are
  * taken into account (in most Toolbox files the alignment seems to be based
  * on number of bytes).
+ * <p>
+ * Blocks are processed one {@code \\ref} record at a time while reading,
+ * but the resulting annotation records and time slots are kept until the
+ * file has been read: times of unaligned records are interpolated from
+ * aligned records that may follow much later, and the {@link Parser}
+ * contract hands the records to the transcription store per tier.
  *
  * @author Han Sloetjes
  * @version 1.0
@@ -109,8 +115,6 @@ public class ToolboxParser extends Parser {
     private HashMap<String, String> parentHash = new HashMap<String, String>();
     private ArrayList<long[]> timeOrder = new ArrayList<long[]>(); // of long[2], {id,time}
     private ArrayList<long[]> timeSlots = new ArrayList<long[]>(); // of long[2], {id,time}
-    private ArrayList<AnnotationRecord> annotationRecords = new ArrayList<AnnotationRecord>();
-    private HashMap<AnnotationRecord, String> annotRecordToTierMap = new HashMap<AnnotationRecord, String>();
     private HashMap<String, ArrayList<AnnotationRecord>> tierNameToAnnRecordMap = new HashMap<String, ArrayList<AnnotationRecord>>();
 
     // for calculation of 'root annotation' times
@@ -181,8 +185,7 @@ public class ToolboxParser extends Parser {
         parentHash.clear();
         timeOrder.clear();
         timeSlots.clear();
-        annotationRecords.clear();
-        annotRecordToTierMap.clear();
+        tierNameToAnnRecordMap.clear();
         rootSlots.clear();
         mediaDescriptors.clear();
 
@@ -963,8 +966,6 @@ public class ToolboxParser extends Parser {
             rootSlots.add(begin);
             rootSlots.add(end);
 
-            annotationRecords.add(annRec);
-
             addRecordToTierMap(annRec, rootTierName);
 
             createChildAnnotations(rootNode, annRec, speaker);
@@ -1016,7 +1017,6 @@ public class ToolboxParser extends Parser {
                 	annRec.setValue(stl.getLine());
                 }
                 annRec.setReferredAnnotId(parentRecord.getAnnotationId());
-                annotationRecords.add(annRec);
 
                 addRecordToTierMap(annRec, tierName);
                 createChildAnnotations(chNode, annRec, speaker);
@@ -1112,8 +1112,6 @@ public class ToolboxParser extends Parser {
 
                     prevRec = annRec;
 
-                    annotationRecords.add(annRec);
-
                     addRecordToTierMap(annRec, curTier);
                     // hier... create children right away or do that in a second run? need to store node and annrec then
                     createChildAnnotations(chNode, annRec, speaker);
@@ -1621,8 +1619,6 @@ public class ToolboxParser extends Parser {
      * @param tierName the tier name
      */
     private void addRecordToTierMap(AnnotationRecord annRec, String tierName) {
-        annotRecordToTierMap.put(annRec, tierName);
-
         if (tierNameToAnnRecordMap.containsKey(tierName)) {
             tierNameToAnnRecordMap.get(tierName).add(annRec);
         } else {
@@ -1634,7 +1630,10 @@ public class ToolboxParser extends Parser {
 
     /**
      * Inserts the time slot, a combination of id and time value, after the
-     * specified index, or adds to the end.
+     * specified index, or adds to the end. The slot to insert after is 
+     * searched from the end of the time order; it belongs to the record 
+     * that is being processed, so it is found after a few steps, 
+     * independent of the number of records read so far.
      *
      * @param ts the time slot information
      * @param afterId the index of the slot after which to insert
@@ -1650,7 +1649,7 @@ public class ToolboxParser extends Parser {
 
         int toIndex = timeOrder.size();
 
-        for (int j = 0; j < timeOrder.size(); j++) {
+        for (int j = timeOrder.size() - 1; j >= 0; j--) {
         	long[] loopTs = timeOrder.get(j);
 
             if (loopTs[0] == afterIndex) {
@@ -2132,7 +2131,8 @@ public class ToolboxParser extends Parser {
      */
     @Override
 	public Map<String, String> getTimeSlots(String fileName) {
-        HashMap<String, String> resultSlots = new HashMap<String, String>();
+        HashMap<String, String> resultSlots = new HashMap<String, String>(
+        		(int) (timeSlots.size() / 0.75f) + 1);
 
         Iterator<long[]> timeSlotIter = timeSlots.iterator();
         String tsId;
@@ -23,6 +23,10 @@ import mpi.eudico.util.multilangcv.RecentLanguages;
  *
  * This class has no undo/redo - functionality!
  * 
+ * Lookups of entries by id and by value (per language) use hash indexes;
+ * the value index is built on demand and discarded when entries are
+ * removed, replaced, reordered or when a value changes.
+ * 
  * There are many @Deprecated methods in this class. They are the non-
  * multi-language aware methods, and they should be removed as soon as possible.
  *
@@ -72,6 +76,8 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
     private String preferenceLanguage;
     /** an id to entry map */
     protected Map<String, CVEntry> idToEntry;
+    /** per language a value to entry map, {@code null} when it has to be (re)built */
+    private List<Map<String, CVEntry>> valueIndex;
     
     private static final CVLangInfo defaultLangInfo = new CVLangInfo(DEFAULT_LANGUAGE_ID, DEFAULT_LANGUAGE_DEF, DEFAULT_LANGUAGE_LABEL, "");
 
@@ -132,6 +138,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
     public void cloneStructure(BasicControlledVocabulary orig) {   	
     	setName(orig.getName());
     	entries.clear();
+    	invalidateValueIndex();
     	languages.clear();
     	numberOfLanguages = 0;
     	
@@ -154,6 +161,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
     public void cloneEntries(BasicControlledVocabulary orig) {
     	initMode = true;
     	entries.clear();
+    	invalidateValueIndex();
     	for (CVEntry e : orig) {
     		addEntry(new CVEntry(this, e));
     	}
@@ -319,6 +327,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
         for(int i=0; i< allEntries.length; i++){
         	entries.add(allEntries[i]);        	
         }
+        invalidateValueIndex();
         return allEntries;
     }
     
@@ -349,6 +358,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
         for(int i=0; i< allEntries.length; i++){
         	entries.add(allEntries[i]);        	
         }
+        invalidateValueIndex();
         return allEntries;
     }
     
@@ -502,6 +512,10 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
             return null;
         }
 
+        if (isValueIndexed(languageIndex)) {
+            return getValueIndex(languageIndex).get(value);
+        }
+
         for (CVEntry entry : entries) {
             //ignore case ?
             if (entry.getValue(languageIndex).equals(value)) {
@@ -611,6 +625,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
         	ensureIdIsUnique(entry);
         }
         entries.add(entry);
+        addToValueIndex(entry);
 
         if (!initMode) {
             handleModified();
@@ -713,6 +728,7 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
     public void clear() {
         entries.clear();
         idToEntry.clear();
+        invalidateValueIndex();
 
         if (!initMode) {
             handleModified();
@@ -769,6 +785,10 @@ public class BasicControlledVocabulary implements Iterable<CVEntry>, Cloneable {
             return false;
         }
 
+        if (isValueIndexed(index)) {
+            return getValueIndex(index).containsKey(value);
+        }
+
         for (int i = 0; i < entries.size(); i++) {
             if (entries.get(i).getValue(index).equals(value)) { //ignore case??
 
@@ -917,6 +937,7 @@ loop:
         newEntry.setValue(langIndex, value);	// change the word
         int index = entries.indexOf(entry);
         entries.set(index, newEntry);
+        invalidateValueIndex();
         removeId(entry);						// forget the new id
         newEntry.setId(origId);					// set the original id
 
@@ -933,6 +954,9 @@ loop:
      *        MOVE_DOWN or MOVE_TO_BOTTOM
      */
     public void moveEntries(CVEntry[] entryArray, int moveType) {
+        // the order determines which of entries with the same value is found first
+        invalidateValueIndex();
+
         switch (moveType) {
         case MOVE_TO_TOP:
             moveToTop(entryArray);
@@ -975,8 +999,8 @@ loop:
         for (CVEntry entry : entryArray) {
             boolean b = entries.remove(entry);
             idToEntry.remove(entry.getId());
-
             if (b) {
+                invalidateValueIndex();
                 removed = true;
             }
         }
@@ -1000,6 +1024,9 @@ loop:
         boolean b = entries.remove(entry);
 
         idToEntry.remove(entry.getId());
+        if (b) {
+            invalidateValueIndex();
+        }
         
         if (b && !initMode) {
             handleModified();
@@ -1034,19 +1061,25 @@ loop:
         CVEntry entry = null;
         boolean removed = false;
 
-        for (int i = 0; i < entries.size(); i++) {
-            entry = entries.get(i);
+        if (isValueIndexed(langIndex)) {
+            entry = getValueIndex(langIndex).get(value);
+            removed = entry != null && entries.remove(entry);
+        } else {
+            for (int i = 0; i < entries.size(); i++) {
+                entry = entries.get(i);
 
-            if (entry.getValue(langIndex).equals(value)) { //ignore case ??
-                entries.remove(i);
-                removed = true;
+                if (entry.getValue(langIndex).equals(value)) { //ignore case ??
+                    entries.remove(i);
+                    removed = true;
 
-                break;
+                    break;
+                }
             }
         }
 
         if (removed) {
             idToEntry.remove(entry.getId());
+            invalidateValueIndex();
             if (!initMode) {
                 handleModified();
             }
@@ -1065,6 +1098,7 @@ loop:
 
         entries.clear();
         idToEntry.clear();
+        invalidateValueIndex();
 
         addAll(newEntries);
 
@@ -1100,6 +1134,7 @@ loop:
         }
 
         entries.set(index, newEntry);
+        invalidateValueIndex();
         
         // Update id map
         newEntry.internalSetId(oldEntry.getId());
@@ -1123,6 +1158,65 @@ loop:
         idToEntry.put(newEntry.getId(), newEntry);
     }
 
+    /**
+     * Returns whether lookups by value for a language can use the value
+     * index.
+     *
+     * @param languageIndex the language index
+     * @return {@code true} if the index is within the range of languages
+     */
+    private boolean isValueIndexed(int languageIndex) {
+        return languageIndex >= 0 && languageIndex < numberOfLanguages;
+    }
+
+    /**
+     * Returns the map from value to entry for a language, the index is
+     * (re)built for all languages if it is not valid. If several entries have
+     * the same value, the first one in the list is mapped.
+     *
+     * @param languageIndex the language index, within range
+     * @return the map of values to entries for the language
+     */
+    private Map<String, CVEntry> getValueIndex(int languageIndex) {
+        if (valueIndex == null || valueIndex.size() != numberOfLanguages) {
+            List<Map<String, CVEntry>> index = new ArrayList<Map<String, CVEntry>>(numberOfLanguages);
+            for (int i = 0; i < numberOfLanguages; i++) {
+                index.add(new HashMap<String, CVEntry>(Math.max(16, entries.size() * 4 / 3 + 1)));
+            }
+            for (CVEntry entry : entries) {
+                for (int i = 0; i < numberOfLanguages; i++) {
+                    index.get(i).putIfAbsent(entry.getValue(i), entry);
+                }
+            }
+            valueIndex = index;
+        }
+
+        return valueIndex.get(languageIndex);
+    }
+
+    /**
+     * Adds an entry that has been appended to the list to the value index,
+     * if the index is valid.
+     *
+     * @param entry the new last entry
+     */
+    private void addToValueIndex(CVEntry entry) {
+        if (valueIndex != null) {
+            for (int i = 0; i < valueIndex.size(); i++) {
+                valueIndex.get(i).putIfAbsent(entry.getValue(i), entry);
+            }
+        }
+    }
+
+    /**
+     * Discards the value index, it is rebuilt on the next lookup by value.
+     * To be called when entries are removed, replaced or reordered or when
+     * the value of an entry changes.
+     */
+    protected void invalidateValueIndex() {
+        valueIndex = null;
+    }
+
     /**
      * Override Object's toString method to return the name of the CV.
      *
@@ -1470,6 +1564,7 @@ loop:
     		for (CVEntry e : entries) {
     			e.removeLanguage(index);
     		}
+    		invalidateValueIndex();
     		
     		numberOfLanguages--;
             if (!initMode) {
@@ -212,6 +212,10 @@ public class CVEntry implements Comparable<CVEntry> {
     public void setValue(int index, String s) {
     	ensureCapacity(index + 1);
     	contents[index].setValue(s);
+    	if (parent != null) {
+    		// the value index of the vocabulary is no longer valid
+    		parent.invalidateValueIndex();
+    	}
     }
     
     /**
@@ -1,7 +1,6 @@
 package mpi.eudico.util;
 
 import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.net.MalformedURLException;
 import java.net.URI;
@@ -9,13 +8,12 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.jar.JarEntry;
-import java.util.jar.JarException;
-import java.util.jar.JarFile;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipException;
@@ -23,6 +21,15 @@ import java.util.zip.ZipException;
 /**
  * A classloader for loading classes and resources from jars in a specific
  * "extensions" directory.
+ * <p>
+ * The jars are not scanned by defining all their classes. Instead an index
+ * of each jar is created, containing the super class and interfaces of each
+ * class as declared in the class file and the providers listed in
+ * {@code META-INF/services}. If the application specifies a folder for it
+ * in the system property {@value #INDEX_DIR_PROPERTY}, the index is cached
+ * per jar and is reused as long as the size and modification time of the jar
+ * are unchanged. Queries for implementing classes are answered from the
+ * indexes and only the matching classes are defined.
  *
  * @author Han Sloetjes
  * @version 1.1 include fixes by Martin Schickbichler
@@ -34,9 +41,19 @@ public class ExtClassLoader extends URLClassLoader {
     private static String extFolder = EXTENSIONS_DIR;
     private static Logger LOG = Logger.getLogger(ExtClassLoader.class.getName());
 
-    // store classes per Jar? or make just one list
-    private static Map<String, List<Class<?>>> loadedClasses = new HashMap<String, List<Class<?>>>();
-    private static Map<String, List<URL>> resourceURLS = new HashMap<String, List<URL>>();
+    /** the system property for the folder for the cached jar indexes */
+    public static final String INDEX_DIR_PROPERTY = "app.extensions.index.dir";
+    // the folder for the cached jar indexes, null if the indexes are not cached
+    private static File indexDir;
+
+    // the index per jar, in the order of the jars in the extensions folder
+    private static List<ExtensionIndex> jarIndexes = new ArrayList<ExtensionIndex>();
+    // maps the name of each indexed class to the index of the jar containing it
+    private static Map<String, ExtensionIndex> classIndexes = new HashMap<String, ExtensionIndex>();
+    // maps the name of each resource to the url prefix of the jar containing it
+    private static Map<String, String> resourceJars = new HashMap<String, String>();
+    // the implementing classes per super class name, filled on demand
+    private static Map<String, List<Class<?>>> implementorCache = new ConcurrentHashMap<String, List<Class<?>>>();
 
     static {    
         // get the preferred "extensions" folder of the application
@@ -44,6 +61,10 @@ public class ExtClassLoader extends URLClassLoader {
         if (extDirProperty != null) {
         	extFolder = extDirProperty;
         }
+        String indexDirProperty = System.getProperty(INDEX_DIR_PROPERTY);
+        if (indexDirProperty != null) {
+        	indexDir = new File(indexDirProperty);
+        }
     }
     private static ExtClassLoader loader = new ExtClassLoader(ClassLoader.getSystemClassLoader());
     
@@ -70,7 +91,7 @@ public class ExtClassLoader extends URLClassLoader {
             }
         }
 
-        loadClasses();
+        loadIndexes();
     }
 
     /**
@@ -118,11 +139,10 @@ public class ExtClassLoader extends URLClassLoader {
     }
 
     /**
-     * Scans the extensions directory for .jar files and loads all classes
-     * found in the jar.  May store url's for all other resources, but for now
-     * finding resources is delegated to a URLClassLoader.
+     * Scans the extensions directory for .jar files and loads or creates the
+     * index of each jar. No classes are defined. 
      */
-    private void loadClasses() {
+    private void loadIndexes() {
         try {
             File plDir = new File(extFolder);
             if (LOG.isLoggable(Level.INFO)) {
@@ -130,35 +150,19 @@ public class ExtClassLoader extends URLClassLoader {
             }
 
             if (plDir.exists() && plDir.isDirectory()) {
-                JarFile jf;
-                String jarUrlPref;
-
                 File[] plfs = plDir.listFiles();
                 // if plDir is a directory plfs should not be null, test anyway
                 if (plfs == null) {
                 	return;
                 }
-
                 for (File plf : plfs) {
                 	// Check if it is a file
                 	if (!plf.isFile()) {
                 		continue;
                 	}
-                    // check if it is a jar??
-                    //URL url = new URL("jar:file:/" + plf.getAbsolutePath() + "!/");
+                    ExtensionIndex index;
                     try {
-                        jf = new JarFile(plf.getAbsolutePath());
-                        jarUrlPref = "jar:file:/" +
-                            plf.getAbsolutePath().replace('\\', '/') + "!/";
-
-                        //System.out.println("JF: " + jf.getName());
-                    } catch (JarException je) {
-                    	// If it is a zip file but not a good jar, I think.
-                    	if (LOG.isLoggable(Level.WARNING)) {
-                    		LOG.log(Level.WARNING, "Error loading jar '"+ plf.getAbsolutePath() + 
-                    				"': " + je.getMessage());
-                    	}
-                        continue;
+                        index = ExtensionIndex.forJar(plf, indexDir);
                     } catch (ZipException ze) {
                     	// If it isn't a zip file, which is not really unexpected if we
                     	// don't check the file extension.
@@ -171,62 +175,24 @@ public class ExtClassLoader extends URLClassLoader {
                         continue;
                     }
 
-                    Enumeration<JarEntry> clEnum = jf.entries();
-
-                    ArrayList<Class<?>> foundClasses = new ArrayList<Class<?>>();
-                    ArrayList<URL> foundRes = new ArrayList<URL>();
-
-                    while (clEnum.hasMoreElements()) {
-                    	JarEntry jae = clEnum.nextElement();
-
-                        //System.out.println("JE: " + jae.getName() + " size: " + jae.getSize() + " com size: " + jae.getCompressedSize());
-                        if (jae.getName().endsWith(".class") ||
-                                jae.getName().endsWith(".CLASS")) {
-
-                                try {
-                                    Class<?> nextClass = super.loadClass(
-                                    		jae.getName().replace('/', '.')
-                                    		.substring(0, jae.getName()
-                                    				.lastIndexOf('.')));
-
-                                    if (nextClass != null) {
-                                        foundClasses.add(nextClass);
-                                    }
-                                } catch (Throwable exception) {
-                                	// Usual cases: IndexOutOfBoundsException,
-                                	// SecurityException, NoClassDefFoundError.
-                                	if (LOG.isLoggable(Level.WARNING)) {
-                                		LOG.warning("Cannot create class from " +
-                                    		plf.getAbsolutePath() + " member " +
-                                    		jae.getName() + ": " + exception.toString());
-                                	}
-                                }
-                                // a ClassFormatError can be thrown. Should normally not be caught
-                        } else {
-                            // store a url
-                            try {
-                                // jar entry getName returns a path with '/' characters (not '.')
-                                foundRes.add(new URI(jarUrlPref + jae.getName()).toURL());
-                            } catch (MalformedURLException | URISyntaxException mue) {
-                            	if (LOG.isLoggable(Level.WARNING)) {
-                            		LOG.log(Level.WARNING, "Could not create url for: " +
-                            				jae.getName());
-                            	}
-                            }
-                        }
+                    jarIndexes.add(index);
+                    for (String className : index.getClasses().keySet()) {
+                    	if (!classIndexes.containsKey(className)) {
+                    		classIndexes.put(className, index);
+                    	}
                     }
-
-                    loadedClasses.put(jf.getName().replace('\\', '/'), foundClasses);
-                    resourceURLS.put(jf.getName().replace('\\', '/'), foundRes);
-                    
-                    try {
-                    	jf.close();
-                    } catch (IOException ioe) {
-                    	if (LOG.isLoggable(Level.FINE)) {
-                    		LOG.log(Level.FINE, "Error while closing the jar or zip file stream");
+                    String jarUrlPref = "jar:file:/" +
+                            plf.getAbsolutePath().replace('\\', '/') + "!/";
+                    for (String resource : index.getResources()) {
+                    	if (!resourceJars.containsKey(resource)) {
+                    		resourceJars.put(resource, jarUrlPref);
                     	}
                     }
                 }
+                if (LOG.isLoggable(Level.INFO)) {
+                	LOG.log(Level.INFO, "Indexed " + classIndexes.size() + " extension classes in " + 
+                			jarIndexes.size() + " jars");
+                }
             }
         } catch (Exception ex) {
         	if (LOG.isLoggable(Level.WARNING)) {
@@ -235,6 +201,76 @@ public class ExtClassLoader extends URLClassLoader {
         }
     }
 
+    /**
+     * Returns the names of the extension classes that are a subtype of the
+     * specified class, according to the indexes. Providers listed in 
+     * {@code META-INF/services} come first.
+     *
+     * @param superClass the super class or interface
+     * @return the names of the classes, in jar order
+     */
+    private Set<String> findImplementorNames(Class<?> superClass) {
+        Set<String> names = new LinkedHashSet<String>();
+        Map<String, Boolean> subtypes = new HashMap<String, Boolean>();
+
+        for (ExtensionIndex index : jarIndexes) {
+            names.addAll(index.getServiceProviders(superClass.getName()));
+            for (String className : index.getClasses().keySet()) {
+                if (isSubtype(className, superClass, subtypes)) {
+                    names.add(className);
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Determines whether the class with the specified name is a subtype of
+     * the specified class. The hierarchy of extension classes is followed in
+     * the indexes, other classes are loaded by the parent class loader,
+     * without initializing them.
+     *
+     * @param className the name of the class to test
+     * @param superClass the super class or interface
+     * @param subtypes the results so far, per class name
+     * @return {@code true} if the class extends or implements the super class
+     */
+    private boolean isSubtype(String className, Class<?> superClass, Map<String, Boolean> subtypes) {
+        if (className == null) {
+            return false;
+        }
+        if (className.equals(superClass.getName())) {
+            return true;
+        }
+        Boolean known = subtypes.get(className);
+        if (known != null) {
+            return known.booleanValue();
+        }
+        // prevents endless recursion in case of a (corrupt) cyclic hierarchy
+        subtypes.put(className, Boolean.FALSE);
+
+        boolean result = false;
+        ExtensionIndex index = classIndexes.get(className);
+        ExtensionIndex.ClassInfo info = index != null ? index.getClasses().get(className) : null;
+
+        if (info != null) {
+            result = isSubtype(info.superName, superClass, subtypes);
+            for (int i = 0; !result && i < info.interfaceNames.size(); i++) {
+                result = isSubtype(info.interfaceNames.get(i), superClass, subtypes);
+            }
+        } else if (!"java.lang.Object".equals(className)) {
+            try {
+                result = superClass.isAssignableFrom(Class.forName(className, false, getParent()));
+            } catch (Throwable t) {
+                // not available, treat as unrelated
+            }
+        }
+        subtypes.put(className, Boolean.valueOf(result));
+
+        return result;
+    }
+
     /**
      * Searches the loaded classes for implementors (or extenders) of the class
      * with the given name. Returns null if the given class cannot be found.
@@ -277,17 +313,28 @@ public class ExtClassLoader extends URLClassLoader {
             return null;
         }
 
-        List<Class<?>> cList = new ArrayList<Class<?>>();
-
-        for (List<Class<?>> li : loadedClasses.values()) {
-            for (Class<?> cl : li) {
-                if (superClass.isAssignableFrom(cl)) {
-                    cList.add(cl);
-                }
-            }
+        List<Class<?>> cList = implementorCache.get(superClass.getName());
+        if (cList == null) {
+        	cList = new ArrayList<Class<?>>();
+
+        	for (String className : findImplementorNames(superClass)) {
+        		try {
+        			Class<?> nextClass = super.loadClass(className);
+
+        			if (superClass.isAssignableFrom(nextClass)) {
+        				cList.add(nextClass);
+        			}
+        		} catch (Throwable exception) {
+        			// Usual cases: SecurityException, NoClassDefFoundError.
+        			if (LOG.isLoggable(Level.WARNING)) {
+        				LOG.warning("Cannot create class " + className + ": " + exception.toString());
+        			}
+        		}
+        	}
+        	implementorCache.put(superClass.getName(), cList);
         }
 
-        return cList;
+        return new ArrayList<Class<?>>(cList);
     }
 
     /**
@@ -308,13 +355,8 @@ public class ExtClassLoader extends URLClassLoader {
 
         List<Class<? extends T>> cList = new ArrayList<Class<? extends T>>();
 
-        for (List<Class<?>> li : loadedClasses.values()) {
-            for (Class<?> cl : li) {
-
-                if (superClass.isAssignableFrom(cl)) {
-                    cList.add(cl.asSubclass(superClass));
-                }
-            }
+        for (Class<?> cl : getImplementingClasses(superClass)) {
+            cList.add(cl.asSubclass(superClass));
         }
 
         return cList;
@@ -329,16 +371,7 @@ public class ExtClassLoader extends URLClassLoader {
      * @return an object of the super type or {@code null}
      */
     public <T> T createInstance(Class<? extends T> implClass) {
-    	boolean loadAllowed = false;
-    	classloop:
-    	for (List<Class<?>> subList : loadedClasses.values()) {
-    		for (Class<?> cl : subList) {
-    			if (cl.getName().equals(implClass.getName())) {
-    				loadAllowed = true;
-    				break classloop;
-    			}
-    		}
-    	}
+    	boolean loadAllowed = classIndexes.containsKey(implClass.getName());
     	
     	if (!loadAllowed) {
     		if (LOG.isLoggable(Level.WARNING)) {
@@ -474,23 +507,16 @@ public class ExtClassLoader extends URLClassLoader {
             name = name.substring(1);
         }
 
-        for (List<URL> li : resourceURLS.values()) {
-            for (URL url : li) {
-
-                if (url != null) {
-                    String res = url.toString();
-
-                    int index = res.indexOf("!/");
-
-                    if ((index > -1) && (index < (res.length() - 2))) {
-                        res = res.substring(index + 2);
-
-                        if (name.equals(res)) {
-                            return url;
-                        }
-                    }
-                }
-            }
+        String jarUrlPref = resourceJars.get(name);
+        if (jarUrlPref != null) {
+        	try {
+        		// jar entry names are paths with '/' characters (not '.')
+        		return new URI(jarUrlPref + name).toURL();
+        	} catch (MalformedURLException | URISyntaxException mue) {
+        		if (LOG.isLoggable(Level.WARNING)) {
+        			LOG.log(Level.WARNING, "Could not create url for: " + name);
+        		}
+        	}
         }
 
         return null;
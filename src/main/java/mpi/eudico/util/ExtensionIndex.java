@@ -0,0 +1,349 @@
+package mpi.eudico.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * An index of the contents of a single extension jar: the declared super
+ * class and interfaces of every class in the jar, the service providers
+ * listed in {@code META-INF/services} and the names of all other entries.
+ * The class information is read from the class file headers, the classes
+ * are not defined.
+ * <p>
+ * Indexes are stored in a cache folder in a simple line based text format,
+ * one file per jar location. The first line contains the size and the
+ * modification time of the jar, so that a changed jar is indexed again
+ * without having to read the jar to detect the change.
+ */
+class ExtensionIndex {
+    private static final String SERVICES_DIR = "META-INF/services/";
+    private static final String INDEX_VERSION = "#ExtensionIndex 2";
+    private static final String CLASS_LINE = "C";
+    private static final String SERVICE_LINE = "S";
+    private static final String RESOURCE_LINE = "R";
+
+    /**
+     * The header information of a class: the super class name (or
+     * {@code null}) and the names of the directly implemented interfaces.
+     */
+    static class ClassInfo {
+        final String superName;
+        final List<String> interfaceNames;
+
+        ClassInfo(String superName, List<String> interfaceNames) {
+            this.superName = superName;
+            this.interfaceNames = interfaceNames;
+        }
+    }
+
+    private final File jar;
+    private final Map<String, ClassInfo> classes = new HashMap<String, ClassInfo>();
+    private final Map<String, List<String>> services = new HashMap<String, List<String>>();
+    private final List<String> resources = new ArrayList<String>();
+
+    private ExtensionIndex(File jar) {
+        this.jar = jar;
+    }
+
+    /**
+     * Returns the index of the specified jar, from the cache folder if it
+     * contains an index for the current size and modification time of the
+     * jar, otherwise the jar is indexed and the index is stored in the cache
+     * folder.
+     *
+     * @param jar the jar file
+     * @param cacheDir the folder for the index files, can be {@code null}
+     * @return the index, not null
+     * @throws IOException if the jar cannot be read or is not a jar or zip
+     * file
+     */
+    static ExtensionIndex forJar(File jar, File cacheDir) throws IOException {
+        String header = INDEX_VERSION + '\t' + jar.length() + '\t' + jar.lastModified();
+        File indexFile = cacheDir != null ? new File(cacheDir, jar.getName() + "-" +
+                String.format("%08x", jar.getAbsolutePath().hashCode()) + ".idx") : null;
+
+        if (indexFile != null && indexFile.isFile()) {
+            ExtensionIndex index = new ExtensionIndex(jar);
+            try {
+                if (index.read(indexFile, header)) {
+                    return index;
+                }
+            } catch (IOException ioe) {
+                // ignore, index the jar again
+            }
+        }
+
+        ExtensionIndex index = new ExtensionIndex(jar);
+        index.scan();
+
+        if (indexFile != null) {
+            try {
+                removeOldIndexes(cacheDir, jar.getName(), indexFile);
+                index.write(indexFile, header);
+            } catch (IOException ioe) {
+                // the cache is optional
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * @return a map of class name to class header information
+     */
+    Map<String, ClassInfo> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @param serviceName the fully qualified name of a service interface
+     * @return the provider class names listed in {@code META-INF/services}
+     * for the service, an empty list if there are none
+     */
+    List<String> getServiceProviders(String serviceName) {
+        List<String> providers = services.get(serviceName);
+        return providers != null ? providers : Collections.<String>emptyList();
+    }
+
+    /**
+     * @return the names of all entries which are not class files
+     */
+    List<String> getResources() {
+        return resources;
+    }
+
+    private void scan() throws IOException {
+        try (JarFile jf = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jf.entries();
+
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (name.endsWith(".class") || name.endsWith(".CLASS")) {
+                    if (name.endsWith("module-info.class")) {
+                        continue;
+                    }
+                    try (InputStream in = jf.getInputStream(entry)) {
+                        ClassInfo info = readClassHeader(in);
+                        if (info != null) {
+                            classes.put(name.substring(0, name.lastIndexOf('.')).replace('/', '.'), info);
+                        }
+                    } catch (IOException ioe) {
+                        // not a valid class file, skip it as the class could not be defined either
+                    }
+                } else {
+                    resources.add(name);
+                    if (name.startsWith(SERVICES_DIR) && !entry.isDirectory()) {
+                        try (InputStream in = jf.getInputStream(entry)) {
+                            services.put(name.substring(SERVICES_DIR.length()), readServiceFile(in));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the provider names from a services file, ignoring comments and
+     * empty lines.
+     */
+    private static List<String> readServiceFile(InputStream in) throws IOException {
+        List<String> providers = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment > -1) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (!line.isEmpty() && !providers.contains(line)) {
+                providers.add(line);
+            }
+        }
+
+        return providers;
+    }
+
+    /**
+     * Reads the part of a class file up to and including the interfaces.
+     *
+     * @param in the class file stream
+     * @return the header information or {@code null} if the stream is not a
+     * class file
+     * @throws IOException if reading fails
+     */
+    static ClassInfo readClassHeader(InputStream in) throws IOException {
+        DataInputStream dis = new DataInputStream(in);
+        if (dis.readInt() != 0xCAFEBABE) {
+            return null;
+        }
+        dis.readUnsignedShort();// minor version
+        dis.readUnsignedShort();// major version
+
+        int poolSize = dis.readUnsignedShort();
+        String[] utf8 = new String[poolSize];
+        int[] classNameIndex = new int[poolSize];
+
+        for (int i = 1; i < poolSize; i++) {
+            int tag = dis.readUnsignedByte();
+            switch (tag) {
+            case 1:// Utf8
+                utf8[i] = dis.readUTF();
+                break;
+            case 7:// Class
+                classNameIndex[i] = dis.readUnsignedShort();
+                break;
+            case 8:// String
+            case 16:// MethodType
+            case 19:// Module
+            case 20:// Package
+                dis.skipBytes(2);
+                break;
+            case 15:// MethodHandle
+                dis.skipBytes(3);
+                break;
+            case 3:// Integer
+            case 4:// Float
+            case 9:// Fieldref
+            case 10:// Methodref
+            case 11:// InterfaceMethodref
+            case 12:// NameAndType
+            case 17:// Dynamic
+            case 18:// InvokeDynamic
+                dis.skipBytes(4);
+                break;
+            case 5:// Long
+            case 6:// Double
+                dis.skipBytes(8);
+                i++;// takes two slots
+                break;
+            default:
+                throw new IOException("Unknown constant pool tag: " + tag);
+            }
+        }
+
+        dis.readUnsignedShort();// access flags
+        dis.readUnsignedShort();// this class
+        int superIndex = dis.readUnsignedShort();
+        int numInterfaces = dis.readUnsignedShort();
+        List<String> interfaceNames = new ArrayList<String>(numInterfaces);
+        for (int i = 0; i < numInterfaces; i++) {
+            interfaceNames.add(className(utf8, classNameIndex, dis.readUnsignedShort()));
+        }
+
+        return new ClassInfo(superIndex == 0 ? null : className(utf8, classNameIndex, superIndex),
+                interfaceNames);
+    }
+
+    private static String className(String[] utf8, int[] classNameIndex, int classIndex) {
+        return utf8[classNameIndex[classIndex]].replace('/', '.');
+    }
+
+    private boolean read(File indexFile, String header) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            if (!header.equals(reader.readLine())) {
+                return false;
+            }
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", -1);
+                if (CLASS_LINE.equals(parts[0]) && parts.length >= 3) {
+                    List<String> interfaceNames = new ArrayList<String>(parts.length - 3);
+                    for (int i = 3; i < parts.length; i++) {
+                        interfaceNames.add(parts[i]);
+                    }
+                    classes.put(parts[1], new ClassInfo(parts[2].isEmpty() ? null : parts[2],
+                            interfaceNames));
+                } else if (SERVICE_LINE.equals(parts[0]) && parts.length >= 2) {
+                    List<String> providers = new ArrayList<String>(parts.length - 2);
+                    for (int i = 2; i < parts.length; i++) {
+                        providers.add(parts[i]);
+                    }
+                    services.put(parts[1], providers);
+                } else if (RESOURCE_LINE.equals(parts[0]) && parts.length == 2) {
+                    resources.add(parts[1]);
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private void write(File indexFile, String header) throws IOException {
+        File parent = indexFile.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create folder " + parent);
+        }
+        File temp = new File(parent, indexFile.getName() + ".tmp");
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            writer.write(header);
+            writer.write('\n');
+            for (Map.Entry<String, ClassInfo> entry : classes.entrySet()) {
+                ClassInfo info = entry.getValue();
+                writer.write(CLASS_LINE + '\t' + entry.getKey() + '\t' +
+                        (info.superName != null ? info.superName : ""));
+                for (String interfaceName : info.interfaceNames) {
+                    writer.write('\t' + interfaceName);
+                }
+                writer.write('\n');
+            }
+            for (Map.Entry<String, List<String>> entry : services.entrySet()) {
+                writer.write(SERVICE_LINE + '\t' + entry.getKey());
+                for (String provider : entry.getValue()) {
+                    writer.write('\t' + provider);
+                }
+                writer.write('\n');
+            }
+            for (String resource : resources) {
+                writer.write(RESOURCE_LINE + '\t' + resource + '\n');
+            }
+        }
+
+        if (!temp.renameTo(indexFile)) {
+            temp.delete();
+        }
+    }
+
+    /**
+     * Deletes other index files for a jar with the same name, e.g. of a
+     * previous version of the index format.
+     */
+    private static void removeOldIndexes(File cacheDir, String jarName, File current) {
+        File[] oldIndexes = cacheDir.listFiles((dir, name) -> name.startsWith(jarName + "-") &&
+                name.endsWith(".idx") && name.length() == jarName.length() + 13);
+        if (oldIndexes != null) {
+            for (File f : oldIndexes) {
+                if (!f.equals(current)) {
+                    f.delete();
+                }
+            }
+        }
+    }
+}
@@ -152,6 +152,7 @@ public class ExternalCV extends ControlledVocabulary {
 	public void cloneEntries(BasicControlledVocabulary orig) {
     	initMode = true;
     	entries.clear();
+    	invalidateValueIndex();
     	for (CVEntry e : orig) {
     		addEntry(new ExternalCVEntry(this, e));
     	}
@@ -170,6 +171,7 @@ public class ExternalCV extends ControlledVocabulary {
     public void cloneEntries(ExternalCV orig) {
     	initMode = true;
     	entries.clear();
+    	invalidateValueIndex();
     	for (CVEntry e : orig) {
     		addEntry(new ExternalCVEntry(this, (ExternalCVEntry)e));
     	}
@@ -0,0 +1,45 @@
+package mpi.eudico.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The notification of a single listener of a modification of a
+ * transcription. Since every edit is passed to all viewers and other
+ * listeners, only notifications that take longer than the threshold are
+ * recorded.
+ */
+@Name("nl.mpi.elan.EditNotification")
+@Label("Edit Notification")
+@Category({"ELAN", "Transcription"})
+@Description("The notification of one listener of a modification of a transcription")
+@StackTrace(false)
+@Threshold("1 ms")
+public class EditNotificationEvent extends Event {
+	@Label("Listener Class")
+	Class<?> listenerClass;
+
+	@Label("Operation")
+	@Description("The operation constant of the edit event")
+	int operation;
+
+	/**
+	 * Ends and commits this event.
+	 *
+	 * @param listener the listener that has been notified
+	 * @param operation the operation of the edit event
+	 */
+	public void finish(Object listener, int operation) {
+		end();
+		if (shouldCommit()) {
+			this.listenerClass = listener.getClass();
+			this.operation = operation;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package mpi.eudico.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Reading a block of audio samples from a media file (or from the decoder
+ * of a media file), for the signal and spectrogram viewers and other users
+ * of the samples. Blocks that are served from memory are not recorded.
+ */
+@Name("nl.mpi.elan.SampleRead")
+@Label("Sample Read")
+@Category({"ELAN", "Media"})
+@Description("Reading a block of audio samples from a media file")
+@StackTrace(false)
+public class SampleReadEvent extends Event {
+	@Label("Media Location")
+	String mediaLocation;
+
+	@Label("First Sample")
+	long firstSample;
+
+	@Label("Number of Samples")
+	int numSamples;
+
+	@Label("Size")
+	@DataAmount
+	long size;
+
+	/**
+	 * Ends and commits this event.
+	 *
+	 * @param mediaLocation the media file
+	 * @param firstSample the index of the first sample that was read
+	 * @param numSamples the number of samples that have been read
+	 * @param size the number of bytes of the samples
+	 */
+	public void finish(String mediaLocation, long firstSample, int numSamples, long size) {
+		end();
+		if (shouldCommit()) {
+			this.mediaLocation = mediaLocation;
+			this.firstSample = firstSample;
+			this.numSamples = numSamples;
+			this.size = size;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package mpi.eudico.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The execution of a search query in a transcription.
+ */
+@Name("nl.mpi.elan.Search")
+@Label("Search")
+@Category({"ELAN", "Search"})
+@Description("Execution of a search query")
+public class SearchEvent extends Event {
+	@Label("Pattern")
+	String pattern;
+
+	@Label("Regular Expression")
+	boolean regEx;
+
+	@Label("Number of Tiers")
+	int numTiers;
+
+	@Label("Number of Matches")
+	int numMatches;
+
+	/**
+	 * Ends and commits this event.
+	 *
+	 * @param pattern the search pattern of the anchor constraint
+	 * @param regEx whether the pattern is a regular expression
+	 * @param numTiers the number of searched tiers
+	 * @param numMatches the number of matches found
+	 */
+	public void finish(String pattern, boolean regEx, int numTiers, int numMatches) {
+		end();
+		if (shouldCommit()) {
+			this.pattern = pattern;
+			this.regEx = regEx;
+			this.numTiers = numTiers;
+			this.numMatches = numMatches;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package mpi.eudico.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A phase of loading (parsing) or saving (encoding) a transcription. The
+ * phases of one operation are consecutive; an event is started with
+ * {@link #start(String, String)} and each phase is closed with
+ * {@link #next(String)}, which starts the event of the next phase, or with
+ * {@link #finish(String)}.
+ */
+@Name("nl.mpi.elan.TranscriptionPhase")
+@Label("Transcription Load/Save Phase")
+@Category({"ELAN", "Transcription"})
+@Description("A phase of loading or saving a transcription")
+@StackTrace(false)
+public class TranscriptionPhaseEvent extends Event {
+	/** the load operation */
+	public static final String LOAD = "load";
+	/** the save operation */
+	public static final String SAVE = "save";
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Path")
+	String path;
+
+	/**
+	 * Creates and begins an event.
+	 *
+	 * @param operation {@link #LOAD} or {@link #SAVE}
+	 * @param path the path of the file
+	 *
+	 * @return the event of the first phase
+	 */
+	public static TranscriptionPhaseEvent start(String operation, String path) {
+		TranscriptionPhaseEvent event = new TranscriptionPhaseEvent();
+		event.operation = operation;
+		event.path = path;
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends and commits this event.
+	 *
+	 * @param phase the name of the phase that has been completed
+	 */
+	public void finish(String phase) {
+		end();
+		if (shouldCommit()) {
+			this.phase = phase;
+			commit();
+		}
+	}
+
+	/**
+	 * Ends and commits this event and begins the event of the next phase.
+	 *
+	 * @param phase the name of the phase that has been completed
+	 *
+	 * @return the event of the next phase
+	 */
+	public TranscriptionPhaseEvent next(String phase) {
+		finish(phase);
+		return start(operation, path);
+	}
+}
@@ -0,0 +1,45 @@
+package mpi.eudico.util.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Painting of a viewer on the screen, or (re)painting of the buffer image
+ * of a viewer. Only paint operations that take longer than the threshold are
+ * recorded.
+ */
+@Name("nl.mpi.elan.ViewerPaint")
+@Label("Viewer Paint")
+@Category({"ELAN", "Viewer"})
+@Description("Painting of a viewer or of its buffer image")
+@StackTrace(false)
+@Threshold("2 ms")
+public class ViewerPaintEvent extends Event {
+	@Label("Viewer Class")
+	Class<?> viewerClass;
+
+	@Label("Buffer")
+	@Description("Whether the buffer image of the viewer was painted")
+	boolean buffer;
+
+	/**
+	 * Ends and commits this event.
+	 *
+	 * @param viewer the viewer that has been painted
+	 * @param buffer {@code true} if the buffer image was painted,
+	 * {@code false} if the viewer was painted on the screen
+	 */
+	public void finish(Object viewer, boolean buffer) {
+		end();
+		if (shouldCommit()) {
+			this.viewerClass = viewer.getClass();
+			this.buffer = buffer;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,25 @@
+/**
+ * Provides custom Java Flight Recorder events for the performance critical
+ * operations of ELAN. The events are part of every build and cost next to
+ * nothing when no recording is running; they can be recorded on any machine
+ * with the tools of the JDK, e.g.
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start name=elan settings=profile filename=elan.jfr
+ * jcmd &lt;pid&gt; JFR.stop name=elan
+ * jfr print --categories ELAN elan.jfr
+ * </pre>
+ * Frequent events have a duration threshold, only events that take longer
+ * are recorded. The thresholds can be changed in a recording settings
+ * ({@code .jfc}) file, e.g. {@code nl.mpi.elan.ViewerPaint#threshold=0 ms}.
+ * 
+ * <h2>Events:</h2>
+ * <ul>
+ * <li>TranscriptionPhaseEvent: a phase of loading or saving a transcription</li>
+ * <li>EditNotificationEvent: the notification of one listener of a modification
+ * of a transcription</li>
+ * <li>ViewerPaintEvent: painting of a viewer or of its buffer image</li>
+ * <li>SearchEvent: execution of a search query</li>
+ * <li>SampleReadEvent: reading a block of audio samples from a media file</li>
+ * </ul>
+ */
+package mpi.eudico.util.jfr;
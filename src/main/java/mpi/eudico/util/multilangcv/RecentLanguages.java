@@ -6,11 +6,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.swing.SwingUtilities;
 
 import mpi.eudico.util.IoUtil;
 import mpi.eudico.util.multilangcv.LangInfo;
@@ -26,6 +28,9 @@ import org.xml.sax.helpers.DefaultHandler;
  * in various situations where a language is to be chosen.
  * 
  * This has been extended to be the source list for choosing a "Language for multilingual content".
+ * <p>
+ * Languages are added while loading transcriptions and CVs, which can happen on several threads at once,
+ * so the list can be read and changed from any thread. Listeners are notified on the event dispatch thread.
  * 
  * @author olasei
  * June 2019 moved from a "client" package to here
@@ -34,21 +39,20 @@ public class RecentLanguages {
 
 	//public static final String privatePreferencesFile = "RecentLanguages.xml";
 	
-	private List<LangInfo> recentLanguages;
+	/** changes are made while holding the lock on this object, reads don't need the lock */
+	private final List<LangInfo> recentLanguages;
 	private List<WeakReference<RecentLanguageListener>> listeners;
 	
 	private static RecentLanguages instance;
 	
 	/**
 	 * Get the singleton RecentLanguages instance.
-	 * To be called from the GUI thread: this is not thread-safe.
 	 * @return the single instance of this class
 	 */
-	public static RecentLanguages getInstance() {
-		if (instance != null) {
-			return instance;
+	public static synchronized RecentLanguages getInstance() {
+		if (instance == null) {
+			instance = new RecentLanguages();
 		}
-		instance = new RecentLanguages();
 		return instance;
 	}
 
@@ -57,11 +61,13 @@ public class RecentLanguages {
 	 */
 	private RecentLanguages() {
 		// initialize the list
-		recentLanguages = new ArrayList<LangInfo>();
+		recentLanguages = new CopyOnWriteArrayList<LangInfo>();
 	}
 	
 	/**
 	 * Access function for use by the RecentLanguagesMenu and RecentLanguagesBox.
+	 * The list reflects later changes, iterating over it is safe while 
+	 * languages are being added.
 	 * @return the list of languages, {@code LangInfo} objects
 	 */
 	public List<LangInfo> getRecentLanguages() {
@@ -76,7 +82,7 @@ public class RecentLanguages {
 	 * @param newLI the LangInfo to test
 	 * @return true if it seems ok
 	 */
-	public boolean canAddLanguage(LangInfo newLI) {
+	public synchronized boolean canAddLanguage(LangInfo newLI) {
 		return findConflictingLanguage(newLI, -1) < 0;
 	}
 	
@@ -119,14 +125,20 @@ public class RecentLanguages {
 	 * @return the index position of the newly added/changed language, or -1 when it failed.
 	 */
 	public int addRecentLanguage(LangInfo newLI) {	
-		// See if we already have this language in our list.
-		int index = findConflictingLanguage(newLI, -1);
-		if (index == UNIQUE) {
-			// Need to add it.
-			index = recentLanguages.size();
-			recentLanguages.add(newLI);
-	
-			notifyListenersAdded(index, newLI);
+		int index;
+		List<RecentLanguageListener> toNotify = null;
+		synchronized (this) {
+			// See if we already have this language in our list.
+			index = findConflictingLanguage(newLI, -1);
+			if (index == UNIQUE) {
+				// Need to add it.
+				index = recentLanguages.size();
+				recentLanguages.add(newLI);
+				toNotify = getListeners();
+			}
+		}
+		if (toNotify != null) {
+			notifyListenersAdded(toNotify, index, newLI);
 
 			return index;
 		} else if (index >= 0) {
@@ -144,10 +156,15 @@ public class RecentLanguages {
 	 * @param index the index to remove
 	 */
 	public void removeRecentLanguage(int index) {
-		if (index >= 0 && index < recentLanguages.size()) {
+		List<RecentLanguageListener> toNotify;
+		synchronized (this) {
+			if (index < 0 || index >= recentLanguages.size()) {
+				return;
+			}
 			recentLanguages.remove(index);
-			notifyListenersChanged(index, null);			
+			toNotify = getListeners();
 		}
+		notifyListenersChanged(toNotify, index, null);
 	}
 
 	/**
@@ -158,17 +175,21 @@ public class RecentLanguages {
 	 * @return {@code true} if the update succeeded, {@code false} otherwise
 	 */
 	public boolean changeRecentLanguage(int index, LangInfo newLI) {
-		if (index >= 0 && index < recentLanguages.size()) {
+		List<RecentLanguageListener> toNotify;
+		synchronized (this) {
+			if (index < 0 || index >= recentLanguages.size()) {
+				return false;
+			}
 			// Check uniqueness of the IDs first (disregarding the old entry)
 			if (findConflictingLanguage(newLI, index) != UNIQUE) {
 				return false;
 			}
 			recentLanguages.set(index, newLI);
-			notifyListenersChanged(index, newLI);
-			
-			return true;
-		}		
-		return false;
+			toNotify = getListeners();
+		}
+		notifyListenersChanged(toNotify, index, newLI);
+		
+		return true;
 	}
 	
 	/**
@@ -274,7 +295,7 @@ public class RecentLanguages {
 	 * 
 	 * @param listener the listener to add
 	 */
-	public void addRecentLanguageListener(
+	public synchronized void addRecentLanguageListener(
 			RecentLanguageListener listener) {
 		if (listeners == null) {
 			listeners = new ArrayList<WeakReference<RecentLanguageListener>>(1);
@@ -287,7 +308,7 @@ public class RecentLanguages {
 	 * 
 	 * @param listener the listener to remove
 	 */
-	public void removeRecentLanguageListener(
+	public synchronized void removeRecentLanguageListener(
 			RecentLanguageListener listener) {
 		if (listeners != null) {
 
@@ -302,35 +323,60 @@ public class RecentLanguages {
 		}
 	}
 
-	private void notifyListenersAdded(int freeIndex, LangInfo newLI) {
+	/**
+	 * Returns the live listeners and removes the ones that have been
+	 * garbage collected. Should be called while holding the lock.
+	 * 
+	 * @return the listeners to notify
+	 */
+	private List<RecentLanguageListener> getListeners() {
+		List<RecentLanguageListener> live = new ArrayList<RecentLanguageListener>();
 		if (listeners != null) {
 			Iterator<WeakReference<RecentLanguageListener>> iter = listeners.iterator();
 			
 			while (iter.hasNext()) {
-				WeakReference<RecentLanguageListener> ref = iter.next();
-				RecentLanguageListener listener = ref.get();
+				RecentLanguageListener listener = iter.next().get();
 				if (listener == null) {
 					iter.remove();
 				} else {
-					listener.recentLanguageAdded(freeIndex, newLI);
+					live.add(listener);
 				}
 			}
 		}
+		return live;
+	}
+
+	private void notifyListenersAdded(List<RecentLanguageListener> toNotify, int freeIndex, LangInfo newLI) {
+		if (toNotify.isEmpty()) {
+			return;
+		}
+		runOnEventDispatchThread(() -> {
+			for (RecentLanguageListener listener : toNotify) {
+				listener.recentLanguageAdded(freeIndex, newLI);
+			}
+		});
 	}
 	
-	private void notifyListenersChanged(int freeIndex, LangInfo newLI) {
-		if (listeners != null) {
-			Iterator<WeakReference<RecentLanguageListener>> iter = listeners.iterator();
-			
-			while (iter.hasNext()) {
-				WeakReference<RecentLanguageListener> ref = iter.next();
-				RecentLanguageListener listener = ref.get();
-				if (listener == null) {
-					iter.remove();
-				} else {
-					listener.recentLanguageChanged(freeIndex, newLI);
-				}
+	private void notifyListenersChanged(List<RecentLanguageListener> toNotify, int freeIndex, LangInfo newLI) {
+		if (toNotify.isEmpty()) {
+			return;
+		}
+		runOnEventDispatchThread(() -> {
+			for (RecentLanguageListener listener : toNotify) {
+				listener.recentLanguageChanged(freeIndex, newLI);
 			}
+		});
+	}
+
+	/**
+	 * The listeners are menus and other Swing components. Notifications for
+	 * changes made on other threads are queued in the order of the changes.
+	 */
+	private static void runOnEventDispatchThread(Runnable notification) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			notification.run();
+		} else {
+			SwingUtilities.invokeLater(notification);
 		}
 	}
 	
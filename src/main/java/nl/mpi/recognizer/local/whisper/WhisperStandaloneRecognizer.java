@@ -2,6 +2,8 @@ package nl.mpi.recognizer.local.whisper;
 
 import mpi.eudico.client.annotator.recognizer.api.Recognizer;
 import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.util.MappedWAVSamples;
+import nl.mpi.recognizer.local.whisper.transcriber.ChunkedTranscription;
 import nl.mpi.recognizer.local.whisper.transcriber.CommandCreator;
 import nl.mpi.recognizer.local.whisper.transcriber.ReaderThread;
 import nl.mpi.recognizer.local.whisper.transcriber.TranscriptionSegmentationStrategy;
@@ -15,6 +17,9 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 
+import static nl.mpi.recognizer.local.whisper.transcriber.CoreInputField.CHUNK_DURATION;
+import static nl.mpi.recognizer.local.whisper.transcriber.CoreInputField.PARALLEL_WORKERS;
+
 /**
  * A recognizer which calls a local executable of <a href="https://openai.com/blog/whisper/">Whisper</a> to transcribe
  * or translate an audio file.
@@ -28,6 +33,9 @@ public class WhisperStandaloneRecognizer implements Recognizer {
     public static final String STOPPING_RECOGNIZER = "Stopping recognizer...";
     public static final String TRYING_TO_STOP_THE_RUNNING_RECOGNIZER = "Trying to stop the running recognizer";
     public static final String LINE_BREAK = "\n";
+    public static final String CHUNKING_REQUIRES_WAV = "Parallel processing requires a supported .wav file, the file is processed as a whole: ";
+    public static final int DEFAULT_CHUNK_DURATION = 300;
+    public static final int MIN_CHUNK_DURATION = 30;
 
     private String name;
     private final Map<String, String> paramMapString;
@@ -37,6 +45,7 @@ public class WhisperStandaloneRecognizer implements Recognizer {
     private volatile boolean isRecognizerProcessRunning = false;
     private WhisperArguments whisperArguments;
     private File baseDir;
+    private ChunkedTranscription chunkedTranscription;
 
     public WhisperStandaloneRecognizer() {
         paramMapString = HashMap.newHashMap(10);
@@ -105,6 +114,10 @@ public class WhisperStandaloneRecognizer implements Recognizer {
             isRecognizerProcessRunning = true;
             host.setProgress(-1f);
 
+            if (startChunkedTranscription()) {
+                return;
+            }
+
             recognizerProcess = new ProcessBuilder(commands)
                     .redirectErrorStream(true)
                     .start();
@@ -118,6 +131,55 @@ public class WhisperStandaloneRecognizer implements Recognizer {
         }
     }
 
+    /**
+     * Starts the transcription in multiple concurrent processes if more than one worker is configured and the input
+     * is a {@code .wav} file which can be split into chunks.
+     *
+     * @return {@code true} if the chunked transcription has been started
+     */
+    private boolean startChunkedTranscription() {
+        int workers = getIntParameter(PARALLEL_WORKERS.getName(), 1);
+        if (workers <= 1) {
+            return false;
+        }
+
+        try {
+            MappedWAVSamples samples = new MappedWAVSamples(whisperArguments.inputAudioVideoFilePath());
+            long chunkDuration = Math.max(MIN_CHUNK_DURATION,
+                getIntParameter(CHUNK_DURATION.getName(), DEFAULT_CHUNK_DURATION)) * 1000L;
+            chunkedTranscription = new ChunkedTranscription(this, samples, workers, chunkDuration) {
+                @Override
+                public void run() {
+                    try {
+                        super.run();
+                    } finally {
+                        isRecognizerProcessRunning = false;
+                    }
+                }
+            };
+            chunkedTranscription.start();
+            return true;
+        } catch (IOException ioe) {
+            host.appendToReport(CHUNKING_REQUIRES_WAV + ioe.getMessage() + LINE_BREAK);
+            return false;
+        }
+    }
+
+    private int getIntParameter(String param, int defaultValue) {
+        Object value = getParameterValue(param);
+        try {
+            if (value instanceof Float floatValue) {
+                return Math.round(floatValue);
+            } else if (value instanceof String stringValue && !stringValue.isBlank()) {
+                return Math.round(Float.parseFloat(stringValue));
+            }
+        } catch (NumberFormatException nfe) {
+            LOG.log(Level.WARNING, nfe.getMessage());
+        }
+
+        return defaultValue;
+    }
+
     private void logToReport(String[] commands) {
         String message = STARTING_PROCESS_WITH_COMMAND + LINE_BREAK +
                 LocalDateTime.now().format(DateTimeFormatter.ofPattern(DATE_TIME_FORMAT)) + LINE_BREAK +
@@ -127,6 +189,12 @@ public class WhisperStandaloneRecognizer implements Recognizer {
 
     @Override
     public void stop() {
+        if (chunkedTranscription != null && chunkedTranscription.isAlive()) {
+            LOG.log(Level.INFO, STOPPING_RECOGNIZER);
+            host.appendToReport(TRYING_TO_STOP_THE_RUNNING_RECOGNIZER + LINE_BREAK);
+            chunkedTranscription.cancel();
+            isRecognizerProcessRunning = false;
+        }
         // if there is a process stop it?
         if (isRecognizerProcessRunning && recognizerProcess != null) {
             // send a message first? Is there a way of closing gracefully?
@@ -0,0 +1,106 @@
+package nl.mpi.recognizer.local.whisper.transcriber;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Divides an audio file into chunks of approximately a target duration, placing the boundaries in the quietest part of
+ * a search window around each target boundary, so that chunks preferably start and end in silences.
+ * <p>
+ * The input is the per-frame energy as calculated by
+ * {@link mpi.eudico.client.annotator.recognizer.silence.FrameEnergyCalculator}.
+ */
+public class AudioChunker {
+
+    /** the duration over which the energy is averaged when looking for a silence, in ms */
+    public static final int SILENCE_WINDOW_DURATION = 300;
+
+    public record AudioChunk(int index, long beginTime, long endTime) {
+    }
+
+    private final int frameDuration;
+    private final long targetChunkDuration;
+
+    /**
+     * @param frameDuration the duration of an energy frame in ms
+     * @param targetChunkDuration the preferred duration of a chunk in ms
+     */
+    public AudioChunker(int frameDuration, long targetChunkDuration) {
+        this.frameDuration = frameDuration;
+        this.targetChunkDuration = targetChunkDuration;
+    }
+
+    /**
+     * Creates the chunks for a file. Boundaries are searched for within a quarter of the target duration before and
+     * after each target boundary. The last chunk is merged with the previous one if it would be shorter than half the
+     * target duration.
+     *
+     * @param energies the energy per frame, e.g. the maximum over all channels
+     * @param duration the duration of the audio in ms
+     * @return the list of consecutive chunks covering the whole duration
+     */
+    public List<AudioChunk> createChunks(float[] energies, long duration) {
+        List<AudioChunk> chunks = new ArrayList<>();
+        if (duration <= targetChunkDuration + targetChunkDuration / 2 || energies.length == 0) {
+            chunks.add(new AudioChunk(0, 0, duration));
+            return chunks;
+        }
+
+        int windowFrames = Math.max(1, SILENCE_WINDOW_DURATION / frameDuration);
+        double[] prefixSums = new double[energies.length + 1];
+        for (int i = 0; i < energies.length; i++) {
+            prefixSums[i + 1] = prefixSums[i] + energies[i];
+        }
+
+        long searchRange = targetChunkDuration / 4;
+        long begin = 0;
+        while (duration - begin > targetChunkDuration + targetChunkDuration / 2) {
+            long target = begin + targetChunkDuration;
+            long boundary = findQuietestPoint(prefixSums, windowFrames, target - searchRange, target + searchRange);
+            chunks.add(new AudioChunk(chunks.size(), begin, boundary));
+            begin = boundary;
+        }
+        chunks.add(new AudioChunk(chunks.size(), begin, duration));
+
+        return chunks;
+    }
+
+    /**
+     * Returns the center of the window with the lowest average energy within the specified interval.
+     */
+    private long findQuietestPoint(double[] prefixSums, int windowFrames, long from, long to) {
+        int numFrames = prefixSums.length - 1;
+        int fromFrame = (int) Math.max(0, from / frameDuration);
+        int toFrame = (int) Math.min(numFrames - windowFrames, to / frameDuration);
+
+        int bestFrame = fromFrame;
+        double lowest = Double.MAX_VALUE;
+        for (int f = fromFrame; f <= toFrame; f++) {
+            double sum = prefixSums[f + windowFrames] - prefixSums[f];
+            if (sum < lowest) {
+                lowest = sum;
+                bestFrame = f;
+            }
+        }
+
+        return ((long) bestFrame * frameDuration) + (long) windowFrames * frameDuration / 2;
+    }
+
+    /**
+     * Combines the energies of multiple channels by taking the maximum per frame.
+     *
+     * @param energies the energies per channel per frame
+     * @return the maximum energy per frame
+     */
+    public static float[] maxOverChannels(float[][] energies) {
+        float[] combined = energies[0].clone();
+        for (int ch = 1; ch < energies.length; ch++) {
+            int length = Math.min(combined.length, energies[ch].length);
+            for (int f = 0; f < length; f++) {
+                combined[f] = Math.max(combined[f], energies[ch][f]);
+            }
+        }
+
+        return combined;
+    }
+}
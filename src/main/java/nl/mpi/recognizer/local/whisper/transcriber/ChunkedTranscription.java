@@ -0,0 +1,253 @@
+package nl.mpi.recognizer.local.whisper.transcriber;
+
+import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.annotator.recognizer.data.RSelection;
+import mpi.eudico.client.annotator.recognizer.data.Segment;
+import mpi.eudico.client.annotator.recognizer.silence.FrameEnergyCalculator;
+import mpi.eudico.client.util.MappedWAVSamples;
+import nl.mpi.jsound.WaveClipper;
+import nl.mpi.recognizer.local.whisper.WhisperStandaloneRecognizer;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static nl.mpi.recognizer.local.whisper.transcriber.DirectoryPath.FORWARD_SLASH;
+import static nl.mpi.recognizer.local.whisper.transcriber.DirectoryPath.WHISPER_OUT_HOME;
+
+/**
+ * Transcribes a {@code .wav} file by splitting it at silences into chunks which are processed by a number of
+ * concurrent Whisper processes. The segments of all chunks are shifted by the begin time of their chunk and merged
+ * into a single segmentation.
+ * <p>
+ * The silences are detected with the same energy analysis as used by the silence recognizer. Chunks are written to a
+ * subfolder of the output directory, the chunk audio files are deleted afterwards. If a chunk fails, the processes of
+ * the other chunks are stopped. The mapped samples are closed when the transcription ends.
+ */
+public class ChunkedTranscription extends Thread {
+
+    private static final System.Logger LOG = System.getLogger("whisper_standalone_chunked");
+    public static final int FRAME_DURATION = 10;
+    public static final String CHUNK_FOLDER = "chunks_%d/";
+    public static final String CHUNK_FILE = "chunk_%03d.wav";
+    public static final String CHUNK_PREFIX = "[chunk %d] ";
+    public static final String SPLIT_INTO_CHUNKS = "Split the audio into %d chunks, processed by %d workers\n";
+    public static final String CHUNK_FAILED = "Chunk %d failed: %s";
+    public static final String CHUNKED_TRANSCRIPTION_FAILED = "Chunked transcription failed: ";
+    public static final String LINE_BREAK = "\n";
+
+    private final WhisperStandaloneRecognizer recognizer;
+    private final MappedWAVSamples samples;
+    private final int numberOfWorkers;
+    private final long targetChunkDuration;
+    private final Set<Process> runningProcesses = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger chunksDone = new AtomicInteger();
+    private volatile boolean cancelled;
+    private FrameEnergyCalculator energyCalculator;
+    private ExecutorService executor;
+
+    /**
+     * @param pRecognizer the recognizer providing the host and the arguments for the Whisper processes
+     * @param pSamples the mapped samples of the input file, closed by this thread when it finishes
+     * @param pNumberOfWorkers the maximum number of concurrent Whisper processes
+     * @param pTargetChunkDuration the preferred duration of a chunk in ms
+     */
+    public ChunkedTranscription(
+        WhisperStandaloneRecognizer pRecognizer,
+        MappedWAVSamples pSamples,
+        int pNumberOfWorkers,
+        long pTargetChunkDuration) {
+        super("whisper-chunked-transcription");
+        recognizer = pRecognizer;
+        samples = pSamples;
+        numberOfWorkers = pNumberOfWorkers;
+        targetChunkDuration = pTargetChunkDuration;
+    }
+
+    @Override
+    public void run() {
+        RecognizerHost host = recognizer.getHost();
+        File chunkDir = null;
+        boolean completed = false;
+        try {
+            energyCalculator = new FrameEnergyCalculator(FRAME_DURATION);
+            float[][] energies = energyCalculator.calculate(samples, null);
+            if (energies == null || cancelled) {
+                return;
+            }
+            long duration = (long) samples.getDuration();
+            List<AudioChunker.AudioChunk> chunks = new AudioChunker(FRAME_DURATION, targetChunkDuration)
+                .createChunks(AudioChunker.maxOverChannels(energies), duration);
+            host.appendToReport(SPLIT_INTO_CHUNKS.formatted(chunks.size(), Math.min(numberOfWorkers, chunks.size())));
+
+            URI chunkDirUri = getChunkDirectory(recognizer.getWhisperArguments());
+            chunkDir = new File(chunkDirUri.toString());
+            if (!chunkDir.mkdirs() && !chunkDir.isDirectory()) {
+                throw new IOException("Cannot create folder " + chunkDir);
+            }
+
+            List<RSelection> merged = transcribeChunks(chunks, chunkDirUri, chunkDir);
+            if (cancelled) {
+                return;
+            }
+            TranscriptionSegmentationStrategy strategy = TranscriptionSegmentationStrategy.getStrategy(recognizer);
+            strategy.createTiers(merged, strategy.getSegmentationType());
+            completed = true;
+        } catch (IOException | URISyntaxException | ExecutionException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            LOG.log(System.Logger.Level.WARNING, CHUNKED_TRANSCRIPTION_FAILED + cause.getMessage(), cause);
+            host.appendToReport(CHUNKED_TRANSCRIPTION_FAILED + cause.getMessage() + LINE_BREAK);
+            host.errorOccurred(CHUNKED_TRANSCRIPTION_FAILED + cause.getMessage());
+        } catch (InterruptedException ie) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } finally {
+            if (!completed) {
+                // stop the Whisper processes of the other chunks
+                cancel();
+            } else if (executor != null) {
+                executor.shutdownNow();
+            }
+            deleteChunkAudio(chunkDir);
+            samples.close();
+        }
+    }
+
+    private List<RSelection> transcribeChunks(List<AudioChunker.AudioChunk> chunks, URI chunkDirUri, File chunkDir)
+        throws InterruptedException, ExecutionException {
+        executor = Executors.newFixedThreadPool(Math.min(numberOfWorkers, chunks.size()));
+        List<Future<List<RSelection>>> results = new ArrayList<>(chunks.size());
+        for (AudioChunker.AudioChunk chunk : chunks) {
+            String chunkPath = new File(chunkDir, CHUNK_FILE.formatted(chunk.index())).getAbsolutePath();
+            results.add(executor.submit(() -> transcribeChunk(chunk, chunkPath, chunkDirUri, chunks.size())));
+        }
+
+        // merge in chunk order, the chunks are consecutive so the result is ordered by time
+        List<RSelection> merged = new ArrayList<>();
+        for (Future<List<RSelection>> result : results) {
+            merged.addAll(result.get());
+        }
+
+        return merged;
+    }
+
+    private List<RSelection> transcribeChunk(
+        AudioChunker.AudioChunk chunk,
+        String chunkPath,
+        URI chunkDirUri,
+        int numberOfChunks) throws IOException, InterruptedException {
+        if (cancelled) {
+            return List.of();
+        }
+        exportChunk(chunk, chunkPath);
+
+        WhisperArguments arguments = recognizer.getWhisperArguments();
+        WhisperArguments chunkArguments = new WhisperArguments(
+            arguments.executablePath(),
+            chunkPath,
+            arguments.whisperModelToUse(),
+            arguments.expectedLanguageOfInputFile(),
+            arguments.prompt(),
+            arguments.responseFormat(),
+            arguments.temperature(),
+            arguments.wordTimestamps(),
+            Optional.of(chunkDirUri),
+            arguments.misc()
+        );
+
+        RecognizerHost host = recognizer.getHost();
+        Process process = new ProcessBuilder(new CommandCreator().toCommandLineFormat(chunkArguments))
+            .redirectErrorStream(true)
+            .start();
+        runningProcesses.add(process);
+        String prefix = CHUNK_PREFIX.formatted(chunk.index());
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                host.appendToReport(prefix + line + LINE_BREAK);
+            }
+            int exitValue = process.waitFor();
+            if (exitValue != 0 && !cancelled) {
+                throw new IOException(CHUNK_FAILED.formatted(chunk.index(),
+                    ReaderThread.STOPPED_UNEXPECTEDLY + exitValue));
+            }
+        } finally {
+            runningProcesses.remove(process);
+        }
+        if (cancelled) {
+            return List.of();
+        }
+
+        List<RSelection> segments = TranscriptionSegmentationStrategy.getStrategy(recognizer).readSegments(chunkArguments);
+        List<RSelection> shifted = new ArrayList<>(segments.size());
+        for (RSelection segment : segments) {
+            shifted.add(new Segment(segment.beginTime + chunk.beginTime(), segment.endTime + chunk.beginTime(),
+                ((Segment) segment).label));
+        }
+        host.setProgress(0.9f * chunksDone.incrementAndGet() / numberOfChunks);
+
+        return shifted;
+    }
+
+    private void exportChunk(AudioChunker.AudioChunk chunk, String chunkPath) throws IOException {
+        try {
+            // WaveClipper works with microseconds
+            new WaveClipper().exportClip(samples.getFilePath(), chunkPath,
+                chunk.beginTime() * 1000, chunk.endTime() * 1000);
+        } catch (UnsupportedAudioFileException uafe) {
+            throw new IOException(uafe.getMessage(), uafe);
+        }
+    }
+
+    private static URI getChunkDirectory(WhisperArguments arguments) throws URISyntaxException {
+        String outDir = arguments.outputDirectory()
+            .map(URI::toString)
+            .orElse(WHISPER_OUT_HOME);
+        if (!outDir.endsWith(FORWARD_SLASH)) {
+            outDir = outDir.concat(FORWARD_SLASH);
+        }
+
+        return new URI(outDir.concat(CHUNK_FOLDER.formatted(System.currentTimeMillis())));
+    }
+
+    private static void deleteChunkAudio(File chunkDir) {
+        File[] chunkFiles = chunkDir != null ? chunkDir.listFiles((dir, name) -> name.endsWith(".wav")) : null;
+        if (chunkFiles != null) {
+            for (File chunkFile : chunkFiles) {
+                if (!chunkFile.delete()) {
+                    chunkFile.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the energy analysis and all running Whisper processes.
+     */
+    public void cancel() {
+        cancelled = true;
+        if (energyCalculator != null) {
+            energyCalculator.cancel();
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        runningProcesses.forEach(Process::destroy);
+    }
+}
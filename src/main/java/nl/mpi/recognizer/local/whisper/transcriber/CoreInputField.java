@@ -9,7 +9,9 @@ public enum CoreInputField implements InputField {
     PROMPT("initial_prompt"),
     TEMPERATURE("temperature"),
     WORD_TIMESTAMPS("word_timestamps"),
-    OUTPUT_DIR("output_dir");
+    OUTPUT_DIR("output_dir"),
+    PARALLEL_WORKERS("parallel_workers"),
+    CHUNK_DURATION("chunk_duration");
 
     private final String fieldName;
 
@@ -20,9 +20,11 @@ public class ReaderThread extends Thread {
     public static final String THERE_MAY_BE_PARTIAL_RESULTS = " (there may be partial results)";
     public static final String LINE_BREAK = "\n";
     private final WhisperStandaloneRecognizer recognizer;
+    private final StreamingSegmentCollector segmentCollector;
 
     public ReaderThread(WhisperStandaloneRecognizer pRecognizer) {
         recognizer = pRecognizer;
+        segmentCollector = new StreamingSegmentCollector(pRecognizer);
     }
 
     @Override
@@ -47,10 +49,16 @@ public class ReaderThread extends Thread {
         String line;
         while ((line = bufferedOutputReader.readLine()) != null) {
             recognizer.getHost().appendToReport(line + LINE_BREAK);
+            // segments are passed to the host while the transcription is running,
+            // the output file processed at the end remains the definitive result
+            if (segmentCollector.accept(line)) {
+                continue;
+            }
             if (terminationLogs(line)) {
                 break;
             }
         }
+        segmentCollector.flush();
     }
 
     public boolean terminationLogs(String line) {
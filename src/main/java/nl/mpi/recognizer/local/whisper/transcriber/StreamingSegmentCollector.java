@@ -0,0 +1,160 @@
+package nl.mpi.recognizer.local.whisper.transcriber;
+
+import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.annotator.recognizer.data.RSelection;
+import mpi.eudico.client.annotator.recognizer.data.Segment;
+import mpi.eudico.client.annotator.recognizer.data.Segmentation;
+import nl.mpi.recognizer.local.whisper.WhisperStandaloneRecognizer;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static nl.mpi.recognizer.local.whisper.transcriber.TranscriptionSegmentationStrategy.PHRASE;
+import static nl.mpi.recognizer.local.whisper.transcriber.TranscriptionSegmentationStrategy.WORDS;
+
+/**
+ * Collects the segments that Whisper writes to its console output while the transcription is running, lines like
+ * {@code [00:16.360 --> 00:17.360] text}, and passes them to the recognizer host in batches.
+ * <p>
+ * Every batch results in a segmentation containing all segments received so far, under the same name as the
+ * segmentation that is created from the JSON output file at the end ({@code words} if word timestamps are requested,
+ * {@code phrase} otherwise). The host replaces a segmentation with the same name, so the final, complete result
+ * supersedes the intermediate ones. Updates are coalesced: if a previous update has not yet been processed on the event
+ * dispatch thread, it is replaced by the newer one instead of queueing another.
+ */
+public class StreamingSegmentCollector {
+
+    public static final int DEFAULT_BATCH_SIZE = 20;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5000;
+    private static final Pattern SEGMENT_LINE = Pattern.compile(
+        "^\\s*\\[((?:\\d+:)?\\d{1,2}:\\d{2}[.,]\\d{1,3})\\s*-->\\s*((?:\\d+:)?\\d{1,2}:\\d{2}[.,]\\d{1,3})]\\s*(.*)$");
+    private static final int MILLI_SECONDS_IN_SECOND = 1000;
+    private static final int SECONDS_IN_MINUTE = 60;
+
+    private final WhisperStandaloneRecognizer recognizer;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final List<RSelection> segments = new ArrayList<>();
+    private final AtomicReference<Segmentation> pendingSegmentation = new AtomicReference<>();
+    private int unpublishedCount;
+    private long lastPublishTime;
+
+    public StreamingSegmentCollector(WhisperStandaloneRecognizer pRecognizer) {
+        this(pRecognizer, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param pRecognizer the recognizer providing the host and the media file
+     * @param batchSize the number of new segments after which an update is passed to the host
+     * @param flushIntervalMillis the maximum time new segments are held back before an update is passed to the host
+     */
+    public StreamingSegmentCollector(WhisperStandaloneRecognizer pRecognizer, int batchSize, long flushIntervalMillis) {
+        recognizer = pRecognizer;
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = flushIntervalMillis;
+        lastPublishTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Checks a line of output for a segment and collects it.
+     *
+     * @param line a line of the console output of Whisper
+     * @return {@code true} if the line contained a segment
+     */
+    public boolean accept(String line) {
+        Optional<Segment> segment = parseSegmentLine(line);
+        if (segment.isEmpty()) {
+            return false;
+        }
+
+        segments.add(segment.get());
+        unpublishedCount++;
+        if (unpublishedCount >= batchSize || System.currentTimeMillis() - lastPublishTime >= flushIntervalMillis) {
+            flush();
+        }
+
+        return true;
+    }
+
+    /**
+     * Passes the segments that have not been published yet to the host.
+     */
+    public void flush() {
+        if (unpublishedCount == 0) {
+            return;
+        }
+        unpublishedCount = 0;
+        lastPublishTime = System.currentTimeMillis();
+
+        WhisperArguments whisperArguments = recognizer.getWhisperArguments();
+        String mediaFilePath = null;
+        String segmentationType = PHRASE;
+        if (whisperArguments != null) {
+            mediaFilePath = whisperArguments.inputAudioVideoFilePath();
+            if (whisperArguments.wordTimestamps().orElse(false)) {
+                segmentationType = WORDS;
+            }
+        }
+        publish(new Segmentation(segmentationType, new ArrayList<>(segments), mediaFilePath));
+    }
+
+    /**
+     * @return a copy of the segments collected so far
+     */
+    public List<RSelection> getSegments() {
+        return new ArrayList<>(segments);
+    }
+
+    private void publish(Segmentation segmentation) {
+        if (pendingSegmentation.getAndSet(segmentation) == null) {
+            EventQueue.invokeLater(() -> {
+                Segmentation latest = pendingSegmentation.getAndSet(null);
+                RecognizerHost host = recognizer.getHost();
+                if (latest != null && host != null) {
+                    host.addSegmentation(latest);
+                }
+            });
+        }
+    }
+
+    /**
+     * Extracts a segment from a line of the form {@code [mm:ss.SSS --> mm:ss.SSS] text} or
+     * {@code [hh:mm:ss.SSS --> hh:mm:ss.SSS] text}.
+     *
+     * @param line the line to parse
+     * @return the segment or an empty optional if the line does not contain a (valid) segment
+     */
+    public static Optional<Segment> parseSegmentLine(String line) {
+        if (line == null || line.isEmpty()) {
+            return Optional.empty();
+        }
+        Matcher matcher = SEGMENT_LINE.matcher(line);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+
+        long beginTime = parseTimestamp(matcher.group(1));
+        long endTime = parseTimestamp(matcher.group(2));
+        if (endTime <= beginTime) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Segment(beginTime, endTime, matcher.group(3).strip()));
+    }
+
+    static long parseTimestamp(String timestamp) {
+        String[] parts = timestamp.replace(',', '.').split(":");
+        long minutes = 0;
+        for (int i = 0; i < parts.length - 1; i++) {
+            minutes = minutes * SECONDS_IN_MINUTE + Long.parseLong(parts[i]);
+        }
+
+        return minutes * SECONDS_IN_MINUTE * MILLI_SECONDS_IN_SECOND +
+            Math.round(Double.parseDouble(parts[parts.length - 1]) * MILLI_SECONDS_IN_SECOND);
+    }
+}
@@ -43,12 +43,26 @@ public abstract class TranscriptionSegmentationStrategy {
     }
 
     public void extractData() throws IOException {
-        String content = new String(Files.readAllBytes(Paths.get(getOutputFilePath(recognizer.getWhisperArguments()))));
+        createTiers(readSegments(recognizer.getWhisperArguments()), getSegmentationType());
+    }
+
+    /**
+     * Reads the segments from the JSON output file belonging to the specified arguments.
+     *
+     * @param whisperArguments the arguments of the Whisper run that produced the output
+     * @return the segments in the output file
+     * @throws IOException if the output file cannot be read
+     */
+    public List<RSelection> readSegments(WhisperArguments whisperArguments) throws IOException {
+        String content = new String(Files.readAllBytes(Paths.get(getOutputFilePath(whisperArguments))));
         JSONObject jsonObject = new JSONObject(content);
         JSONArray segments = jsonObject.getJSONArray(SEGMENTS);
 
-        String segmentationType = recognizer.getWhisperArguments().wordTimestamps().orElse(false) ? WORDS : PHRASE;
-        createTiers(getSegments(segments), segmentationType);
+        return getSegments(segments);
+    }
+
+    public String getSegmentationType() {
+        return recognizer.getWhisperArguments().wordTimestamps().orElse(false) ? WORDS : PHRASE;
     }
 
     protected abstract List<RSelection> getSegments(JSONArray segments);
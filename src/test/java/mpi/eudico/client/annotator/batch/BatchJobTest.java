@@ -0,0 +1,135 @@
+package mpi.eudico.client.annotator.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests reading job descriptions and collecting the input files of a job.
+ */
+class BatchJobTest {
+	@TempDir
+	File tempDir;
+
+	private File write(File file, String... lines) throws IOException {
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+		return file;
+	}
+
+	@DisplayName("Properties are trimmed, empty values are not specified and relative paths are resolved")
+	@Test
+	void testReadProperties() throws Exception {
+		File jobFile = write(new File(tempDir, "jobs/job.properties"),
+				"operation = statistics ",
+				"input.folder = corpus",
+				"output.folder = " + new File(tempDir, "out").getAbsolutePath(),
+				"tiers = words, , glosses ,",
+				"threads = 3",
+				"memory.max = 512",
+				"report =",
+				"title = élève");
+		BatchJob job = BatchJob.read(jobFile);
+
+		assertEquals("statistics", job.getOperation());
+		assertEquals(new File(tempDir, "jobs/corpus"), job.getInputFolder());
+		assertEquals(new File(tempDir, "out"), job.getOutputFolder());
+		assertEquals(List.of("words", "glosses"), job.getList("tiers"));
+		assertEquals(3, job.getNumThreads());
+		assertEquals(512L * 1024 * 1024, job.getMemoryBudget());
+		assertNull(job.getProperty("report"));
+		assertEquals("default", job.getProperty("report", "default"));
+		assertEquals("élève", job.getProperty("title"));
+		assertTrue(job.getList("missing").isEmpty());
+		assertTrue(job.getBoolean("input.recursive", true));
+	}
+
+	@DisplayName("Overridden properties replace the values of the job file")
+	@Test
+	void testOverrides() throws Exception {
+		BatchJob job = BatchJob.read(write(new File(tempDir, "job.properties"),
+				"operation=scrub", "threads=2", "input.recursive=true"));
+		job.setProperty("operation", "statistics");
+		job.setProperty("threads", "0");
+		job.setProperty("input.recursive", "false");
+		job.setProperty("output.folder", "results");
+
+		assertEquals("statistics", job.getOperation());
+		assertEquals(1, job.getNumThreads(), "At least one thread");
+		assertFalse(job.getBoolean("input.recursive", true));
+		assertEquals(new File(tempDir, "results"), job.getOutputFolder());
+
+		job.setProperty("threads", "many");
+		assertThrows(IllegalArgumentException.class, () -> job.getNumThreads());
+	}
+
+	@DisplayName("The report is written to the report path, the output folder or the input folder")
+	@Test
+	void testReportFile() {
+		Properties props = new Properties();
+		BatchJob job = new BatchJob(props, tempDir);
+		assertEquals(new File(tempDir, BatchJob.DEFAULT_REPORT), job.getReportFile());
+		job.setProperty("input.folder", "in");
+		assertEquals(new File(new File(tempDir, "in"), BatchJob.DEFAULT_REPORT), job.getReportFile());
+		job.setProperty("output.folder", "out");
+		assertEquals(new File(new File(tempDir, "out"), BatchJob.DEFAULT_REPORT), job.getReportFile());
+		job.setProperty("report", "logs/report.json");
+		assertEquals(new File(tempDir, "logs/report.json"), job.getReportFile());
+	}
+
+	@DisplayName("Input files are collected from a folder, sorted and optionally recursively")
+	@Test
+	void testCollectFromFolder() throws Exception {
+		File in = new File(tempDir, "in");
+		File b = write(new File(in, "b.eaf"), "");
+		File a = write(new File(in, "a.EAF"), "");
+		File nested = write(new File(in, "sub/c.eaf"), "");
+		write(new File(in, "notes.txt"), "");
+
+		BatchJob job = new BatchJob(new Properties(), tempDir);
+		job.setProperty("input.folder", "in");
+		assertEquals(List.of(a, b, nested), job.collectInputFiles("eaf"));
+
+		job.setProperty("input.recursive", "false");
+		assertEquals(List.of(a, b), job.collectInputFiles("eaf"));
+	}
+
+	@DisplayName("Input files are read from a list, relative to the list file")
+	@Test
+	void testCollectFromList() throws Exception {
+		File absolute = new File(tempDir, "elsewhere/x.eaf");
+		File list = write(new File(tempDir, "lists/files.txt"),
+				"# a comment",
+				"second.eaf",
+				"",
+				"  sub/first.eaf  ",
+				absolute.getAbsolutePath());
+
+		BatchJob job = new BatchJob(new Properties(), tempDir);
+		job.setProperty("input.list", "lists/files.txt");
+		// the list takes precedence over a folder
+		job.setProperty("input.folder", "missing");
+		File listDir = list.getParentFile();
+		assertEquals(List.of(new File(listDir, "second.eaf"), new File(listDir, "sub/first.eaf"), absolute),
+				job.collectInputFiles("eaf"));
+	}
+
+	@DisplayName("Collecting fails without input or with a missing input folder")
+	@Test
+	void testNoInput() {
+		BatchJob job = new BatchJob(new Properties(), tempDir);
+		assertThrows(IOException.class, () -> job.collectInputFiles("eaf"));
+		job.setProperty("input.folder", "missing");
+		assertThrows(IOException.class, () -> job.collectInputFiles("eaf"));
+	}
+}
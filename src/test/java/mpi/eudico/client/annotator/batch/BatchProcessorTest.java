@@ -0,0 +1,228 @@
+package mpi.eudico.client.annotator.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the batch processor with a fake operation that fails for files
+ * with "bad" in their name.
+ */
+class BatchProcessorTest {
+	@TempDir
+	File tempDir;
+
+	private File createFile(String path) throws IOException {
+		File f = new File(tempDir, path);
+		f.getParentFile().mkdirs();
+		Files.write(f.toPath(), new byte[] {1});
+		return f;
+	}
+
+	private BatchJob createJob(int threads) {
+		BatchJob job = new BatchJob(new Properties(), tempDir);
+		job.setProperty("input.folder", "in");
+		job.setProperty("output.folder", "out");
+		job.setProperty("threads", String.valueOf(threads));
+		return job;
+	}
+
+	private static JSONObject readReport(File reportFile) throws IOException {
+		return new JSONObject(new String(Files.readAllBytes(reportFile.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@DisplayName("The report lists the outcome of every file in input order and counts the failures")
+	@Test
+	void testReport() throws Exception {
+		File good1 = createFile("in/a.eaf");
+		File bad = createFile("in/b-bad.eaf");
+		File good2 = createFile("in/c.eaf");
+		FakeOperation operation = new FakeOperation();
+		BatchProcessor processor = new BatchProcessor(createJob(3), operation);
+
+		File reportFile = processor.run();
+		assertEquals(new File(new File(tempDir, "out"), BatchJob.DEFAULT_REPORT), reportFile);
+		assertEquals(2, processor.getNumSucceeded());
+		assertEquals(1, processor.getNumFailed());
+		assertNull(processor.getFinishError());
+		assertTrue(operation.finished);
+
+		JSONObject report = readReport(reportFile);
+		assertEquals("fake", report.getString("operation"));
+		assertEquals(3, report.getInt("threads"));
+		assertFalse(report.getBoolean("cancelled"));
+		assertFalse(report.has("finishError"));
+		assertEquals(3, report.getInt("numFiles"));
+		assertEquals(2, report.getInt("numSucceeded"));
+		assertEquals(1, report.getInt("numFailed"));
+
+		JSONArray files = report.getJSONArray("files");
+		assertEquals(3, files.length());
+		File[] expected = {good1, bad, good2};
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getAbsolutePath(), files.getJSONObject(i).getString("file"));
+		}
+		assertEquals(BatchProcessor.OK, files.getJSONObject(0).getString("status"));
+		assertEquals("a.eaf", files.getJSONObject(0).getJSONObject("details").getString("name"));
+		assertEquals(BatchProcessor.FAILED, files.getJSONObject(1).getString("status"));
+		assertEquals("Cannot process b-bad.eaf", files.getJSONObject(1).getString("message"));
+		assertFalse(files.getJSONObject(1).has("details"));
+		assertEquals(BatchProcessor.OK, files.getJSONObject(2).getString("status"));
+	}
+
+	@DisplayName("Missing files in a list fail without calling the operation")
+	@Test
+	void testMissingFiles() throws Exception {
+		File good = createFile("in/a.eaf");
+		File list = new File(tempDir, "files.txt");
+		Files.write(list.toPath(), List.of(good.getAbsolutePath(), "in/missing.eaf"), StandardCharsets.UTF_8);
+		BatchJob job = createJob(1);
+		job.setProperty("input.list", list.getAbsolutePath());
+		job.setProperty("report", "report.json");
+		FakeOperation operation = new FakeOperation();
+		BatchProcessor processor = new BatchProcessor(job, operation);
+
+		File reportFile = processor.run();
+		assertEquals(new File(tempDir, "report.json"), reportFile);
+		assertEquals(1, processor.getNumSucceeded());
+		assertEquals(1, processor.getNumFailed());
+		assertEquals(1, operation.outputFolders.size());
+		JSONObject missing = readReport(reportFile).getJSONArray("files").getJSONObject(1);
+		assertEquals(BatchProcessor.FAILED, missing.getString("status"));
+		assertEquals("The file does not exist", missing.getString("message"));
+	}
+
+	@DisplayName("Each file is processed once when many files are processed concurrently")
+	@Test
+	void testManyFiles() throws Exception {
+		for (int i = 0; i < 40; i++) {
+			createFile("in/" + (i % 5 == 0 ? "bad" : "file") + i + ".eaf");
+		}
+		FakeOperation operation = new FakeOperation();
+		BatchProcessor processor = new BatchProcessor(createJob(4), operation);
+		JSONObject report = readReport(processor.run());
+
+		assertEquals(32, processor.getNumSucceeded());
+		assertEquals(8, processor.getNumFailed());
+		assertEquals(32, operation.outputFolders.size());
+		assertEquals(40, report.getJSONArray("files").length());
+	}
+
+	@DisplayName("An error while finishing is reported, the file results are kept")
+	@Test
+	void testFinishError() throws Exception {
+		createFile("in/a.eaf");
+		FakeOperation operation = new FakeOperation();
+		operation.finishError = "Disk full";
+		BatchProcessor processor = new BatchProcessor(createJob(1), operation);
+
+		JSONObject report = readReport(processor.run());
+		assertEquals("Disk full", processor.getFinishError());
+		assertEquals("Disk full", report.getString("finishError"));
+		assertEquals(1, report.getInt("numSucceeded"));
+	}
+
+	@DisplayName("An operation that cannot overwrite its input requires an output folder")
+	@Test
+	void testOutputFolderRequired() throws Exception {
+		createFile("in/a.eaf");
+		BatchJob job = createJob(1);
+		job.setProperty("output.folder", "");
+		FakeOperation operation = new FakeOperation();
+		assertThrows(IOException.class, () -> new BatchProcessor(job, operation).run());
+		assertTrue(operation.outputFolders.isEmpty());
+	}
+
+	@DisplayName("The folder structure of the input folder is reproduced in the output folder")
+	@Test
+	void testOutputFolderStructure() throws Exception {
+		File top = createFile("in/a.eaf");
+		File nested = createFile("in/x/y/b.eaf");
+		FakeOperation operation = new FakeOperation();
+		new BatchProcessor(createJob(2), operation).run();
+
+		File out = new File(tempDir, "out");
+		assertEquals(out, operation.outputFolders.get(top.getAbsolutePath()));
+		assertEquals(new File(out, "x" + File.separator + "y"), operation.outputFolders.get(nested.getAbsolutePath()));
+		assertTrue(new File(out, "x/y").isDirectory(), "The output sub-folder is created");
+	}
+
+	@DisplayName("Output folders are mapped relative to the input folder, other files go to the output folder")
+	@Test
+	void testGetOutputFolder() {
+		File in = new File(tempDir, "in");
+		File out = new File(tempDir, "out");
+
+		assertNull(BatchProcessor.getOutputFolder(new File(in, "a.eaf"), in, null));
+		assertEquals(out, BatchProcessor.getOutputFolder(new File(in, "a.eaf"), in, out));
+		assertEquals(new File(out, "s1" + File.separator + "s2"),
+				BatchProcessor.getOutputFolder(new File(in, "s1/s2/a.eaf"), in, out));
+		// the input folder is normalized before the file is compared with it
+		assertEquals(new File(out, "s1"), BatchProcessor.getOutputFolder(new File(in, "s1/a.eaf"),
+				new File(tempDir, "in/../in/."), out));
+		// files from a list outside the input folder, or without an input folder
+		assertEquals(out, BatchProcessor.getOutputFolder(new File(tempDir, "other/a.eaf"), in, out));
+		assertEquals(out, BatchProcessor.getOutputFolder(new File(tempDir, "inside.eaf"), in, out));
+		assertEquals(out, BatchProcessor.getOutputFolder(new File(in, "s1/a.eaf"), null, out));
+	}
+
+	/**
+	 * Records the output folder of each file and fails for files with "bad"
+	 * in their name.
+	 */
+	private static class FakeOperation implements BatchOperation {
+		final Map<String, File> outputFolders = new ConcurrentHashMap<String, File>();
+		volatile boolean finished;
+		String finishError;
+
+		@Override
+		public String getName() {
+			return "fake";
+		}
+
+		@Override
+		public String getInputExtension() {
+			return "eaf";
+		}
+
+		@Override
+		public boolean supportsInPlace() {
+			return false;
+		}
+
+		@Override
+		public void configure(BatchJob job) {
+		}
+
+		@Override
+		public Map<String, Object> process(File input, File outputFolder) throws Exception {
+			if (input.getName().contains("bad")) {
+				throw new IOException("Cannot process " + input.getName());
+			}
+			assertNull(outputFolders.put(input.getAbsolutePath(), outputFolder), "Processed twice");
+			return Collections.singletonMap("name", input.getName());
+		}
+
+		@Override
+		public void finish(File outputFolder) throws IOException {
+			finished = true;
+			if (finishError != null) {
+				throw new IOException(finishError);
+			}
+		}
+	}
+}
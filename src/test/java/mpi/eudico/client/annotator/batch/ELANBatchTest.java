@@ -0,0 +1,113 @@
+package mpi.eudico.client.annotator.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mpi.eudico.client.annotator.ELANBatch;
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACMTranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+
+/**
+ * Tests the exit values of the command line batch runner, with the
+ * statistics operation on EAF files written to a temporary folder.
+ */
+class ELANBatchTest {
+	@TempDir
+	File tempDir;
+
+	private File createEAF(File dir, String name) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl();
+		LinguisticType type = new LinguisticType("words");
+		trans.addLinguisticType(type);
+		TierImpl tier = new TierImpl("words", "speaker1", trans, type);
+		trans.addTier(tier);
+		Annotation ann = tier.createAnnotation(0, 800);
+		ann.setValue("word");
+
+		dir.mkdirs();
+		File eaf = new File(dir, name);
+		ACMTranscriptionStore.getCurrentTranscriptionStore().storeTranscription(trans, null, null,
+				eaf.getAbsolutePath(), TranscriptionStore.EAF);
+		return eaf;
+	}
+
+	private File createJobFile(String... lines) throws Exception {
+		File jobFile = new File(tempDir, "job.properties");
+		Files.write(jobFile.toPath(), List.of(lines), StandardCharsets.UTF_8);
+		return jobFile;
+	}
+
+	@DisplayName("The exit value is 0 if all files have been processed")
+	@Test
+	void testAllSucceeded() throws Exception {
+		createEAF(new File(tempDir, "in"), "a.eaf");
+		File jobFile = createJobFile("operation=statistics", "input.folder=in", "output.folder=out",
+				"statistics.cache=false");
+
+		assertEquals(0, ELANBatch.run(new String[] {jobFile.getPath()}));
+		assertTrue(new File(tempDir, "out/" + StatisticsOperation.TIER_FILE).isFile());
+		assertTrue(new File(tempDir, "out/" + BatchJob.DEFAULT_REPORT).isFile());
+	}
+
+	@DisplayName("The exit value is 2 if some files failed")
+	@Test
+	void testSomeFailed() throws Exception {
+		File eaf = createEAF(new File(tempDir, "in"), "a.eaf");
+		File list = new File(tempDir, "files.txt");
+		Files.write(list.toPath(), List.of(eaf.getAbsolutePath(), "in/missing.eaf"), StandardCharsets.UTF_8);
+		File jobFile = createJobFile("operation=statistics", "input.list=files.txt", "output.folder=out",
+				"statistics.cache=false");
+
+		assertEquals(2, ELANBatch.run(new String[] {jobFile.getPath()}));
+	}
+
+	@DisplayName("Command line properties override the job file")
+	@Test
+	void testOverrides() throws Exception {
+		createEAF(new File(tempDir, "in"), "a.eaf");
+		File jobFile = createJobFile("operation=unknown", "input.folder=in", "output.folder=out");
+
+		assertEquals(1, ELANBatch.run(new String[] {jobFile.getPath()}));
+		assertEquals(0, ELANBatch.run(new String[] {jobFile.getPath(), "operation=statistics",
+				"statistics.cache=false", "output.folder=results"}));
+		assertTrue(new File(tempDir, "results/" + StatisticsOperation.TIER_FILE).isFile());
+	}
+
+	@DisplayName("The exit value is 1 if the job cannot be run")
+	@Test
+	void testJobNotRun() throws Exception {
+		File jobFile = createJobFile("operation=statistics", "input.folder=in", "output.folder=out");
+
+		assertEquals(1, ELANBatch.run(new String[0]), "No job file");
+		assertEquals(1, ELANBatch.run(new String[] {new File(tempDir, "missing.properties").getPath()}));
+		assertEquals(1, ELANBatch.run(new String[] {jobFile.getPath(), "threads"}), "Not a key=value pair");
+		assertEquals(1, ELANBatch.run(new String[] {jobFile.getPath()}), "No input folder");
+		assertEquals(1, ELANBatch.run(new String[] {jobFile.getPath(), "operation=scrub", "input.folder=."}),
+				"Scrub without characters to remove");
+	}
+
+	@DisplayName("The exit value is 1 if the results cannot be finished")
+	@Test
+	void testFinishFailed() throws Exception {
+		File in = new File(tempDir, "in");
+		createEAF(in, "a.eaf");
+		// a folder where the tier statistics file should be written
+		new File(tempDir, "out/" + StatisticsOperation.TIER_FILE).mkdirs();
+		File jobFile = createJobFile("operation=statistics", "input.folder=in", "output.folder=out",
+				"statistics.cache=false");
+
+		assertEquals(1, ELANBatch.run(new String[] {jobFile.getPath()}));
+	}
+}
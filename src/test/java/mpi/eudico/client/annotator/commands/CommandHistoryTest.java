@@ -0,0 +1,131 @@
+package mpi.eudico.client.annotator.commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+
+/**
+ * Tests how the history handles commands whose undo data cannot be restored.
+ */
+class CommandHistoryTest {
+	private CommandHistory history;
+	private UndoCA undoCA;
+	private RedoCA redoCA;
+	private final List<String> log = new ArrayList<String>();
+
+	@BeforeEach
+	void setUp() {
+		history = new CommandHistory(CommandHistory.historySize, new TranscriptionImpl());
+		undoCA = mock(UndoCA.class);
+		redoCA = mock(RedoCA.class);
+		history.setUndoCA(undoCA);
+		history.setRedoCA(redoCA);
+	}
+
+	@DisplayName("A command that cannot be undone is removed together with the older commands")
+	@Test
+	void testUndoFailure() {
+		FakeCommand first = new FakeCommand("first", false, false);
+		FakeCommand second = new FakeCommand("second", true, false);
+		FakeCommand third = new FakeCommand("third", false, false);
+		history.addCommand(first);
+		history.addCommand(second);
+		history.addCommand(third);
+
+		history.undo();
+		history.undo();
+		assertEquals(List.of("undo third"), log);
+		assertTrue(first.discarded);
+		assertTrue(second.discarded);
+		assertFalse(third.discarded);
+		verify(undoCA, atLeastOnce()).setEnabled(false);
+
+		// nothing left to undo, the undone command can still be redone
+		history.undo();
+		assertEquals(List.of("undo third"), log);
+		history.redo();
+		assertEquals(List.of("undo third", "redo third"), log);
+		history.undo();
+		assertEquals(List.of("undo third", "redo third", "undo third"), log);
+	}
+
+	@DisplayName("A command that cannot be redone is removed together with the newer commands")
+	@Test
+	void testRedoFailure() {
+		FakeCommand first = new FakeCommand("first", false, true);
+		FakeCommand second = new FakeCommand("second", false, false);
+		history.addCommand(first);
+		history.addCommand(second);
+		history.undo();
+		history.undo();
+
+		history.redo();
+		assertTrue(first.discarded);
+		assertTrue(second.discarded);
+		history.redo();
+		assertEquals(List.of("undo second", "undo first"), log);
+		verify(redoCA, atLeastOnce()).setEnabled(false);
+	}
+
+	private class FakeCommand implements SizedUndoableCommand {
+		private final String name;
+		private final boolean failUndo;
+		private final boolean failRedo;
+		boolean discarded;
+
+		FakeCommand(String name, boolean failUndo, boolean failRedo) {
+			this.name = name;
+			this.failUndo = failUndo;
+			this.failRedo = failRedo;
+		}
+
+		@Override
+		public void undo() {
+			if (failUndo) {
+				throw new UndoDataUnavailableException(new IOException("gone"));
+			}
+			log.add("undo " + name);
+		}
+
+		@Override
+		public void redo() {
+			if (failRedo) {
+				throw new UndoDataUnavailableException(new IOException("gone"));
+			}
+			log.add("redo " + name);
+		}
+
+		@Override
+		public void execute(Object receiver, Object[] arguments) {
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public long getUndoMemoryUsage() {
+			return 0;
+		}
+
+		@Override
+		public boolean spillUndoData() {
+			return false;
+		}
+
+		@Override
+		public void discardUndoData() {
+			discarded = true;
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package mpi.eudico.client.annotator.multiplefilesedit.statistics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.dobes.ACMTranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+
+/**
+ * Tests the disk cache of file statistics with EAF files written to a
+ * temporary folder.
+ */
+class FileStatisticsCacheTest {
+	@TempDir
+	File tempDir;
+
+	private File createEAF(File dir, String name, int numAnnotations) throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl();
+		LinguisticType type = new LinguisticType("words");
+		trans.addLinguisticType(type);
+		TierImpl tier = new TierImpl("words", "speaker1", trans, type);
+		trans.addTier(tier);
+		for (int i = 0; i < numAnnotations; i++) {
+			Annotation ann = tier.createAnnotation(i * 1000L, i * 1000L + 800);
+			ann.setValue("word" + i);
+		}
+
+		dir.mkdirs();
+		File eaf = new File(dir, name);
+		ACMTranscriptionStore.getCurrentTranscriptionStore().storeTranscription(trans, null, null,
+				eaf.getAbsolutePath(), TranscriptionStore.EAF);
+		return eaf;
+	}
+
+	private static List<String> describe(FileStatistics stats) {
+		List<String> lines = new ArrayList<String>(stats.getTypeNames());
+		for (FileStatistics.TierData td : stats.getTiers()) {
+			lines.add(td.getName() + " " + td.getTypeName() + " " + td.getParticipant());
+			for (int i = 0; i < td.getNumAnnotations(); i++) {
+				lines.add(td.getBeginTime(i) + " " + td.getDuration(i) + " " + td.getValue(i));
+			}
+		}
+		return lines;
+	}
+
+	private static File[] cacheFiles(File cacheDir) {
+		File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(".stats"));
+		return files == null ? new File[0] : files;
+	}
+
+	@DisplayName("Statistics of an unchanged file are read from the cache")
+	@Test
+	void testRoundTrip() throws Exception {
+		File cacheDir = new File(tempDir, "cache");
+		File eaf = createEAF(tempDir, "a.eaf", 20);
+		FileStatisticsCache cache = new FileStatisticsCache(cacheDir, FileStatisticsCache.DEFAULT_MAX_SIZE);
+
+		List<String> parsed = describe(cache.getStatistics(eaf));
+		assertEquals(1 + 1 + 20, parsed.size());
+		assertEquals(1, cacheFiles(cacheDir).length);
+
+		// replace the file by garbage of the same length and modification time,
+		// the statistics can then only come from the cache
+		long lastModified = eaf.lastModified();
+		byte[] garbage = new byte[(int) eaf.length()];
+		Arrays.fill(garbage, (byte) 'x');
+		Files.write(eaf.toPath(), garbage);
+		assertTrue(eaf.setLastModified(lastModified));
+
+		FileStatisticsCache newCache = new FileStatisticsCache(cacheDir, FileStatisticsCache.DEFAULT_MAX_SIZE);
+		assertEquals(parsed, describe(newCache.getStatistics(eaf)));
+	}
+
+	@DisplayName("A modified file is parsed again and replaces its cache file")
+	@Test
+	void testInvalidation() throws Exception {
+		File cacheDir = new File(tempDir, "cache");
+		File eaf = createEAF(tempDir, "a.eaf", 20);
+		FileStatisticsCache cache = new FileStatisticsCache(cacheDir, FileStatisticsCache.DEFAULT_MAX_SIZE);
+		cache.getStatistics(eaf);
+
+		createEAF(tempDir, "a.eaf", 5);
+		assertTrue(eaf.setLastModified(eaf.lastModified() + 2000));
+		assertEquals(1 + 1 + 5, describe(cache.getStatistics(eaf)).size());
+		assertEquals(1, cacheFiles(cacheDir).length);
+	}
+
+	@DisplayName("The cache file of a moved file is deleted when the file is cached at its new location")
+	@Test
+	void testSupersededEntryDeleted() throws Exception {
+		File cacheDir = new File(tempDir, "cache");
+		File oldEAF = createEAF(new File(tempDir, "old"), "a.eaf", 10);
+		File otherEAF = createEAF(new File(tempDir, "other"), "a.eaf", 3);
+		FileStatisticsCache cache = new FileStatisticsCache(cacheDir, FileStatisticsCache.DEFAULT_MAX_SIZE);
+		cache.getStatistics(oldEAF);
+		cache.getStatistics(otherEAF);
+		assertEquals(2, cacheFiles(cacheDir).length);
+
+		File newEAF = new File(tempDir, "new/a.eaf");
+		newEAF.getParentFile().mkdirs();
+		Files.move(oldEAF.toPath(), newEAF.toPath());
+		assertEquals(1 + 1 + 10, describe(cache.getStatistics(newEAF)).size());
+
+		// the entry of the moved file is gone, the file with the same name elsewhere is kept
+		assertEquals(2, cacheFiles(cacheDir).length);
+		assertEquals(1 + 1 + 3, describe(cache.getStatistics(otherEAF)).size());
+		assertEquals(2, cacheFiles(cacheDir).length);
+	}
+
+	@DisplayName("The least recently used cache files are deleted when the cache is too large")
+	@Test
+	void testSizeLimit() throws Exception {
+		File cacheDir = new File(tempDir, "cache");
+		File[] eafs = new File[3];
+		for (int i = 0; i < eafs.length; i++) {
+			eafs[i] = createEAF(tempDir, "f" + i + ".eaf", 50);
+		}
+		// determine the size of one cache file
+		FileStatisticsCache unlimited = new FileStatisticsCache(new File(tempDir, "probe"),
+				FileStatisticsCache.DEFAULT_MAX_SIZE);
+		unlimited.getStatistics(eafs[0]);
+		long fileSize = cacheFiles(new File(tempDir, "probe"))[0].length();
+
+		FileStatisticsCache cache = new FileStatisticsCache(cacheDir, 2 * fileSize + fileSize / 2);
+		cache.getStatistics(eafs[0]);
+		cache.getStatistics(eafs[1]);
+		// make the first file the most recently used
+		for (File cf : cacheFiles(cacheDir)) {
+			cf.setLastModified(cf.getName().startsWith("f0") ? 20000000000L : 10000000000L);
+		}
+		cache.getStatistics(eafs[2]);
+
+		List<String> names = new ArrayList<String>();
+		for (File cf : cacheFiles(cacheDir)) {
+			names.add(cf.getName().substring(0, 2));
+		}
+		names.sort(null);
+		assertEquals(Arrays.asList("f0", "f2"), names);
+	}
+}
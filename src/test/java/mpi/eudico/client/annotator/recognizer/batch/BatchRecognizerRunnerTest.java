@@ -0,0 +1,218 @@
+package mpi.eudico.client.annotator.recognizer.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mpi.eudico.client.annotator.recognizer.api.Recognizer;
+import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.annotator.recognizer.data.RSelection;
+import mpi.eudico.client.annotator.recognizer.data.Segment;
+import mpi.eudico.client.annotator.recognizer.data.Segmentation;
+
+/**
+ * Tests the batch runner with a fake recognizer that, like the recognizers
+ * that run an external process, returns from {@code start()} immediately and
+ * reports its results later from another thread.
+ */
+class BatchRecognizerRunnerTest {
+	@TempDir
+	File tempDir;
+
+	private final AtomicInteger numCreated = new AtomicInteger();
+	private final AtomicInteger numStopped = new AtomicInteger();
+
+	private List<BatchRecognizerJob> createJobs(int number) {
+		List<BatchRecognizerJob> jobs = new ArrayList<BatchRecognizerJob>(number);
+		for (int i = 0; i < number; i++) {
+			jobs.add(new BatchRecognizerJob(new File(tempDir, "media" + i + ".wav").getAbsolutePath(), null));
+		}
+		return jobs;
+	}
+
+	private BatchRecognizerRunner createRunner(File outputDir, String behavior) {
+		BatchRecognizerRunner runner = new BatchRecognizerRunner("Fake", null, outputDir);
+		runner.setRecognizerFactory(() -> {
+			numCreated.incrementAndGet();
+			return new AsyncRecognizer(behavior);
+		});
+		return runner;
+	}
+
+	private List<String> readJournal(File outputDir) throws Exception {
+		return Files.readAllLines(new File(outputDir, BatchRecognizerRunner.JOURNAL_FILE).toPath(),
+				StandardCharsets.UTF_8);
+	}
+
+	@DisplayName("The results of a recognizer that finishes after start() returned are written")
+	@Test
+	void testAsynchronousRecognizer() throws Exception {
+		File outputDir = new File(tempDir, "out");
+		BatchRecognizerRunner runner = createRunner(outputDir, "ok");
+		runner.setNumWorkers(2);
+		runner.run(createJobs(3));
+
+		assertEquals(3, runner.getNumSucceeded());
+		assertEquals(0, runner.getNumFailed());
+		for (int i = 0; i < 3; i++) {
+			File tierFile = new File(outputDir, "media" + i + "_words.xml");
+			assertTrue(tierFile.isFile(), "Missing " + tierFile.getName());
+			String content = new String(Files.readAllBytes(tierFile.toPath()), StandardCharsets.UTF_8);
+			assertTrue(content.contains("hello"));
+		}
+		List<String> journal = readJournal(outputDir);
+		assertEquals(3, journal.size());
+		for (String line : journal) {
+			assertTrue(line.startsWith("DONE\t"), line);
+		}
+	}
+
+	@DisplayName("An error reported after start() returned makes the file fail")
+	@Test
+	void testAsynchronousError() throws Exception {
+		File outputDir = new File(tempDir, "out");
+		BatchRecognizerRunner runner = createRunner(outputDir, "error");
+		runner.run(createJobs(2));
+
+		assertEquals(0, runner.getNumSucceeded());
+		assertEquals(2, runner.getNumFailed());
+		for (String line : readJournal(outputDir)) {
+			assertTrue(line.startsWith("FAILED\t"), line);
+			assertTrue(line.endsWith("process crashed"), line);
+		}
+	}
+
+	@DisplayName("A recognizer that does not finish in time is stopped and the file fails")
+	@Test
+	void testTimeout() throws Exception {
+		File outputDir = new File(tempDir, "out");
+		BatchRecognizerRunner runner = createRunner(outputDir, "hang");
+		runner.setJobTimeout(300);
+		runner.run(createJobs(1));
+
+		assertEquals(0, runner.getNumSucceeded());
+		assertEquals(1, runner.getNumFailed());
+		assertEquals(1, numStopped.get());
+	}
+
+	@DisplayName("Files that succeeded in a previous run are skipped, failed files are tried again")
+	@Test
+	void testResume() throws Exception {
+		File outputDir = new File(tempDir, "out");
+		List<BatchRecognizerJob> jobs = createJobs(2);
+		createRunner(outputDir, "ok").run(jobs.subList(0, 1));
+		assertEquals(1, numCreated.get());
+
+		BatchRecognizerRunner runner = createRunner(outputDir, "ok");
+		runner.run(createJobs(2));
+		assertEquals(1, runner.getNumSucceeded());
+		assertEquals(2, numCreated.get());
+	}
+
+	/**
+	 * A recognizer that returns from {@code start()} immediately and reports
+	 * from a background thread.
+	 */
+	private class AsyncRecognizer implements Recognizer {
+		private final String behavior;
+		private RecognizerHost host;
+		private List<String> media;
+		private String name = "Fake";
+
+		AsyncRecognizer(String behavior) {
+			this.behavior = behavior;
+		}
+
+		@Override
+		public boolean setMedia(List<String> mediaFilePaths) {
+			media = mediaFilePaths;
+			return true;
+		}
+
+		@Override
+		public boolean canHandleMedia(String mediaFilePath) {
+			return true;
+		}
+
+		@Override
+		public boolean canCombineMultipleFiles() {
+			return false;
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public int getRecognizerType() {
+			return AUDIO_TYPE;
+		}
+
+		@Override
+		public void setRecognizerHost(RecognizerHost host) {
+			this.host = host;
+		}
+
+		@Override
+		public void setParameterValue(String param, String value) {
+		}
+
+		@Override
+		public void setParameterValue(String param, float value) {
+		}
+
+		@Override
+		public Object getParameterValue(String param) {
+			return null;
+		}
+
+		@Override
+		public void start() {
+			if (behavior.equals("hang")) {
+				return;
+			}
+			Thread t = new Thread(() -> {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException ie) {
+					return;
+				}
+				if (behavior.equals("error")) {
+					host.errorOccurred("process crashed");
+					return;
+				}
+				List<RSelection> segments = new ArrayList<RSelection>();
+				segments.add(new Segment(0, 1000, "hello"));
+				segments.add(new Segment(1000, 2000, "world"));
+				host.addSegmentation(new Segmentation("words", segments, media.get(0)));
+				host.setProgress(1f);
+			});
+			t.setDaemon(true);
+			t.start();
+		}
+
+		@Override
+		public void stop() {
+			numStopped.incrementAndGet();
+		}
+
+		@Override
+		public void dispose() {
+		}
+	}
+}
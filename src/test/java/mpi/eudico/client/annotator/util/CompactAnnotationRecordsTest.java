@@ -0,0 +1,131 @@
+package mpi.eudico.client.annotator.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.tree.DefaultMutableTreeNode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import mpi.eudico.server.corpora.clom.ExternalReference;
+import mpi.eudico.server.corpora.clomimpl.abstr.ExternalReferenceImpl;
+
+/**
+ * Tests storing undo records compactly, writing them to a temporary file and
+ * reading them back.
+ */
+class CompactAnnotationRecordsTest {
+	private CompactAnnotationRecords records;
+
+	@BeforeEach
+	void setUp() {
+		records = new CompactAnnotationRecords(2);
+		DefaultMutableTreeNode root = new DefaultMutableTreeNode(createRecord("words", "hello", 0, 1000));
+		DefaultMutableTreeNode child = new DefaultMutableTreeNode(createRecord("pos", "n", 0, 500));
+		child.add(new DefaultMutableTreeNode(createRecord("gloss", null, 0, 500)));
+		root.add(child);
+		root.add(new DefaultMutableTreeNode(createRecord("pos", "v", 500, 1000)));
+		records.addTree(root);
+
+		AnnotationDataRecord withRef = createRecord("words", "world", 1000, 2000);
+		withRef.setExtRef(new ExternalReferenceImpl("cve_1", ExternalReference.CVE_ID));
+		withRef.setCvEntryId("cve_1");
+		records.addTree(new DefaultMutableTreeNode(withRef));
+	}
+
+	@AfterEach
+	void tearDown() {
+		records.discard();
+	}
+
+	private static AnnotationDataRecord createRecord(String tier, String value, long begin, long end) {
+		AnnotationDataRecord record = new AnnotationDataRecord(tier, value, begin, end);
+		record.setBeginTimeAligned(begin % 1000 == 0);
+		record.setEndTimeAligned(end % 1000 == 0);
+		record.setId("a" + tier + begin);
+		return record;
+	}
+
+	private static List<String> describe(List<DefaultMutableTreeNode> roots) {
+		List<String> lines = new ArrayList<String>();
+		for (DefaultMutableTreeNode root : roots) {
+			describe(root, "", lines);
+		}
+		return lines;
+	}
+
+	private static void describe(DefaultMutableTreeNode node, String indent, List<String> lines) {
+		AnnotationDataRecord r = (AnnotationDataRecord) node.getUserObject();
+		lines.add(indent + r.getTierName() + " " + r.getValue() + " " + r.getBeginTime() + "-" + r.getEndTime() +
+				" " + r.isBeginTimeAligned() + r.isEndTimeAligned() + " " + r.getId() + " " + r.getCvEntryId() +
+				" " + (r.getExtRef() == null ? null : r.getExtRef().getValue()));
+		for (int i = 0; i < node.getChildCount(); i++) {
+			describe((DefaultMutableTreeNode) node.getChildAt(i), indent + "  ", lines);
+		}
+	}
+
+	@DisplayName("Records written to a temporary file are read back unchanged")
+	@Test
+	void testSpillAndLoad() throws IOException {
+		List<String> before = describe(records.toTrees());
+		assertEquals(5, records.size());
+
+		assertTrue(records.spill());
+		assertTrue(records.isSpilled());
+		File spillFile = records.getSpillFile();
+		assertTrue(spillFile.isFile());
+		assertTrue(records.getMemoryUsage() < 100);
+
+		assertEquals(before, describe(records.toTrees()));
+		assertFalse(records.isSpilled());
+		assertFalse(spillFile.exists());
+		assertEquals(2, records.toRecords().size());
+
+		// records can be added after reading back, the string table is rebuilt
+		assertTrue(records.spill());
+		List<AnnotationDataRecord> group = new ArrayList<AnnotationDataRecord>();
+		group.add(createRecord("words", "hello", 2000, 3000));
+		group.add(createRecord("words", "again", 3000, 4000));
+		records.addGroup(group);
+		assertEquals(7, records.size());
+		List<List<AnnotationDataRecord>> groups = records.toGroups();
+		assertEquals(1, groups.size());
+		assertEquals("again", groups.get(0).get(1).getValue());
+	}
+
+	@DisplayName("A missing temporary file makes every request fail")
+	@Test
+	void testMissingFile() {
+		assertTrue(records.spill());
+		assertTrue(records.getSpillFile().delete());
+
+		assertThrows(IOException.class, () -> records.toTrees());
+		assertThrows(IOException.class, () -> records.toRecords());
+		assertTrue(records.isSpilled(), "The records must not silently become empty");
+		assertThrows(UncheckedIOException.class, () -> records.addRecord(createRecord("words", "x", 0, 1)));
+	}
+
+	@DisplayName("A corrupt temporary file makes every request fail")
+	@Test
+	void testCorruptFile() throws IOException {
+		assertTrue(records.spill());
+		Files.write(records.getSpillFile().toPath(), new byte[] {1, 2, 3, 4});
+
+		assertThrows(IOException.class, () -> records.toGroups());
+		assertThrows(IOException.class, () -> records.toTrees());
+		assertTrue(records.isSpilled());
+
+		records.discard();
+		assertTrue(records.isEmpty());
+		assertEquals(0, records.toTrees().size());
+	}
+}
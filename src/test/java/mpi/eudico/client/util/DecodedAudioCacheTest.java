@@ -0,0 +1,292 @@
+package mpi.eudico.client.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nl.mpi.media.AudioExtraction;
+import nl.mpi.media.UnsupportedMediaException;
+
+/**
+ * Tests the decoded audio cache with a fake extractor that produces
+ * predictable samples.
+ */
+class DecodedAudioCacheTest {
+	private static final int FREQUENCY = 8000;
+	private static final int CHANNELS = 2;
+	private static final int BITS = 16;
+	private static final int BLOCK_ALIGN = CHANNELS * BITS / 8;
+	/** longer than the 10 seconds decoded per call */
+	private static final double DURATION = 25.5;
+
+	@TempDir
+	File tempDir;
+
+	private File cacheDir;
+	private File mediaFile;
+	private DecodedAudioCache cache;
+	private final AtomicInteger numDecoders = new AtomicInteger();
+	private final CountDownLatch decoderReleased = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() throws IOException {
+		cacheDir = new File(tempDir, "cache");
+		mediaFile = new File(tempDir, "media.mp4");
+		Files.write(mediaFile.toPath(), new byte[] {1, 2, 3});
+		cache = new DecodedAudioCache(cacheDir, 100L * 1024 * 1024);
+	}
+
+	/**
+	 * The value of the byte at an offset in the decoded audio data.
+	 */
+	private static byte expectedByte(long offset) {
+		return (byte) (offset * 31 + offset / 997);
+	}
+
+	private DecodedAudioCache.ExtractorFactory factory() {
+		return path -> {
+			numDecoders.incrementAndGet();
+			return new FakeExtraction() {
+				@Override
+				public void release() {
+					super.release();
+					decoderReleased.countDown();
+				}
+			};
+		};
+	}
+
+	private void awaitDecoding() throws InterruptedException {
+		assertTrue(decoderReleased.await(10, TimeUnit.SECONDS), "Decoding did not finish");
+	}
+
+	private static void assertSamples(byte[] samples, double fromTime) {
+		long from = Math.round(fromTime * FREQUENCY) * BLOCK_ALIGN;
+		for (int i = 0; i < samples.length; i++) {
+			if (samples[i] != expectedByte(from + i)) {
+				fail("Wrong byte at offset " + (from + i));
+			}
+		}
+	}
+
+	@DisplayName("The decoded audio is written to a wav file and then read from the mapped file")
+	@Test
+	void testDecodedFileIsMapped() throws Exception {
+		FakeExtraction samplerExtractor = new FakeExtraction();
+		AudioExtraction cached = cache.getCachedExtraction(mediaFile.getAbsolutePath(), samplerExtractor,
+				factory());
+		assertNotSame(samplerExtractor, cached);
+		awaitDecoding();
+
+		File[] wavFiles = cacheDir.listFiles((dir, name) -> name.endsWith(".wav"));
+		assertNotNull(wavFiles);
+		assertEquals(1, wavFiles.length);
+		long dataSize = (long) (DURATION * FREQUENCY) * BLOCK_ALIGN;
+		assertEquals(44 + dataSize, wavFiles[0].length());
+		assertEquals(44 + dataSize, cache.getCacheSize());
+
+		ByteBuffer header = ByteBuffer.allocate(44).order(ByteOrder.LITTLE_ENDIAN);
+		try (RandomAccessFile raf = new RandomAccessFile(wavFiles[0], "r")) {
+			raf.readFully(header.array());
+		}
+		assertEquals(CHANNELS, header.getShort(22));
+		assertEquals(FREQUENCY, header.getInt(24));
+		assertEquals(BITS, header.getShort(34));
+		assertEquals(dataSize, header.getInt(40));
+
+		int callsBefore = samplerExtractor.numGetSamples.get();
+		// an interval in the first, one across the 10 s chunks and one at the end
+		double[][] intervals = {{0.5, 1.5}, {9.75, 10.25}, {20, 25.5}};
+		for (double[] interval : intervals) {
+			byte[] samples = cached.getSamples(interval[0], interval[1]);
+			assertNotNull(samples);
+			assertEquals(Math.round((interval[1] - interval[0]) * FREQUENCY) * BLOCK_ALIGN, samples.length);
+			assertSamples(samples, interval[0]);
+		}
+		assertArrayEquals(samplerExtractor.getSamples(3, 4), cached.getSamples(3, 4));
+		assertEquals(callsBefore + 1, samplerExtractor.numGetSamples.get(),
+				"The native extractor is not used after decoding");
+		assertNull(cached.getSamples(26, 27));
+
+		cached.release();
+		assertTrue(samplerExtractor.released);
+	}
+
+	@DisplayName("Samplers of the same media file share one decoded file")
+	@Test
+	void testSharedBetweenSamplers() throws Exception {
+		AudioExtraction first = cache.getCachedExtraction(mediaFile.getAbsolutePath(), new FakeExtraction(),
+				factory());
+		AudioExtraction second = cache.getCachedExtraction(mediaFile.getAbsolutePath(), new FakeExtraction(),
+				factory());
+		awaitDecoding();
+		assertEquals(1, numDecoders.get());
+		assertArrayEquals(first.getSamples(12, 13), second.getSamples(12, 13));
+
+		// files in use are not deleted
+		cache.clear();
+		assertTrue(cache.getCacheSize() > 0);
+		first.release();
+		second.release();
+		cache.clear();
+		assertEquals(0, cache.getCacheSize());
+	}
+
+	@DisplayName("A decoded file is reused by a new cache instance without decoding again")
+	@Test
+	void testExistingFileIsReused() throws Exception {
+		AudioExtraction cached = cache.getCachedExtraction(mediaFile.getAbsolutePath(), new FakeExtraction(),
+				factory());
+		awaitDecoding();
+		cached.release();
+
+		DecodedAudioCache newCache = new DecodedAudioCache(cacheDir, 100L * 1024 * 1024);
+		FakeExtraction samplerExtractor = new FakeExtraction();
+		AudioExtraction reopened = newCache.getCachedExtraction(mediaFile.getAbsolutePath(), samplerExtractor,
+				path -> {
+					throw new UnsupportedMediaException("Should not be decoded again");
+				});
+		byte[] samples = reopened.getSamples(7, 8);
+		assertSamples(samples, 7);
+		assertEquals(0, samplerExtractor.numGetSamples.get());
+		reopened.release();
+	}
+
+	@DisplayName("If decoding fails the native extractor continues to be used")
+	@Test
+	void testDecoderFailure() throws Exception {
+		CountDownLatch failed = new CountDownLatch(1);
+		FakeExtraction samplerExtractor = new FakeExtraction();
+		AudioExtraction cached = cache.getCachedExtraction(mediaFile.getAbsolutePath(), samplerExtractor,
+				path -> {
+					failed.countDown();
+					throw new UnsupportedMediaException("No decoder");
+				});
+		assertTrue(failed.await(10, TimeUnit.SECONDS));
+		// let the decoding thread finish the failed attempt
+		Thread.sleep(100);
+
+		assertSamples(cached.getSamples(1, 2), 1);
+		assertEquals(1, samplerExtractor.numGetSamples.get());
+		assertEquals(0, cache.getCacheSize());
+		cached.release();
+	}
+
+	@DisplayName("Files that do not fit in the cache or that are too large are not cached")
+	@Test
+	void testNotCached() throws Exception {
+		FakeExtraction samplerExtractor = new FakeExtraction();
+		DecodedAudioCache small = new DecodedAudioCache(cacheDir, 1000);
+		assertSame(samplerExtractor, small.getCachedExtraction(mediaFile.getAbsolutePath(), samplerExtractor,
+				factory()));
+		DecodedAudioCache disabled = new DecodedAudioCache(cacheDir, 0);
+		assertSame(samplerExtractor, disabled.getCachedExtraction(mediaFile.getAbsolutePath(),
+				samplerExtractor, factory()));
+		assertSame(samplerExtractor, cache.getCachedExtraction(new File(tempDir, "missing.mp4").getAbsolutePath(),
+				samplerExtractor, factory()));
+		assertEquals(0, numDecoders.get());
+	}
+
+	/**
+	 * An extractor that returns the bytes defined by {@link #expectedByte(long)}.
+	 */
+	private static class FakeExtraction implements AudioExtraction {
+		final AtomicInteger numGetSamples = new AtomicInteger();
+		volatile boolean released;
+		private double position;
+
+		@Override
+		public int getSampleFrequency() {
+			return FREQUENCY;
+		}
+
+		@Override
+		public int getBitsPerSample() {
+			return BITS;
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return CHANNELS;
+		}
+
+		@Override
+		public int getFormatTag() {
+			return WAVHeader.WAVE_FORMAT_PCM;
+		}
+
+		@Override
+		public long getDuration() {
+			return (long) (DURATION * 1000);
+		}
+
+		@Override
+		public double getDurationSec() {
+			return DURATION;
+		}
+
+		@Override
+		public long getSampleBufferSize() {
+			return FREQUENCY / 10 * BLOCK_ALIGN;
+		}
+
+		@Override
+		public long getSampleBufferDurationMs() {
+			return 100;
+		}
+
+		@Override
+		public double getSampleBufferDurationSec() {
+			return 0.1;
+		}
+
+		@Override
+		public byte[] getSamples(double fromTime, double toTime) {
+			numGetSamples.incrementAndGet();
+			long from = Math.round(fromTime * FREQUENCY) * BLOCK_ALIGN;
+			long to = Math.min(Math.round(toTime * FREQUENCY), (long) (DURATION * FREQUENCY)) * BLOCK_ALIGN;
+			if (to <= from) {
+				return null;
+			}
+			byte[] samples = new byte[(int) (to - from)];
+			for (int i = 0; i < samples.length; i++) {
+				samples[i] = expectedByte(from + i);
+			}
+			position = toTime;
+			return samples;
+		}
+
+		@Override
+		public byte[] getSample(double forTime) {
+			return getSamples(forTime, forTime + getSampleBufferDurationSec());
+		}
+
+		@Override
+		public double getPositionSec() {
+			return position;
+		}
+
+		@Override
+		public void setPositionSec(double seekPositionSec) {
+			position = seekPositionSec;
+		}
+
+		@Override
+		public void release() {
+			released = true;
+		}
+	}
+}
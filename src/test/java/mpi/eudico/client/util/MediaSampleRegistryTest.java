@@ -0,0 +1,353 @@
+package mpi.eudico.client.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the shared sample sources and their cursors with a fake provider
+ * that computes the samples from their index.
+ */
+class MediaSampleRegistryTest {
+	private static final int BLOCK = SharedSampleSource.BLOCK_SIZE;
+
+	private final MediaSampleRegistry registry = MediaSampleRegistry.getInstance();
+	private final List<FakeProvider> providers = new ArrayList<FakeProvider>();
+
+	/** the value of a sample of the first channel, always positive */
+	private static int sampleAt(long index) {
+		return 1000 + (int) (index % 977);
+	}
+
+	private MediaSampleRegistry.ProviderCreator creator(long nrOfSamples) {
+		return () -> {
+			FakeProvider provider = new FakeProvider(nrOfSamples);
+			synchronized (providers) {
+				providers.add(provider);
+			}
+			return provider;
+		};
+	}
+
+	private static void assertSamples(SharedSamplesCursor cursor, long from, int numRead, boolean stereo) {
+		for (int i = 0; i < numRead; i++) {
+			if (cursor.getChannelArray(0)[i] != sampleAt(from + i)) {
+				fail("Wrong sample at " + (from + i));
+			}
+			if (stereo && cursor.getChannelArray(1)[i] != -sampleAt(from + i)) {
+				fail("Wrong sample of the second channel at " + (from + i));
+			}
+		}
+	}
+
+	@DisplayName("The provider is closed when the last cursor is closed and a new one is created afterwards")
+	@Test
+	void testCloseOnLastRelease() throws Exception {
+		String key = "close-test.wav";
+		SharedSamplesCursor first = registry.acquire(key, creator(10 * BLOCK));
+		SharedSamplesCursor second = registry.acquire(key, creator(10 * BLOCK));
+		assertEquals(1, providers.size());
+		FakeProvider provider = providers.get(0);
+		int numSources = registry.getNumberOfSources();
+
+		first.close();
+		first.close();
+		assertFalse(provider.closed);
+		second.seekSample(5);
+		assertEquals(100, second.readInterval(100, 1));
+		assertSamples(second, 5, 100, false);
+
+		second.close();
+		assertTrue(provider.closed);
+		assertEquals(numSources - 1, registry.getNumberOfSources());
+
+		SharedSamplesCursor reopened = registry.acquire(key, creator(10 * BLOCK));
+		assertEquals(2, providers.size());
+		assertNotSame(provider, providers.get(1));
+		reopened.seekSample(7);
+		assertEquals(50, reopened.readInterval(50, 2));
+		assertSamples(reopened, 7, 50, true);
+		reopened.close();
+		assertTrue(providers.get(1).closed);
+	}
+
+	@DisplayName("An interval across block boundaries and at the end of the file is read correctly")
+	@Test
+	void testReadAcrossBlocks() throws Exception {
+		long nrOfSamples = 3L * BLOCK + 500;
+		SharedSamplesCursor cursor = registry.acquire("blocks-test.wav", creator(nrOfSamples));
+		try {
+			cursor.seekSample(BLOCK - 100);
+			int numRead = cursor.readInterval(BLOCK + 300, 2);
+			assertEquals(BLOCK + 300, numRead);
+			assertSamples(cursor, BLOCK - 100, numRead, true);
+			assertEquals(2L * BLOCK + 200, cursor.getSamplePointer());
+
+			cursor.seekSample(nrOfSamples - 10);
+			assertEquals(10, cursor.readInterval(1000, 2));
+			assertSamples(cursor, nrOfSamples - 10, 10, true);
+			assertEquals(0, cursor.readInterval(1000, 2));
+		} finally {
+			cursor.close();
+		}
+	}
+
+	@DisplayName("The minimum and maximum only include the samples of the last read")
+	@Test
+	void testMinMaxOfShortRead() throws Exception {
+		SharedSamplesCursor cursor = registry.acquire("minmax-test.wav", creator(4L * BLOCK));
+		try {
+			cursor.readInterval(2 * BLOCK, 2);
+			assertEquals(1000, cursor.getMinSample(0));
+			assertEquals(1976, cursor.getMaxSample(0));
+
+			// a short read reuses the longer arrays, the rest of the arrays must be ignored
+			cursor.seekSample(10);
+			assertEquals(20, cursor.readInterval(20, 2));
+			assertEquals(sampleAt(10), cursor.getMinSample(0));
+			assertEquals(sampleAt(29), cursor.getMaxSample(0));
+			assertEquals(-sampleAt(29), cursor.getMinSample(1));
+			assertEquals(-sampleAt(10), cursor.getMaxSample(1));
+		} finally {
+			cursor.close();
+		}
+	}
+
+	@DisplayName("The least recently used blocks are evicted from the cache")
+	@Test
+	void testEviction() throws Exception {
+		SharedSamplesCursor cursor = registry.acquire("lru-test.wav", creator(80L * BLOCK));
+		try {
+			FakeProvider provider = providers.get(0);
+			for (int b = 0; b < 70; b++) {
+				cursor.seekSample((long) b * BLOCK);
+				assertEquals(BLOCK, cursor.readInterval(BLOCK, 1));
+			}
+			assertEquals(70, provider.numReads.get());
+
+			// a recently used block comes from the cache
+			cursor.seekSample(69L * BLOCK + 5);
+			cursor.readInterval(100, 1);
+			assertSamples(cursor, 69L * BLOCK + 5, 100, false);
+			assertEquals(70, provider.numReads.get());
+
+			// the first block has been evicted
+			cursor.seekSample(5);
+			cursor.readInterval(100, 1);
+			assertSamples(cursor, 5, 100, false);
+			assertEquals(71, provider.numReads.get());
+		} finally {
+			cursor.close();
+		}
+	}
+
+	@DisplayName("Concurrent cursors of the same file read correct samples and share one provider")
+	@Test
+	void testConcurrentCursors() throws Exception {
+		String key = "concurrent-test.wav";
+		long nrOfSamples = 20L * BLOCK;
+		int numCursors = 4;
+		List<SharedSamplesCursor> cursors = new ArrayList<SharedSamplesCursor>();
+		for (int i = 0; i < numCursors; i++) {
+			cursors.add(registry.acquire(key, creator(nrOfSamples)));
+		}
+		assertEquals(1, providers.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(numCursors);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int i = 0; i < numCursors; i++) {
+				SharedSamplesCursor cursor = cursors.get(i);
+				Random random = new Random(i);
+				results.add(executor.submit((Callable<Void>) () -> {
+					for (int j = 0; j < 200; j++) {
+						long from = (long) (random.nextDouble() * (nrOfSamples - 5000));
+						int length = 1 + random.nextInt(5000);
+						boolean stereo = random.nextBoolean();
+						cursor.seekSample(from);
+						assertEquals(length, cursor.readInterval(length, stereo ? 2 : 1));
+						assertSamples(cursor, from, length, stereo);
+						assertEquals(from + length, cursor.getSamplePointer());
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+			for (SharedSamplesCursor cursor : cursors) {
+				cursor.close();
+			}
+		}
+		FakeProvider provider = providers.get(0);
+		assertFalse(provider.concurrentUse, "The provider was used by several threads at once");
+		assertTrue(provider.closed);
+	}
+
+	/**
+	 * A stereo provider, the second channel is the negated first channel. In
+	 * the single channel mode only the first channel is returned.
+	 */
+	private static class FakeProvider implements WAVSamplesProvider {
+		final AtomicInteger numReads = new AtomicInteger();
+		private final AtomicInteger inUse = new AtomicInteger();
+		private final long nrOfSamples;
+		volatile boolean closed;
+		volatile boolean concurrentUse;
+		private long pointer;
+		private int[][] arrays = new int[2][];
+
+		FakeProvider(long nrOfSamples) {
+			this.nrOfSamples = nrOfSamples;
+		}
+
+		@Override
+		public int readInterval(int requestedNrOfSamplesToRead, int nrOfChannelsToLoad) {
+			if (inUse.incrementAndGet() > 1) {
+				concurrentUse = true;
+			}
+			try {
+				numReads.incrementAndGet();
+				int n = (int) Math.max(0, Math.min(requestedNrOfSamplesToRead, nrOfSamples - pointer));
+				arrays[0] = new int[n];
+				arrays[1] = nrOfChannelsToLoad == 2 ? new int[n] : null;
+				for (int i = 0; i < n; i++) {
+					arrays[0][i] = sampleAt(pointer + i);
+					if (arrays[1] != null) {
+						arrays[1][i] = -arrays[0][i];
+					}
+				}
+				pointer += n;
+				return n;
+			} finally {
+				inUse.decrementAndGet();
+			}
+		}
+
+		@Override
+		public int[] getChannelArray(int channelIndex) {
+			return arrays[channelIndex];
+		}
+
+		@Override
+		public void seekSample(long n) {
+			pointer = n;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+		@Override
+		public String getMediaLocation() {
+			return "fake.wav";
+		}
+
+		@Override
+		public float getDuration() {
+			return nrOfSamples * 1000f / getSampleFrequency();
+		}
+
+		@Override
+		public double getDurationSeconds() {
+			return nrOfSamples / (double) getSampleFrequency();
+		}
+
+		@Override
+		public int getNumberOfChannels() {
+			return 2;
+		}
+
+		@Override
+		public int getBitsPerSample() {
+			return 16;
+		}
+
+		@Override
+		public int getMaxSample(int channelIndex) {
+			return 0;
+		}
+
+		@Override
+		public int getMinSample(int channelIndex) {
+			return 0;
+		}
+
+		@Override
+		public long getNrOfSamples() {
+			return nrOfSamples;
+		}
+
+		@Override
+		public int getPossibleMaxSample() {
+			return Short.MAX_VALUE;
+		}
+
+		@Override
+		public int getPossibleMinSample() {
+			return Short.MIN_VALUE;
+		}
+
+		@Override
+		public int getSampleFrequency() {
+			return 16000;
+		}
+
+		@Override
+		public long getSamplePointer() {
+			return pointer;
+		}
+
+		@Override
+		public long getTimeAtSample(long sample) {
+			return sample * 1000 / getSampleFrequency();
+		}
+
+		@Override
+		public float getTimePointer() {
+			return pointer * 1000f / getSampleFrequency();
+		}
+
+		@Override
+		public double getTimePointerSeconds() {
+			return pointer / (double) getSampleFrequency();
+		}
+
+		@Override
+		public void seekTime(float time) {
+			seekSample((long) (time * getSampleFrequency() / 1000));
+		}
+
+		@Override
+		public void seekTimeSeconds(double timeSec) {
+			seekSample((long) (timeSec * getSampleFrequency()));
+		}
+
+		@Override
+		public short getCompressionCode() {
+			return WAVHeader.WAVE_FORMAT_PCM;
+		}
+
+		@Override
+		public String getCompressionString(short compr) {
+			return "PCM";
+		}
+
+		@Override
+		public void setDebugMode(boolean enable) {
+		}
+	}
+}
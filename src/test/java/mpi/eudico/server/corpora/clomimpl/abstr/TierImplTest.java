@@ -0,0 +1,261 @@
+package mpi.eudico.server.corpora.clomimpl.abstr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clom.TimeSlot;
+import mpi.eudico.server.corpora.clomimpl.type.IncludedIn;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+import mpi.eudico.server.corpora.clomimpl.type.SymbolicAssociation;
+import mpi.eudico.server.corpora.event.ACMEditEvent;
+
+class TierImplTest {
+	private TranscriptionImpl batchTrans;
+	private TranscriptionImpl singleTrans;
+
+	@BeforeEach
+	void setUpBefore() throws Exception {
+		batchTrans = createTranscription();
+		singleTrans = createTranscription();
+	}
+
+	@DisplayName("Annotations added in bulk are in time order, also between existing annotations")
+	@Test
+	void testAddAnnotationsOrder() {
+		TierImpl tier = batchTrans.getTierWithId("T1");
+		tier.createAnnotation(5000, 6000).setValue("x");
+
+		List<Annotation> created = tier.addAnnotations(createBatch(
+				new long[] {0, 1000, 1000, 2000, 7000, 8000}, "a", "b", "c"));
+
+		assertEquals(3, created.size());
+		for (Annotation ann : created) {
+			assertNotNull(ann);
+		}
+		assertIterableEquals(List.of("0-1000 a", "1000-2000 b", "5000-6000 x", "7000-8000 c"),
+				describeAnnotations(tier));
+		assertEquals("b", created.get(1).getValue());
+		assertSame(tier, created.get(2).getTier());
+	}
+
+	@DisplayName("The time slots of a batch are merged with the slots of other tiers")
+	@Test
+	void testTimeSlotsMerged() {
+		TierImpl other = batchTrans.getTierWithId("T2");
+		other.createAnnotation(500, 1500);
+		other.createAnnotation(2500, 3500);
+		int numSlots = batchTrans.getTimeOrder().size();
+
+		List<Annotation> created = batchTrans.getTierWithId("T1").addAnnotations(createBatch(
+				new long[] {0, 1000, 1500, 2500, 4000, 5000}, "a", "b", "c"));
+
+		assertEquals(numSlots + 6, batchTrans.getTimeOrder().size());
+		assertIterableEquals(List.of(0L, 500L, 1000L, 1500L, 1500L, 2500L, 2500L, 3500L, 4000L, 5000L),
+				getTimes(batchTrans));
+		assertIndexesConsistent(batchTrans);
+		for (Annotation ann : created) {
+			AlignableAnnotation aa = (AlignableAnnotation) ann;
+			assertTrue(aa.getBegin().isTimeAligned());
+			assertTrue(batchTrans.getTimeOrder().isBefore(aa.getBegin(), aa.getEnd()));
+		}
+	}
+
+	@DisplayName("Adding a batch results in the same tier and time order as adding the annotations one by one")
+	@Test
+	void testSameStateAsSingleAnnotations() {
+		long[] times = {0, 1000, 1000, 2000, 3000, 4000, 9000, 9500};
+		String[] values = {"a", "b", "c", "d"};
+		for (TranscriptionImpl trans : new TranscriptionImpl[] {batchTrans, singleTrans}) {
+			trans.getTierWithId("T1").createAnnotation(5000, 6000).setValue("x");
+			trans.getTierWithId("T2").createAnnotation(2000, 3000).setValue("y");
+		}
+
+		batchTrans.getTierWithId("T1").addAnnotations(createBatch(times, values));
+		addSingleAnnotations(singleTrans.getTierWithId("T1"), times, values);
+
+		assertSameState(singleTrans, batchTrans);
+	}
+
+	@DisplayName("A batch that overlaps existing annotations gives the same result as adding them one by one")
+	@Test
+	void testOverlappingExistingAnnotations() {
+		long[] times = {0, 1000, 4500, 5500, 7000, 8000};
+		String[] values = {"a", "b", "c"};
+		for (TranscriptionImpl trans : new TranscriptionImpl[] {batchTrans, singleTrans}) {
+			trans.getTierWithId("T1").createAnnotation(5000, 6000).setValue("x");
+		}
+
+		List<Annotation> created = batchTrans.getTierWithId("T1").addAnnotations(createBatch(times, values));
+		addSingleAnnotations(singleTrans.getTierWithId("T1"), times, values);
+
+		assertEquals(3, created.size());
+		assertSameState(singleTrans, batchTrans);
+	}
+
+	@DisplayName("A batch of mutually overlapping intervals gives the same result as adding them one by one")
+	@Test
+	void testOverlappingBatch() {
+		long[] times = {0, 1000, 500, 1500, 2000, 3000};
+		String[] values = {"a", "b", "c"};
+		AnnotationBatch batch = createBatch(times, values);
+		assertFalse(batch.isNonOverlapping());
+
+		batchTrans.getTierWithId("T1").addAnnotations(batch);
+		addSingleAnnotations(singleTrans.getTierWithId("T1"), times, values);
+
+		assertSameState(singleTrans, batchTrans);
+	}
+
+	@DisplayName("A batch on a dependent time alignable tier gives the same result as adding them one by one")
+	@Test
+	void testDependentTierBatch() {
+		long[] times = {0, 500, 500, 1000, 2500, 3500};
+		String[] values = {"a", "b", "c"};
+		for (TranscriptionImpl trans : new TranscriptionImpl[] {batchTrans, singleTrans}) {
+			TierImpl parent = trans.getTierWithId("T1");
+			parent.createAnnotation(0, 1000).setValue("p1");
+			parent.createAnnotation(2000, 3000).setValue("p2");
+		}
+
+		List<Annotation> created = batchTrans.getTierWithId("T4").addAnnotations(createBatch(times, values));
+		addSingleAnnotations(singleTrans.getTierWithId("T4"), times, values);
+
+		assertEquals(3, created.size());
+		assertIterableEquals(List.of("0-500 a", "500-1000 b", "2500-3000 c"),
+				describeAnnotations(batchTrans.getTierWithId("T4")));
+		assertSameState(singleTrans, batchTrans);
+	}
+
+	@DisplayName("No annotations are created by a batch on a tier that is not time alignable")
+	@Test
+	void testUnalignedTierBatch() {
+		batchTrans.getTierWithId("T1").createAnnotation(0, 1000);
+
+		List<Annotation> created = batchTrans.getTierWithId("T3").addAnnotations(
+				createBatch(new long[] {0, 1000}, "a"));
+
+		assertEquals(1, created.size());
+		assertNull(created.get(0));
+		assertTrue(batchTrans.getTierWithId("T3").getAnnotations().isEmpty());
+	}
+
+	@DisplayName("An empty batch does not change the tier and does not notify listeners")
+	@Test
+	void testEmptyBatch() {
+		TierImpl tier = batchTrans.getTierWithId("T1");
+		List<ACMEditEvent> events = new ArrayList<ACMEditEvent>();
+		batchTrans.addACMEditListener(events::add);
+
+		List<Annotation> created = tier.addAnnotations(new AnnotationBatch(0));
+
+		assertTrue(created.isEmpty());
+		assertTrue(tier.getAnnotations().isEmpty());
+		assertEquals(0, batchTrans.getTimeOrder().size());
+		assertTrue(events.isEmpty());
+	}
+
+	@DisplayName("Listeners receive a single change annotations event for a batch")
+	@Test
+	void testSingleEvent() {
+		List<ACMEditEvent> events = new ArrayList<ACMEditEvent>();
+		batchTrans.addACMEditListener(events::add);
+
+		batchTrans.getTierWithId("T1").addAnnotations(createBatch(
+				new long[] {0, 1000, 1000, 2000, 3000, 4000}, "a", "b", "c"));
+
+		assertEquals(1, events.size());
+		assertEquals(ACMEditEvent.CHANGE_ANNOTATIONS, events.get(0).getOperation());
+	}
+
+	@DisplayName("Intervals have to be added to a batch in order and have to be valid")
+	@Test
+	void testInvalidBatch() {
+		AnnotationBatch batch = new AnnotationBatch(2);
+		batch.add(1000, 2000, null);
+		assertEquals("", batch.getValue(0));
+		assertThrows(IllegalArgumentException.class, () -> batch.add(500, 800, "early"));
+		assertThrows(IllegalArgumentException.class, () -> batch.add(3000, 3000, "empty"));
+		assertThrows(IllegalArgumentException.class, () -> batch.add(-10, 800, "negative"));
+		assertEquals(1, batch.size());
+	}
+
+	private static TranscriptionImpl createTranscription() {
+		TranscriptionImpl trans = new TranscriptionImpl();
+		LinguisticType alignable = new LinguisticType("default");
+		trans.addLinguisticType(alignable);
+		LinguisticType symbolic = new LinguisticType("symbolic");
+		symbolic.addConstraint(new SymbolicAssociation());
+		symbolic.setTimeAlignable(false);
+		trans.addLinguisticType(symbolic);
+		LinguisticType included = new LinguisticType("included");
+		included.addConstraint(new IncludedIn());
+		trans.addLinguisticType(included);
+
+		TierImpl t1 = new TierImpl("T1", "", trans, alignable);
+		trans.addTier(t1);
+		trans.addTier(new TierImpl("T2", "", trans, alignable));
+		trans.addTier(new TierImpl(t1, "T3", "", trans, symbolic));
+		trans.addTier(new TierImpl(t1, "T4", "", trans, included));
+		return trans;
+	}
+
+	private static AnnotationBatch createBatch(long[] times, String... values) {
+		AnnotationBatch batch = new AnnotationBatch(values.length);
+		for (int i = 0; i < values.length; i++) {
+			batch.add(times[2 * i], times[2 * i + 1], values[i]);
+		}
+		return batch;
+	}
+
+	private static void addSingleAnnotations(TierImpl tier, long[] times, String... values) {
+		for (int i = 0; i < values.length; i++) {
+			Annotation ann = tier.createAnnotation(times[2 * i], times[2 * i + 1]);
+			if (ann != null) {
+				ann.setValue(values[i]);
+			}
+		}
+	}
+
+	private static void assertSameState(TranscriptionImpl expected, TranscriptionImpl actual) {
+		for (TierImpl tier : expected.getTiers()) {
+			assertIterableEquals(describeAnnotations(tier),
+					describeAnnotations(actual.getTierWithId(tier.getName())));
+		}
+		assertIterableEquals(getTimes(expected), getTimes(actual));
+		assertIndexesConsistent(actual);
+	}
+
+	private static void assertIndexesConsistent(TranscriptionImpl trans) {
+		int position = 0;
+		Iterator<TimeSlot> slotIter = trans.getTimeOrder().iterator();
+		while (slotIter.hasNext()) {
+			assertEquals(position++, slotIter.next().getIndex());
+		}
+	}
+
+	private static List<String> describeAnnotations(TierImpl tier) {
+		List<String> descriptions = new ArrayList<String>();
+		for (AbstractAnnotation ann : tier.getAnnotations()) {
+			descriptions.add(ann.getBeginTimeBoundary() + "-" + ann.getEndTimeBoundary() + " " + ann.getValue());
+		}
+		return descriptions;
+	}
+
+	private static List<Long> getTimes(TranscriptionImpl trans) {
+		List<Long> times = new ArrayList<Long>();
+		Iterator<TimeSlot> slotIter = trans.getTimeOrder().iterator();
+		while (slotIter.hasNext()) {
+			TimeSlot slot = slotIter.next();
+			times.add(slot.isTimeAligned() ? slot.getTime() : -1L);
+		}
+		return times;
+	}
+}
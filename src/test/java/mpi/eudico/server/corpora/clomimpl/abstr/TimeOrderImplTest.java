@@ -0,0 +1,124 @@
+package mpi.eudico.server.corpora.clomimpl.abstr;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import mpi.eudico.server.corpora.clom.TimeSlot;
+
+class TimeOrderImplTest {
+	private static final long[] EXISTING_TIMES = {100, 300, 300, 500};
+	private static final long[] MERGED_TIMES = {0, 300, 400, 500, 600};
+
+	private TimeOrderImpl mergeOrder;
+	private TimeOrderImpl insertOrder;
+	private List<TimeSlot> mergeExisting;
+	private List<TimeSlot> insertExisting;
+
+	@BeforeEach
+	void setUpBefore() throws Exception {
+		mergeOrder = new TimeOrderImpl(new TranscriptionImpl());
+		insertOrder = new TimeOrderImpl(new TranscriptionImpl());
+		mergeExisting = insertSlots(mergeOrder, EXISTING_TIMES);
+		insertExisting = insertSlots(insertOrder, EXISTING_TIMES);
+	}
+
+	@DisplayName("Merging ordered slots gives the same order as inserting them one by one")
+	@Test
+	void testMergeOrderedSlots() {
+		List<TimeSlot> merged = createSlots(mergeOrder, MERGED_TIMES);
+		mergeOrder.mergeOrderedSlots(merged);
+		List<TimeSlot> inserted = insertSlots(insertOrder, MERGED_TIMES);
+
+		assertEquals(EXISTING_TIMES.length + MERGED_TIMES.length, mergeOrder.size());
+		assertIterableEquals(getTimes(insertOrder), getTimes(mergeOrder));
+		for (int i = 0; i < merged.size(); i++) {
+			assertEquals(inserted.get(i).getIndex(), merged.get(i).getIndex(),
+					"The merged slot at " + merged.get(i).getTime() + " has the same position");
+		}
+		for (int i = 0; i < mergeExisting.size(); i++) {
+			assertEquals(insertExisting.get(i).getIndex(), mergeExisting.get(i).getIndex(),
+					"The existing slot at " + mergeExisting.get(i).getTime() + " has the same position");
+		}
+	}
+
+	@DisplayName("A merged slot is positioned after existing slots with the same time")
+	@Test
+	void testMergeAfterEqualTimes() {
+		List<TimeSlot> merged = createSlots(mergeOrder, new long[] {300});
+		mergeOrder.mergeOrderedSlots(merged);
+
+		assertEquals(3, merged.get(0).getIndex());
+		assertTrue(mergeOrder.isBefore(mergeExisting.get(2), merged.get(0)));
+		assertEquals(4, mergeExisting.get(3).getIndex());
+	}
+
+	@DisplayName("The indexes of all slots correspond to their position after a merge")
+	@Test
+	void testIndexesAfterMerge() {
+		mergeOrder.mergeOrderedSlots(createSlots(mergeOrder, MERGED_TIMES));
+
+		int position = 0;
+		Iterator<TimeSlot> slotIter = mergeOrder.iterator();
+		while (slotIter.hasNext()) {
+			assertEquals(position++, slotIter.next().getIndex());
+		}
+	}
+
+	@DisplayName("Merging into an empty time order")
+	@Test
+	void testMergeIntoEmptyOrder() {
+		TimeOrderImpl emptyOrder = new TimeOrderImpl(new TranscriptionImpl());
+		List<TimeSlot> merged = createSlots(emptyOrder, MERGED_TIMES);
+		emptyOrder.mergeOrderedSlots(merged);
+
+		assertEquals(MERGED_TIMES.length, emptyOrder.size());
+		for (int i = 0; i < merged.size(); i++) {
+			assertEquals(i, merged.get(i).getIndex());
+		}
+	}
+
+	@DisplayName("Merging an empty list or null does not change the time order")
+	@Test
+	void testMergeEmptyList() {
+		List<Long> before = getTimes(mergeOrder);
+		mergeOrder.mergeOrderedSlots(new ArrayList<TimeSlot>());
+		mergeOrder.mergeOrderedSlots(null);
+
+		assertIterableEquals(before, getTimes(mergeOrder));
+		for (int i = 0; i < mergeExisting.size(); i++) {
+			assertEquals(i, mergeExisting.get(i).getIndex());
+		}
+	}
+
+	private static List<TimeSlot> createSlots(TimeOrderImpl timeOrder, long[] times) {
+		List<TimeSlot> slots = new ArrayList<TimeSlot>(times.length);
+		for (long time : times) {
+			slots.add(new TimeSlotImpl(time, timeOrder));
+		}
+		return slots;
+	}
+
+	private static List<TimeSlot> insertSlots(TimeOrderImpl timeOrder, long[] times) {
+		List<TimeSlot> slots = createSlots(timeOrder, times);
+		for (TimeSlot slot : slots) {
+			timeOrder.insertTimeSlot(slot);
+		}
+		return slots;
+	}
+
+	private static List<Long> getTimes(TimeOrderImpl timeOrder) {
+		List<Long> times = new ArrayList<Long>();
+		Iterator<TimeSlot> slotIter = timeOrder.iterator();
+		while (slotIter.hasNext()) {
+			times.add(slotIter.next().getTime());
+		}
+		return times;
+	}
+}
@@ -0,0 +1,265 @@
+package mpi.eudico.server.corpora.clomimpl.dobes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clom.TranscriptionStore;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+import mpi.eudico.server.corpora.clomimpl.type.SymbolicAssociation;
+import mpi.eudico.util.CVEntry;
+import mpi.eudico.util.ControlledVocabulary;
+
+class AnnotationSkippingInputStreamTest {
+	@TempDir
+	File tempDir;
+
+	private static final String ANNOTATION = "<ANNOTATION><ALIGNABLE_ANNOTATION ANNOTATION_ID=\"a1\" "
+			+ "TIME_SLOT_REF1=\"ts1\" TIME_SLOT_REF2=\"ts2\"><ANNOTATION_VALUE>x &lt;ANNOTATION&gt; y"
+			+ "</ANNOTATION_VALUE></ALIGNABLE_ANNOTATION></ANNOTATION>";
+
+	/**
+	 * Reads all bytes through the filter, a stream that returns the given
+	 * number of bytes per read call and a read buffer of the given size.
+	 */
+	private static byte[] filter(byte[] input, int chunkSize, int readSize) throws IOException {
+		InputStream chunked = new ByteArrayInputStream(input) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, chunkSize));
+			}
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new AnnotationSkippingInputStream(chunked)) {
+			byte[] buf = new byte[readSize];
+			int n;
+			while ((n = in.read(buf, 0, buf.length)) >= 0) {
+				out.write(buf, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static String filter(String input) throws IOException {
+		return new String(filter(input.getBytes(StandardCharsets.UTF_8), 8192, 8192), StandardCharsets.UTF_8);
+	}
+
+	@DisplayName("Annotations, time slots and reference link sets are removed, the rest is kept")
+	@Test
+	void testSkippedElements() throws IOException {
+		String input = "<ANNOTATION_DOCUMENT AUTHOR=\"\"><TIME_ORDER>"
+				+ "<TIME_SLOT TIME_SLOT_ID=\"ts1\" TIME_VALUE=\"0\"/><TIME_SLOT TIME_SLOT_ID=\"ts2\"></TIME_SLOT>"
+				+ "</TIME_ORDER><TIER TIER_ID=\"t1\">" + ANNOTATION + ANNOTATION + "</TIER>"
+				+ "<REF_LINK_SET REF_LINK_SET_ID=\"r1\"><CROSS_REF_LINK REF1=\"a1\" REF2=\"a2\"/></REF_LINK_SET>"
+				+ "</ANNOTATION_DOCUMENT>";
+		assertEquals("<ANNOTATION_DOCUMENT AUTHOR=\"\"><TIME_ORDER></TIME_ORDER><TIER TIER_ID=\"t1\"></TIER>"
+				+ "</ANNOTATION_DOCUMENT>", filter(input));
+	}
+
+	@DisplayName("Self-closing elements are removed, also with a '/>' in an attribute value")
+	@Test
+	void testSelfClosingElements() throws IOException {
+		assertEquals("<TIME_ORDER>\n</TIME_ORDER>", filter("<TIME_ORDER><TIME_SLOT TIME_SLOT_ID=\"ts1\"/>\n"
+				+ "<TIME_SLOT TIME_SLOT_ID='a/>b' TIME_VALUE=\"10\" /><TIME_SLOT\nTIME_SLOT_ID=\"ts3\"/></TIME_ORDER>"));
+		assertEquals("<X/>", filter("<REF_LINK_SET REF_LINK_SET_ID=\"r1\"/><X/>"));
+	}
+
+	@DisplayName("Elements with a name that starts with a skipped name are not matched")
+	@Test
+	void testLongerNames() throws IOException {
+		String input = "<ANNOTATION_DOCUMENT><ANNOTATIONS/><TIME_SLOTS></TIME_SLOTS></ANNOTATION_DOCUMENT>";
+		assertEquals(input, filter(input));
+		// the end tag of an annotation value does not end the annotation
+		assertEquals("<T></T>", filter("<T><ANNOTATION><ANNOTATION_VALUE>v</ANNOTATION_VALUE>"
+				+ "<ANNOTATION_VALUE/></ANNOTATION></T>"));
+	}
+
+	@DisplayName("Comments, CDATA sections and processing instructions are copied or skipped as a whole")
+	@Test
+	void testCommentsAndCDATA() throws IOException {
+		String kept = "<?xml version=\"1.0\"?><T><!-- <ANNOTATION> --><!----><![CDATA[<TIME_SLOT/>]]>"
+				+ "<?pi <REF_LINK_SET>?></T>";
+		assertEquals(kept, filter(kept));
+		assertEquals("<T></T>", filter("<T><ANNOTATION><!-- </ANNOTATION> --><ANNOTATION_VALUE>"
+				+ "<![CDATA[</ANNOTATION>]]></ANNOTATION_VALUE><?pi </ANNOTATION>?></ANNOTATION></T>"));
+	}
+
+	@DisplayName("After a document type declaration the input is passed through")
+	@Test
+	void testDoctype() throws IOException {
+		String input = "<!DOCTYPE T [<!ENTITY a \"b\">]><T>" + ANNOTATION + "</T>";
+		assertEquals(input, filter(input));
+	}
+
+	@DisplayName("UTF-16 input is passed through unchanged")
+	@Test
+	void testUTF16() throws IOException {
+		String input = "<?xml version=\"1.0\" encoding=\"UTF-16\"?><T>" + ANNOTATION + "</T>";
+		byte[] withBOM = input.getBytes(StandardCharsets.UTF_16);
+		assertArrayEquals(withBOM, filter(withBOM, 8192, 8192));
+		byte[] littleEndian = input.getBytes(StandardCharsets.UTF_16LE);
+		assertArrayEquals(littleEndian, filter(littleEndian, 3, 5));
+		byte[] bigEndian = input.getBytes(StandardCharsets.UTF_16BE);
+		assertArrayEquals(bigEndian, filter(bigEndian, 1, 1));
+	}
+
+	@DisplayName("Markers are recognized when they cross the boundaries of the read buffers")
+	@Test
+	void testBufferBoundaries() throws IOException {
+		String tail = "<T>" + ANNOTATION + "<!-- <ANNOTATION> --><TIME_SLOT TIME_SLOT_ID=\"ts\"/><X/>"
+				+ ANNOTATION + "</T>";
+		String expected = "<T><!-- <ANNOTATION> --><X/></T>";
+		// move the markers across the internal buffer of 16384 bytes
+		for (int shift = 0; shift < 200; shift++) {
+			StringBuilder padding = new StringBuilder(16384);
+			for (int i = 0; i < 16384 - 100 + shift; i++) {
+				padding.append(' ');
+			}
+			byte[] input = (padding + tail).getBytes(StandardCharsets.UTF_8);
+			String result = new String(filter(input, 7, 4096), StandardCharsets.UTF_8);
+			assertEquals(padding + expected, result, "Shift " + shift);
+		}
+		// a source and a reader that return one byte at a time
+		assertEquals(expected, new String(filter(tail.getBytes(StandardCharsets.UTF_8), 1, 1),
+				StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes a transcription with a controlled vocabulary, an aligned tier and
+	 * a dependent tier to an EAF file.
+	 */
+	private File createEAF() throws Exception {
+		TranscriptionImpl trans = new TranscriptionImpl();
+		ControlledVocabulary cv = new ControlledVocabulary("cv1");
+		cv.addEntry(new CVEntry(cv, "noun", "a noun"));
+		cv.addEntry(new CVEntry(cv, "verb", "a verb"));
+		trans.addControlledVocabulary(cv);
+
+		LinguisticType topType = new LinguisticType("words");
+		trans.addLinguisticType(topType);
+		LinguisticType posType = new LinguisticType("pos");
+		posType.addConstraint(new SymbolicAssociation());
+		posType.setTimeAlignable(false);
+		posType.setControlledVocabularyName("cv1");
+		trans.addLinguisticType(posType);
+
+		TierImpl words = new TierImpl("words", "speaker1", trans, topType);
+		trans.addTier(words);
+		TierImpl pos = new TierImpl(words, "pos", "speaker1", trans, posType);
+		trans.addTier(pos);
+		for (int i = 0; i < 500; i++) {
+			Annotation ann = words.createAnnotation(i * 1000L, i * 1000L + 800);
+			ann.setValue("word <" + i + "> & </ANNOTATION>");
+			Annotation posAnn = pos.createAnnotation(i * 1000L + 400, i * 1000L + 400);
+			posAnn.setValue(i % 2 == 0 ? "noun" : "verb");
+		}
+
+		File eaf = new File(tempDir, "test.eaf");
+		ACMTranscriptionStore.getCurrentTranscriptionStore().storeTranscription(trans, null, null,
+				eaf.getAbsolutePath(), TranscriptionStore.EAF);
+		return eaf;
+	}
+
+	/**
+	 * Records the elements, attributes and non-whitespace text of a document,
+	 * except for the contents of the skipped elements.
+	 */
+	private static List<String> parseEvents(InputStream in) throws Exception {
+		List<String> events = new ArrayList<String>();
+		SAXParserFactory.newInstance().newSAXParser().parse(in, new DefaultHandler() {
+			private int skipDepth;
+
+			@Override
+			public void startElement(String uri, String localName, String qName, Attributes attributes) {
+				if (skipDepth > 0 || qName.equals("ANNOTATION") || qName.equals("TIME_SLOT")
+						|| qName.equals("REF_LINK_SET")) {
+					skipDepth++;
+					return;
+				}
+				StringBuilder sb = new StringBuilder("<" + qName);
+				for (int i = 0; i < attributes.getLength(); i++) {
+					sb.append(' ').append(attributes.getQName(i)).append('=').append(attributes.getValue(i));
+				}
+				events.add(sb.toString());
+			}
+
+			@Override
+			public void endElement(String uri, String localName, String qName) {
+				if (skipDepth > 0) {
+					skipDepth--;
+				} else {
+					events.add("</" + qName);
+				}
+			}
+
+			@Override
+			public void characters(char[] ch, int start, int length) {
+				String text = new String(ch, start, length).trim();
+				if (skipDepth == 0 && !text.isEmpty()) {
+					events.add(text);
+				}
+			}
+		});
+		return events;
+	}
+
+	@DisplayName("A real EAF file gives the same skeleton with and without the filter")
+	@Test
+	void testEAFSkeleton() throws Exception {
+		File eaf = createEAF();
+
+		List<String> unfiltered;
+		try (InputStream in = new FileInputStream(eaf)) {
+			unfiltered = parseEvents(in);
+		}
+		List<String> filtered;
+		try (InputStream in = new AnnotationSkippingInputStream(new FileInputStream(eaf))) {
+			filtered = parseEvents(in);
+		}
+		assertEquals(2, unfiltered.stream().filter(e -> e.startsWith("<TIER ")).count());
+		assertEquals(unfiltered, filtered);
+
+		// the skeleton parser (which uses the filter) agrees with the full parser
+		TranscriptionImpl full = new TranscriptionImpl(eaf.getAbsolutePath());
+		EAFSkeletonParser skeleton = new EAFSkeletonParser(eaf.getAbsolutePath());
+		skeleton.parse();
+		assertEquals(500, full.getTierWithId("words").getNumberOfAnnotations());
+		assertEquals(500, full.getTierWithId("pos").getNumberOfAnnotations());
+
+		assertEquals(2, skeleton.getTiers().size());
+		for (TierImpl tier : skeleton.getTiers()) {
+			TierImpl fullTier = full.getTierWithId(tier.getName());
+			assertNotNull(fullTier);
+			assertEquals(fullTier.getParticipant(), tier.getParticipant());
+			assertEquals(fullTier.getLinguisticType().getLinguisticTypeName(),
+					tier.getLinguisticType().getLinguisticTypeName());
+			assertEquals(fullTier.getParentTier() == null ? null : fullTier.getParentTier().getName(),
+					tier.getParentTier() == null ? null : tier.getParentTier().getName());
+			assertEquals(0, tier.getNumberOfAnnotations());
+		}
+		assertEquals(full.getLinguisticTypes().size(), skeleton.getLinguisticTypes().size());
+		assertEquals(1, skeleton.getControlledVocabularies().size());
+		ControlledVocabulary cv = skeleton.getControlledVocabularies().get(0);
+		assertEquals("cv1", cv.getName());
+		assertEquals(2, cv.size());
+	}
+}
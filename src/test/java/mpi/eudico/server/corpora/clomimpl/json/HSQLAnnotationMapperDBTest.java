@@ -0,0 +1,168 @@
+package mpi.eudico.server.corpora.clomimpl.json;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import mpi.eudico.server.corpora.clom.Annotation;
+import mpi.eudico.server.corpora.clomimpl.abstr.TierImpl;
+import mpi.eudico.server.corpora.clomimpl.abstr.TranscriptionImpl;
+import mpi.eudico.server.corpora.clomimpl.type.LinguisticType;
+
+/**
+ * Tests the annotation mapper against a HSQL file database in a temporary folder.
+ */
+class HSQLAnnotationMapperDBTest {
+	@TempDir
+	File tempDir;
+
+	private TranscriptionImpl transcription;
+	private TierImpl tier;
+	private HSQLAnnotationMapperDB mapperDB;
+
+	@BeforeEach
+	void setUpBefore() throws Exception {
+		DBConnection.setDatabasePath(new File(tempDir, "WA_MAPPER").getAbsolutePath());
+
+		transcription = new TranscriptionImpl();
+		LinguisticType type = new LinguisticType("default");
+		transcription.addLinguisticType(type);
+		tier = new TierImpl("T1", "", transcription, type);
+		transcription.addTier(tier);
+
+		mapperDB = new HSQLAnnotationMapperDB();
+		mapperDB.createDatabaseTables();
+	}
+
+	@AfterEach
+	void tearDown() {
+		DBConnection.closeDBConnection();
+	}
+
+	@DisplayName("The ids of more annotations than fit in one batch are all saved")
+	@Test
+	void testBatchedSave() throws SQLException {
+		Map<Annotation, String> annotationIDs = createAnnotationIDs(2500);
+		mapperDB.saveCollectionIDinDB(transcription, tier, "collection1");
+		mapperDB.saveAnnotationIDsInDB(transcription, annotationIDs, "collection1");
+
+		assertEquals(2500, countAnnotationRows());
+		Annotation last = tier.getAnnotations().get(2499);
+		assertEquals(annotationIDs.get(last), getWebAnnotationID(last.getId()));
+	}
+
+	@DisplayName("A single annotation id is saved via the batch method")
+	@Test
+	void testSingleSave() throws SQLException {
+		Annotation ann = tier.createAnnotation(0, 1000);
+		mapperDB.saveCollectionIDinDB(transcription, tier, "collection1");
+		mapperDB.saveAnnotationIDinDB(transcription, ann, "wa-single", "collection1");
+
+		assertEquals(1, countAnnotationRows());
+		assertEquals("wa-single", getWebAnnotationID(ann.getId()));
+	}
+
+	@DisplayName("If one of the inserts fails, none of the ids is saved, also not those of batches already sent")
+	@Test
+	void testRollbackOnFailure() throws SQLException {
+		Map<Annotation, String> annotationIDs = createAnnotationIDs(1500);
+		// violates the NOT NULL constraint of the second batch
+		annotationIDs.put(tier.getAnnotations().get(1200), null);
+		mapperDB.saveCollectionIDinDB(transcription, tier, "collection1");
+		mapperDB.saveAnnotationIDsInDB(transcription, annotationIDs, "collection1");
+
+		assertEquals(0, countAnnotationRows());
+
+		Connection connection = DBConnection.acquireConnection();
+		try {
+			assertTrue(connection.getAutoCommit(), "The auto commit mode is restored after a rollback");
+		} finally {
+			DBConnection.releaseConnection();
+		}
+
+		annotationIDs.put(tier.getAnnotations().get(1200), "wa-1200");
+		mapperDB.saveAnnotationIDsInDB(transcription, annotationIDs, "collection1");
+		assertEquals(1500, countAnnotationRows());
+	}
+
+	@DisplayName("Ids are not saved if the collection has not been saved first")
+	@Test
+	void testNoCollection() throws SQLException {
+		mapperDB.saveAnnotationIDsInDB(transcription, createAnnotationIDs(10), "collection1");
+
+		assertEquals(0, countAnnotationRows());
+	}
+
+	@DisplayName("The shared connection is reused after it has been released and stays open")
+	@Test
+	void testConnectionReuse() throws SQLException {
+		Connection first = DBConnection.acquireConnection();
+		assertNotNull(first);
+		DBConnection.releaseConnection();
+
+		mapperDB.saveCollectionIDinDB(transcription, tier, "collection1");
+		assertFalse(first.isClosed(), "The connection is not closed when the last user releases it");
+
+		Connection second = DBConnection.acquireConnection();
+		try {
+			assertSame(first, second);
+		} finally {
+			DBConnection.releaseConnection();
+		}
+
+		DBConnection.closeDBConnection();
+		assertTrue(first.isClosed());
+		Connection reopened = DBConnection.acquireConnection();
+		try {
+			assertNotSame(first, reopened);
+			assertFalse(reopened.isClosed());
+		} finally {
+			DBConnection.releaseConnection();
+		}
+	}
+
+	private Map<Annotation, String> createAnnotationIDs(int numAnnotations) {
+		Map<Annotation, String> annotationIDs = new LinkedHashMap<Annotation, String>();
+		for (int i = 0; i < numAnnotations; i++) {
+			Annotation ann = tier.createAnnotation(i * 1000L, i * 1000L + 500);
+			annotationIDs.put(ann, "wa-" + i);
+		}
+		return annotationIDs;
+	}
+
+	private int countAnnotationRows() throws SQLException {
+		Connection connection = DBConnection.acquireConnection();
+		try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM annotation");
+				ResultSet rs = statement.executeQuery()) {
+			rs.next();
+			return rs.getInt(1);
+		} finally {
+			DBConnection.releaseConnection();
+		}
+	}
+
+	private String getWebAnnotationID(String elanAnnotationID) throws SQLException {
+		Connection connection = DBConnection.acquireConnection();
+		try (PreparedStatement statement = connection.prepareStatement(
+				"SELECT wa_annotation_id FROM annotation WHERE elan_annotation_id = ?")) {
+			statement.setString(1, elanAnnotationID);
+			try (ResultSet rs = statement.executeQuery()) {
+				return rs.next() ? rs.getString(1) : null;
+			}
+		} finally {
+			DBConnection.releaseConnection();
+		}
+	}
+}
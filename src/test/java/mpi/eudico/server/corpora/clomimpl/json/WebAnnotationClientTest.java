@@ -0,0 +1,160 @@
+package mpi.eudico.server.corpora.clomimpl.json;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests exporting multiple annotations against a local stand-in for the
+ * annotation server. The json of an annotation is just its index, the server
+ * answers with the id {@code "id-<index>"}.
+ */
+class WebAnnotationClientTest {
+	private HttpServer server;
+	private String collectionURI;
+	private WebAnnotationClient client;
+
+	private final AtomicInteger numRequests = new AtomicInteger();
+	private final AtomicInteger numInFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	/** every n-th request is answered with 503, 0 for none */
+	private volatile int unavailableEvery;
+	/** requests for indexes from this index wait for the release latch */
+	private volatile int blockFrom = Integer.MAX_VALUE;
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@BeforeEach
+	void setUp() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/collection/", this::handle);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		collectionURI = "http://localhost:" + server.getAddress().getPort() + "/collection/";
+
+		client = new WebAnnotationClient();
+		client.setRetryPolicy(3, 10);
+	}
+
+	@AfterEach
+	void tearDown() {
+		release.countDown();
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		int inFlight = numInFlight.incrementAndGet();
+		maxInFlight.accumulateAndGet(inFlight, Math::max);
+		try (InputStream in = exchange.getRequestBody()) {
+			int index = Integer.parseInt(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+			int requestNumber = numRequests.incrementAndGet();
+			if (index >= blockFrom) {
+				release.await(10, TimeUnit.SECONDS);
+			}
+			if (unavailableEvery > 0 && requestNumber % unavailableEvery == 0) {
+				respond(exchange, 503, "");
+			} else {
+				respond(exchange, WebAnnotationClient.HTTP_CREATED, "{\"id\": \"id-" + index + "\"}");
+			}
+		} catch (InterruptedException ie) {
+			respond(exchange, 503, "");
+		} finally {
+			numInFlight.decrementAndGet();
+		}
+	}
+
+	private void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private List<String> createJsons(int number) {
+		List<String> jsons = new ArrayList<String>(number);
+		for (int i = 0; i < number; i++) {
+			jsons.add(String.valueOf(i));
+		}
+		return jsons;
+	}
+
+	@DisplayName("All ids are returned in input order when some requests are retried")
+	@Test
+	void testExportWithRetries() {
+		unavailableEvery = 7;
+		client.setMaxConcurrentRequests(5);
+		Thread caller = Thread.currentThread();
+		List<Integer> progressValues = new ArrayList<Integer>();
+
+		List<String> ids = client.exportAnnotations(createJsons(200), collectionURI, "", n -> {
+			assertSame(caller, Thread.currentThread());
+			progressValues.add(n);
+		});
+
+		assertEquals(200, ids.size());
+		for (int i = 0; i < ids.size(); i++) {
+			assertEquals("id-" + i, ids.get(i));
+		}
+		assertTrue(numRequests.get() > 200, "Expected retried requests");
+		assertTrue(maxInFlight.get() <= 5, "Too many requests in flight: " + maxInFlight.get());
+		assertEquals(200, progressValues.size());
+		assertEquals(200, progressValues.get(199).intValue());
+	}
+
+	@DisplayName("A request that keeps failing gives an empty id after the retries")
+	@Test
+	void testRetriesExhausted() {
+		unavailableEvery = 1;
+		client.setRetryPolicy(2, 1);
+
+		List<String> ids = client.exportAnnotations(createJsons(3), collectionURI, "", null);
+
+		assertEquals(List.of("", "", ""), ids);
+		assertEquals(9, numRequests.get());
+	}
+
+	@DisplayName("After an interrupt the ids of all finished requests are returned")
+	@Test
+	void testInterruptKeepsFinishedIDs() {
+		blockFrom = 3;
+		client.setMaxConcurrentRequests(8);
+		List<String> ids;
+		try {
+			// interrupt as soon as the three unblocked requests have been taken
+			ids = client.exportAnnotations(createJsons(10), collectionURI, "", n -> {
+				if (n == 3) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+
+		assertEquals(10, ids.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals("id-" + i, ids.get(i));
+		}
+		for (int i = 3; i < 10; i++) {
+			assertEquals("", ids.get(i));
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package mpi.eudico.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import javax.swing.undo.UndoManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that lookups by value reflect every change of the entries, the
+ * lookups use an index that has to be invalidated by each change.
+ */
+class ControlledVocabularyTest {
+	private ControlledVocabulary cv;
+	private UndoManager undoManager;
+	private CVEntry noun;
+	private CVEntry verb;
+	private CVEntry adj;
+
+	@BeforeEach
+	void setUp() {
+		cv = new ControlledVocabulary("pos");
+		noun = new CVEntry(cv, 0, "noun", "a noun");
+		verb = new CVEntry(cv, 0, "verb", "a verb");
+		adj = new CVEntry(cv, 0, "adj", "an adjective");
+		cv.addEntry(noun);
+		cv.addEntry(verb);
+		cv.addEntry(adj);
+		undoManager = new UndoManager();
+		cv.addUndoableEditListener(undoManager);
+		// build the index
+		assertSame(noun, cv.getEntryWithValue(0, "noun"));
+	}
+
+	@DisplayName("Changing the value of an entry updates the lookup")
+	@Test
+	void testSetValue() {
+		verb.setValue(0, "verb2");
+		assertNull(cv.getEntryWithValue(0, "verb"));
+		assertSame(verb, cv.getEntryWithValue(0, "verb2"));
+		assertTrue(cv.containsValue(0, "verb2"));
+	}
+
+	@DisplayName("Moving entries changes which of two entries with the same value is found")
+	@Test
+	void testMoveEntries() {
+		// adding an entry with an existing value is refused, changing a value is not
+		adj.setValue(0, "noun");
+		assertSame(noun, cv.getEntryWithValue(0, "noun"));
+
+		cv.moveEntries(new CVEntry[] {adj}, BasicControlledVocabulary.MOVE_TO_TOP);
+		assertSame(adj, cv.getEntryWithValue(0, "noun"));
+
+		undoManager.undo();
+		assertSame(noun, cv.getEntryWithValue(0, "noun"));
+		undoManager.redo();
+		assertSame(adj, cv.getEntryWithValue(0, "noun"));
+	}
+
+	@DisplayName("Replacing an entry updates the lookup by value and by id, also after undo and redo")
+	@Test
+	void testReplaceEntry() {
+		String verbId = verb.getId();
+		CVEntry replacement = new CVEntry(cv, 0, "action", "a verb");
+		assertTrue(cv.replaceEntry(verb, replacement));
+		assertNull(cv.getEntryWithValue(0, "verb"));
+		assertSame(replacement, cv.getEntryWithValue(0, "action"));
+		assertSame(replacement, cv.getEntrybyId(verbId));
+
+		undoManager.undo();
+		assertSame(verb, cv.getEntryWithValue(0, "verb"));
+		assertNull(cv.getEntryWithValue(0, "action"));
+		assertSame(verb, cv.getEntrybyId(verbId));
+
+		undoManager.redo();
+		assertSame(replacement, cv.getEntryWithValue(0, "action"));
+		assertSame(replacement, cv.getEntrybyId(verbId));
+	}
+
+	@DisplayName("Undo and redo of adding and removing entries update the lookup")
+	@Test
+	void testUndoRedoAddRemove() {
+		CVEntry adv = new CVEntry(cv, 0, "adv", "an adverb");
+		cv.addEntry(adv);
+		assertSame(adv, cv.getEntryWithValue(0, "adv"));
+		undoManager.undo();
+		assertNull(cv.getEntryWithValue(0, "adv"));
+		undoManager.redo();
+		assertSame(adv, cv.getEntryWithValue(0, "adv"));
+
+		assertTrue(cv.removeEntries(new CVEntry[] {noun, adj}));
+		assertNull(cv.getEntryWithValue(0, "noun"));
+		assertNull(cv.getEntryWithValue(0, "adj"));
+		assertSame(verb, cv.getEntryWithValue(0, "verb"));
+		undoManager.undo();
+		assertSame(noun, cv.getEntryWithValue(0, "noun"));
+		assertSame(adj, cv.getEntryWithValue(0, "adj"));
+		undoManager.redo();
+		assertNull(cv.getEntryWithValue(0, "noun"));
+		assertEquals(2, cv.size());
+	}
+
+	@DisplayName("Sorting and undoing the sort keep the lookup valid")
+	@Test
+	void testSortUndo() {
+		adj.setValue(0, "noun");
+		// adj and noun have the same value, verb comes first in reverse order
+		cv.getEntriesSortedByReverseAlphabetOrder(0);
+		assertSame(verb, cv.getEntries()[0]);
+		undoManager.undo();
+		assertSame(noun, cv.getEntryWithValue(0, "noun"));
+		assertSame(noun, cv.getEntries()[0]);
+	}
+}
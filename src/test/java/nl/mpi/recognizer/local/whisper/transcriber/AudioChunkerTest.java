@@ -0,0 +1,51 @@
+package nl.mpi.recognizer.local.whisper.transcriber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioChunkerTest {
+
+    private static final int FRAME_DURATION = 10;
+
+    @Test
+    void testCreateChunksForShortFile() {
+        float[] energies = new float[1000];
+        List<AudioChunker.AudioChunk> chunks = new AudioChunker(FRAME_DURATION, 10000).createChunks(energies, 10000);
+        assertEquals(1, chunks.size());
+        assertEquals(new AudioChunker.AudioChunk(0, 0, 10000), chunks.get(0));
+    }
+
+    @Test
+    void testCreateChunksSplitsAtSilences() {
+        // 60 seconds of "speech" with silences of 500 ms at 9.5 s, 21 s and 38 s
+        float[] energies = new float[6000];
+        Arrays.fill(energies, 1000f);
+        Arrays.fill(energies, 950, 1000, 0f);
+        Arrays.fill(energies, 2100, 2150, 0f);
+        Arrays.fill(energies, 3800, 3850, 0f);
+
+        List<AudioChunker.AudioChunk> chunks = new AudioChunker(FRAME_DURATION, 10000).createChunks(energies, 60000);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(0, chunks.get(0).beginTime());
+        assertEquals(60000, chunks.get(chunks.size() - 1).endTime());
+        for (int i = 1; i < chunks.size(); i++) {
+            assertEquals(chunks.get(i - 1).endTime(), chunks.get(i).beginTime());
+            assertEquals(i, chunks.get(i).index());
+        }
+        long firstBoundary = chunks.get(0).endTime();
+        assertTrue(firstBoundary >= 9500 && firstBoundary <= 10000, "boundary not in silence: " + firstBoundary);
+    }
+
+    @Test
+    void testMaxOverChannels() {
+        float[][] energies = {{1f, 5f, 3f}, {4f, 2f, 6f}};
+        assertArrayEquals(new float[]{4f, 5f, 6f}, AudioChunker.maxOverChannels(energies));
+    }
+}
@@ -0,0 +1,142 @@
+package nl.mpi.recognizer.local.whisper.transcriber;
+
+import mpi.eudico.client.annotator.recognizer.api.RecognizerHost;
+import mpi.eudico.client.annotator.recognizer.data.RSelection;
+import mpi.eudico.client.annotator.recognizer.data.Segment;
+import nl.mpi.recognizer.local.whisper.WhisperStandaloneRecognizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingSegmentCollectorTest {
+
+    @Mock
+    private WhisperStandaloneRecognizer recognizer;
+
+    @Mock
+    private WhisperArguments whisperArguments;
+
+    @Mock
+    private RecognizerHost host;
+
+    @Test
+    void testParseSegmentLine() {
+        Optional<Segment> segment = StreamingSegmentCollector.parseSegmentLine("[00:16.360 --> 00:17.360]  Lorem ipsum.");
+        assertTrue(segment.isPresent());
+        assertItem(segment.get(), 16360, 17360, "Lorem ipsum.");
+
+        segment = StreamingSegmentCollector.parseSegmentLine("[01:02:03.004 --> 01:02:05.500] Aut quisquam.");
+        assertTrue(segment.isPresent());
+        assertItem(segment.get(), 3723004, 3725500, "Aut quisquam.");
+    }
+
+    @Test
+    void testParseSegmentLineForNonSegments() {
+        assertFalse(StreamingSegmentCollector.parseSegmentLine(null).isPresent());
+        assertFalse(StreamingSegmentCollector.parseSegmentLine("").isPresent());
+        assertFalse(StreamingSegmentCollector.parseSegmentLine("0").isPresent());
+        assertFalse(StreamingSegmentCollector.parseSegmentLine("Detecting language using up to the first 30 seconds.").isPresent());
+        assertFalse(StreamingSegmentCollector.parseSegmentLine("[00:17.360 --> 00:16.360] reversed").isPresent());
+    }
+
+    @Test
+    void testAcceptCollectsSegments() {
+        StreamingSegmentCollector collector = new StreamingSegmentCollector(recognizer, Integer.MAX_VALUE, Long.MAX_VALUE);
+        assertTrue(collector.accept("[00:00.000 --> 00:03.620]  Lorem ipsum."));
+        assertFalse(collector.accept("100%|##########| 3000/3000"));
+        assertTrue(collector.accept("[00:05.380 --> 00:07.380]  Aut quisquam."));
+
+        List<RSelection> segments = collector.getSegments();
+        assertEquals(2, segments.size());
+        assertItem(segments.get(0), 0, 3620, "Lorem ipsum.");
+        assertItem(segments.get(1), 5380, 7380, "Aut quisquam.");
+    }
+
+    @ParameterizedTest
+    @CsvSource({"true, words", "false, phrase"})
+    void testFlushPublishesBatches(boolean wordTimestamps, String segmentationType)
+        throws InterruptedException, InvocationTargetException {
+        when(recognizer.getWhisperArguments()).thenReturn(whisperArguments);
+        when(whisperArguments.wordTimestamps()).thenReturn(Optional.of(wordTimestamps));
+        when(whisperArguments.inputAudioVideoFilePath()).thenReturn("media.wav");
+        when(recognizer.getHost()).thenReturn(host);
+
+        StreamingSegmentCollector collector = new StreamingSegmentCollector(recognizer, 2, Long.MAX_VALUE);
+        collector.accept("[00:00.000 --> 00:03.620]  Lorem ipsum.");
+        drainEventQueue();
+        verify(host, never()).addSegmentation(any());
+
+        collector.accept("[00:05.380 --> 00:07.380]  Aut quisquam.");
+        drainEventQueue();
+        verify(host, times(1)).addSegmentation(assertArg(segmentation -> {
+            assertEquals(segmentationType, segmentation.getName());
+            assertEquals(2, segmentation.getSegments().size());
+        }));
+
+        collector.accept("[00:08.000 --> 00:09.000]  Dolor sit.");
+        collector.flush();
+        drainEventQueue();
+        verify(host, times(2)).addSegmentation(any());
+        collector.flush();
+        drainEventQueue();
+        verify(host, times(2)).addSegmentation(any());
+    }
+
+    @Test
+    void testPendingUpdatesAreCoalesced() throws InterruptedException, InvocationTargetException {
+        when(recognizer.getWhisperArguments()).thenReturn(whisperArguments);
+        when(whisperArguments.wordTimestamps()).thenReturn(Optional.empty());
+        when(whisperArguments.inputAudioVideoFilePath()).thenReturn("media.wav");
+        when(recognizer.getHost()).thenReturn(host);
+
+        StreamingSegmentCollector collector = new StreamingSegmentCollector(recognizer, 1, Long.MAX_VALUE);
+        CountDownLatch edtBlocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventQueue.invokeLater(() -> {
+            edtBlocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        edtBlocked.await();
+
+        assertTrue(collector.accept("[00:00.000 --> 00:03.620]  Lorem ipsum."));
+        assertTrue(collector.accept("[00:05.380 --> 00:07.380]  Aut quisquam."));
+        assertTrue(collector.accept("[00:08.000 --> 00:09.000]  Dolor sit."));
+        release.countDown();
+        drainEventQueue();
+
+        verify(host, times(1)).addSegmentation(assertArg(segmentation -> {
+            assertEquals(TranscriptionSegmentationStrategy.PHRASE, segmentation.getName());
+            assertEquals(3, segmentation.getSegments().size());
+        }));
+    }
+
+    private static void drainEventQueue() throws InterruptedException, InvocationTargetException {
+        EventQueue.invokeAndWait(() -> {
+        });
+    }
+
+    private static void assertItem(RSelection rSelection, long start, long end, String label) {
+        assertEquals(start, rSelection.beginTime);
+        assertEquals(end, rSelection.endTime);
+        assertEquals(label, ((Segment) rSelection).label);
+    }
+}